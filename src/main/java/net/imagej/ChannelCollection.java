@@ -30,7 +30,7 @@
 package net.imagej;
 
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import org.scijava.util.ColorRGB;
@@ -46,7 +46,7 @@ public class ChannelCollection {
 	
 	// -- instance variables --
 	
-	private List<Double> channelInfos;
+	private final double[] channelInfos;
 	private boolean areInteger;
 	
 	// -- constructors --
@@ -56,20 +56,22 @@ public class ChannelCollection {
 	 * getChannelValue() will return 0 for all channels. 
 	 */
 	public ChannelCollection() {
-		this(new LinkedList<Double>());
+		this(Collections.<Double> emptyList());
 	}
 	
 	/**
 	 * Constructs a new channel collection from a list of Double values.
 	 */
 	public ChannelCollection(List<Double> values) {
-		this.channelInfos = new LinkedList<>();
-		channelInfos.addAll(values);
 		// NB - make sure its always populated with at least one channel. This
 		// simplifies API elsewhere (by always having a positive channel count)
-		if (channelInfos.size() == 0) channelInfos.add(0.0);
+		this.channelInfos = new double[Math.max(1, values.size())];
+		int i = 0;
+		for (Double value : values) {
+			channelInfos[i++] = value;
+		}
 		areInteger = true;
-		for (Double value : channelInfos) {
+		for (double value : channelInfos) {
 			areInteger &= (value == Math.floor(value));
 		}
 	}
@@ -93,7 +95,7 @@ public class ChannelCollection {
 	 * Returns the number of channels in the collection 
 	 */
 	public long getChannelCount() {
-		return channelInfos.size();
+		return channelInfos.length;
 	}
 	
 	/**
@@ -102,8 +104,8 @@ public class ChannelCollection {
 	public double getChannelValue(long chan) {
 		if (chan > Integer.MAX_VALUE)
 			throw new IllegalArgumentException("too many channels: "+chan);
-		if (chan >= channelInfos.size()) return 0;
-		return channelInfos.get((int)chan);
+		if (chan >= channelInfos.length) return 0;
+		return channelInfos[(int)chan];
 	}
 
 	/**
@@ -75,7 +75,9 @@ public interface Dataset extends Data, ImgPlusMetadata, Img<RealType<?>> {
 	/**
 	 * gets a plane of data from the Dataset. The representation of the plane is
 	 * determined by the native ImgLib container. This method will create a copy
-	 * of the original data if it cannot obtain a direct reference.
+	 * of the original data if it cannot obtain a direct reference. Direct
+	 * references are available for PlanarAccess backed Img's, and for cell
+	 * Img's whose cells each hold exactly one XY plane.
 	 */
 	Object getPlane(int planeNumber);
 
@@ -84,7 +86,9 @@ public interface Dataset extends Data, ImgPlusMetadata, Img<RealType<?>> {
 	 * determined by the native ImgLib container. The behavior of this method when
 	 * a reference to the actual data cannot be obtained depends upon the value of
 	 * the input copyOK boolean. If copyOK is true a copy of the data is created
-	 * and returned. If copyOK is false null is returned.
+	 * and returned. If copyOK is false null is returned. Null is also returned
+	 * for types whose samples are not held entirely by primitive arrays, such as
+	 * {@link net.imagej.types.UnboundedIntegerType}.
 	 */
 	Object getPlane(int planeNumber, boolean copyOK);
 
@@ -92,15 +96,19 @@ public interface Dataset extends Data, ImgPlusMetadata, Img<RealType<?>> {
 	 * sets a plane of data within the dataset. generates an update event if the
 	 * plane reference differs from the current plane reference associated with
 	 * the given plane number. returns true if the reference was changed or false
-	 * if it was not. This method only works with PlanarAccess backed Img's.
+	 * if it was not. For Img's which are not PlanarAccess backed, the plane's
+	 * data is copied into the Img instead, unless it is already a direct
+	 * reference obtained from {@link #getPlane(int, boolean)}.
 	 */
 	boolean setPlane(int planeNum, Object newPlane);
 
 	/**
 	 * sets a plane of data within the dataset. NEVER generates update events. if
 	 * the plane reference differs from the current plane reference associated
-	 * with the given plane number returns true else false. This method only works
-	 * with PlanarAccess backed Img's.
+	 * with the given plane number returns true else false. For Img's which are
+	 * not PlanarAccess backed, the plane's data is copied into the Img instead,
+	 * unless it is already a direct reference obtained from
+	 * {@link #getPlane(int, boolean)}.
 	 */
 	boolean setPlaneSilently(int planeNum, Object newPlane);
 
@@ -29,6 +29,8 @@
 
 package net.imagej;
 
+import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
@@ -44,6 +46,7 @@ import net.imagej.event.DatasetTypeChangedEvent;
 import net.imagej.event.DatasetUpdatedEvent;
 import net.imagej.types.DataType;
 import net.imagej.types.DataTypeService;
+import net.imagej.util.ImgStorage;
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
 import net.imglib2.Positionable;
@@ -69,6 +72,7 @@ import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
 
 import org.scijava.Context;
 import org.scijava.log.LogService;
@@ -173,6 +177,8 @@ public class DefaultDataset extends AbstractData implements Dataset {
 	 */
 	@Override
 	public Object getPlane(final int planeNumber, final boolean copyOK) {
+		// NB: Neither the storage nor a copy of it would hold every sample.
+		if (!ImgStorage.hasRawSamples(getType())) return null;
 		final Img<? extends RealType<?>> img = imgPlus.getImg();
 		if (img instanceof PlanarAccess) {
 			final PlanarAccess<?> planarAccess = (PlanarAccess<?>) img;
@@ -180,6 +186,12 @@ public class DefaultDataset extends AbstractData implements Dataset {
 			if (plane instanceof ArrayDataAccess) return ((ArrayDataAccess<?>) plane)
 				.getCurrentStorageArray();
 		}
+		// cells which span whole XY planes can be referenced directly
+		// NB: For cached images, pass the plane back to setPlane after modifying
+		// it in place, so that the changes are persisted.
+		final ArrayDataAccess<?> cellPlane =
+			ImgStorage.cellPlane(img, planePosition(planeNumber));
+		if (cellPlane != null) return cellPlane.getCurrentStorageArray();
 		if (copyOK) return copyOfPlane(planeNumber);
 		return null;
 	}
@@ -187,13 +199,15 @@ public class DefaultDataset extends AbstractData implements Dataset {
 	@SuppressWarnings("unchecked")
 	@Override
 	public boolean setPlaneSilently(final int planeNum, final Object newPlane) {
+		if (!ImgStorage.hasRawSamples(getType())) {
+			log.error("Cannot set plane of " + getType().getClass().getName());
+			return false;
+		}
 		final Img<? extends RealType<?>> img = imgPlus.getImg();
 		if (!(img instanceof PlanarAccess)) {
-			// cannot set by reference
-			log.error("Cannot set plane for non-planar image");
-			return false;
+			// cannot set by reference; copy the plane into place instead
+			return copyIntoPlane(planeNum, newPlane);
 		}
-		// TODO - copy the plane if it cannot be set by reference
 		@SuppressWarnings("rawtypes")
 		final PlanarAccess planarAccess = (PlanarAccess) img;
 		final ArrayDataAccess<?> arrayAccess =
@@ -202,12 +216,15 @@ public class DefaultDataset extends AbstractData implements Dataset {
 		if (newPlane == currPlane) return false;
 		final ArrayDataAccess<?> array = createArrayDataAccess(newPlane);
 		planarAccess.setPlane(planeNum, array);
+		// NB: Only the replaced plane needs to be measured again.
+		imgPlus.clearPlaneRange(planeNum);
 		return true;
 	}
 
 	@Override
 	public boolean setPlane(final int planeNum, final Object newPlane) {
 		if (setPlaneSilently(planeNum, newPlane)) {
+			// NB: Keep the recorded ranges of the other planes.
 			update(false);
 			return true;
 		}
@@ -339,11 +356,14 @@ public class DefaultDataset extends AbstractData implements Dataset {
 
 	@Override
 	public void update() {
+		// NB: Any plane may have changed.
+		imgPlus.clearPlaneRanges();
 		update(false);
 	}
 
 	@Override
 	public void rebuild() {
+		imgPlus.clearPlaneRanges();
 		setDirty(true);
 		publish(new DatasetRestructuredEvent(this));
 	}
@@ -606,6 +626,10 @@ public class DefaultDataset extends AbstractData implements Dataset {
 	private void copyDataValues(final Img<? extends RealType<?>> input,
 		final Img<? extends RealType<?>> output)
 	{
+		// copy directly between storage arrays, if possible
+		if (ImgStorage.copy(input, output)) return;
+
+		// otherwise, copy sample by sample
 		final long[] position = new long[output.numDimensions()];
 		final Cursor<? extends RealType<?>> outputCursor =
 			output.localizingCursor();
@@ -620,6 +644,71 @@ public class DefaultDataset extends AbstractData implements Dataset {
 		}
 	}
 
+	/**
+	 * Gets the position of the given plane, with zeroes for the X and Y
+	 * dimensions.
+	 */
+	private long[] planePosition(final int planeNum) {
+		final int n = imgPlus.numDimensions();
+		final long[] position = new long[n];
+		if (n <= 2) return position;
+		final long[] planeIndexSpans = new long[n - 2];
+		for (int i = 0; i < planeIndexSpans.length; i++)
+			planeIndexSpans[i] = imgPlus.dimension(i + 2);
+		final Extents planeExtents = new Extents(planeIndexSpans);
+		final long[] planePos = new long[planeExtents.numDimensions()];
+		final Position pos = planeExtents.createPosition();
+		pos.setIndex(planeNum);
+		pos.localize(planePos);
+		for (int i = 2; i < n; i++)
+			position[i] = planePos[i - 2];
+		return position;
+	}
+
+	/**
+	 * Copies the given plane into a non-planar image. Returns false if the plane
+	 * is already the image's own storage, or if it cannot be copied.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private boolean copyIntoPlane(final int planeNum, final Object newPlane) {
+		final long[] position = planePosition(planeNum);
+		// NB: A plane obtained by reference was modified in place already; mark
+		// its cell as written, so that a cached image persists the changes.
+		final ArrayDataAccess<?> cellPlane = ImgStorage.cellPlane(imgPlus,
+			position, true);
+		if (cellPlane != null && cellPlane.getCurrentStorageArray() == newPlane) {
+			return false;
+		}
+		if (!ImgStorage.setPlane(imgPlus, position, newPlane)) {
+			// copy sample by sample, e.g. into a cached cell image
+			final ImgStorage.Kind kind = ImgStorage.kind(getType());
+			final long w = dimension(0);
+			final long h = dimension(1);
+			if (kind == null || !kind.accepts(newPlane) || //
+				Array.getLength(newPlane) != w * h)
+			{
+				log.error("Cannot copy plane into non-planar image");
+				return false;
+			}
+			final long[] max = position.clone();
+			max[0] = w - 1;
+			max[1] = h - 1;
+			final Cursor<? extends RealType<?>> cursor = Views.flatIterable(Views
+				.interval(imgPlus, position, max)).cursor();
+			final boolean integer = kind.isInteger() &&
+				getType() instanceof IntegerType;
+			int i = 0;
+			while (cursor.hasNext()) {
+				final RealType<?> value = cursor.next();
+				if (integer) ((IntegerType) value).setInteger(kind.getLong(newPlane, i));
+				else value.setReal(kind.getDouble(newPlane, i));
+				i++;
+			}
+		}
+		imgPlus.clearPlaneRange(planeNum);
+		return true;
+	}
+
 	private Object copyOfPlane(final int planeNum) {
 		final long[] dimensions = new long[imgPlus.numDimensions()];
 		imgPlus.dimensions(dimensions);
@@ -636,23 +725,33 @@ public class DefaultDataset extends AbstractData implements Dataset {
 		final NativeType<?> nativeType = (NativeType<?>) type;
 		@SuppressWarnings({ "rawtypes", "unchecked" })
 		final ArrayImgFactory storageFactory = new ArrayImgFactory(nativeType);
-		final ArrayImg<?, ?> container = storageFactory.create(w, h);
+		// NB: Give the container the same dimensionality as the image, so that
+		// the plane can be copied directly between the storage arrays.
+		final long[] planeDims = new long[dimensions.length];
+		Arrays.fill(planeDims, 1);
+		planeDims[0] = w;
+		planeDims[1] = h;
+		final ArrayImg<?, ?> container = storageFactory.create(planeDims);
 		final RandomAccess<? extends RealType<?>> input = imgPlus.randomAccess();
 		@SuppressWarnings("unchecked")
 		final RandomAccess<? extends RealType<?>> output =
 			(RandomAccess<? extends RealType<?>>) container.randomAccess();
-		final long[] planeIndexSpans = new long[dimensions.length - 2];
-		for (int i = 0; i < planeIndexSpans.length; i++)
-			planeIndexSpans[i] = dimensions[i + 2];
-		final Extents planeExtents = new Extents(planeIndexSpans);
-		final long[] planePos = new long[planeExtents.numDimensions()];
-		final Position pos = planeExtents.createPosition();
-		pos.setIndex(planeNum);
-		pos.localize(planePos);
-		final long[] inputPos = new long[dimensions.length];
-		for (int i = 2; i < dimensions.length; i++)
-			inputPos[i] = planePos[i - 2];
-		final long[] outputPos = new long[2];
+		final long[] inputPos = planePosition(planeNum);
+		final ArrayDataAccess<?> store =
+			(ArrayDataAccess<?>) container.update(null);
+
+		// copy directly between storage arrays, if possible
+		final long[] planeMax = inputPos.clone();
+		planeMax[0] = w - 1;
+		planeMax[1] = h - 1;
+		if (ImgStorage.copy(Views.interval(imgPlus, inputPos, planeMax),
+			container))
+		{
+			return store.getCurrentStorageArray();
+		}
+
+		// otherwise, copy sample by sample
+		final long[] outputPos = new long[dimensions.length];
 		input.setPosition(inputPos);
 		output.setPosition(outputPos);
 		final RealType<?> inputRef = input.get();
@@ -675,8 +774,6 @@ public class DefaultDataset extends AbstractData implements Dataset {
 				output.move(1, 1);
 			}
 		}
-		final ArrayDataAccess<?> store =
-			(ArrayDataAccess<?>) container.update(null);
 		return store.getCurrentStorageArray();
 	}
 
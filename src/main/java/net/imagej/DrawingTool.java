@@ -29,12 +29,16 @@
 
 package net.imagej;
 
+import java.util.Arrays;
+
 import net.imagej.axis.Axes;
 import net.imagej.render.RenderingService;
 import net.imagej.render.TextRenderer;
 import net.imagej.render.TextRenderer.FontFamily;
 import net.imagej.render.TextRenderer.FontStyle;
 import net.imagej.render.TextRenderer.TextJustification;
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Row;
 import net.imglib2.RandomAccess;
 import net.imglib2.type.numeric.RealType;
 
@@ -49,6 +53,10 @@ import net.imglib2.type.numeric.RealType;
  * axes (i.e UV can equal XY or ZT or any other combination of Dataset axes that
  * do not involve the channel axis). It is the user's responsibility to avoid
  * using a single axis to specify both the U and V axes.
+ * <p>
+ * Filled shapes are drawn as horizontal spans along U, which are written
+ * directly into the storage arrays of the {@link Dataset} where possible.
+ * </p>
  * 
  * @author Barry DeZonia
  */
@@ -62,6 +70,8 @@ public class DrawingTool {
 	private int channelAxis;
 	private long preferredChannel;
 	private final RandomAccess<? extends RealType<?>> accessor;
+	private final RealType<?> sample;
+	private final long[] spanPos;
 	private long lineWidth;
 	private long u0, v0;
 	private long maxU, maxV;
@@ -81,6 +91,8 @@ public class DrawingTool {
 	public DrawingTool(final Dataset ds, RenderingService service) {
 		this.dataset = ds;
 		this.accessor = ds.getImgPlus().randomAccess();
+		this.sample = ds.getImgPlus().firstElement().createVariable();
+		this.spanPos = new long[ds.numDimensions()];
 		this.channels = new ChannelCollection();
 		this.lineWidth = 1;
 		this.intensity = 1;
@@ -342,14 +354,43 @@ public class DrawingTool {
 	public void drawLine(final long u1, final long v1, final long u2,
 		final long v2)
 	{
+		if (v1 == v2 && lineWidth == 1) {
+			// horizontal lines are spans
+			drawSpan(u1, u2, v1);
+			moveTo(u2, v2);
+			return;
+		}
 		moveTo(u1, v1);
 		lineTo(u2, v2);
 	}
 
+	/**
+	 * Draws a horizontal span of pixels in the current UV plane, from u1 to u2
+	 * (inclusive) at the given V coordinate. The span is clipped to the plane.
+	 */
+	public void drawSpan(final long u1, final long u2, final long v) {
+		if (v < 0 || v > maxV) return;
+		final long start = Math.max(0, Math.min(u1, u2));
+		final long end = Math.min(maxU, Math.max(u1, u2));
+		if (start > end) return;
+		accessor.localize(spanPos);
+		spanPos[vAxis] = v;
+		if (preferredChannel >= 0) { // draw in single channel mode
+			drawSpan(preferredChannel, start, end);
+		}
+		else { // draw across all channels
+			long numChannels = 1;
+			if (channelAxis != -1) numChannels = dataset.dimension(channelAxis);
+			for (long c = 0; c < numChannels; c++) {
+				drawSpan(c, start, end);
+			}
+		}
+		dataset.setDirty(true);
+	}
+
 	// TODO - performance improve fillCircle? Necessary? Test.
 	// TODO - make a version that draws the outline only. That version would need
 	// user to provide radius. Line width would be the width of the outline.
-	// TODO - make an ellipse method. have fillCircle call it.
 
 	/**
 	 * Draws a filled circle in the current UV plane centered at the specified UV
@@ -365,16 +406,106 @@ public class DrawingTool {
 		r -= 0.5;
 		final double uoffset = umin + r;
 		final double voffset = vmin + r;
-		double uu, vv;
 		for (long v = vmin; v < vmax; v++) {
-			for (long u = umin; u < umax; u++) {
-				uu = u - uoffset;
-				vv = v - voffset;
-				if ((uu * uu + vv * vv) <= r2) drawPixel(u, v);
+			final double vv = v - voffset;
+			final double rest = r2 - vv * vv;
+			if (rest < 0) continue;
+			// the span of u with (u - uoffset)^2 <= rest, within [umin, umax)
+			final double half = Math.sqrt(rest);
+			long u1 = Math.max(umin, (long) Math.ceil(uoffset - half));
+			long u2 = Math.min(umax - 1, (long) Math.floor(uoffset + half));
+			// NB: Correct any rounding error of the square root.
+			while (u1 > umin && inCircle(u1 - 1, uoffset, rest)) u1--;
+			while (u1 <= u2 && !inCircle(u1, uoffset, rest)) u1++;
+			while (u2 < umax - 1 && inCircle(u2 + 1, uoffset, rest)) u2++;
+			while (u2 >= u1 && !inCircle(u2, uoffset, rest)) u2--;
+			if (u1 <= u2) drawSpan(u1, u2, v);
+		}
+	}
+
+	/**
+	 * Draws a filled polygon in the current UV plane, with the given vertices.
+	 * Pixels are filled when their coordinates lie inside the polygon according
+	 * to the even-odd rule; the polygon is scanned one row at a time using a
+	 * table of the edges crossing each row.
+	 */
+	public void fillPolygon(final double[] us, final double[] vs) {
+		final int n = Math.min(us.length, vs.length);
+		if (n < 3) return;
+
+		// edges, ordered by their first row: v range [top, bottom) and slope
+		final Integer[] order = new Integer[n];
+		final double[] top = new double[n], bottom = new double[n];
+		final double[] uTop = new double[n], slope = new double[n];
+		for (int i = 0; i < n; i++) {
+			final int j = (i + 1) % n;
+			final boolean down = vs[i] <= vs[j];
+			final int a = down ? i : j, b = down ? j : i;
+			top[i] = vs[a];
+			bottom[i] = vs[b];
+			uTop[i] = us[a];
+			slope[i] = vs[a] == vs[b] ? 0 : (us[b] - us[a]) / (vs[b] - vs[a]);
+			order[i] = i;
+		}
+		Arrays.sort(order, (e1, e2) -> Double.compare(top[e1], top[e2]));
+
+		double lowV = Double.POSITIVE_INFINITY, highV = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			lowV = Math.min(lowV, top[i]);
+			highV = Math.max(highV, bottom[i]);
+		}
+		final long vStart = Math.max(0, (long) Math.ceil(lowV));
+		final long vEnd = Math.min(maxV, (long) Math.ceil(highV) - 1);
+
+		final int[] active = new int[n];
+		final double[] crossings = new double[n];
+		int activeCount = 0, next = 0;
+		for (long v = vStart; v <= vEnd; v++) {
+			// add the edges starting at or above this row
+			while (next < n && top[order[next]] <= v) {
+				active[activeCount++] = order[next++];
+			}
+			// remove the edges ending at or above this row; intersect the others
+			int crossingCount = 0;
+			for (int i = 0; i < activeCount; i++) {
+				final int e = active[i];
+				if (bottom[e] <= v) {
+					active[i--] = active[--activeCount];
+					continue;
+				}
+				crossings[crossingCount++] = uTop[e] + (v - top[e]) * slope[e];
+			}
+			Arrays.sort(crossings, 0, crossingCount);
+			for (int i = 0; i + 1 < crossingCount; i += 2) {
+				final long u1 = (long) Math.ceil(crossings[i]);
+				final long u2 = (long) Math.ceil(crossings[i + 1]) - 1;
+				if (u1 <= u2) drawSpan(u1, u2, v);
 			}
 		}
 	}
 
+	/**
+	 * Draws a filled, axis-aligned ellipse in the current UV plane, with the
+	 * given center and radii. Pixels are filled when their coordinates lie
+	 * inside or on the ellipse.
+	 */
+	public void fillEllipse(final double uc, final double vc, final double ru,
+		final double rv)
+	{
+		if (ru <= 0 || rv <= 0) return;
+		final long vStart = Math.max(0, (long) Math.ceil(vc - rv));
+		final long vEnd = Math.min(maxV, (long) Math.floor(vc + rv));
+		for (long v = vStart; v <= vEnd; v++) {
+			final double dv = (v - vc) / rv;
+			final double rest = 1 - dv * dv;
+			if (rest < 0) continue;
+			final double half = ru * Math.sqrt(rest);
+			final long u1 = (long) Math.ceil(uc - half);
+			final long u2 = (long) Math.floor(uc + half);
+			if (u1 <= u2) drawSpan(u1, u2, v);
+		}
+	}
+
 	/**
 	 * Draws the outline of a rectangle in the current UV plane. Uses given
 	 * width, height, and origin.
@@ -391,10 +522,9 @@ public class DrawingTool {
 	 * height, and origin.
 	 */
 	public void fillRect(long uOrigin, long vOrigin, long w, long h) {
-		for (long du = 0; du < w; du++) {
-			for (long dv = 0; dv < h; dv++) {
-				drawPixel(uOrigin+du, vOrigin+dv);
-			}
+		if (w <= 0) return;
+		for (long dv = 0; dv < h; dv++) {
+			drawSpan(uOrigin, uOrigin+w-1, vOrigin+dv);
 		}
 	}
 
@@ -470,6 +600,36 @@ public class DrawingTool {
 
 	// -- private helpers --
 
+	/**
+	 * Draws the span [start, end] of the current row ({@link #spanPos}) in the
+	 * given channel, directly into the storage array if possible.
+	 */
+	private void drawSpan(final long channel, final long start, final long end) {
+		final double value = intensity * channels.getChannelValue(channel);
+		if (channelAxis != -1) spanPos[channelAxis] = channel;
+		final Row row = ImgStorage.row(dataset.getImgPlus(), spanPos, uAxis);
+		if (row != null) {
+			// NB: Let the type convert the value, as setReal would.
+			sample.setReal(value);
+			row.kind().fill(row.array(), row.index(start), (int) (end - start + 1),
+				row.stride(), sample.getRealDouble());
+			return;
+		}
+		accessor.setPosition(spanPos);
+		accessor.setPosition(start, uAxis);
+		for (long u = start; u <= end; u++) {
+			accessor.get().setReal(value);
+			accessor.fwd(uAxis);
+		}
+	}
+
+	private static boolean inCircle(final long u, final double uoffset,
+		final double rest)
+	{
+		final double uu = u - uoffset;
+		return uu * uu <= rest;
+	}
+
 	private void initAxisVariables() {
 		channelAxis = dataset.dimensionIndex(Axes.CHANNEL);
 		uAxis = -1;
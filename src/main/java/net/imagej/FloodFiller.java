@@ -29,13 +29,11 @@
 
 package net.imagej;
 
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import net.imagej.axis.Axes;
-import net.imglib2.RandomAccess;
-import net.imglib2.type.numeric.RealType;
+import net.imagej.util.RunLengthMask;
 
 import org.scijava.util.RealRect;
 
@@ -46,6 +44,11 @@ import org.scijava.util.RealRect;
  * particle analyzer. The Wikipedia article at
  * "http://en.wikipedia.org/wiki/Flood_fill" has a good description of the
  * algorithm used here as well as examples in C and Java.
+ * <p>
+ * The region to fill is found first by a {@link RegionGrower}, which reads the
+ * image storage directly where possible, and is then drawn one scanline at a
+ * time.
+ * </p>
  * 
  * @author Wayne Rasband
  * @author Barry DeZonia
@@ -53,11 +56,8 @@ import org.scijava.util.RealRect;
 public class FloodFiller {
 
 	private final DrawingTool tool;
-	private int channelAxis;
-	private int uAxis;
-	private int vAxis;
-	private final StackOfLongs uStack;
-	private final StackOfLongs vStack;
+	private final int channelAxis;
+	private final RegionGrower grower;
 
 	/**
 	 * Constructs a FloodFiller from a given DrawingTool. The FloodFiller uses the
@@ -66,10 +66,7 @@ public class FloodFiller {
 	public FloodFiller(final DrawingTool tool) {
 		this.tool = tool;
 		this.channelAxis = tool.getDataset().dimensionIndex(Axes.CHANNEL);
-		this.uAxis = -1;
-		this.vAxis = -1;
-		this.uStack = new StackOfLongs();
-		this.vStack = new StackOfLongs();
+		this.grower = new RegionGrower(tool.getDataset());
 	}
 
 	/**
@@ -77,56 +74,7 @@ public class FloodFiller {
 	 * true if any pixels actually changed and false otherwise.
 	 */
 	public boolean fill4(final long u0, final long v0, final long[] position) {
-		final Dataset ds = tool.getDataset();
-		final RandomAccess<? extends RealType<?>> accessor =
-			ds.getImgPlus().randomAccess();
-		accessor.setPosition(position);
-		uAxis = tool.getUAxis();
-		vAxis = tool.getVAxis();
-		final ChannelCollection fillValues = tool.getChannels();
-		// avoid degenerate case
-		if (matches(accessor,u0,v0,fillValues)) return false;
-		final ChannelCollection origValues = getValues(accessor, u0, v0);
-		final long maxU = ds.dimension(uAxis) - 1;
-		final long maxV = ds.dimension(vAxis) - 1;
-		clearUV();
-		pushUV(u0, v0);
-		while (!uStack.isEmpty()) {
-			final long u = popU();
-			final long v = popV();
-			if (!matches(accessor,u,v,origValues)) continue;
-			long u1 = u;
-			long u2 = u;
-			// find start of scan-line
-			while (u1>=0 && matches(accessor,u1,v,origValues)) u1--;
-			u1++;
-		  // find end of scan-line
-			while (u2<=maxU && matches(accessor,u2,v,origValues)) u2++;                 
-			u2--;
-			// fill scan-line
-			tool.drawLine(u1, v, u2, v);
-			// find scan-lines above this one
-			boolean inScanLine = false;
-			for (long i=u1; i<=u2; i++) {
-				if (!inScanLine && v>0 && matches(accessor,i,v-1,origValues))
-					{pushUV(i, v-1); inScanLine = true;}
-				else if (inScanLine && v>0 &&
-									!matches(accessor,i,v-1,origValues))
-					inScanLine = false;
-			}
-			// find scan-lines below this one
-			inScanLine = false;
-			for (long i=u1; i<=u2; i++) {
-				if (!inScanLine && v<maxV &&
-							matches(accessor,i,v+1,origValues))
-					{pushUV(i, v+1); inScanLine = true;}
-				else if (inScanLine && v<maxV &&
-									!matches(accessor,i,v+1,origValues))
-					inScanLine = false;
-			}
-		}
-		// System.out.println("Stack allocated (but not necessarily used) "+uStack.stack.length);
-		return true;
+		return fill(seed(u0, v0, position), false);
 	}
 
 	/**
@@ -134,79 +82,51 @@ public class FloodFiller {
 	 * true if any pixels actually changed and false otherwise.
 	 */
 	public boolean fill8(final long u0, final long v0, final long[] position) {
-		final Dataset ds = tool.getDataset();
-		final RandomAccess<? extends RealType<?>> accessor =
-			ds.getImgPlus().randomAccess();
-		accessor.setPosition(position);
-		uAxis = tool.getUAxis();
-		vAxis = tool.getVAxis();
-		final ChannelCollection fillValues = tool.getChannels();
+		return fill(seed(u0, v0, position), true);
+	}
+
+	/**
+	 * Does a flood fill using the current fill/draw value, of a region spanning
+	 * the tool's U and V axes plus any number of additional axes. For example,
+	 * filling across a Z axis in addition to U and V fills a 6-connected or
+	 * 26-connected region of a stack. Returns true if any pixels actually changed
+	 * and false otherwise.
+	 * 
+	 * @param position The position of the seed.
+	 * @param fullyConnected If true, pixels touching at an edge or corner are
+	 *          connected; otherwise only pixels sharing a face are.
+	 * @param extraAxes The axes to fill across in addition to U and V.
+	 */
+	public boolean fill(final long[] position, final boolean fullyConnected,
+		final int... extraAxes)
+	{
 		// avoid degenerate case
-		if (matches(accessor,u0,v0,fillValues)) return false;
-		final ChannelCollection origValues = getValues(accessor, u0, v0);
-		final long maxU = ds.dimension(uAxis) - 1;
-		final long maxV = ds.dimension(vAxis) - 1;
-		clearUV();
-		pushUV(u0, v0);
-		while(!uStack.isEmpty()) {
-			final long u = popU(); 
-			final long v = popV();
-			long u1 = u;
-			long u2 = u;
-			if (matches(accessor,u,v,origValues)) {
-				// find start of scan-line
-				while (u1>=0 && matches(accessor,u1,v,origValues)) u1--;
-				u1++;
-			  // find end of scan-line
-				while (u2<=maxU && matches(accessor,u2,v,origValues)) u2++;
-				u2--;
-				tool.drawLine(u1, v, u2, v); // fill scan-line
-			}
-			if (v > 0) {
-				if (u1 > 0) {
-					if (matches(accessor,u1-1,v-1,origValues)) {
-						pushUV(u1-1, v-1);
-					}
-				}
-				if (u2 < maxU) {
-					if (matches(accessor,u2+1,v-1,origValues)) {
-						pushUV(u2+1, v-1);
-					}
-				}
-			}
-			if (v < maxV) {
-				if (u1 > 0) {
-					if (matches(accessor,u1-1,v+1,origValues)) {
-						pushUV(u1-1, v+1);
-					}
-				}
-				if (u2 < maxU) {
-					if (matches(accessor,u2+1,v+1,origValues)) {
-						pushUV(u2+1, v+1);
+		if (matches(grower.values(position), tool.getChannels())) return false;
+		final int[] axes = new int[2 + extraAxes.length];
+		axes[0] = tool.getUAxis();
+		axes[1] = tool.getVAxis();
+		System.arraycopy(extraAxes, 0, axes, 2, extraAxes.length);
+		final RunLengthMask region =
+			grower.growEqual(position, fullyConnected, axes);
+		final long[] pos = position.clone();
+		// NB: Runs off the tool's plane move the tool; restore it afterwards.
+		final long[] toolPos = new long[pos.length];
+		tool.getPosition(toolPos);
+		try {
+			for (int run = 0; run < region.runCount(); run++) {
+				if (axes.length > 2) {
+					for (int j = 2; j < axes.length; j++) {
+						pos[axes[j]] = region.position(run, j);
 					}
+					tool.setPosition(pos);
 				}
-			}
-			// find scan-lines above this one
-			boolean inScanLine = false;
-			for (long i=u1; i<=u2; i++) {
-				if (!inScanLine && v>0 && matches(accessor,i,v-1,origValues))
-					{pushUV(i, v-1); inScanLine = true;}
-				else if (inScanLine && v>0 &&
-									!matches(accessor,i,v-1,origValues))
-					inScanLine = false;
-			}
-			// find scan-lines below this one
-			inScanLine = false;
-			for (long i=u1; i<=u2; i++) {
-				if (!inScanLine && v<maxV &&
-							matches(accessor,i,v+1,origValues))
-					{pushUV(i, v+1); inScanLine = true;}
-				else if (inScanLine && v<maxV &&
-									!matches(accessor,i,v+1,origValues))
-					inScanLine = false;
+				tool.drawSpan(region.start(run), region.end(run), //
+					region.position(run, 1));
 			}
 		}
-		// System.out.println("Stack allocated (but not necessarily used) "+uStack.stack.length);
+		finally {
+			if (axes.length > 2) tool.setPosition(toolPos);
+		}
 		return true;
 	}
 
@@ -222,79 +142,44 @@ public class FloodFiller {
 	{
 		final Dataset ds = tool.getDataset();
 		// TODO - is this a bogus limitation
-		if ((channelAxis != -1) || (ds.dimension(channelAxis) != 1)) {
+		if ((channelAxis != -1) && (ds.dimension(channelAxis) != 1)) {
 			throw new IllegalArgumentException(
 				"particle analyzer cannot support multiple channels");
 		}
-		final RandomAccess<? extends RealType<?>> acc =
-			ds.getImgPlus().randomAccess();
-		acc.setPosition(position);
-		uAxis = tool.getUAxis();
-		vAxis = tool.getVAxis();
-		long maxU = ds.dimension(uAxis) - 1;
-		long maxV = ds.dimension(vAxis) - 1;
-		long numChan = ds.dimension(channelAxis);
+		final int uAxis = tool.getUAxis();
+		final int vAxis = tool.getVAxis();
+		long numChan = channelAxis == -1 ? 1 : ds.dimension(channelAxis);
 		setValues(maskTool, numChan, 0);
 		// FIXME TODO - fill plane or roi of plane of maskTool?
 		// Decide between fill() or fill(RealRect)
 		maskTool.fill();
 		setValues(maskTool, numChan, 255);
-		clearUV();
-		pushUV(u0, v0);
-		while(!uStack.isEmpty()) {   
-			long u = popU(); 
-			long v = popV();
-			if (!inParticle(acc,u,v,level1,level2)) continue;
-			long u1 = u;
-			long u2 = u;
-			// find start of scan-line
-			while (inParticle(acc,u1,v,level1,level2) && u1>=0) u1--;
-			u1++;
-		  // find end of scan-line
-			while (inParticle(acc,u2,v,level1,level2) && u2<=maxU) u2++;                 
-			u2--;
+		final RunLengthMask particle = grower.growInRange(seed(u0, v0, position),
+			level1, level2, true, uAxis, vAxis);
+		for (int run = 0; run < particle.runCount(); run++) {
+			final long u1 = particle.start(run);
+			final long u2 = particle.end(run);
+			final long v = particle.position(run, 1);
 			// fill scan-line in mask
-			maskTool.drawLine(
-				(long) (u1-bounds.x), (long) (v-bounds.y),
-				(long) (u2-bounds.x), (long) (v-bounds.y));
+			maskTool.drawSpan(
+				(long) (u1-bounds.x), (long) (u2-bounds.x), (long) (v-bounds.y));
 			// fill scan-line in image
-			tool.drawLine(u1, v, u2, v);
-			boolean inScanLine = false;
-			if (u1>0) u1--;
-			if (u2<maxU) u2++;
-			for (long i=u1; i<=u2; i++) { // find scan-lines above this one
-				if (!inScanLine && v>0 && inParticle(acc,i,v-1,level1,level2))
-					{pushUV(i, v-1); inScanLine = true;}
-				else if (inScanLine && v>0 && !inParticle(acc,i,v-1,level1,level2))
-					inScanLine = false;
-			}
-			inScanLine = false;
-			for (long i=u1; i<=u2; i++) { // find scan-lines below this one
-				if (!inScanLine && v<maxV && inParticle(acc,i,v+1,level1,level2))
-					{pushUV(i, v+1); inScanLine = true;}
-				else if (inScanLine && v<maxV && !inParticle(acc,i,v+1,level1,level2))
-					inScanLine = false;
-			}
-		}        
+			tool.drawSpan(u1, u2, v);
+		}
 	}
 	
 	// -- private helpers --
 
-	/**
-	 * Returns true if value of pixel is inside a given range
-	 */
-	private boolean inParticle(
-		RandomAccess<? extends RealType<?>> accessor, long u, long v,
-		double level1, double level2)
-	{
-		accessor.setPosition(u,uAxis);
-		accessor.setPosition(v,vAxis);
-		double val = accessor.get().getRealDouble();
-		return val>=level1 && val<=level2;
+	/** Gets the full position of the given (u,v) point. */
+	private long[] seed(final long u0, final long v0, final long[] position) {
+		final long[] seed = position.clone();
+		seed[tool.getUAxis()] = u0;
+		seed[tool.getVAxis()] = v0;
+		return seed;
 	}
-	
+
 	private void setValues(DrawingTool tool, long numChan, double value) {
-		final List<Double> values = new LinkedList<>();
+		final List<Double> values = new ArrayList<>();
 		for (long i = 0; i < numChan; i++)
 			values.add(value);
 		final ChannelCollection channels = new ChannelCollection(values);
@@ -302,112 +187,17 @@ public class FloodFiller {
 	}
 	
 	/**
-	 * Returns true if the current pixel located at the given (u,v) coordinates is
-	 * the same as the specified color or gray values.
+	 * Returns true if the given channel values are the same as the specified
+	 * color or gray values.
 	 */
-	private boolean	matches(
-		final RandomAccess<? extends RealType<?>> accessor, final long u,
-		final long v, final ChannelCollection channels)
+	private boolean matches(final double[] values,
+		final ChannelCollection channels)
 	{
-		accessor.setPosition(u, uAxis);
-		accessor.setPosition(v, vAxis);
-
-		// 0 channel image?
-		if (channelAxis == -1) {
-			final double val = accessor.get().getRealDouble();
-			return val == channels.getChannelValue(0);
-		}
-
-		// else image has 1 or more channels
-		long numChan = tool.getDataset().dimension(channelAxis);
-		for (long c = 0; c < numChan; c++) {
-			accessor.setPosition(c, channelAxis);
-			double value = accessor.get().getRealDouble();
+		for (int c = 0; c < values.length; c++) {
 			// TODO - do we need a "near" rather than "equal" here?
-			if (value != channels.getChannelValue(c)) return false;
+			if (values[c] != channels.getChannelValue(c)) return false;
 		}
-		
 		return true;
 	}
 
-	/**
-	 * Records the values of all the channels at a given (u,v) coord in a Dataset.
-	 * The non-UV coords must be set on the accessor before calling this method.
-	 */
-	private ChannelCollection getValues(
-		final RandomAccess<? extends RealType<?>> accessor,
-		final long u, final long v)
-	{
-		final List<Double> channels = new LinkedList<>();
-		accessor.setPosition(u, uAxis);
-		accessor.setPosition(v, vAxis);
-		long numChannels = 1;
-		if (channelAxis != -1)
-			numChannels = tool.getDataset().dimension(channelAxis);
-		for (long c = 0; c < numChannels; c++) {
-			if (channelAxis != -1) accessor.setPosition(c, channelAxis);
-			final double val = accessor.get().getRealDouble();
-			channels.add(val);
-		}
-		return new ChannelCollection(channels);
-	}
-
-	/**
-	 * Pushes the specified (u,v) point on the working stacks.
-	 */
-	private void pushUV(final long u, final long v) {
-		uStack.push(u);
-		vStack.push(v);
-	}
-
-	/** Pops a U value of the working U stack. */
-	private long popU() {
-		return uStack.pop();
-	}
-
-	/** Pops a V value of the working V stack. */
-	private long popV() {
-		return vStack.pop();
-	}
-
-	/** Resets the U and V stacks, */
-	private void clearUV() {
-		uStack.clear();
-		vStack.clear();
-	}
-	
-	/** To minimize object creations/deletions we want a stack of primitives. */
-	private class StackOfLongs {
-
-		private int top;
-		private long[] stack;
-
-		public StackOfLongs() {
-			top = -1;
-			stack = new long[400];
-		}
-
-		public boolean isEmpty() {
-			return top < 0;
-		}
-
-		public void clear() {
-			top = -1;
-		}
-
-		public void push(final long value) {
-			if (top == stack.length - 1)
-				stack =	Arrays.copyOf(stack, stack.length * 2);
-			top++;
-			stack[top] = value;
-		}
-
-		public long pop() {
-			if (top < 0) throw new IllegalArgumentException("can't pop empty stack");
-			final long value = stack[top];
-			top--;
-			return value;
-		}
-	}
-
 }
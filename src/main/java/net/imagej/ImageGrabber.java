@@ -29,21 +29,41 @@
 
 package net.imagej;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
 import net.imagej.display.DatasetView;
-import net.imglib2.RandomAccess;
+import net.imagej.display.ImageCanvas;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
-import net.imglib2.type.numeric.RealType;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
 
+import org.scijava.util.IntCoords;
+import org.scijava.util.IntRect;
+import org.scijava.util.RealCoords;
+
 /**
  * An {@link ImageGrabber} creates a merged color {@link Dataset} from a
  * {@link DatasetView}. Note that it does not include overlay graphics.
+ * <p>
+ * The ARGB pixels of the view's screen image are unpacked directly into the
+ * three byte planes of a {@link PlanarImg}, in parallel row bands according
+ * to the current {@link Parallelization} context.
+ * </p>
  * 
  * @author Barry DeZonia
  */
 public class ImageGrabber {
+
+	/** Minimum number of pixels unpacked by each task. */
+	private static final int MIN_BAND_SIZE = 1 << 16;
+
 	private final DatasetService service;
 
 	/**
@@ -59,35 +79,106 @@ public class ImageGrabber {
 	 * method uses the provided String name for the output {@link Dataset}.
 	 */
 	public Dataset grab(DatasetView view, String outputName) {
-		ARGBScreenImage screenImage = view.getScreenImage();
-		long[] dims = new long[3];
-		screenImage.dimensions(dims);  // fill X count & Y count
-		dims[2] = 3;  // fill CHANNEL count
-		if (dims[0] * dims[1] > Integer.MAX_VALUE)
-			throw new IllegalArgumentException("image is too big to fit into memory");
-		int xSize = (int) dims[0];
-		int ySize = (int) dims[1];
-		int[] argbPixels = view.getScreenImage().getData();
-		Dataset dataset = 
-				service.create(new UnsignedByteType(), dims, outputName,
-												new AxisType[]{Axes.X, Axes.Y, Axes.CHANNEL});
-		ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
-		RandomAccess<? extends RealType<?>> accessor = imgPlus.randomAccess();
-		for (int x = 0; x < xSize; x++) {
-			accessor.setPosition(x, 0);
-			for (int y = 0; y < ySize; y++) {
-				accessor.setPosition(y, 1);
-				int index = y*xSize + x; 
-				int pixel = argbPixels[index];
-				accessor.setPosition(0, 2);
-				accessor.get().setReal((pixel >> 16) & 0xff);
-				accessor.setPosition(1, 2);
-				accessor.get().setReal((pixel >>  8) & 0xff);
-				accessor.setPosition(2, 2);
-				accessor.get().setReal((pixel >>  0) & 0xff);
+		return grab(view, outputName, false);
+	}
+
+	/**
+	 * Creates a merged color {@link Dataset} from a {@link DatasetView}. This
+	 * method uses the provided String name for the output {@link Dataset}.
+	 * 
+	 * @param viewportOnly If true and the view renders only the
+	 *          {@link DatasetView#getViewport() viewport} of a canvas, grabs just
+	 *          the portion of the screen image visible in that viewport.
+	 *          Otherwise grabs the whole screen image. When the screen image is
+	 *          subsampled, the X and Y calibrations of the output are scaled to
+	 *          match.
+	 */
+	public Dataset grab(DatasetView view, String outputName,
+		boolean viewportOnly)
+	{
+		// NB: Hold the view's lock, so that the screen image is not replaced or
+		// rendered into while it is read, and matches its bounds and step.
+		final int step;
+		final PlanarImg<UnsignedByteType, ByteArray> img;
+		synchronized (view) {
+			final ARGBScreenImage screenImage = view.getScreenImage();
+			final int screenWidth = (int) screenImage.dimension(0);
+			final int screenHeight = (int) screenImage.dimension(1);
+
+			// determine the screen image pixels to grab
+			step = view.getScreenImageStep();
+			int x0 = 0, y0 = 0, x1 = screenWidth, y1 = screenHeight;
+			final IntRect bounds = view.getScreenImageBounds();
+			final ImageCanvas canvas = view.getViewport();
+			if (viewportOnly && canvas != null && bounds != null) {
+				final RealCoords topLeft = canvas.panelToDataCoords(new IntCoords(0,
+					0));
+				final RealCoords bottomRight = canvas.panelToDataCoords(new IntCoords(
+					canvas.getViewportWidth(), canvas.getViewportHeight()));
+				x0 = clamp(Math.floor((topLeft.x - bounds.x) / step), screenWidth);
+				y0 = clamp(Math.floor((topLeft.y - bounds.y) / step), screenHeight);
+				x1 = clamp(Math.ceil((bottomRight.x - bounds.x) / step), screenWidth);
+				y1 = clamp(Math.ceil((bottomRight.y - bounds.y) / step), screenHeight);
+			}
+			final int width = Math.max(0, x1 - x0);
+			final int height = Math.max(0, y1 - y0);
+			if ((long) width * height > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(
+					"image is too big to fit into memory");
 			}
+
+			img = PlanarImgs.unsignedBytes(width, height, 3);
+			unpack(screenImage.getData(), screenWidth, x0, y0, width, height, //
+				img.getPlane(0).getCurrentStorageArray(), //
+				img.getPlane(1).getCurrentStorageArray(), //
+				img.getPlane(2).getCurrentStorageArray());
 		}
+
+		final AxisType[] axes = { Axes.X, Axes.Y, Axes.CHANNEL };
+		final double[] cal = { step, step, 1 };
+		final Dataset dataset =
+			service.create(new ImgPlus<>(img, outputName, axes, cal));
 		dataset.setRGBMerged(true);
 		return dataset;
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Unpacks a rectangle of ARGB pixels into separate red, green and blue
+	 * planes, splitting the rows into bands which are processed in parallel.
+	 */
+	private void unpack(final int[] argb, final int stride, final int x0,
+		final int y0, final int width, final int height, final byte[] r,
+		final byte[] g, final byte[] b)
+	{
+		if (width == 0 || height == 0) return;
+		final TaskExecutor executor = Parallelization.getTaskExecutor();
+		final long size = (long) width * height;
+		final int bands = (int) Math.max(1, Math.min(Math.min(height, executor
+			.suggestNumberOfTasks()), size / MIN_BAND_SIZE));
+		final List<int[]> tasks = new ArrayList<>(bands);
+		for (int i = 0; i < bands; i++) {
+			tasks.add(new int[] { (int) ((long) i * height / bands),
+				(int) ((long) (i + 1) * height / bands) });
+		}
+		executor.forEach(tasks, task -> {
+			for (int y = task[0]; y < task[1]; y++) {
+				int in = (y0 + y) * stride + x0;
+				int out = y * width;
+				for (int x = 0; x < width; x++) {
+					final int pixel = argb[in++];
+					r[out] = (byte) (pixel >> 16);
+					g[out] = (byte) (pixel >> 8);
+					b[out] = (byte) pixel;
+					out++;
+				}
+			}
+		});
+	}
+
+	/** Clamps a screen coordinate to {@code [0, size]}. */
+	private static int clamp(final double coord, final int size) {
+		return (int) Math.max(0, Math.min(coord, size));
+	}
 }
@@ -30,6 +30,7 @@
 package net.imagej;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -41,6 +42,7 @@ import net.imagej.axis.DefaultLinearAxis;
 import net.imagej.axis.LinearAxis;
 import net.imagej.interval.AbstractCalibratedRealInterval;
 import net.imagej.space.CalibratedSpace;
+import net.imagej.util.ImgStorage;
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
 import net.imglib2.Positionable;
@@ -53,7 +55,10 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.ImgView;
 import net.imglib2.img.WrappedImg;
 import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellImg;
 import net.imglib2.type.Type;
+import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 
 /**
@@ -108,6 +113,13 @@ public class ImgPlus<T> extends AbstractCalibratedRealInterval<CalibratedAxis>
 	private ArrayList<Double> channelMin;
 	private ArrayList<Double> channelMax;
 
+	/** Recorded range of each XY plane (NaN if unknown), or null if none. */
+	private double[] planeMin;
+	private double[] planeMax;
+
+	/** Incremented whenever recorded plane ranges are cleared. */
+	private long planeRangeStamp;
+
 	private int compositeChannelCount = 1;
 	private final ArrayList<ColorTable> colorTable;
 	private final Map<String, Object> properties = new HashMap<>();
@@ -193,6 +205,93 @@ public class ImgPlus<T> extends AbstractCalibratedRealInterval<CalibratedAxis>
 		return img;
 	}
 
+	/**
+	 * Gets the recorded minimum value of the given XY plane, or NaN if unknown.
+	 *
+	 * @see #setPlaneRange(long, double, double)
+	 */
+	public synchronized double getPlaneMinimum(final long no) {
+		if (planeMin == null || no < 0 || no >= planeMin.length) return Double.NaN;
+		return planeMin[(int) no];
+	}
+
+	/**
+	 * Gets the recorded maximum value of the given XY plane, or NaN if unknown.
+	 *
+	 * @see #setPlaneRange(long, double, double)
+	 */
+	public synchronized double getPlaneMaximum(final long no) {
+		if (planeMax == null || no < 0 || no >= planeMax.length) return Double.NaN;
+		return planeMax[(int) no];
+	}
+
+	/**
+	 * Records the range of values of the given XY plane. Plane ranges are
+	 * summaries of the current sample values, which allow the range of a
+	 * channel to be updated by measuring only those planes which changed. They
+	 * must be cleared whenever the corresponding data changes; see
+	 * {@link #clearPlaneRange(long)} and {@link #clearPlaneRanges()}.
+	 */
+	public synchronized void setPlaneRange(final long no, final double min,
+		final double max)
+	{
+		setPlaneRange(no, min, max, planeRangeStamp);
+	}
+
+	/**
+	 * Records the range of values of the given XY plane, unless any plane
+	 * ranges were cleared since the given stamp was obtained. This allows a
+	 * range measured concurrently with a change to the data to be discarded,
+	 * rather than recorded as the range of the new data.
+	 *
+	 * @param stamp The value of {@link #getPlaneRangeStamp()} obtained before
+	 *          measuring the plane.
+	 * @return True iff the range was recorded.
+	 */
+	public synchronized boolean setPlaneRange(final long no, final double min,
+		final double max, final long stamp)
+	{
+		if (stamp != planeRangeStamp) return false; // data changed meanwhile
+		final long planeCount = planeCount();
+		if (no < 0 || no >= planeCount) {
+			throw new IllegalArgumentException("Invalid plane: " + no);
+		}
+		if (planeCount > Integer.MAX_VALUE) return false; // too many to track
+		if (planeMin == null || planeMin.length != planeCount) {
+			planeMin = new double[(int) planeCount];
+			planeMax = new double[(int) planeCount];
+			Arrays.fill(planeMin, Double.NaN);
+			Arrays.fill(planeMax, Double.NaN);
+		}
+		planeMin[(int) no] = min;
+		planeMax[(int) no] = max;
+		return true;
+	}
+
+	/**
+	 * Gets a stamp which changes whenever recorded plane ranges are cleared.
+	 *
+	 * @see #setPlaneRange(long, double, double, long)
+	 */
+	public synchronized long getPlaneRangeStamp() {
+		return planeRangeStamp;
+	}
+
+	/** Forgets the recorded range of the given XY plane. */
+	public synchronized void clearPlaneRange(final long no) {
+		planeRangeStamp++;
+		if (planeMin == null || no < 0 || no >= planeMin.length) return;
+		planeMin[(int) no] = Double.NaN;
+		planeMax[(int) no] = Double.NaN;
+	}
+
+	/** Forgets the recorded ranges of all XY planes. */
+	public synchronized void clearPlaneRanges() {
+		planeRangeStamp++;
+		planeMin = null;
+		planeMax = null;
+	}
+
 	// -- RandomAccessible methods --
 
 	@Override
@@ -326,7 +425,15 @@ public class ImgPlus<T> extends AbstractCalibratedRealInterval<CalibratedAxis>
 
 	@Override
 	public ImgPlus<T> copy() {
-		return new ImgPlus<>(img.copy(), this);
+		final ImgPlus<T> copy = new ImgPlus<>(copyImg(), this);
+		// NB: The copy has the same values, so the plane ranges still apply.
+		synchronized (this) {
+			if (planeMin != null) {
+				copy.planeMin = planeMin.clone();
+				copy.planeMax = planeMax.clone();
+			}
+		}
+		return copy;
 	}
 
 	// -- Named methods --
@@ -454,6 +561,30 @@ public class ImgPlus<T> extends AbstractCalibratedRealInterval<CalibratedAxis>
 
 	// -- Helper methods --
 
+	/** Copies the backing image, directly between storage arrays if possible. */
+	private Img<T> copyImg() {
+		// NB: Only allocate the copy if the direct copy is going to apply. The
+		// factory of a cached cell image creates another cached image, into which
+		// samples are not copied directly.
+		final boolean direct = ImgStorage.storageImg(img) == img && //
+			ImgStorage.kind(img.firstElement()) != null && //
+			(!(img instanceof AbstractCellImg) || img instanceof CellImg);
+		if (direct) {
+			final Img<T> copy = img.factory().create(Intervals
+				.dimensionsAsLongArray(img));
+			if (ImgStorage.copy(img, copy)) return copy;
+		}
+		return img.copy();
+	}
+
+	/** Gets the number of XY planes of the image. */
+	private long planeCount() {
+		long count = 1;
+		for (int d = 2; d < numDimensions(); d++)
+			count *= dimension(d);
+		return count;
+	}
+
 	/** Creates {@link LinearAxis} objects matching the given arguments. */
 	private static CalibratedAxis[] createAxes(final Img<?> img,
 		final AxisType[] axisTypes, final double[] cal, final String[] units)
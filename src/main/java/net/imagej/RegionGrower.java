@@ -0,0 +1,398 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imagej.axis.Axes;
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Row;
+import net.imagej.util.RunLengthMask;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Finds connected regions of a {@link Dataset}, as used by flood filling and
+ * particle analysis. Regions are grown scanline by scanline along the first of
+ * the given axes, using a primitive stack of spans still to be scanned, and
+ * are returned as {@link RunLengthMask}s.
+ * <p>
+ * Regions may span any number of axes: for example, the X and Y axes for a 4-
+ * or 8-connected region of a plane, or X, Y and Z for a 6- or 26-connected
+ * region of a stack. Samples of {@link ArrayImg}s and {@link PlanarImg}s of
+ * native types are read directly from their storage arrays. All channels of a
+ * multichannel dataset are compared at each position.
+ * </p>
+ */
+public class RegionGrower {
+
+	private final Dataset dataset;
+	private final int channelAxis;
+	private final int channelCount;
+
+	/** Creates a RegionGrower for the given {@link Dataset}. */
+	public RegionGrower(final Dataset dataset) {
+		this.dataset = dataset;
+		channelAxis = dataset.dimensionIndex(Axes.CHANNEL);
+		channelCount = channelAxis < 0 ? 1 : (int) dataset.dimension(channelAxis);
+	}
+
+	// -- RegionGrower methods --
+
+	/**
+	 * Finds the region of positions connected to the seed whose channel values
+	 * all equal those of the seed.
+	 *
+	 * @param seed The full position of the seed within the dataset. Positions
+	 *          along axes other than the given ones are held fixed.
+	 * @param fullyConnected If true, positions touching at an edge or corner are
+	 *          connected (8- or 26-connectivity); otherwise only positions
+	 *          sharing a face are (4- or 6-connectivity).
+	 * @param axes The axes spanned by the region; runs are found along the
+	 *          first one. The channel axis may not be included.
+	 * @return The region, with dimensions in the order of the given axes.
+	 */
+	public RunLengthMask growEqual(final long[] seed,
+		final boolean fullyConnected, final int... axes)
+	{
+		final double[] values = values(seed);
+		return grow(seed, fullyConnected, axes, values, values);
+	}
+
+	/**
+	 * Finds the region of positions connected to the seed whose channel values
+	 * all lie within the given range.
+	 *
+	 * @see #growEqual(long[], boolean, int...)
+	 */
+	public RunLengthMask growInRange(final long[] seed, final double min,
+		final double max, final boolean fullyConnected, final int... axes)
+	{
+		final double[] lo = new double[channelCount];
+		final double[] hi = new double[channelCount];
+		Arrays.fill(lo, min);
+		Arrays.fill(hi, max);
+		return grow(seed, fullyConnected, axes, lo, hi);
+	}
+
+	/**
+	 * Gets the values of all channels at the given position.
+	 */
+	public double[] values(final long[] position) {
+		final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		access.setPosition(position);
+		final double[] values = new double[channelCount];
+		for (int c = 0; c < channelCount; c++) {
+			if (channelAxis >= 0) access.setPosition(c, channelAxis);
+			values[c] = access.get().getRealDouble();
+		}
+		return values;
+	}
+
+	// -- Helper methods --
+
+	private RunLengthMask grow(final long[] seed, final boolean fullyConnected,
+		final int[] axes, final double[] lo, final double[] hi)
+	{
+		final int k = axes.length;
+		if (k == 0) throw new IllegalArgumentException("No axes given");
+		for (int j = 0; j < k; j++) {
+			if (axes[j] < 0 || axes[j] >= dataset.numDimensions() ||
+				axes[j] == channelAxis)
+			{
+				throw new IllegalArgumentException("Invalid axis: " + axes[j]);
+			}
+		}
+		final RunLengthMask mask = new RunLengthMask(k);
+
+		// the extents of the region's axes; rows are indexed by all but the first
+		final long[] dims = new long[k];
+		for (int j = 0; j < k; j++) {
+			dims[j] = dataset.dimension(axes[j]);
+			if (seed[axes[j]] < 0 || seed[axes[j]] >= dims[j]) return mask;
+		}
+		final long width = dims[0];
+		final long[] rowDims = Arrays.copyOfRange(dims, 1, k);
+		final long rowCount = rowDims.length == 0 ? 1 : Arrays.stream(rowDims)
+			.reduce(1, (a, b) -> a * b);
+		if (rowCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many rows: " + rowCount);
+		}
+		final int[][] neighbors = neighbors(k - 1, fullyConnected);
+		final int reach = fullyConnected ? 1 : 0;
+
+		final RowReader reader = reader(seed, axes);
+		final Spans filled = new Spans((int) rowCount);
+		final SpanStack stack = new SpanStack();
+		final long[] row = new long[k - 1];
+		final long[] neighbor = new long[k - 1];
+		for (int j = 1; j < k; j++) {
+			row[j - 1] = seed[axes[j]];
+		}
+		stack.push(index(row, rowDims), seed[axes[0]], seed[axes[0]]);
+
+		while (!stack.isEmpty()) {
+			final long hiU = stack.pop();
+			final long loU = stack.pop();
+			final int r = (int) stack.pop();
+			if (rowDims.length > 0) IntervalIndexer.indexToPosition(r, rowDims, row);
+			reader.setRow(row);
+			long u = loU;
+			while (u <= hiU) {
+				final long end = filled.end(r, u);
+				if (end >= 0) {
+					u = end + 1; // already part of the region
+					continue;
+				}
+				if (!matches(reader, u, lo, hi)) {
+					u++;
+					continue;
+				}
+				// find the extent of the scanline
+				long a = u, b = u;
+				while (a > 0 && matches(reader, a - 1, lo, hi))
+					a--;
+				while (b < width - 1 && matches(reader, b + 1, lo, hi))
+					b++;
+				filled.add(r, a, b);
+				mask.add(a, b, row);
+
+				// queue the neighboring scanlines
+				final long nlo = Math.max(0, a - reach);
+				final long nhi = Math.min(width - 1, b + reach);
+				for (final int[] delta : neighbors) {
+					if (offset(row, delta, rowDims, neighbor)) {
+						stack.push(index(neighbor, rowDims), nlo, nhi);
+					}
+				}
+				u = b + 2; // b + 1 does not match
+			}
+		}
+		return mask;
+	}
+
+	private boolean matches(final RowReader reader, final long u,
+		final double[] lo, final double[] hi)
+	{
+		for (int c = 0; c < channelCount; c++) {
+			final double value = reader.get(c, u);
+			// NB: NaN never matches.
+			if (!(value >= lo[c] && value <= hi[c])) return false;
+		}
+		return true;
+	}
+
+	/** Creates the reader for the rows of the given region. */
+	private RowReader reader(final long[] seed, final int[] axes) {
+		if (ImgStorage.row(dataset.getImgPlus(), seed, axes[0]) != null) {
+			return new StorageReader(seed, axes);
+		}
+		return new AccessReader(seed, axes);
+	}
+
+	/**
+	 * Gets the offsets to the neighboring rows: those differing by one along a
+	 * single axis or, if fully connected, along any combination of axes.
+	 */
+	private static int[][] neighbors(final int n, final boolean fullyConnected) {
+		final List<int[]> result = new ArrayList<>();
+		final int[] delta = new int[n];
+		Arrays.fill(delta, -1);
+		while (n > 0) {
+			int nonzero = 0;
+			for (final int v : delta) {
+				if (v != 0) nonzero++;
+			}
+			if (nonzero == 1 || nonzero > 1 && fullyConnected) {
+				result.add(delta.clone());
+			}
+			// advance to the next combination
+			int d = 0;
+			while (d < n && delta[d] == 1)
+				delta[d++] = -1;
+			if (d == n) break;
+			delta[d]++;
+		}
+		return result.toArray(new int[result.size()][]);
+	}
+
+	/** Offsets a row position, returning false if it falls out of bounds. */
+	private static boolean offset(final long[] row, final int[] delta,
+		final long[] rowDims, final long[] result)
+	{
+		for (int d = 0; d < row.length; d++) {
+			result[d] = row[d] + delta[d];
+			if (result[d] < 0 || result[d] >= rowDims[d]) return false;
+		}
+		return true;
+	}
+
+	private static long index(final long[] row, final long[] rowDims) {
+		return row.length == 0 ? 0 : IntervalIndexer.positionToIndex(row, rowDims);
+	}
+
+	// -- Helper classes --
+
+	/** Reads the channel values of positions along one row at a time. */
+	private abstract class RowReader {
+
+		/** The full position of the current row; the first axis is ignored. */
+		protected final long[] position;
+		protected final int[] axes;
+
+		private RowReader(final long[] seed, final int[] axes) {
+			position = seed.clone();
+			this.axes = axes;
+		}
+
+		/** Moves to the row at the given position along all but the first axis. */
+		void setRow(final long[] row) {
+			for (int j = 1; j < axes.length; j++) {
+				position[axes[j]] = row[j - 1];
+			}
+		}
+
+		abstract double get(int channel, long u);
+	}
+
+	/** Reads samples through a {@link RandomAccess}. */
+	private class AccessReader extends RowReader {
+
+		private final RandomAccess<? extends RealType<?>> access;
+
+		private AccessReader(final long[] seed, final int[] axes) {
+			super(seed, axes);
+			access = dataset.getImgPlus().randomAccess();
+		}
+
+		@Override
+		void setRow(final long[] row) {
+			super.setRow(row);
+			access.setPosition(position);
+		}
+
+		@Override
+		double get(final int channel, final long u) {
+			access.setPosition(u, axes[0]);
+			if (channelAxis >= 0) access.setPosition(channel, channelAxis);
+			return access.get().getRealDouble();
+		}
+	}
+
+	/**
+	 * Reads samples directly from the storage arrays of an {@link ArrayImg} or
+	 * {@link PlanarImg}, in which each row lies within a single array at a
+	 * constant stride.
+	 */
+	private class StorageReader extends RowReader {
+
+		private final Row[] rows = new Row[channelCount];
+
+		private StorageReader(final long[] seed, final int[] axes) {
+			super(seed, axes);
+		}
+
+		@Override
+		void setRow(final long[] row) {
+			super.setRow(row);
+			for (int c = 0; c < channelCount; c++) {
+				if (channelAxis >= 0) position[channelAxis] = c;
+				rows[c] = ImgStorage.row(dataset.getImgPlus(), position, axes[0]);
+			}
+		}
+
+		@Override
+		double get(final int channel, final long u) {
+			final Row row = rows[channel];
+			return row.kind().getDouble(row.array(), row.index(u));
+		}
+	}
+
+	/** The spans found so far, per row. */
+	private static class Spans {
+
+		private final long[][] spans;
+		private final int[] counts;
+
+		private Spans(final int rowCount) {
+			spans = new long[rowCount][];
+			counts = new int[rowCount];
+		}
+
+		private void add(final int row, final long start, final long end) {
+			if (spans[row] == null) spans[row] = new long[8];
+			else if (counts[row] * 2 == spans[row].length) {
+				spans[row] = Arrays.copyOf(spans[row], 2 * spans[row].length);
+			}
+			spans[row][2 * counts[row]] = start;
+			spans[row][2 * counts[row] + 1] = end;
+			counts[row]++;
+		}
+
+		/** Gets the end of the span containing the given position, or -1. */
+		private long end(final int row, final long u) {
+			final long[] s = spans[row];
+			for (int i = 0; i < counts[row]; i++) {
+				if (u >= s[2 * i] && u <= s[2 * i + 1]) return s[2 * i + 1];
+			}
+			return -1;
+		}
+	}
+
+	/** A stack of spans to scan: row index, first and last position. */
+	private static class SpanStack {
+
+		private long[] stack = new long[3 * 400];
+		private int top;
+
+		private boolean isEmpty() {
+			return top == 0;
+		}
+
+		private void push(final long row, final long start, final long end) {
+			if (top + 3 > stack.length) stack = Arrays.copyOf(stack, 2 *
+				stack.length);
+			stack[top++] = row;
+			stack[top++] = start;
+			stack[top++] = end;
+		}
+
+		private long pop() {
+			return stack[--top];
+		}
+	}
+
+}
@@ -29,40 +29,81 @@
 
 package net.imagej.animation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.imagej.Data;
+import net.imagej.Dataset;
 import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
+import net.imagej.display.DataView;
 import net.imagej.display.ImageDisplay;
+import net.imagej.util.ImgStorage;
+import net.imglib2.FinalInterval;
 
 import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * The Animation class takes care of running an animation along an axis.
- * Multiple animations can be running concurrently. Each animation runs in its
- * own thread.
+ * Multiple animations can be running concurrently. Frames are scheduled on the
+ * {@link AnimationService#getExecutor() shared animation executor}, against
+ * wall-clock deadlines: when rendering a frame takes longer than the frame
+ * period, the frames whose deadlines have passed are dropped rather than
+ * slowing the animation down. The data of the next few frames is fetched in
+ * the background while the current frame is shown.
  * 
  * @author Barry DeZonia
  * @author Curtis Rueden
  */
 public class Animation implements Runnable {
 
+	/** Default number of upcoming frames whose data is fetched ahead. */
+	private static final int DEFAULT_PREFETCH = 4;
+
+	/** Nanoseconds per second. */
+	private static final long SECOND = 1000000000L;
+
 	@Parameter
 	private LogService log;
 
+	@Parameter
+	private AnimationService animationService;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	private final ImageDisplay display;
 
-	private boolean active;
-	private Thread thread;
+	private volatile boolean active;
+	private ScheduledFuture<?> frameFuture;
+	private Future<?> prefetchFuture;
 
 	private AxisType axis;
 	private long first;
 	private long last;
 	private double fps = 8;
 	private boolean backAndForth;
+	private int prefetch = DEFAULT_PREFETCH;
 
 	private long increment = 1;
-	private long delta = 1;
-	private boolean isRelative = true;
+
+	/** Time of the deadline of frame zero, per {@link System#nanoTime()}. */
+	private long epoch;
+
+	/** Index of the next frame to be shown. */
+	private long frame;
+
+	// NB: Written only while showing a frame, but read from any thread.
+	private volatile long renderedFrames;
+	private volatile long droppedFrames;
+	private volatile double achievedFPS;
+	private long statsTime;
+	private long statsFrames;
 
 	/** Creates an animation for the given {@link ImageDisplay}. */
 	public Animation(final ImageDisplay display) {
@@ -91,26 +132,31 @@ public class Animation implements Runnable {
 	// -- Animation methods --
 
 	/** Starts the animation. */
-	public void start() {
+	public synchronized void start() {
 		if (axis == null) return; // no axis over which to animate
 		active = true;
-		if (thread == null) {
-			thread = new Thread(this);
-			thread.start();
+		if (frameFuture == null) {
+			begin(System.nanoTime());
+			schedule();
 		}
 	}
 
-	/** Stops the animation. */
+	/**
+	 * Stops the animation. If a frame is being shown, waits for it to finish.
+	 */
 	public void stop() {
 		active = false;
-		if (thread != null) {
-			try {
-				thread.join();
+		synchronized (this) {
+			if (frameFuture != null) {
+				frameFuture.cancel(false);
+				frameFuture = null;
 			}
-			catch (final InterruptedException exc) {
-				log.error("Error stopping animation", exc);
+			if (prefetchFuture != null) {
+				// NB: Do not interrupt the prefetch, which may be blocked in I/O;
+				// it stops by itself once the animation is inactive.
+				prefetchFuture.cancel(false);
+				prefetchFuture = null;
 			}
-			thread = null;
 		}
 	}
 
@@ -138,8 +184,10 @@ public class Animation implements Runnable {
 		return fps;
 	}
 
-	public void setFPS(final double fps) {
+	public synchronized void setFPS(final double fps) {
 		this.fps = fps;
+		// keep the frame deadlines aligned to the current frame
+		epoch = System.nanoTime() - frame * period();
 	}
 
 	public long getFirst() {
@@ -168,69 +216,197 @@ public class Animation implements Runnable {
 		this.backAndForth = backAndForth;
 	}
 
+	/** Gets the number of upcoming frames whose data is fetched ahead. */
+	public int getPrefetchCount() {
+		return prefetch;
+	}
+
+	/** Sets the number of upcoming frames whose data is fetched ahead. */
+	public void setPrefetchCount(final int prefetch) {
+		this.prefetch = Math.max(0, prefetch);
+	}
+
+	/**
+	 * Gets the number of frames per second actually shown, measured over the
+	 * last second or so of the animation.
+	 */
+	public double getAchievedFPS() {
+		return achievedFPS;
+	}
+
+	/** Gets the number of frames shown since the animation was created. */
+	public long getRenderedFrames() {
+		return renderedFrames;
+	}
+
+	/**
+	 * Gets the number of frames skipped since the animation was created, because
+	 * their deadlines passed while earlier frames were being rendered.
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
 	// -- Runnable methods --
 
+	/**
+	 * Shows the next frame, then schedules the one after it.
+	 * <p>
+	 * Unlike in earlier versions, this method does not loop until the animation
+	 * is stopped: each call shows a single frame, synchronized on the animation,
+	 * and the animation runs by being called repeatedly on the
+	 * {@link AnimationService#getExecutor() animation executor}. To run an
+	 * animation, call {@link #start()} rather than this method.
+	 * </p>
+	 */
 	@Override
-	public void run() {
-		while (active) {
-			updatePosition();
-			try {
-				Thread.sleep((long) (1000 / fps));
-			}
-			catch (final InterruptedException e) {
-				// do nothing
-			}
+	public synchronized void run() {
+		if (!active) return;
+		try {
+			showFrame(System.nanoTime());
+		}
+		catch (final RuntimeException exc) {
+			log.error("Error running animation", exc);
+			active = false;
+		}
+		if (active) schedule();
+		else frameFuture = null;
+	}
+
+	// -- Internal methods --
+
+	/** Restarts the frame count, with frame zero due at the given time. */
+	void begin(final long time) {
+		frame = 0;
+		epoch = time;
+		statsTime = time;
+		statsFrames = 0;
+	}
+
+	/**
+	 * Shows the next frame at the given time, per {@link System#nanoTime()},
+	 * first dropping the frames whose deadlines have already passed.
+	 */
+	void showFrame(final long now) {
+		final long late = (now - epoch) / period() - frame;
+		final long steps = 1 + Math.max(0, late);
+		long pos = display.getLongPosition(axis);
+		for (long s = 0; s < steps; s++) {
+			pos = nextPosition(pos);
+		}
+		droppedFrames += steps - 1;
+		frame += steps;
+
+		// show the frame, and fetch the data of the next ones
+		// NB: Setting the position requests a background render, which the
+		// update supersedes; the frame is rendered right here, so that its
+		// lateness reflects the actual render time.
+		display.setPosition(pos, axis);
+		display.update();
+		prefetch(pos);
+
+		renderedFrames++;
+		updateStats(now);
+	}
+
+	/**
+	 * Computes the positions of the frames after the given one, whose data is
+	 * fetched ahead, without changing the direction of the animation.
+	 */
+	long[] upcoming(final long pos) {
+		final long[] upcoming = new long[prefetch];
+		long p = pos, inc = increment;
+		for (int i = 0; i < upcoming.length; i++) {
+			final long next = step(p, inc);
+			if (backAndForth && next != p) inc = next > p ? 1 : -1;
+			upcoming[i] = p = next;
 		}
+		return upcoming;
 	}
 
 	// -- Helper methods --
 
-	private synchronized void updatePosition() {
-		long currPos = display.getLongPosition(axis);
+	/** Schedules the next frame at its deadline. */
+	private void schedule() {
+		final long deadline = epoch + frame * period();
+		frameFuture = animationService.getExecutor().schedule(this, Math.max(0,
+			deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+
+	/** Gets the frame period in nanoseconds. */
+	private long period() {
+		return Math.max(1, (long) (SECOND / fps));
+	}
 
+	/** Updates the position and direction of the animation by one frame. */
+	private long nextPosition(final long pos) {
+		final long next = step(pos, increment);
+		if (backAndForth && next != pos) increment = next > pos ? 1 : -1;
+		return next;
+	}
+
+	/**
+	 * Computes the position following the given one when moving in the given
+	 * direction: at either end, the animation either reverses direction or
+	 * wraps around to the other end.
+	 */
+	private long step(final long pos, final long inc) {
+		if (first >= last) return first;
 		// reached right end
-		if (increment > 0 && currPos == last) {
-			if (!backAndForth) {
-				isRelative = false;
-				delta = first;
-				currPos = first;
-			}
-			else {
-				increment = -increment;
-				isRelative = true;
-				delta = -1;
-				currPos--;
-			}
-		}
+		if (inc > 0 && pos >= last) return backAndForth ? last - 1 : first;
 		// reached left end
-		else if (increment < 0 && currPos == first) {
-			if (!backAndForth) {
-				isRelative = false;
-				delta = last;
-				currPos = last;
-			}
-			else {
-				increment = -increment;
-				isRelative = true;
-				delta = +1;
-				currPos++;
+		if (inc < 0 && pos <= first) return backAndForth ? first + 1 : last;
+		// somewhere in the middle
+		return pos + inc;
+	}
+
+	/** Fetches the data of the frames after the given position. */
+	private void prefetch(final long pos) {
+		if (prefetch == 0 || threadService == null) return;
+		// NB: Skip if the previous prefetch is still catching up.
+		if (prefetchFuture != null && !prefetchFuture.isDone()) return;
+		final long[] upcoming = upcoming(pos);
+		// NB: Copy the views, which may change while they are being fetched.
+		final List<DataView> views = new ArrayList<>(display);
+		prefetchFuture = threadService.run(() -> {
+			for (final long position : upcoming) {
+				for (final DataView view : views) {
+					if (!active) return;
+					loadPlanes(view.getData(), position);
+				}
 			}
-		}
-		else { // somewhere in the middle
-			isRelative = true;
-			if (increment > 0) {
-				delta = +1;
-				currPos++;
+		});
+	}
+
+	/** Fetches the data shown at the given position of the animation axis. */
+	private void loadPlanes(final Data data, final long position) {
+		if (!(data instanceof Dataset)) return;
+		final Dataset dataset = (Dataset) data;
+		final int n = dataset.numDimensions();
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		for (int d = 0; d < n; d++) {
+			final AxisType type = dataset.axis(d).type();
+			if (type.isXY()) {
+				min[d] = dataset.min(d);
+				max[d] = dataset.max(d);
 			}
-			else { // increment < 0
-				delta = -1;
-				currPos--;
+			else {
+				min[d] = max[d] = type == axis ? position : display.getLongPosition(
+					type);
 			}
 		}
+		ImgStorage.loadCells(dataset.getImgPlus(), new FinalInterval(min, max));
+	}
 
-		final long pos =
-			isRelative ? display.getLongPosition(axis) + delta : delta;
-		display.setPosition(pos, axis);
+	/** Updates the achieved frame rate, about once per second. */
+	private void updateStats(final long now) {
+		statsFrames++;
+		final long elapsed = now - statsTime;
+		if (elapsed < SECOND) return;
+		achievedFPS = (double) statsFrames * SECOND / elapsed;
+		statsTime = now;
+		statsFrames = 0;
 	}
 
 	/** Ensures the position of the relevant axis is within the legal range. */
@@ -29,6 +29,8 @@
 
 package net.imagej.animation;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import net.imagej.ImageJService;
 import net.imagej.display.ImageDisplay;
 
@@ -58,4 +60,23 @@ public interface AnimationService extends ImageJService {
 	/** Gets the given {@link ImageDisplay}'s corresponding {@link Animation}. */
 	Animation getAnimation(ImageDisplay display);
 
+	/** Gets the executor which schedules the frames of all animations. */
+	ScheduledExecutorService getExecutor();
+
+	/**
+	 * Gets the number of frames per second actually shown by the given
+	 * {@link ImageDisplay}'s animation.
+	 */
+	default double getAchievedFPS(final ImageDisplay display) {
+		return getAnimation(display).getAchievedFPS();
+	}
+
+	/**
+	 * Gets the number of frames the given {@link ImageDisplay}'s animation has
+	 * skipped because rendering fell behind.
+	 */
+	default long getDroppedFrames(final ImageDisplay display) {
+		return getAnimation(display).getDroppedFrames();
+	}
+
 }
@@ -31,6 +31,9 @@ package net.imagej.animation;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imagej.Data;
 import net.imagej.display.ImageDisplay;
@@ -64,6 +67,9 @@ public class DefaultAnimationService extends AbstractService implements
 		"Animation stopped. Press '\\' to resume.";
 	private static final String ALL_STOPPED_STATUS = "All animations stopped.";
 
+	/** Number of threads scheduling animation frames. */
+	private static final int FRAME_THREADS = 2;
+
 	@Parameter
 	private EventService eventService;
 
@@ -72,6 +78,8 @@ public class DefaultAnimationService extends AbstractService implements
 
 	private Map<ImageDisplay, Animation> animations;
 
+	private ScheduledExecutorService executor;
+
 	// -- AnimationService methods --
 
 	@Override
@@ -119,6 +127,20 @@ public class DefaultAnimationService extends AbstractService implements
 		return animation;
 	}
 
+	@Override
+	public synchronized ScheduledExecutorService getExecutor() {
+		if (executor == null) {
+			final AtomicInteger count = new AtomicInteger();
+			executor = Executors.newScheduledThreadPool(FRAME_THREADS, r -> {
+				final Thread thread = new Thread(r, "ImageJ-Animation-" + count
+					.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
 	// -- Service methods --
 
 	@Override
@@ -131,6 +153,10 @@ public class DefaultAnimationService extends AbstractService implements
 	@Override
 	public void dispose() {
 		stopAll();
+		synchronized (this) {
+			if (executor != null) executor.shutdownNow();
+			executor = null;
+		}
 	}
 
 	// -- Event handlers --
@@ -32,6 +32,7 @@ package net.imagej.autoscale;
 import java.util.List;
 import java.util.Map;
 
+import net.imagej.Dataset;
 import net.imagej.ImageJService;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessibleInterval;
@@ -88,4 +89,38 @@ public interface AutoscaleService extends SingletonService<AutoscaleMethod>,
 	 */
 	DataRange getDefaultRandomAccessRange(
 		RandomAccessibleInterval<? extends RealType<?>> interval);
+
+	/**
+	 * Calculates the range of interest of one channel of the given
+	 * {@link Dataset} using the given {@link AutoscaleMethod}, restricted to the
+	 * XY plane at the given position.
+	 * <p>
+	 * Results are cached per dataset, channel, plane position and method, and
+	 * discarded when the dataset's data is updated or restructured. Hence,
+	 * repeated requests (e.g., when reopening or duplicating views) do not
+	 * rescan the data.
+	 * </p>
+	 * <p>
+	 * For the min/max-based default method, the range of each XY plane is also
+	 * recorded in the dataset's {@link net.imagej.ImgPlus}, so that after a
+	 * plane is replaced (see {@link Dataset#setPlane(int, Object)}), only that
+	 * plane needs to be measured again.
+	 * </p>
+	 * 
+	 * @param dataset The dataset whose values are measured.
+	 * @param c The channel to measure.
+	 * @param planePos The position of the XY plane, with one entry per dimension
+	 *          of the dataset (entries for X, Y and channel are ignored); or null
+	 *          to measure the entire channel.
+	 * @param method The method used to calculate the range.
+	 * @return The calculated range of values.
+	 */
+	DataRange getChannelRange(Dataset dataset, int c, long[] planePos,
+		AutoscaleMethod method);
+
+	/**
+	 * Discards all cached ranges of the given {@link Dataset}, including the
+	 * plane ranges recorded in its {@link net.imagej.ImgPlus}.
+	 */
+	void clearCache(Dataset dataset);
 }
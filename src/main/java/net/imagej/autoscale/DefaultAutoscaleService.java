@@ -30,17 +30,30 @@
 package net.imagej.autoscale;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
+import net.imagej.Dataset;
+import net.imagej.ImgPlus;
+import net.imagej.axis.Axes;
+import net.imagej.event.DatasetDeletedEvent;
+import net.imagej.event.DatasetRestructuredEvent;
+import net.imagej.event.DatasetUpdatedEvent;
+import net.imagej.minmax.MinMaxMethod;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.view.Views;
 
+import org.scijava.event.EventHandler;
+import org.scijava.log.LogService;
 import org.scijava.plugin.AbstractSingletonService;
+import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.Service;
 
@@ -56,12 +69,21 @@ public class DefaultAutoscaleService extends
 	AbstractSingletonService<AutoscaleMethod> implements AutoscaleService
 {
 
+	/** Maximum number of ranges cached per dataset. */
+	private static final int MAX_CACHED_RANGES = 256;
+
 	// -- instance variables --
 
+	@Parameter
+	private LogService log;
+
 	private HashMap<String, AutoscaleMethod> methods;
 
 	private ArrayList<String> methodNames;
 
+	/** Cached ranges, per dataset. */
+	private final Map<Dataset, RangeCache> rangeCaches = new WeakHashMap<>();
+
 	// -- AutoscaleService methods --
 
 	@Override
@@ -101,6 +123,54 @@ public class DefaultAutoscaleService extends
 		return getDefaultIntervalRange(newInterval);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public DataRange getChannelRange(final Dataset dataset, final int c,
+		final long[] planePos, final AutoscaleMethod method)
+	{
+		final int chIndex = dataset.dimensionIndex(Axes.CHANNEL);
+		final RangeKey key = new RangeKey(c, planePos, chIndex, method);
+
+		final RangeCache cache = rangeCache(dataset);
+		final long generation;
+		synchronized (cache) {
+			final DataRange range = cache.ranges.get(key);
+			if (range != null) return range;
+			generation = cache.generation;
+		}
+
+		// compute the range outside the lock, since it may take a while
+		final ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
+		final long[] min = new long[imgPlus.numDimensions()];
+		final long[] max = new long[imgPlus.numDimensions()];
+		imgPlus.max(max);
+		for (int d = 2; d < min.length; d++) {
+			if (d == chIndex) min[d] = max[d] = c;
+			else if (planePos != null) min[d] = max[d] = planePos[d];
+		}
+		final DataRange range;
+		if (method instanceof DefaultAutoscaleMethod && min.length >= 2) {
+			range = minMaxRange(imgPlus, min, max, cache, generation);
+		}
+		else {
+			final IterableInterval<? extends RealType<?>> interval =
+				Views.iterable(Views.interval(imgPlus, min, max));
+			range = method.getRange(interval);
+		}
+
+		synchronized (cache) {
+			// NB: Discard the result if the data changed in the meantime.
+			if (cache.generation == generation) cache.ranges.put(key, range);
+		}
+		return range;
+	}
+
+	@Override
+	public void clearCache(final Dataset dataset) {
+		dataset.getImgPlus().clearPlaneRanges();
+		invalidate(dataset);
+	}
+
 	// -- PTService methods --
 
 	@Override
@@ -108,6 +178,144 @@ public class DefaultAutoscaleService extends
 		return AutoscaleMethod.class;
 	}
 
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final DatasetUpdatedEvent event) {
+		if (event.isMetaDataOnly()) return;
+		// NB: The dataset itself discards the plane ranges which are affected.
+		invalidate(event.getObject());
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetRestructuredEvent event) {
+		invalidate(event.getObject());
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetDeletedEvent event) {
+		invalidate(event.getObject());
+		synchronized (rangeCaches) {
+			rangeCaches.remove(event.getObject());
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Computes the min/max range of the given XY planes, using the plane ranges
+	 * recorded in the {@link ImgPlus} where available. Only planes whose range
+	 * is unknown (e.g., because they were replaced) are measured, and their
+	 * ranges are recorded for next time.
+	 */
+	private DataRange minMaxRange(final ImgPlus<? extends RealType<?>> imgPlus,
+		final long[] min, final long[] max, final RangeCache cache,
+		final long generation)
+	{
+		final int n = min.length;
+		final long[] planeMin = min.clone();
+		final long[] planeMax = max.clone();
+		final long[] pos = min.clone();
+		double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+		while (true) {
+			long no = 0, stride = 1;
+			for (int d = 2; d < n; d++) {
+				no += pos[d] * stride;
+				stride *= imgPlus.dimension(d);
+			}
+			// NB: Obtain the stamp first, so that a range measured while the
+			// plane is being replaced is discarded rather than recorded.
+			final long stamp = imgPlus.getPlaneRangeStamp();
+			double pMin = imgPlus.getPlaneMinimum(no);
+			double pMax = imgPlus.getPlaneMaximum(no);
+			if (Double.isNaN(pMin) || Double.isNaN(pMax)) {
+				for (int d = 2; d < n; d++) {
+					planeMin[d] = planeMax[d] = pos[d];
+				}
+				final MinMaxMethod<?> minmax = measure(Views.interval(imgPlus,
+					planeMin, planeMax));
+				if (minmax == null) {
+					// NB: Measurement failed; leave the plane range unknown.
+					pMin = pMax = Double.NaN;
+				}
+				else {
+					pMin = ((RealType<?>) minmax.getMin()).getRealDouble();
+					pMax = ((RealType<?>) minmax.getMax()).getRealDouble();
+					synchronized (cache) {
+						// NB: Only record the range if the data did not change meanwhile.
+						if (cache.generation == generation) {
+							imgPlus.setPlaneRange(no, pMin, pMax, stamp);
+						}
+					}
+				}
+			}
+			if (pMin < lo) lo = pMin;
+			if (pMax > hi) hi = pMax;
+
+			// advance to the next plane
+			int d = 2;
+			while (d < n && pos[d] == max[d]) {
+				pos[d] = min[d];
+				d++;
+			}
+			if (d == n) break;
+			pos[d]++;
+		}
+
+		// NB - never return a display range of zero
+		if (!(lo < hi)) {
+			final RealType<?> type = imgPlus.firstElement();
+			lo = type.getMinValue();
+			hi = type.getMaxValue();
+		}
+		return new DataRange(lo, hi);
+	}
+
+	/**
+	 * Computes the min and max of the given interval.
+	 *
+	 * @return The method holding the result, or null if the computation failed.
+	 */
+	@SuppressWarnings("unchecked")
+	private MinMaxMethod<?> measure(
+		final RandomAccessibleInterval<? extends RealType<?>> interval)
+	{
+		final List<MinMaxMethod> methods = getPluginService()
+			.createInstancesOfType(MinMaxMethod.class);
+		final MinMaxMethod minmax = methods.get(0);
+		minmax.initialize(interval);
+		if (!minmax.process()) {
+			log.warn("Cannot compute min/max: " + minmax.getErrorMessage());
+			return null;
+		}
+		return minmax;
+	}
+
+	/** Discards the cached ranges of the given dataset. */
+	private void invalidate(final Dataset dataset) {
+		final RangeCache cache;
+		synchronized (rangeCaches) {
+			cache = rangeCaches.get(dataset);
+		}
+		if (cache == null) return;
+		synchronized (cache) {
+			cache.ranges.clear();
+			cache.generation++;
+		}
+	}
+
+	/** Gets the range cache of the given dataset, creating it if needed. */
+	private RangeCache rangeCache(final Dataset dataset) {
+		synchronized (rangeCaches) {
+			RangeCache cache = rangeCaches.get(dataset);
+			if (cache == null) {
+				cache = new RangeCache();
+				rangeCaches.put(dataset, cache);
+			}
+			return cache;
+		}
+	}
+
 	// -- Helper methods - lazy initialization --
 
 	/** Gets {@link #methods}, initializing if needed. */
@@ -149,4 +357,84 @@ public class DefaultAutoscaleService extends
 		methodNames = list;
 	}
 
+	// -- Helper classes --
+
+	/**
+	 * Cached ranges of a single dataset. Only the most recently used ranges are
+	 * kept, so that scrubbing through a long series does not grow the cache.
+	 */
+	private static class RangeCache {
+
+		private final Map<RangeKey, DataRange> ranges = new LinkedHashMap<
+			RangeKey, DataRange>(16, 0.75f, true)
+		{
+
+			@Override
+			protected boolean removeEldestEntry(
+				final Map.Entry<RangeKey, DataRange> eldest)
+			{
+				return size() > MAX_CACHED_RANGES;
+			}
+		};
+
+		/** Incremented whenever the cached ranges are invalidated. */
+		private long generation;
+	}
+
+	/**
+	 * Identifies a cached range: channel, plane position, and method along with
+	 * the settings it had, so that changing them yields a fresh range.
+	 */
+	private static class RangeKey {
+
+		private final int channel;
+		private final long[] planePos;
+		private final AutoscaleMethod method;
+		private final List<Object> settings;
+
+		public RangeKey(final int channel, final long[] planePos,
+			final int chIndex, final AutoscaleMethod method)
+		{
+			this.channel = channel;
+			this.method = method;
+			settings = settings(method);
+			if (planePos == null) this.planePos = null;
+			else {
+				// NB: Ignore positions which do not select the plane.
+				this.planePos = planePos.clone();
+				for (int d = 0; d < Math.min(2, planePos.length); d++)
+					this.planePos[d] = 0;
+				if (chIndex >= 0 && chIndex < planePos.length) {
+					this.planePos[chIndex] = 0;
+				}
+			}
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof RangeKey)) return false;
+			final RangeKey other = (RangeKey) o;
+			return channel == other.channel && method == other.method && //
+				Arrays.equals(planePos, other.planePos) && //
+				settings.equals(other.settings);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * (31 * channel + Arrays.hashCode(planePos)) + //
+				System.identityHashCode(method)) + settings.hashCode();
+		}
+
+		/** Gets the settings of the given method which affect its ranges. */
+		private static List<Object> settings(final AutoscaleMethod method) {
+			if (method instanceof ConfidenceIntervalAutoscaleMethod) {
+				final ConfidenceIntervalAutoscaleMethod<?> ci =
+					(ConfidenceIntervalAutoscaleMethod<?>) method;
+				return Arrays.asList(ci.getLowerTailProportion(), ci
+					.getUpperTailProportion());
+			}
+			return Collections.emptyList();
+		}
+	}
+
 }
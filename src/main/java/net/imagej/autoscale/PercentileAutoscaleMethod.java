@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.autoscale;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Kind;
+import net.imagej.util.ImgStorage.Segment;
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Computes a confidence interval containing percentages of the entire set of
+ * values in an {@link IterableInterval}, using a single pass through the data.
+ * <p>
+ * Unlike {@link ConfidenceIntervalAutoscaleMethod}, which first computes the
+ * data range and then fills a histogram in a second pass, this method fills a
+ * {@link QuantileSketch} per chunk of the data, in parallel, and merges the
+ * results. Types of up to 16 bits are binned exactly; other types use
+ * logarithmic bins with a relative accuracy of {@value #RELATIVE_ACCURACY}.
+ * </p>
+ */
+@Plugin(type = AutoscaleMethod.class, name = "Percentile")
+public class PercentileAutoscaleMethod<T extends RealType<T>> extends
+	ConfidenceIntervalAutoscaleMethod<T>
+{
+
+	/** Relative accuracy of the estimated bounds for non-exact types. */
+	public static final double RELATIVE_ACCURACY = 0.005;
+
+	@Parameter
+	private ThreadService threadService;
+
+	// -- Constructors --
+
+	/**
+	 * Construct a confidence interval that contains 95% of the data range.
+	 */
+	public PercentileAutoscaleMethod() {
+		super();
+	}
+
+	/**
+	 * Construct a confidence interval with user specified percentages of the data
+	 * range. Ranges are specified as fractions of 1. They must sum to less than
+	 * 1.
+	 *
+	 * @param lowerTailProportion The proportion of the distribution to be treated
+	 *          as lower tail values
+	 * @param upperTailProportion The proportion of the distribution to be treated
+	 *          as upper tail values
+	 */
+	public PercentileAutoscaleMethod(final double lowerTailProportion,
+		final double upperTailProportion)
+	{
+		super(lowerTailProportion, upperTailProportion);
+	}
+
+	// -- PercentileAutoscaleMethod methods --
+
+	/**
+	 * Computes a {@link QuantileSketch} of all values in the given interval, in
+	 * a single pass.
+	 */
+	public QuantileSketch sketch(final IterableInterval<T> interval) {
+		final int numThreads = Runtime.getRuntime().availableProcessors();
+		final List<Future<QuantileSketch>> futures = new ArrayList<>();
+
+		final List<Segment> segments = ImgStorage.segments(interval);
+		if (segments != null) {
+			final Kind kind = ImgStorage.kind(interval.firstElement());
+			for (final List<Segment> chunk : ImgStorage.partition(segments,
+				numThreads))
+			{
+				futures.add(threadService.run(() -> {
+					final QuantileSketch sketch = createSketch(interval.firstElement());
+					for (final Segment s : chunk) {
+						accumulate(sketch, kind, s);
+					}
+					return sketch;
+				}));
+			}
+		}
+		else {
+			final long size = interval.size();
+			final int parts = (int) Math.max(1, Math.min(size, numThreads));
+			final long chunkSize = size / parts;
+			for (int p = 0; p < parts; p++) {
+				final long start = p * chunkSize;
+				final long count = p == parts - 1 ? size - start : chunkSize;
+				futures.add(threadService.run(() -> {
+					final QuantileSketch sketch = createSketch(interval.firstElement());
+					final Cursor<T> cursor = interval.cursor();
+					cursor.jumpFwd(start);
+					for (long j = 0; j < count; j++) {
+						sketch.add(cursor.next().getRealDouble());
+					}
+					return sketch;
+				}));
+			}
+		}
+
+		QuantileSketch result = null;
+		for (final Future<QuantileSketch> future : futures) {
+			final QuantileSketch sketch;
+			try {
+				sketch = future.get();
+			}
+			catch (final InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(exc);
+			}
+			catch (final ExecutionException exc) {
+				throw new IllegalStateException(exc.getCause());
+			}
+			if (result == null) result = sketch;
+			else result.merge(sketch);
+		}
+		return result == null ? createSketch(interval.firstElement()) : result;
+	}
+
+	// -- AutoscaleMethod methods --
+
+	@Override
+	public DataRange getRange(final IterableInterval<T> interval) {
+		// single pass through data
+		final QuantileSketch sketch = sketch(interval);
+		final long totValues = sketch.count();
+		final long lowerSize = (long) Math.floor(getLowerTailProportion() *
+			totValues);
+		final long upperSize = (long) Math.floor(getUpperTailProportion() *
+			totValues);
+		double min = sketch.valueAtRank(lowerSize);
+		double max = sketch.valueAtRank(totValues - 1 - upperSize);
+
+		// NB - never return a display range of zero
+		if (min == max) {
+			min = sketch.min();
+			max = sketch.max();
+		}
+		if (totValues == 0 || min == max) {
+			final T theType = interval.firstElement();
+			min = theType.getMinValue();
+			max = theType.getMaxValue();
+		}
+		return new DataRange(min, max);
+	}
+
+	// -- Helper methods --
+
+	/** Creates an empty sketch suitable for values of the given type. */
+	private QuantileSketch createSketch(final T type) {
+		if (type instanceof IntegerType) {
+			final double lo = type.getMinValue(), hi = type.getMaxValue();
+			if (hi - lo < QuantileSketch.MAX_EXACT_BINS) {
+				return QuantileSketch.exact((long) lo, (long) hi);
+			}
+		}
+		return QuantileSketch.relative(RELATIVE_ACCURACY);
+	}
+
+	/** Adds the samples of the given storage segment to a sketch. */
+	private static void accumulate(final QuantileSketch sketch, final Kind kind,
+		final Segment s)
+	{
+		final int start = s.offset();
+		final int end = start + s.length();
+		switch (kind) {
+			case BYTE: {
+				final byte[] a = (byte[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i], 1);
+				break;
+			}
+			case UBYTE: {
+				final byte[] a = (byte[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i] & 0xff, 1);
+				break;
+			}
+			case SHORT: {
+				final short[] a = (short[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i], 1);
+				break;
+			}
+			case USHORT: {
+				final short[] a = (short[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i] & 0xffff, 1);
+				break;
+			}
+			case FLOAT: {
+				final float[] a = (float[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i]);
+				break;
+			}
+			case DOUBLE: {
+				final double[] a = (double[]) s.array();
+				for (int i = start; i < end; i++)
+					sketch.add(a[i]);
+				break;
+			}
+			default:
+				for (int i = start; i < end; i++)
+					sketch.add(kind.getDouble(s.array(), i));
+		}
+	}
+
+}
@@ -0,0 +1,286 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.autoscale;
+
+/**
+ * A mergeable summary of a stream of values, for estimating quantiles in a
+ * single pass over the data.
+ * <p>
+ * Two modes are supported:
+ * </p>
+ * <ul>
+ * <li>{@link #exact(long, long)} keeps one bin per integer value of a bounded
+ * range (e.g., all values of a 16-bit type), yielding exact quantiles.</li>
+ * <li>{@link #relative(double)} keeps logarithmically spaced bins, such that
+ * each reported quantile is within the given relative accuracy of the true
+ * value, regardless of the range of the data. Non-finite values are
+ * ignored.</li>
+ * </ul>
+ * <p>
+ * Sketches of the same mode and parameters can be computed independently over
+ * chunks of the data (e.g., by several threads) and then combined with
+ * {@link #merge(QuantileSketch)}.
+ * </p>
+ */
+public final class QuantileSketch {
+
+	/** Largest number of bins allowed for an exact sketch. */
+	public static final int MAX_EXACT_BINS = 1 << 16;
+
+	// -- Fields --
+
+	/** Smallest value of an exact sketch. */
+	private final long binMin;
+
+	/** Bins of an exact sketch; null for relative sketches. */
+	private final long[] bins;
+
+	/** Base of the logarithmic bins of a relative sketch. */
+	private final double gamma;
+
+	private final double lnGamma;
+
+	private final Store positive = new Store();
+	private final Store negative = new Store();
+	private long zeroCount;
+
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	// -- Constructors --
+
+	private QuantileSketch(final long binMin, final long[] bins,
+		final double gamma)
+	{
+		this.binMin = binMin;
+		this.bins = bins;
+		this.gamma = gamma;
+		lnGamma = Math.log(gamma);
+	}
+
+	/**
+	 * Creates a sketch with one bin per integer value in the range [{@code min},
+	 * {@code max}].
+	 *
+	 * @throws IllegalArgumentException if the range spans more than
+	 *           {@link #MAX_EXACT_BINS} values.
+	 */
+	public static QuantileSketch exact(final long min, final long max) {
+		final long size = max - min + 1;
+		if (size <= 0 || size > MAX_EXACT_BINS) {
+			throw new IllegalArgumentException("Invalid range for exact sketch: [" +
+				min + ", " + max + "]");
+		}
+		return new QuantileSketch(min, new long[(int) size], Double.NaN);
+	}
+
+	/**
+	 * Creates a sketch whose quantile estimates are within the given relative
+	 * accuracy (e.g., 0.01 for 1%) of the true values.
+	 */
+	public static QuantileSketch relative(final double accuracy) {
+		if (!(accuracy > 0 && accuracy < 1)) {
+			throw new IllegalArgumentException("Accuracy must be in (0, 1): " +
+				accuracy);
+		}
+		return new QuantileSketch(0, null, (1 + accuracy) / (1 - accuracy));
+	}
+
+	// -- QuantileSketch methods --
+
+	/** Gets whether this sketch has one bin per integer value. */
+	public boolean isExact() {
+		return bins != null;
+	}
+
+	/** Adds {@code n} occurrences of the given integer value to the sketch. */
+	public void add(final long value, final long n) {
+		if (bins == null) {
+			addReal(value, n);
+			return;
+		}
+		bins[(int) (value - binMin)] += n;
+		count += n;
+	}
+
+	/** Adds the given value to the sketch. */
+	public void add(final double value) {
+		if (bins != null) add((long) value, 1);
+		else addReal(value, 1);
+	}
+
+	/**
+	 * Adds all values of another sketch to this one.
+	 *
+	 * @throws IllegalArgumentException if the sketches have different modes or
+	 *           parameters.
+	 */
+	public void merge(final QuantileSketch other) {
+		if (bins != null) {
+			if (other.bins == null || other.binMin != binMin ||
+				other.bins.length != bins.length)
+			{
+				throw new IllegalArgumentException("Incompatible sketch");
+			}
+			for (int i = 0; i < bins.length; i++)
+				bins[i] += other.bins[i];
+		}
+		else {
+			if (other.bins != null || other.gamma != gamma) {
+				throw new IllegalArgumentException("Incompatible sketch");
+			}
+			positive.merge(other.positive);
+			negative.merge(other.negative);
+			zeroCount += other.zeroCount;
+			if (other.min < min) min = other.min;
+			if (other.max > max) max = other.max;
+		}
+		count += other.count;
+	}
+
+	/** Gets the number of values in the sketch. */
+	public long count() {
+		return count;
+	}
+
+	/** Gets the smallest value in the sketch, or NaN if empty. */
+	public double min() {
+		return count == 0 ? Double.NaN : valueAtRank(0);
+	}
+
+	/** Gets the largest value in the sketch, or NaN if empty. */
+	public double max() {
+		return count == 0 ? Double.NaN : valueAtRank(count - 1);
+	}
+
+	/**
+	 * Gets the (estimated) value at the given quantile, from 0 (the smallest
+	 * value) to 1 (the largest value).
+	 */
+	public double quantile(final double q) {
+		return valueAtRank((long) Math.floor(q * (count - 1)));
+	}
+
+	/**
+	 * Gets the (estimated) value of the given rank, i.e., the value which would
+	 * be at the given index if all values were sorted in ascending order.
+	 *
+	 * @return The value, or NaN if the sketch is empty.
+	 */
+	public double valueAtRank(final long rank) {
+		if (count == 0) return Double.NaN;
+		final long r = Math.max(0, Math.min(count - 1, rank));
+		long n = 0;
+		if (bins != null) {
+			for (int i = 0; i < bins.length; i++) {
+				n += bins[i];
+				if (n > r) return binMin + i;
+			}
+			return binMin + bins.length - 1;
+		}
+		if (r == 0) return min;
+		if (r == count - 1) return max;
+		// NB: Largest negative keys are the smallest values.
+		for (int i = negative.counts.length - 1; i >= 0; i--) {
+			n += negative.counts[i];
+			if (n > r) return clamp(-value(negative.offset + i));
+		}
+		n += zeroCount;
+		if (n > r) return 0;
+		for (int i = 0; i < positive.counts.length; i++) {
+			n += positive.counts[i];
+			if (n > r) return clamp(value(positive.offset + i));
+		}
+		return max;
+	}
+
+	// -- Helper methods --
+
+	/** Adds {@code n} occurrences of a value to a relative sketch. */
+	private void addReal(final double value, final long n) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) return;
+		if (value > 0) positive.add(key(value), n);
+		else if (value < 0) negative.add(key(-value), n);
+		else zeroCount += n;
+		if (value < min) min = value;
+		if (value > max) max = value;
+		count += n;
+	}
+
+	private int key(final double magnitude) {
+		return (int) Math.ceil(Math.log(magnitude) / lnGamma);
+	}
+
+	private double value(final int key) {
+		return 2 * Math.exp(key * lnGamma) / (gamma + 1);
+	}
+
+	private double clamp(final double value) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	// -- Helper classes --
+
+	/** Dense, growable counts for a contiguous range of bin keys. */
+	private static class Store {
+
+		private long[] counts = new long[0];
+		private int offset;
+
+		public void add(final int key, final long n) {
+			if (key < offset || key >= offset + counts.length) grow(key);
+			counts[key - offset] += n;
+		}
+
+		public void merge(final Store other) {
+			for (int i = 0; i < other.counts.length; i++) {
+				if (other.counts[i] != 0) add(other.offset + i, other.counts[i]);
+			}
+		}
+
+		private void grow(final int key) {
+			if (counts.length == 0) {
+				counts = new long[GROWTH];
+				offset = key - GROWTH / 2;
+				return;
+			}
+			final int lo = Math.min(offset, key - GROWTH);
+			final int hi = Math.max(offset + counts.length, key + GROWTH);
+			final long[] newCounts = new long[hi - lo];
+			System.arraycopy(counts, 0, newCounts, offset - lo, counts.length);
+			counts = newCounts;
+			offset = lo;
+		}
+
+		private static final int GROWTH = 128;
+	}
+
+}
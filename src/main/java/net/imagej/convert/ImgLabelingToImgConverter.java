@@ -29,26 +29,37 @@
 
 package net.imagej.convert;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.scijava.convert.AbstractConverter;
 import org.scijava.convert.Converter;
 import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
-import org.scijava.util.Types;
 
+import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.loops.LoopBuilder;
 import net.imglib2.roi.labeling.ImgLabeling;
-import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
 
 /**
  * This {@code Converter} converts an {@code ImgLabeling} to an {@code Img}. If
  * the {@code ImgLabeling} has non-overlapping integer labels, the result
  * {@code Img} will be filled with values corresponding to those labels.
  * Otherwise, {@code ImgLabeling#getIndexImg()} is returned.
+ * <p>
+ * The label of each label set is looked up once, and the pixels are then
+ * converted through that table in parallel, checking along the way that each
+ * pixel has at most one integer label. Where the labels do not fit the type
+ * of the index image, the result has a wider integer type.
+ * </p>
  * 
  * @author Jan Eglinger
  * @param <T> the ImgLib2 type used for the index image of the labeling
@@ -59,6 +70,12 @@ public class ImgLabelingToImgConverter<T extends IntegerType<T>> extends
 	ConciseConverter<ImgLabeling, Img>
 {
 
+	/** Flag for label sets with several labels. */
+	private static final byte OVERLAPPING = 0x1;
+
+	/** Flag for label sets with a label that is not an integer. */
+	private static final byte NON_INTEGER = 0x2;
+
 	@Parameter
 	private LogService log;
 
@@ -67,48 +84,92 @@ public class ImgLabelingToImgConverter<T extends IntegerType<T>> extends
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	protected Img convert(final ImgLabeling src) {
-		ImgLabeling<Integer, T> labeling = (ImgLabeling<Integer, T>) src;
-		// check if only singleton labels
-		if (!singletonLabels(labeling)) {
+		final ImgLabeling<?, T> labeling = src;
+		final Img<T> indexImg = (Img<T>) labeling.getIndexImg();
+
+		// NB: Look up the label of each label set once, rather than per pixel.
+		final List<? extends Set<?>> labelSets = labeling.getMapping()
+			.getLabelSets();
+		final long[] labels = new long[labelSets.size()];
+		final byte[] problems = new byte[labelSets.size()];
+		long minLabel = 0, maxLabel = 0;
+		for (int i = 0; i < labels.length; i++) {
+			final Set<?> labelSet = labelSets.get(i);
+			if (labelSet.isEmpty()) continue;
+			if (labelSet.size() > 1) {
+				problems[i] = OVERLAPPING;
+				continue;
+			}
+			final Object label = labelSet.iterator().next();
+			if (!isInteger(label)) {
+				problems[i] = NON_INTEGER;
+				continue;
+			}
+			labels[i] = ((Number) label).longValue();
+			minLabel = Math.min(minLabel, labels[i]);
+			maxLabel = Math.max(maxLabel, labels[i]);
+		}
+
+		// create an image whose type can hold all the labels
+		final T indexType = indexImg.firstElement();
+		if (minLabel >= indexType.getMinValue() && //
+			maxLabel <= indexType.getMaxValue())
+		{
+			return fill(indexImg, indexImg.factory().create(indexImg), labels,
+				problems);
+		}
+		if (minLabel >= Integer.MIN_VALUE && maxLabel <= Integer.MAX_VALUE) {
+			return fill(indexImg, create(indexImg, new IntType()), labels, problems);
+		}
+		return fill(indexImg, create(indexImg, new LongType()), labels, problems);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Fills the given image with the label of each pixel of the labeling, as
+	 * long as the label sets of all pixels hold a single integer label;
+	 * otherwise returns the index image.
+	 */
+	private <O extends IntegerType<O>> Img fill(final Img<T> indexImg,
+		final Img<O> img, final long[] labels, final byte[] problems)
+	{
+		// NB: Only the label sets actually used by some pixel are checked.
+		final AtomicInteger found = new AtomicInteger();
+		LoopBuilder.setImages(indexImg, img).multiThreaded().forEachPixel((index,
+			label) -> {
+			final int i = index.getInteger();
+			if (problems[i] == 0) label.setInteger(labels[i]);
+			else found.accumulateAndGet(problems[i], (a, b) -> a | b);
+		});
+		if ((found.get() & OVERLAPPING) != 0) {
 			log.warn(
 				"Converting ImgLabeling with overlapping labels. Labels cannot be preserved in output, creating continuous integers.");
-			return (Img) ((ImgLabeling) labeling).getIndexImg();
+			return indexImg;
 		}
-		// check if labeling type is integer
-		if (!integerLabels(labeling)) {
+		if ((found.get() & NON_INTEGER) != 0) {
 			log.warn(
 				"Converting non-integer label type. Labels cannot be preserved in output, creating continuous integers.");
-			return (Img) (labeling).getIndexImg();
+			return indexImg;
 		}
-		// else, create new img, populate with actual labels
-		Img<T> indexImg = (Img<T>) labeling.getIndexImg();
-		Img<T> img = indexImg.factory().create(indexImg);
-		LabelingMapping<Integer> mapping = labeling.getMapping();
-		LoopBuilder.setImages(labeling, img).forEachPixel((l, i) -> {
-			Set<Integer> labels = mapping.labelsAtIndex(l.getIndex().getInteger());
-			if (!labels.isEmpty()) {
-				i.setInteger(labels.iterator().next()); // assuming singleton set here
-			}
-		});
 		return img;
 	}
 
-	private boolean integerLabels(ImgLabeling labeling) {
-		// Check if the first non-empty label set is an integer
-		return Types.isAssignable(labeling.getMapping().labelsAtIndex(1).iterator()
-			.next().getClass(), Integer.class);
+	private <O extends NativeType<O>> Img<O> create(final Img<T> indexImg,
+		final O type)
+	{
+		try {
+			return indexImg.factory().imgFactory(type).create(indexImg);
+		}
+		catch (final IncompatibleTypeException exc) {
+			return new ArrayImgFactory<>(type).create(indexImg);
+		}
 	}
 
-	private boolean singletonLabels(ImgLabeling labeling) {
-		LabelingMapping mapping = labeling.getMapping();
-		// TODO should we actually iterate over sets to assert that each is a
-		// singleton?
-		return mapping.getLabels().size() == mapping.getLabelSets().size() - 1; // the
-																																						// empty
-																																						// set
-																																						// is
-																																						// always
-																																						// present
+	private boolean isInteger(final Object label) {
+		return label instanceof Integer || label instanceof Long ||
+			label instanceof Short || label instanceof Byte;
 	}
 }
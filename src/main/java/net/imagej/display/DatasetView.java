@@ -41,6 +41,7 @@ import net.imglib2.type.numeric.RealType;
 
 import org.scijava.display.Display;
 import org.scijava.util.ColorRGB;
+import org.scijava.util.IntRect;
 
 /**
  * A linkage between a {@link Dataset} and a {@link Display}. The view takes
@@ -54,6 +55,54 @@ public interface DatasetView extends DataView {
 
 	ARGBScreenImage getScreenImage();
 
+	/**
+	 * Gets the region of the current plane held by the
+	 * {@link #getScreenImage() screen image}, in data coordinates. This is the
+	 * whole plane unless rendering is limited to a {@link #setViewport viewport},
+	 * in which case the screen image may also be subsampled, and must be scaled
+	 * to fill this region when drawn. By default, it is the whole screen image.
+	 */
+	default IntRect getScreenImageBounds() {
+		final ARGBScreenImage screenImage = getScreenImage();
+		if (screenImage == null) return null;
+		return new IntRect(0, 0, (int) screenImage.dimension(0),
+			(int) screenImage.dimension(1));
+	}
+
+	/**
+	 * Gets the subsampling step of the {@link #getScreenImage() screen image}:
+	 * each of its pixels shows every step-th pixel of the plane, in X and Y, and
+	 * covers a step-by-step square of its {@link #getScreenImageBounds()
+	 * bounds}. By default, the screen image is not subsampled.
+	 */
+	default int getScreenImageStep() {
+		return 1;
+	}
+
+	/**
+	 * Limits rendering to the portion of each plane visible in the given
+	 * canvas's viewport, so that the {@link #getScreenImage() screen image} is
+	 * sized to the viewport rather than to the whole plane. The visible portion
+	 * is rendered in tiles, which are reused when the canvas is panned. When
+	 * zoomed out, the plane is subsampled to roughly the resolution of the
+	 * viewport, reading from the {@link Pyramid} attached to the dataset by the
+	 * {@link PyramidService}, if any.
+	 * <p>
+	 * By default, views always render whole planes, and ignore the canvas.
+	 * </p>
+	 *
+	 * @param canvas The canvas whose viewport should be rendered, or null to
+	 *          render whole planes (the default).
+	 */
+	default void setViewport(final ImageCanvas canvas) {
+		// NB: No viewport support by default.
+	}
+
+	/** Gets the canvas whose viewport limits rendering, or null if none. */
+	default ImageCanvas getViewport() {
+		return null;
+	}
+
 	int getCompositeDimIndex();
 
 	CompositeXYProjector<? extends RealType<?>> getProjector();
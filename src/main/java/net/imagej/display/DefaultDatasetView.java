@@ -30,6 +30,7 @@
 package net.imagej.display;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -44,15 +45,20 @@ import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
 import net.imagej.display.event.DataViewUpdatedEvent;
 import net.imagej.display.event.LUTsChangedEvent;
+import net.imagej.display.event.PanZoomEvent;
+import net.imagej.display.event.ViewportResizeEvent;
 import net.imagej.event.DatasetRGBChangedEvent;
 import net.imagej.event.DatasetTypeChangedEvent;
 import net.imagej.event.DatasetUpdatedEvent;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.RealLUTConverter;
 import net.imglib2.display.ColorTable;
 import net.imglib2.display.projector.composite.CompositeXYProjector;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.util.Binning;
 import net.imglib2.util.Intervals;
@@ -65,6 +71,9 @@ import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.thread.ThreadService;
 import org.scijava.util.ColorRGB;
+import org.scijava.util.IntCoords;
+import org.scijava.util.IntRect;
+import org.scijava.util.RealCoords;
 
 /**
  * A view into a {@link Dataset}, for use with a {@link ImageDisplay}.
@@ -86,6 +95,9 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 	@Parameter(required = false)
 	private EventService eventService;
 
+	@Parameter(required = false)
+	private PyramidService pyramidService;
+
 	/** The dimensional index representing channels, for compositing. */
 	private int channelDimIndex;
 
@@ -95,8 +107,23 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 	 */
 	private ArrayList<ColorTable> defaultLUTs;
 
+	/** Edge length of the tiles rendered for a viewport, in screen pixels. */
+	private static final int TILE_SIZE = 256;
+
 	private ARGBScreenImage screenImage;
 
+	/** Canvas whose viewport limits rendering, or null for whole planes. */
+	private ImageCanvas viewport;
+
+	/** Whether the last render at a new position was superseded. */
+	private boolean incomplete;
+
+	/** Subsampling step from data pixels to screen image pixels. */
+	private int screenStep = 1;
+
+	/** Region of the plane held by the screen image, in subsampled pixels. */
+	private Interval screenRegion;
+
 	private CompositeXYProjector<? extends RealType<?>> projector;
 
 	private final ArrayList<RealLUTConverter<? extends RealType<?>>> converters =
@@ -115,6 +142,32 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 		return screenImage;
 	}
 
+	@Override
+	public IntRect getScreenImageBounds() {
+		if (screenRegion == null) return null;
+		return new IntRect((int) screenRegion.min(0) * screenStep,
+			(int) screenRegion.min(1) * screenStep, (int) screenRegion.dimension(0) *
+				screenStep, (int) screenRegion.dimension(1) * screenStep);
+	}
+
+	@Override
+	public int getScreenImageStep() {
+		return screenStep;
+	}
+
+	@Override
+	public synchronized void setViewport(final ImageCanvas canvas) {
+		if (viewport == canvas) return;
+		viewport = canvas;
+		if (!isInitialized()) return;
+		updateScreenImage(true);
+	}
+
+	@Override
+	public ImageCanvas getViewport() {
+		return viewport;
+	}
+
 	@Override
 	public int getCompositeDimIndex() {
 		return channelDimIndex;
@@ -162,11 +215,13 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 		double max = data.getChannelMaximum(c);
 		if (Double.isNaN(min) || Double.isNaN(max)) {
 			// not provided in metadata, so calculate the min/max
-			RandomAccessibleInterval<? extends RealType<?>> interval =
-				channelData(data, c);
-			interval = xyPlane(interval);
-			final DataRange result =
-				autoscaleService.getDefaultRandomAccessRange(interval);
+			// NB: The autoscale service caches the range until the data changes.
+			final long[] planePos = new long[data.numDimensions()];
+			for (int d = 2; d < planePos.length; d++) {
+				planePos[d] = getLongPosition(d);
+			}
+			final DataRange result = autoscaleService.getChannelRange(data, c,
+				planePos, autoscaleService.getDefaultAutoscaleMethod());
 			min = result.getMin();
 			max = result.getMax();
 			// cache min/max in metadata for next time
@@ -360,12 +415,12 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 	@Override
 	public int getPreferredWidth() {
-		return getScreenImage().image().getWidth(null);
+		return (int) getData().getImgPlus().dimension(0);
 	}
 
 	@Override
 	public int getPreferredHeight() {
-		return getScreenImage().image().getHeight(null);
+		return (int) getData().getImgPlus().dimension(1);
 	}
 
 	@Override
@@ -383,16 +438,15 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 		channelDimIndex = getChannelDimIndex();
 
-		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
-
 		if (defaultLUTs == null || defaultLUTs.size() != getChannelCount()) {
 			defaultLUTs = new ArrayList<>();
 			resetColorTables(false);
 		}
 
-		final int width = (int) img.dimension(0);
-		final int height = (int) img.dimension(1);
-		screenImage = new ARGBScreenImage(width, height);
+		screenStep = viewportStep();
+		screenRegion = viewportRegion(screenStep);
+		screenImage = new ARGBScreenImage((int) screenRegion.dimension(0),
+			(int) screenRegion.dimension(1));
 
 		initializeView(isComposite());
 		updateLUTs();
@@ -403,26 +457,35 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 	@Override
 	public long getLongPosition(final AxisType axis) {
-		if (!isInitialized()) return 0;
+		// NB: The projector may be replaced concurrently; read it only once.
+		final CompositeXYProjector<? extends RealType<?>> p = projector;
+		if (p == null) return 0;
 
 		if (axis.isXY()) return 0;
 		final int dim = getData().dimensionIndex(axis);
 		if (dim < 0) return 0;
 		// It is possible that projector is out of sync with data or view. Choose a
 		// sensible default value to avoid exceptions.
-		if (dim >= projector.numDimensions()) return 0;
-		return projector.getLongPosition(dim);
+		if (dim >= p.numDimensions()) return 0;
+		return p.getLongPosition(dim);
 	}
 
+	/**
+	 * Renders the plane at the given position. NB: This is synchronized, as is
+	 * {@link #updateScreenImage(boolean)}, so that the projector and screen image
+	 * are not replaced while the plane is rendered.
+	 */
 	@Override
-	public void setPosition(final long position, final AxisType axis) {
+	public synchronized void setPosition(final long position,
+		final AxisType axis)
+	{
 		if (!isInitialized()) return;
 
 		if (axis.isXY()) return;
 		final int dim = getData().dimensionIndex(axis);
 		if (dim < 0) return;
 		final long currentValue = projector.getLongPosition(dim);
-		if (position == currentValue) {
+		if (position == currentValue && !incomplete) {
 			return; // no change
 		}
 		projector.setPosition(position, dim);
@@ -433,6 +496,8 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 		}
 
 		projector.map();
+		// NB: A superseded background render leaves the screen image incomplete.
+		incomplete = RenderScheduler.supersededCheck().getAsBoolean();
 
 		super.setPosition(position, axis);
 	}
@@ -480,10 +545,27 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 		}
 		if (getData() == event.getObject()) {
 			if (event.isMetaDataOnly()) return;
+			// NB: Discard stale planes before rendering from the pyramid.
+			final Pyramid pyramid = getPyramid();
+			if (pyramid != null) pyramid.clear();
 			projector.map();
 		}
 	}
 
+	@EventHandler
+	protected void onEvent(final PanZoomEvent event) {
+		if (viewport != null && event.getCanvas() == viewport) {
+			updateScreenImage(false);
+		}
+	}
+
+	@EventHandler
+	protected void onEvent(final ViewportResizeEvent event) {
+		if (viewport != null && event.getCanvas() == viewport) {
+			updateScreenImage(false);
+		}
+	}
+
 	// -- Helper methods --
 
 	private int getChannelDimIndex() {
@@ -521,20 +603,196 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 		final ImgPlus<?> img = getData().getImgPlus();
 
-		if (AbstractCellImg.class.isAssignableFrom(img.getImg().getClass())) {
+		if (viewport != null) {
+			projector = createProjector(screenRegion);
+		}
+		else if (AbstractCellImg.class.isAssignableFrom(img.getImg().getClass())) {
 			projector =
 				new SourceOptimizedCompositeXYProjector(getData().getImgPlus(),
 					screenImage, converters, channelDimIndex);
 		}
 		else {
 			projector =
-				new CompositeXYProjector(getData().getImgPlus(), screenImage,
-					converters, channelDimIndex);
+				new ParallelCompositeXYProjector(getData().getImgPlus(), screenImage,
+					converters, channelDimIndex, threadService);
 		}
 
 		projector.setComposite(composite);
 	}
 
+	/**
+	 * Creates a projector which renders the given region of the viewport's
+	 * screen image, in subsampled pixels.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private CompositeXYProjector<? extends RealType<?>> createProjector(
+		final Interval region)
+	{
+		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
+		RandomAccessibleInterval source = img;
+		boolean cells = AbstractCellImg.class.isAssignableFrom(img.getImg()
+			.getClass());
+		int step = screenStep;
+		final Pyramid pyramid = getPyramid();
+		if (pyramid != null && step > 1) {
+			// read from the pyramid level matching the zoom, if there is one
+			final int level = pyramid.getLevelForStep(step);
+			source = pyramid.getLevel(level);
+			cells |= level > 0;
+			step >>= level;
+		}
+		if (step > 1) {
+			final long[] steps = new long[img.numDimensions()];
+			Arrays.fill(steps, 1);
+			steps[0] = steps[1] = step;
+			source = Views.subsample(source, steps);
+		}
+		// NB: The projectors read the source at the target's XY coordinates.
+		final long[] min = Intervals.minAsLongArray(source);
+		final long[] max = Intervals.maxAsLongArray(source);
+		for (int d = 0; d < 2; d++) {
+			min[d] = region.min(d);
+			max[d] = region.max(d);
+		}
+		final RandomAccessibleInterval sourceRegion = //
+			Views.interval(source, min, max);
+		final RandomAccessibleInterval target = Views.interval(Views.translate(
+			screenImage, screenRegion.min(0), screenRegion.min(1)), region);
+		if (cells) {
+			return new SourceOptimizedCompositeXYProjector(sourceRegion, target,
+				converters, channelDimIndex);
+		}
+		return new ParallelCompositeXYProjector(sourceRegion, target, converters,
+			channelDimIndex, threadService);
+	}
+
+	/**
+	 * Reallocates the screen image to match the viewport, if its visible region
+	 * has changed. Tiles still visible are copied over from the previous screen
+	 * image, and only the newly exposed ones are rendered.
+	 */
+	private synchronized void updateScreenImage(final boolean force) {
+		if (!isInitialized()) return;
+		final int step = viewportStep();
+		final Interval region = viewportRegion(step);
+		final boolean reuse = !force && step == screenStep;
+		if (reuse && Intervals.equals(region, screenRegion)) return;
+
+		final ARGBScreenImage oldImage = screenImage;
+		final Interval oldRegion = screenRegion;
+		final CompositeXYProjector<? extends RealType<?>> oldProjector = projector;
+		screenStep = step;
+		screenRegion = region;
+		screenImage = new ARGBScreenImage((int) region.dimension(0), (int) region
+			.dimension(1));
+		if (viewport == null) {
+			// rendering whole planes again
+			initializeView(oldProjector.isComposite());
+			copyState(oldProjector, projector);
+			projector.map();
+			update();
+			return;
+		}
+		projector = createProjector(region);
+		copyState(oldProjector, projector);
+
+		final List<Interval> tiles = new ArrayList<>();
+		for (long y = region.min(1); y <= region.max(1); y += TILE_SIZE) {
+			for (long x = region.min(0); x <= region.max(0); x += TILE_SIZE) {
+				final Interval tile = new FinalInterval(new long[] { x, y },
+					new long[] { Math.min(x + TILE_SIZE - 1, region.max(0)), Math.min(
+						y + TILE_SIZE - 1, region.max(1)) });
+				if (reuse && Intervals.contains(oldRegion, tile)) {
+					copyTile(oldImage, oldRegion, tile);
+				}
+				else tiles.add(tile);
+			}
+		}
+		Parallelization.getTaskExecutor().forEach(tiles, tile -> {
+			final CompositeXYProjector<? extends RealType<?>> tileProjector =
+				createProjector(tile);
+			copyState(projector, tileProjector);
+			tileProjector.map();
+		});
+		update();
+	}
+
+	/** Copies a tile of the given previous screen image to the current one. */
+	private void copyTile(final ARGBScreenImage from, final Interval fromRegion,
+		final Interval tile)
+	{
+		final int[] src = from.getData();
+		final int[] dest = screenImage.getData();
+		final long srcWidth = fromRegion.dimension(0);
+		final long destWidth = screenRegion.dimension(0);
+		final int length = (int) tile.dimension(0);
+		for (long y = tile.min(1); y <= tile.max(1); y++) {
+			final long srcOffset = (y - fromRegion.min(1)) * srcWidth + //
+				tile.min(0) - fromRegion.min(0);
+			final long destOffset = (y - screenRegion.min(1)) * destWidth + //
+				tile.min(0) - screenRegion.min(0);
+			System.arraycopy(src, (int) srcOffset, dest, (int) destOffset, length);
+		}
+	}
+
+	/** Copies the plane position and composite mode between projectors. */
+	private static void copyState(final CompositeXYProjector<?> from,
+		final CompositeXYProjector<?> to)
+	{
+		for (int d = 2; d < from.numDimensions(); d++) {
+			to.setPosition(from.getLongPosition(d), d);
+		}
+		to.setComposite(from.isComposite());
+	}
+
+	/** Gets the subsampling step suited to the viewport's zoom factor. */
+	private int viewportStep() {
+		if (viewport == null) return 1;
+		final double zoom = viewport.getZoomFactor();
+		if (zoom >= 1) return 1;
+		// NB: Tolerate rounding errors of reciprocal zoom levels.
+		final int step = Math.max(1, (int) Math.floor(1 / zoom + 1e-6));
+		// NB: Pyramid levels are reduced by powers of two.
+		return getPyramid() == null ? step : Integer.highestOneBit(step);
+	}
+
+	/** Gets the pyramid attached to the data, or null if none. */
+	private Pyramid getPyramid() {
+		if (pyramidService == null || viewport == null) return null;
+		return pyramidService.getPyramid(getData());
+	}
+
+	/**
+	 * Gets the region of the plane to render, in pixels subsampled by the given
+	 * step: the whole plane, or the tiles intersecting the viewport.
+	 */
+	private Interval viewportRegion(final int step) {
+		final ImgPlus<?> img = getData().getImgPlus();
+		final long width = (img.dimension(0) - 1) / step + 1;
+		final long height = (img.dimension(1) - 1) / step + 1;
+		if (viewport == null) return new FinalInterval(width, height);
+		final RealCoords topLeft = //
+			viewport.panelToDataCoords(new IntCoords(0, 0));
+		final RealCoords bottomRight = viewport.panelToDataCoords(new IntCoords(
+			viewport.getViewportWidth(), viewport.getViewportHeight()));
+		return new FinalInterval(new long[] { tileMin(topLeft.x / step, width),
+			tileMin(topLeft.y / step, height) }, new long[] { tileMax(bottomRight.x /
+				step, width), tileMax(bottomRight.y / step, height) });
+	}
+
+	/** Gets the first pixel of the tile containing the given coordinate. */
+	private static long tileMin(final double coord, final long size) {
+		final long lastTile = (size - 1) / TILE_SIZE * TILE_SIZE;
+		final long min = (long) Math.floor(coord / TILE_SIZE) * TILE_SIZE;
+		return Math.max(0, Math.min(min, lastTile));
+	}
+
+	/** Gets the last pixel of the tile ending at or after the given coordinate. */
+	private static long tileMax(final double coord, final long size) {
+		final long end = (long) Math.ceil(coord / TILE_SIZE) * TILE_SIZE;
+		return Math.min(size, Math.max(end, TILE_SIZE)) - 1;
+	}
+
 	private void updateLUTs() {
 		if (!isInitialized()) return;
 
@@ -563,22 +821,4 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 		return defaultLUTs.get(cPos); // return default channel LUT
 	}
 
-	private RandomAccessibleInterval<? extends RealType<?>> channelData(
-		final Dataset d, final int c)
-	{
-		final ImgPlus<? extends RealType<?>> imgPlus = d.getImgPlus();
-		final int chIndex = imgPlus.dimensionIndex(Axes.CHANNEL);
-		if (chIndex < 0) {
-			return imgPlus;
-		}
-		final long[] mn = new long[d.numDimensions()];
-		final long[] mx = Intervals.dimensionsAsLongArray(d);
-		for (int i = 0; i < mx.length; i++) {
-			mx[i]--;
-		}
-		mn[chIndex] = c;
-		mx[chIndex] = c;
-		return Views.interval(imgPlus, mn, mx);
-	}
-
 }
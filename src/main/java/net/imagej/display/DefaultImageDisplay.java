@@ -29,6 +29,8 @@
 
 package net.imagej.display;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import net.imagej.Data;
@@ -99,6 +101,9 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 
 	private ImageCanvas canvas;
 
+	/** Renders position changes in the background. */
+	private RenderScheduler renderScheduler;
+
 	// NB - older comment - see 12-7-11 note
 	// If pos is a HashMap rather than a ConcurrentHashMap,
 	// the Delete Axis plugin throws a ConcurrentModificationException.
@@ -220,6 +225,11 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 		return new RealRect(xMin, yMin, width, height);
 	}
 
+	@Override
+	public void requestUpdate() {
+		renderScheduler().request();
+	}
+
 	// -- Display methods --
 
 	@Override
@@ -267,7 +277,10 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 		}
 
 		// display the data view
-		super.display(dataView);
+		// NB: Do not add the view while it may be rendered.
+		synchronized (renderScheduler().getLock()) {
+			super.display(dataView);
+		}
 		updateName(dataView);
 		rebuild();
 	}
@@ -286,29 +299,8 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 
 	@Override
 	public void update() {
-		// NB - this combinedinterval.update() call rebuilds the interval. We have
-		// found cases where this is necessary to avoid situations where the we try
-		// to access a no longer existing axis. As an example of this try running
-		// legacy command Type > 8-bit Color on Clowns. Without this line, when you
-		// run the command, an exception is thrown.
-		// TODO - is this a performance issue?
-		combinedInterval.update();
-		for (final DataView view : this) {
-			for (int i = 0; i < numDimensions(); i++) {
-				AxisType axis = axis(i).type();
-				if (axis.isXY()) continue;
-				final int axisNum = view.getData().dimensionIndex(axis);
-				if (axisNum < 0) continue;
-				final long p = getLongPosition(axis);
-				Data data = view.getData();
-				double size = data.realMax(axisNum) - data.realMin(axisNum) + 1;
-				if (p < size) {
-					view.setPosition(p, axis);
-				}
-			}
-			view.update();
-		}
-		super.update();
+		// NB: Render synchronously, superseding any pending background render.
+		renderScheduler().renderNow();
 	}
 
 	// -- Interval methods --
@@ -471,10 +463,14 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 		if (value > max) value = max;
 
 		// update position
-		pos.put(axis, value);
+		final Long previous = pos.put(axis, value);
+
+		// render the new position in the background
+		// NB: Bursts of position changes are coalesced into one render.
+		if (previous == null || previous != value) requestUpdate();
 
 		// notify interested parties of the change
-		// NB: DataView.setPosition is called only in update method.
+		// NB: DataView.setPosition is called only when updating the views.
 		if (eventService != null) {
 			// NB: BDZ changed from publish() to publishLater(). This fixes bug #1234.
 			// We may want to change order of events to allow publish() instead.
@@ -643,11 +639,69 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 	protected void onEvent(final DisplayDeletedEvent event) {
 		if (event.getObject() != this) return;
 
+		if (renderScheduler != null) renderScheduler.cancel();
 		cleanup();
 	}
 
+	// -- Internal methods --
+
+	/** Gets the scheduler of background renders. */
+	synchronized RenderScheduler renderScheduler() {
+		if (renderScheduler == null) {
+			renderScheduler = new RenderScheduler(threadService, this::updateViews);
+		}
+		return renderScheduler;
+	}
+
 	// -- Helper methods --
 
+	/**
+	 * Synchronizes the views with the display's position, and updates them. A
+	 * background render returns early once superseded by a newer request.
+	 */
+	private void updateViews() {
+		// NB - this combinedinterval.update() call rebuilds the interval. We have
+		// found cases where this is necessary to avoid situations where the we try
+		// to access a no longer existing axis. As an example of this try running
+		// legacy command Type > 8-bit Color on Clowns. Without this line, when you
+		// run the command, an exception is thrown.
+		// TODO - is this a performance issue?
+		combinedInterval.update();
+		final RenderScheduler scheduler = renderScheduler;
+		for (final DataView view : views()) {
+			// NB: Give up if superseded by a newer background render request.
+			if (scheduler.isSuperseded()) return;
+			for (int i = 0; i < numDimensions(); i++) {
+				AxisType axis = axis(i).type();
+				if (axis.isXY()) continue;
+				final int axisNum = view.getData().dimensionIndex(axis);
+				if (axisNum < 0) continue;
+				final long p = getLongPosition(axis);
+				Data data = view.getData();
+				double size = data.realMax(axisNum) - data.realMin(axisNum) + 1;
+				if (p < size) {
+					view.setPosition(p, axis);
+				}
+			}
+			view.update();
+		}
+		super.update();
+	}
+
+	/**
+	 * Takes a snapshot of the views, which may be rendered on another thread
+	 * than the one adding or removing them. This is called while holding the
+	 * render lock, which {@link #display(Object)} also holds while adding a view.
+	 */
+	private List<DataView> views() {
+		final List<DataView> views = new ArrayList<>();
+		for (final Object view : toArray()) {
+			// NB: A concurrent removal may leave an empty slot.
+			if (view != null) views.add((DataView) view);
+		}
+		return views;
+	}
+
 	/**
 	 * If the display is still nameless, tries to name it after the given
 	 * {@link DataView}.
@@ -39,14 +39,19 @@ import net.imagej.DrawingTool;
 import net.imagej.Position;
 import net.imagej.options.OptionsOverlay;
 import net.imagej.overlay.CompositeOverlay;
+import net.imagej.overlay.EllipseOverlay;
 import net.imagej.overlay.Overlay;
 import net.imagej.overlay.OverlaySettings;
+import net.imagej.overlay.PolygonOverlay;
+import net.imagej.overlay.RectangleOverlay;
 import net.imagej.render.RenderingService;
 import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
 import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessibleRealInterval;
+import net.imglib2.roi.PolygonRegionOfInterest;
 import net.imglib2.roi.RegionOfInterest;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.view.IntervalView;
@@ -397,21 +402,77 @@ public final class DefaultOverlayService extends AbstractService implements
 
 	}
 
-	private static class OverlayFiller implements Drawer {
+	/** Fills overlays. Package-private for testing. */
+	static class OverlayFiller implements Drawer {
 
 		@Override
 		public void draw(final Overlay o, final DrawingTool tool) {
+			// NB: Shapes with a known geometry are filled analytically, one span
+			// per row, rather than testing every pixel of their bounding box.
+			if (o instanceof RectangleOverlay) {
+				fillRectangle((RectangleOverlay) o, tool);
+			}
+			else if (o instanceof EllipseOverlay) {
+				final EllipseOverlay ellipse = (EllipseOverlay) o;
+				tool.fillEllipse(ellipse.getOrigin(0), ellipse.getOrigin(1), ellipse
+					.getRadius(0), ellipse.getRadius(1));
+			}
+			else if (o instanceof PolygonOverlay) {
+				fillPolygon((PolygonOverlay) o, tool);
+			}
+			else fillSampled(o, tool);
+		}
+
+		private void fillRectangle(final RectangleOverlay o,
+			final DrawingTool tool)
+		{
+			// pixels x with origin <= x < origin + extent
+			final long u1 = (long) Math.ceil(o.getOrigin(0));
+			final long v1 = (long) Math.ceil(o.getOrigin(1));
+			final long u2 = (long) Math.ceil(o.getOrigin(0) + o.getExtent(0));
+			final long v2 = (long) Math.ceil(o.getOrigin(1) + o.getExtent(1));
+			tool.fillRect(u1, v1, u2 - u1, v2 - v1);
+		}
+
+		private void fillPolygon(final PolygonOverlay o, final DrawingTool tool) {
+			final PolygonRegionOfInterest roi = o.getRegionOfInterest();
+			final int vertexCount = roi.getVertexCount();
+			final double[] us = new double[vertexCount];
+			final double[] vs = new double[vertexCount];
+			for (int i = 0; i < vertexCount; i++) {
+				final RealLocalizable vertex = roi.getVertex(i);
+				us[i] = vertex.getDoublePosition(0);
+				vs[i] = vertex.getDoublePosition(1);
+			}
+			tool.fillPolygon(us, vs);
+		}
+
+		/**
+		 * Fills the overlay by testing each pixel of its bounding box, which works
+		 * for any shape.
+		 */
+		void fillSampled(final Overlay o, final DrawingTool tool) {
 			final RegionOfInterest region = o.getRegionOfInterest();
 
 			final Cursor<BitType> cursor =
 				iterableInterval(region).localizingCursor();
 
+			// NB: Consecutive samples along U are drawn as one span.
 			long[] pos = new long[region.numDimensions()];
+			long spanStart = 0, spanEnd = -1, spanV = 0;
 			while (cursor.hasNext()) {
 				cursor.fwd();
+				if (!cursor.get().get()) continue;
 				cursor.localize(pos);
-				if (cursor.get().get()) tool.drawPixel(pos[0], pos[1]);
+				if (pos[1] == spanV && pos[0] == spanEnd + 1) {
+					spanEnd = pos[0];
+					continue;
+				}
+				if (spanEnd >= spanStart) tool.drawSpan(spanStart, spanEnd, spanV);
+				spanStart = spanEnd = pos[0];
+				spanV = pos[1];
 			}
+			if (spanEnd >= spanStart) tool.drawSpan(spanStart, spanEnd, spanV);
 		}
 	}
 
@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.imagej.Dataset;
+import net.imagej.event.DatasetDeletedEvent;
+import net.imagej.event.DatasetUpdatedEvent;
+
+import org.scijava.event.EventHandler;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+
+/**
+ * Default service for attaching multi-resolution {@link Pyramid}s to
+ * {@link Dataset}s.
+ */
+@Plugin(type = Service.class)
+public class DefaultPyramidService extends AbstractService implements
+	PyramidService
+{
+
+	/** Attached pyramids, per dataset. */
+	private final Map<Dataset, Pyramid> pyramids = new WeakHashMap<>();
+
+	// -- PyramidService methods --
+
+	@Override
+	public Pyramid attach(final Dataset dataset) {
+		synchronized (pyramids) {
+			final Pyramid pyramid = getPyramid(dataset);
+			if (pyramid != null) return pyramid;
+			try {
+				final Pyramid newPyramid = new Pyramid(dataset.getImgPlus());
+				pyramids.put(dataset, newPyramid);
+				return newPyramid;
+			}
+			catch (final IllegalArgumentException exc) {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public void detach(final Dataset dataset) {
+		synchronized (pyramids) {
+			pyramids.remove(dataset);
+		}
+	}
+
+	@Override
+	public Pyramid getPyramid(final Dataset dataset) {
+		synchronized (pyramids) {
+			final Pyramid pyramid = pyramids.get(dataset);
+			if (pyramid == null) return null;
+			if (pyramid.getSource() == dataset.getImgPlus()) return pyramid;
+			// NB: The dataset's image was replaced; rebuild from the new one.
+			pyramids.remove(dataset);
+			return attach(dataset);
+		}
+	}
+
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final DatasetUpdatedEvent event) {
+		if (event.isMetaDataOnly()) return;
+		final Pyramid pyramid = getPyramid(event.getObject());
+		if (pyramid != null) pyramid.clear();
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetDeletedEvent event) {
+		detach(event.getObject());
+	}
+
+}
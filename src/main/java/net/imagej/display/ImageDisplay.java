@@ -79,4 +79,18 @@ public interface ImageDisplay extends Display<DataView>,
 	 */
 	RealRect getPlaneExtents();
 
+	/**
+	 * Requests that the display be {@link #update() updated} in the background.
+	 * Requests made in quick succession are coalesced, so that only the latest
+	 * state is rendered, and renders made stale by a newer request are
+	 * abandoned. By default, the display is simply updated right away.
+	 * <p>
+	 * Displays call this when their position changes, so that a burst of
+	 * position changes (e.g., dragging a slider) is rendered once.
+	 * </p>
+	 */
+	default void requestUpdate() {
+		update();
+	}
+
 }
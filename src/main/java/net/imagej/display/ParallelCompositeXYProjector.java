@@ -0,0 +1,338 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Util;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * As {@link CompositeXYProjector}, but renders the target in bands of rows
+ * which are processed concurrently using the {@link ThreadService}. When
+ * mapping as part of a background render of a {@link RenderScheduler}, rows
+ * are no longer rendered once the render is superseded, leaving the target
+ * incomplete.
+ * <p>
+ * For integer sources whose type spans at most 65536 values (such as 8- and
+ * 16-bit images), each channel's converter is evaluated once per possible
+ * value when mapping begins, and samples are then colored by plain table
+ * lookup, without calling the converters per sample. The tables of
+ * {@link RealLUTConverter}s are shared between projectors, and reused until
+ * the converter's range or color table changes, so that rendering many tiles
+ * or frames does not evaluate them again.
+ * </p>
+ */
+public class ParallelCompositeXYProjector<A extends RealType<A>, T extends RandomAccessibleInterval<ARGBType> & IterableInterval<ARGBType>>
+	extends CompositeXYProjector<A>
+{
+
+	/** Largest number of values for which a lookup table is built. */
+	private static final long MAX_TABLE_SIZE = 1 << 16;
+
+	/** Smallest number of target pixels per band of rows. */
+	private static final long MIN_BAND_SIZE = 1 << 14;
+
+	/** Lookup tables of {@link RealLUTConverter}s, reused across projectors. */
+	private static final Map<Converter<?, ?>, Table> TABLES = Collections
+		.synchronizedMap(new WeakHashMap<>());
+
+	private final RandomAccessibleInterval<A> source;
+
+	private final T target;
+
+	/** The dimensional index of the channels being composited. */
+	private final int channelDim;
+
+	private final ThreadService threadService;
+
+	public ParallelCompositeXYProjector(final RandomAccessibleInterval<A> source,
+		final T target, final ArrayList<Converter<A, ARGBType>> converters,
+		final int dimIndex, final ThreadService threadService)
+	{
+		super(source, target, converters, dimIndex);
+		this.source = source;
+		this.target = target;
+		channelDim = dimIndex;
+		this.threadService = threadService;
+	}
+
+	// -- Projector methods --
+
+	@Override
+	public void map() {
+		for (int d = 2; d < position.length; ++d)
+			min[d] = max[d] = position[d];
+		min[0] = target.min(0);
+		min[1] = target.min(1);
+		max[0] = target.max(0);
+		max[1] = target.max(1);
+
+		final int size = updateCurrentArrays();
+		if (size == 0) return;
+		final long[] channels = new long[size];
+		final int[][] tables = new int[size][];
+		@SuppressWarnings("unchecked")
+		final Converter<A, ARGBType>[] channelConverters = new Converter[size];
+		final A type = Util.getTypeFromInterval(source).createVariable();
+		final long[] range = integerRange(type);
+		for (int i = 0; i < size; i++) {
+			channels[i] = currentPositions[i];
+			channelConverters[i] = currentConverters[i];
+			if (range != null) {
+				tables[i] = cachedTable(currentConverters[i], type, range[0], range[1]);
+			}
+		}
+		final long offset = range == null ? 0 : range[0];
+		final BooleanSupplier superseded = RenderScheduler.supersededCheck();
+
+		// split the rows into bands
+		final long width = max[0] - min[0] + 1;
+		final long height = max[1] - min[1] + 1;
+		final int threads = threadService == null ? 1 : //
+			Runtime.getRuntime().availableProcessors();
+		final long bands = Math.max(1, Math.min(Math.min(height, 4L * threads),
+			width * height / MIN_BAND_SIZE));
+		if (bands == 1) {
+			mapRows(min[1], max[1], channels, channelConverters, tables, offset,
+				superseded);
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<>();
+		for (long b = 0; b < bands; b++) {
+			final long y0 = min[1] + b * height / bands;
+			final long y1 = min[1] + (b + 1) * height / bands - 1;
+			futures.add(threadService.run(() -> mapRows(y0, y1, channels,
+				channelConverters, tables, offset, superseded)));
+		}
+		// NB: Rendering threads are never interrupted (see RenderScheduler). If
+		// this one is anyway, wait for the bands regardless, since they are still
+		// writing into the target, and restore the interrupt flag afterwards.
+		boolean interrupted = false;
+		try {
+			for (final Future<?> future : futures) {
+				while (true) {
+					try {
+						future.get();
+						break;
+					}
+					catch (final InterruptedException exc) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		catch (final ExecutionException exc) {
+			final Throwable cause = exc.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IllegalStateException(cause);
+		}
+		finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Renders the target rows from {@code y0} through {@code y1}, or until the
+	 * render is superseded.
+	 */
+	private void mapRows(final long y0, final long y1, final long[] channels,
+		final Converter<A, ARGBType>[] channelConverters, final int[][] tables,
+		final long offset, final BooleanSupplier superseded)
+	{
+		final int size = channels.length;
+		final long[] bandMin = min.clone();
+		final long[] bandMax = max.clone();
+		bandMin[1] = y0;
+		bandMax[1] = y1;
+		if (channelDim >= 0) {
+			bandMin[channelDim] = Long.MAX_VALUE;
+			bandMax[channelDim] = Long.MIN_VALUE;
+			for (final long c : channels) {
+				bandMin[channelDim] = Math.min(bandMin[channelDim], c);
+				bandMax[channelDim] = Math.max(bandMax[channelDim], c);
+			}
+		}
+		final RandomAccess<A> sourceAccess = source.randomAccess(new FinalInterval(
+			bandMin, bandMax));
+		final RandomAccess<ARGBType> targetAccess = target.randomAccess();
+		final ARGBType argb = new ARGBType();
+		final long width = max[0] - min[0] + 1;
+
+		for (long y = y0; y <= y1; y++) {
+			if (superseded.getAsBoolean()) return;
+			sourceAccess.setPosition(min);
+			sourceAccess.setPosition(y, 1);
+			targetAccess.setPosition(min[0], 0);
+			targetAccess.setPosition(y, 1);
+			for (long x = 0; x < width; x++) {
+				int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+				for (int i = 0; i < size; i++) {
+					if (channelDim >= 0) {
+						sourceAccess.setPosition(channels[i], channelDim);
+					}
+					final int value;
+					if (tables[i] != null) {
+						final long v = ((IntegerType<?>) sourceAccess.get())
+							.getIntegerLong();
+						value = tables[i][(int) (v - offset)];
+					}
+					else {
+						channelConverters[i].convert(sourceAccess.get(), argb);
+						value = argb.get();
+					}
+					if (size == 1) {
+						aSum = ARGBType.alpha(value);
+						rSum = ARGBType.red(value);
+						gSum = ARGBType.green(value);
+						bSum = ARGBType.blue(value);
+						break;
+					}
+					aSum += ARGBType.alpha(value);
+					rSum += ARGBType.red(value);
+					gSum += ARGBType.green(value);
+					bSum += ARGBType.blue(value);
+				}
+				if (aSum > 255) aSum = 255;
+				if (rSum > 255) rSum = 255;
+				if (gSum > 255) gSum = 255;
+				if (bSum > 255) bSum = 255;
+				targetAccess.get().set(ARGBType.rgba(rSum, gSum, bSum, aSum));
+				sourceAccess.fwd(0);
+				targetAccess.fwd(0);
+			}
+		}
+	}
+
+	/**
+	 * Gets the range of values of the given type, if it is an integer type
+	 * small enough for a lookup table.
+	 */
+	private static long[] integerRange(final RealType<?> type) {
+		if (!(type instanceof IntegerType)) return null;
+		final double lo = type.getMinValue();
+		final double hi = type.getMaxValue();
+		if (hi - lo + 1 > MAX_TABLE_SIZE) return null;
+		return new long[] { (long) lo, (long) hi };
+	}
+
+	/**
+	 * Gets the table of the given converter for the given range, evaluating the
+	 * converter only if its table is not cached or is out of date.
+	 */
+	private static <A extends RealType<A>> int[] cachedTable(
+		final Converter<A, ARGBType> converter, final A type, final long lo,
+		final long hi)
+	{
+		// NB: Only the state of a RealLUTConverter is known, so other
+		// converters are evaluated afresh each time.
+		if (!(converter instanceof RealLUTConverter)) {
+			return table(converter, type, lo, hi);
+		}
+		final RealLUTConverter<?> lut = (RealLUTConverter<?>) converter;
+		final Table cached = TABLES.get(converter);
+		if (cached != null && cached.matches(lut, lo, hi)) return cached.values;
+		// NB: Record the state first, in case the converter changes meanwhile.
+		final double min = lut.getMin(), max = lut.getMax();
+		final ColorTable colors = lut.getLUT();
+		final int[] values = table(converter, type, lo, hi);
+		TABLES.put(converter, new Table(min, max, colors, lo, hi, values));
+		return values;
+	}
+
+	/** Evaluates the converter for each value in the given range. */
+	private static <A extends RealType<A>> int[] table(
+		final Converter<A, ARGBType> converter, final A type, final long lo,
+		final long hi)
+	{
+		final int[] table = new int[(int) (hi - lo + 1)];
+		final ARGBType argb = new ARGBType();
+		for (long v = lo; v <= hi; v++) {
+			type.setReal(v);
+			converter.convert(type, argb);
+			table[(int) (v - lo)] = argb.get();
+		}
+		return table;
+	}
+
+	// -- Helper classes --
+
+	/** The lookup table of a {@link RealLUTConverter}, and its state. */
+	private static class Table {
+
+		private final double min;
+		private final double max;
+		private final ColorTable lut;
+		private final long lo;
+		private final long hi;
+		private final int[] values;
+
+		private Table(final double min, final double max, final ColorTable lut,
+			final long lo, final long hi, final int[] values)
+		{
+			this.min = min;
+			this.max = max;
+			this.lut = lut;
+			this.lo = lo;
+			this.hi = hi;
+			this.values = values;
+		}
+
+		/** Whether the table is still valid for the given converter and range. */
+		private boolean matches(final RealLUTConverter<?> converter,
+			final long lo, final long hi)
+		{
+			return converter.getMin() == min && converter.getMax() == max &&
+				converter.getLUT() == lut && this.lo == lo && this.hi == hi;
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imagej.ImgPlus;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * A multi-resolution (mip-map) pyramid of an {@link ImgPlus}. Each level halves
+ * the X and Y resolution of the previous one, averaging blocks of 2x2 samples;
+ * all other dimensions are kept as is. Levels are computed lazily, one XY plane
+ * at a time, as they are accessed.
+ * <p>
+ * The pyramid does not track changes to the source image; call
+ * {@link #clear()} to discard planes which may be stale.
+ * </p>
+ *
+ * @see PyramidService
+ */
+public class Pyramid {
+
+	/** Planes no larger than this in both X and Y are not reduced further. */
+	private static final int MIN_SIZE = 256;
+
+	private final ImgPlus<? extends RealType<?>> source;
+
+	private final NativeType<?> type;
+
+	/** Reduced levels, starting from level 1. */
+	private final List<Img<? extends RealType<?>>> levels = new ArrayList<>();
+
+	/** Computed planes of each reduced level, by plane index. */
+	private final List<Map<Long, Cell<?>>> planes = new ArrayList<>();
+
+	public Pyramid(final ImgPlus<? extends RealType<?>> source) {
+		if (source.numDimensions() < 2) {
+			throw new IllegalArgumentException("Image has no XY planes");
+		}
+		final Object t = source.firstElement();
+		if (!(t instanceof NativeType)) {
+			throw new IllegalArgumentException("Unsupported type: " + //
+				t.getClass().getName());
+		}
+		this.source = source;
+		type = (NativeType<?>) t;
+		final long[] dims = Intervals.dimensionsAsLongArray(source);
+		while (Math.max(dims[0], dims[1]) > MIN_SIZE) {
+			dims[0] = (dims[0] + 1) / 2;
+			dims[1] = (dims[1] + 1) / 2;
+			levels.add(createLevel(levels.size() + 1, dims));
+		}
+	}
+
+	// -- Pyramid methods --
+
+	/** Gets the image from which the pyramid is built. */
+	public ImgPlus<? extends RealType<?>> getSource() {
+		return source;
+	}
+
+	/** Gets the number of levels, including the source image itself. */
+	public int getLevelCount() {
+		return levels.size() + 1;
+	}
+
+	/**
+	 * Gets the given level of the pyramid. Level 0 is the source image; level
+	 * {@code k} is reduced by a factor of {@code 2^k} in X and Y.
+	 */
+	public RandomAccessibleInterval<? extends RealType<?>> getLevel(
+		final int level)
+	{
+		return level == 0 ? source : levels.get(level - 1);
+	}
+
+	/**
+	 * Gets the finest level whose reduction factor does not exceed the given
+	 * subsampling step.
+	 */
+	public int getLevelForStep(final int step) {
+		if (step <= 1) return 0;
+		final int level = 31 - Integer.numberOfLeadingZeros(step);
+		return Math.min(level, levels.size());
+	}
+
+	/** Discards all computed planes, so they are recomputed when next used. */
+	public void clear() {
+		for (final Map<Long, Cell<?>> levelPlanes : planes) {
+			levelPlanes.clear();
+		}
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Img<? extends RealType<?>> createLevel(final int level,
+		final long[] dims)
+	{
+		final int[] cellDims = new int[dims.length];
+		Arrays.fill(cellDims, 1);
+		cellDims[0] = (int) dims[0];
+		cellDims[1] = (int) dims[1];
+		final Map<Long, Cell<?>> levelPlanes = new ConcurrentHashMap<>();
+		planes.add(levelPlanes);
+		final CellGrid grid = new CellGrid(dims.clone(), cellDims);
+		return new LazyCellImg(grid, type.createVariable(),
+			index -> levelPlanes.computeIfAbsent(index, i -> computePlane(level,
+				i)));
+	}
+
+	/** Computes a plane of the given level from the level above it. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Cell<?> computePlane(final int level, final long index) {
+		final Img<? extends RealType<?>> img = levels.get(level - 1);
+		final int n = img.numDimensions();
+		final long[] gridDims = Intervals.dimensionsAsLongArray(img);
+		gridDims[0] = gridDims[1] = 1;
+		final long[] min = new long[n];
+		IntervalIndexer.indexToPosition(index, gridDims, min);
+
+		final ArrayImg<?, ?> plane = new ArrayImgFactory(type).create(img
+			.dimension(0), img.dimension(1));
+		downsample(plane(getLevel(level - 1), min), plane);
+
+		final int[] cellDims = new int[n];
+		Arrays.fill(cellDims, 1);
+		cellDims[0] = (int) img.dimension(0);
+		cellDims[1] = (int) img.dimension(1);
+		return new Cell(cellDims, min, plane.update(null));
+	}
+
+	/** Gets the XY plane of the given image at the given position. */
+	private static RandomAccessibleInterval<? extends RealType<?>> plane(
+		final RandomAccessibleInterval<? extends RealType<?>> img,
+		final long[] position)
+	{
+		RandomAccessibleInterval<? extends RealType<?>> plane = img;
+		for (int d = img.numDimensions() - 1; d >= 2; d--) {
+			plane = Views.hyperSlice(plane, d, position[d]);
+		}
+		return plane;
+	}
+
+	/** Averages each 2x2 block of samples of one plane into the other. */
+	private static void downsample(
+		final RandomAccessibleInterval<? extends RealType<?>> from,
+		final ArrayImg<?, ?> to)
+	{
+		final long width = to.dimension(0);
+		final double[] sums = new double[(int) (width * to.dimension(1))];
+		final int[] counts = new int[sums.length];
+		final long fromWidth = from.dimension(0);
+		long x = 0, y = 0;
+		for (final RealType<?> value : Views.flatIterable(from)) {
+			final int i = (int) (y / 2 * width + x / 2);
+			sums[i] += value.getRealDouble();
+			counts[i]++;
+			if (++x == fromWidth) {
+				x = 0;
+				y++;
+			}
+		}
+		final Cursor<?> cursor = to.cursor();
+		for (int i = 0; i < sums.length; i++) {
+			((RealType<?>) cursor.next()).setReal(sums[i] / counts[i]);
+		}
+	}
+
+}
@@ -27,17 +27,33 @@
  * #L%
  */
 
-package net.imagej.sampler;
+package net.imagej.display;
+
+import net.imagej.Dataset;
+import net.imagej.ImageJService;
 
 /**
- * A simple iteration interface for pulling long[] positions out of a region of
- * n-dim space. Has package level sharing and access.
- * 
- * @author Barry DeZonia
+ * Interface for services that attach multi-resolution {@link Pyramid}s to
+ * {@link Dataset}s, from which zoomed-out views can be rendered without
+ * reading every sample of the data.
+ * <p>
+ * An attached pyramid is discarded whenever its dataset's data changes, and
+ * rebuilt lazily from the new data.
+ * </p>
  */
-interface PositionIterator {
+public interface PyramidService extends ImageJService {
+
+	/**
+	 * Attaches a pyramid to the given dataset, if it does not have one already.
+	 *
+	 * @return The dataset's pyramid, or null if its type is not supported.
+	 */
+	Pyramid attach(Dataset dataset);
+
+	/** Removes the pyramid attached to the given dataset, if any. */
+	void detach(Dataset dataset);
 
-	boolean hasNext();
+	/** Gets the pyramid attached to the given dataset, or null if none. */
+	Pyramid getPyramid(Dataset dataset);
 
-	long[] next();
 }
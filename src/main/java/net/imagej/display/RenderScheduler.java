@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * Runs renders in the background, coalescing bursts of requests.
+ * <p>
+ * While a requested render is still queued, further requests are absorbed by
+ * it, since it will render the latest state anyway. A request arriving while
+ * a render is in progress marks that render as {@link #isSuperseded()
+ * superseded}, since it is stale, and queues a new one. Renders never overlap:
+ * each one runs while holding the {@link #getLock() render lock}, which
+ * synchronous renders should hold too, or simply use {@link #renderNow()}.
+ * </p>
+ * <p>
+ * Renders are expected to check {@link #isSuperseded()} at convenient points,
+ * and to return early once superseded; code which does not know the scheduler,
+ * such as a projector mapping a plane row by row, can poll
+ * {@link #supersededCheck()} instead. Rendering threads are never
+ * interrupted, since interrupting a thread blocked in I/O (such as reading
+ * cells of a cached image) closes the channel it is reading.
+ * </p>
+ */
+public class RenderScheduler {
+
+	/** Value of {@link #current} during a synchronous render. */
+	private static final long SYNCHRONOUS = -1;
+
+	/** The scheduler whose background render is running on each thread. */
+	private static final ThreadLocal<RenderScheduler> RENDERING =
+		new ThreadLocal<>();
+
+	private final ThreadService threadService;
+
+	private final Runnable render;
+
+	private final Object lock = new Object();
+
+	/** The most recently requested render. */
+	private Future<?> pending;
+
+	/** Whether the most recently requested render has begun. */
+	private boolean started;
+
+	/** Incremented whenever the running render, if any, becomes stale. */
+	private volatile long generation;
+
+	/** The generation of the running render. */
+	private volatile long current = SYNCHRONOUS;
+
+	public RenderScheduler(final ThreadService threadService,
+		final Runnable render)
+	{
+		this.threadService = threadService;
+		this.render = render;
+	}
+
+	// -- RenderScheduler methods --
+
+	/** Requests a render of the latest state. */
+	public synchronized void request() {
+		if (pending != null && !pending.isDone()) {
+			// NB: A render which has not begun will render the latest state.
+			if (!started) return;
+		}
+		final long g = ++generation;
+		started = false;
+		pending = threadService.run(() -> run(g));
+	}
+
+	/**
+	 * Cancels the requested render, if any. A render in progress is marked as
+	 * superseded, but not interrupted.
+	 */
+	public synchronized void cancel() {
+		generation++;
+		if (pending != null) pending.cancel(false);
+		pending = null;
+	}
+
+	/**
+	 * Cancels any requested render, and renders on the calling thread instead.
+	 * The synchronous render is never superseded.
+	 */
+	public void renderNow() {
+		cancel();
+		synchronized (lock) {
+			current = SYNCHRONOUS;
+			render.run();
+		}
+	}
+
+	/**
+	 * Whether the running background render is stale, because a newer one was
+	 * requested or the render was cancelled.
+	 */
+	public boolean isSuperseded() {
+		final long g = current;
+		return g != SYNCHRONOUS && g != generation;
+	}
+
+	/**
+	 * Gets a check of whether the background render running on the calling
+	 * thread has been superseded. The check may be polled from other threads,
+	 * e.g. workers rendering parts of a plane; outside of a background render,
+	 * it is always false.
+	 */
+	public static BooleanSupplier supersededCheck() {
+		final RenderScheduler scheduler = RENDERING.get();
+		return scheduler == null ? () -> false : scheduler::isSuperseded;
+	}
+
+	/** Gets the lock which is held while rendering. */
+	public Object getLock() {
+		return lock;
+	}
+
+	// -- Helper methods --
+
+	private void run(final long g) {
+		synchronized (lock) {
+			// NB: Until the previous render releases the lock, this one can still
+			// absorb further requests.
+			synchronized (this) {
+				if (g != generation) return; // superseded while queued
+				started = true;
+			}
+			current = g;
+			RENDERING.set(this);
+			try {
+				render.run();
+			}
+			finally {
+				RENDERING.remove();
+				current = SYNCHRONOUS;
+			}
+		}
+	}
+
+}
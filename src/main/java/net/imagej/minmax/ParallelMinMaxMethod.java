@@ -0,0 +1,453 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.minmax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Kind;
+import net.imagej.util.ImgStorage.Segment;
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Pair;
+import net.imglib2.util.ValuePair;
+import net.imglib2.view.Views;
+
+import org.scijava.Priority;
+import org.scijava.app.StatusService;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
+
+/**
+ * {@link MinMaxMethod} which splits the computation into independent chunks
+ * executed by the {@link ThreadService}.
+ * <p>
+ * For {@link net.imglib2.img.array.ArrayImg}s,
+ * {@link net.imglib2.img.planar.PlanarImg}s and
+ * {@link net.imglib2.img.cell.CellImg}s of the common native types, the
+ * primitive storage arrays are scanned directly (see {@link ImgStorage}), and
+ * partial results are reduced without creating any per-sample objects. Other
+ * intervals are scanned with one {@link Cursor} per chunk. NaN values of
+ * floating point images are ignored unless no other values are present.
+ * </p>
+ */
+@Plugin(type = MinMaxMethod.class, priority = Priority.HIGH)
+public class ParallelMinMaxMethod<T extends Type<T> & Comparable<T>> extends
+	AbstractMinMaxMethod<T>
+{
+
+	/** Number of chunks per thread, for better load balancing. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	// -- Fields --
+
+	@Parameter
+	private ThreadService threadService;
+
+	@Parameter(required = false)
+	private StatusService statusService;
+
+	private IterableInterval<T> image;
+	private T min;
+	private T max;
+
+	private String errorMessage = "";
+	private int numThreads;
+	private long processingTime;
+
+	// -- MinMaxMethod API --
+
+	@Override
+	public void initialize(final Img<T> img, final T min, final T max) {
+		initialize((IterableInterval<T>) img, min, max);
+	}
+
+	@Override
+	public void initialize(final IterableInterval<T> interval, final T min,
+		final T max)
+	{
+		image = interval;
+		this.min = min;
+		this.max = max;
+		init();
+	}
+
+	@Override
+	public void initialize(final RandomAccessibleInterval<T> interval,
+		final T min, final T max)
+	{
+		initialize(Views.iterable(interval), min, max);
+	}
+
+	@Override
+	public void initialize(final Img<T> img) {
+		initialize((IterableInterval<T>) img);
+	}
+
+	@Override
+	public void initialize(final IterableInterval<T> interval) {
+		final T type = interval.firstElement().createVariable();
+		initialize(interval, type, type.copy());
+	}
+
+	@Override
+	public void initialize(final RandomAccessibleInterval<T> interval) {
+		initialize(Views.iterable(interval));
+	}
+
+	@Override
+	public T getMin() {
+		return min;
+	}
+
+	@Override
+	public T getMax() {
+		return max;
+	}
+
+	@Override
+	public boolean process() {
+		initializeCheck();
+		if (!checkInput()) return false;
+		final long startTime = System.currentTimeMillis();
+
+		final List<Segment> segments = ImgStorage.segments(image);
+		final boolean success;
+		try {
+			success = segments == null ? processCursors() : processStorage(
+				segments);
+		}
+		catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			errorMessage = "Min/max computation interrupted.";
+			return false;
+		}
+		catch (final ExecutionException exc) {
+			errorMessage = String.valueOf(exc.getCause());
+			return false;
+		}
+
+		processingTime = System.currentTimeMillis() - startTime;
+
+		if (statusService != null) {
+			statusService.showStatus("Computing min/max complete.");
+		}
+
+		return success;
+	}
+
+	@Override
+	public boolean checkInput() {
+		if (errorMessage.length() > 0) {
+			return false;
+		}
+		else if (image == null) {
+			errorMessage = "ParallelMinMaxMethod: input interval is null.";
+			return false;
+		}
+		else return true;
+	}
+
+	@Override
+	public long getProcessingTime() {
+		return processingTime;
+	}
+
+	@Override
+	public void setNumThreads() {
+		this.numThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+	@Override
+	public void setNumThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	@Override
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	@Override
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	// -- Helper methods --
+
+	private void init() {
+		setNumThreads();
+		errorMessage = "";
+		initialized = true;
+	}
+
+	/** Computes min/max directly from the primitive storage arrays. */
+	private boolean processStorage(final List<Segment> segments)
+		throws InterruptedException, ExecutionException
+	{
+		final Kind kind = ImgStorage.kind(image.firstElement());
+		final List<List<Segment>> chunks = ImgStorage.partition(segments,
+			numThreads * CHUNKS_PER_THREAD);
+
+		final List<Future<Extrema>> futures = new ArrayList<>(chunks.size());
+		for (final List<Segment> chunk : chunks) {
+			futures.add(threadService.run(() -> {
+				final Extrema extrema = new Extrema();
+				for (final Segment s : chunk) {
+					extrema.accumulate(kind, s);
+				}
+				return extrema;
+			}));
+		}
+
+		final Extrema result = new Extrema();
+		for (int i = 0; i < futures.size(); i++) {
+			result.merge(futures.get(i).get());
+			report(i + 1, futures.size());
+		}
+
+		if (kind.isInteger()) {
+			if (result.count == 0) return true; // empty interval
+			((IntegerType<?>) min).setInteger(result.lmin);
+			((IntegerType<?>) max).setInteger(result.lmax);
+		}
+		else {
+			final boolean allNaN = result.count == 0 && result.nanCount > 0;
+			if (result.count == 0 && !allNaN) return true; // empty interval
+			((RealType<?>) min).setReal(allNaN ? Double.NaN : result.dmin);
+			((RealType<?>) max).setReal(allNaN ? Double.NaN : result.dmax);
+		}
+		return true;
+	}
+
+	/** Computes min/max using one cursor per chunk of the interval. */
+	private boolean processCursors() throws InterruptedException,
+		ExecutionException
+	{
+		final long size = image.size();
+		if (size == 0) return true;
+		final int parts = (int) Math.min(size, numThreads * CHUNKS_PER_THREAD);
+		final long chunkSize = size / parts;
+		final boolean real = image.firstElement() instanceof RealType;
+
+		// NB: A chunk's extrema are null when it holds nothing but NaNs.
+		final List<Future<Pair<T, T>>> futures = new ArrayList<>(parts);
+		for (int p = 0; p < parts; p++) {
+			final long start = p * chunkSize;
+			final long count = p == parts - 1 ? size - start : chunkSize;
+			futures.add(threadService.run(() -> {
+				final Cursor<T> cursor = image.cursor();
+				cursor.jumpFwd(start);
+				T lo = null, hi = null;
+				for (long j = 0; j < count; j++) {
+					final T value = cursor.next();
+					if (real && isNaN(value)) continue;
+					if (lo == null) {
+						lo = value.copy();
+						hi = value.copy();
+					}
+					else if (value.compareTo(lo) < 0) lo.set(value);
+					else if (value.compareTo(hi) > 0) hi.set(value);
+				}
+				return new ValuePair<>(lo, hi);
+			}));
+		}
+
+		boolean found = false;
+		for (int i = 0; i < futures.size(); i++) {
+			final Pair<T, T> extrema = futures.get(i).get();
+			if (extrema.getA() != null) {
+				if (!found || extrema.getA().compareTo(min) < 0) min.set(extrema
+					.getA());
+				if (!found || extrema.getB().compareTo(max) > 0) max.set(extrema
+					.getB());
+				found = true;
+			}
+			report(i + 1, futures.size());
+		}
+		if (!found) {
+			// NB: Every sample is NaN, as with the primitive storage scan.
+			((RealType<?>) min).setReal(Double.NaN);
+			((RealType<?>) max).setReal(Double.NaN);
+		}
+		return true;
+	}
+
+	private static boolean isNaN(final Object value) {
+		return Double.isNaN(((RealType<?>) value).getRealDouble());
+	}
+
+	/** Reports the current progress. */
+	private void report(final int done, final int total) {
+		if (statusService == null) return; // nothing to report to
+		statusService.showStatus(done, total, "Computing min/max...");
+	}
+
+	// -- Helper classes --
+
+	/** Running extrema of a chunk of primitive samples. */
+	private static class Extrema {
+
+		private long lmin = Long.MAX_VALUE, lmax = Long.MIN_VALUE;
+		private double dmin = Double.POSITIVE_INFINITY,
+				dmax = Double.NEGATIVE_INFINITY;
+		private long count, nanCount;
+
+		public void accumulate(final Kind kind, final Segment s) {
+			final int start = s.offset();
+			final int end = start + s.length();
+			long lo = lmin, hi = lmax;
+			switch (kind) {
+				case BYTE: {
+					final byte[] a = (byte[]) s.array();
+					for (int i = start; i < end; i++) {
+						final int v = a[i];
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case UBYTE: {
+					final byte[] a = (byte[]) s.array();
+					for (int i = start; i < end; i++) {
+						final int v = a[i] & 0xff;
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case SHORT: {
+					final short[] a = (short[]) s.array();
+					for (int i = start; i < end; i++) {
+						final int v = a[i];
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case USHORT: {
+					final short[] a = (short[]) s.array();
+					for (int i = start; i < end; i++) {
+						final int v = a[i] & 0xffff;
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case INT: {
+					final int[] a = (int[]) s.array();
+					for (int i = start; i < end; i++) {
+						final int v = a[i];
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case UINT: {
+					final int[] a = (int[]) s.array();
+					for (int i = start; i < end; i++) {
+						final long v = a[i] & 0xffffffffL;
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case LONG: {
+					final long[] a = (long[]) s.array();
+					for (int i = start; i < end; i++) {
+						final long v = a[i];
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					break;
+				}
+				case FLOAT: {
+					final float[] a = (float[]) s.array();
+					double dlo = dmin, dhi = dmax;
+					long nans = 0;
+					for (int i = start; i < end; i++) {
+						final float v = a[i];
+						if (v != v) nans++;
+						else {
+							if (v < dlo) dlo = v;
+							if (v > dhi) dhi = v;
+						}
+					}
+					accumulate(dlo, dhi, s.length(), nans);
+					return;
+				}
+				case DOUBLE: {
+					final double[] a = (double[]) s.array();
+					double dlo = dmin, dhi = dmax;
+					long nans = 0;
+					for (int i = start; i < end; i++) {
+						final double v = a[i];
+						if (v != v) nans++;
+						else {
+							if (v < dlo) dlo = v;
+							if (v > dhi) dhi = v;
+						}
+					}
+					accumulate(dlo, dhi, s.length(), nans);
+					return;
+				}
+			}
+			lmin = lo;
+			lmax = hi;
+			count += s.length();
+		}
+
+		public void merge(final Extrema other) {
+			if (other.lmin < lmin) lmin = other.lmin;
+			if (other.lmax > lmax) lmax = other.lmax;
+			accumulate(other.dmin, other.dmax, other.count + other.nanCount,
+				other.nanCount);
+		}
+
+		private void accumulate(final double lo, final double hi, final long n,
+			final long nans)
+		{
+			if (lo < dmin) dmin = lo;
+			if (hi > dmax) dmax = hi;
+			count += n - nans;
+			nanCount += nans;
+		}
+	}
+
+}
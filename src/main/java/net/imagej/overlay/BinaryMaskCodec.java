@@ -0,0 +1,361 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.overlay;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Compact, streaming serialization of binary masks.
+ * <p>
+ * A mask is encoded as a short header (format, flags, dimensions) followed by
+ * its rows along dimension 0 in raster order. Each row is its number of runs
+ * of set bits, then the gap before and length of each run, all as unsigned
+ * variable-length integers. Empty rows cost one byte, and the row data may
+ * optionally be deflated.
+ * </p>
+ * <p>
+ * Masks backed by an {@link ArrayImg} of packed bits are encoded straight from
+ * their {@code long[]} storage, and decoded masks are always written straight
+ * into one.
+ * </p>
+ */
+public final class BinaryMaskCodec {
+
+	/** Version of the encoding. */
+	private static final int FORMAT = 1;
+
+	/** Flag indicating the row data is deflated. */
+	private static final int DEFLATED = 0x1;
+
+	private BinaryMaskCodec() {
+		// prevent instantiation of utility class
+	}
+
+	// -- Encoding --
+
+	/**
+	 * Writes the given mask to the specified stream.
+	 *
+	 * @param mask The mask to encode.
+	 * @param out The stream to which the encoded mask is written. It is flushed
+	 *          but not closed.
+	 * @param deflate Whether to compress the row data.
+	 */
+	public static void write(final Img<? extends BitType> mask,
+		final OutputStream out, final boolean deflate) throws IOException
+	{
+		final int n = mask.numDimensions();
+		out.write(FORMAT);
+		out.write(deflate ? DEFLATED : 0);
+		writeVarLong(out, n);
+		for (int d = 0; d < n; d++) {
+			writeVarLong(out, mask.dimension(d));
+		}
+		if (deflate) {
+			final DeflaterOutputStream zip = new DeflaterOutputStream(out);
+			writeRows(mask, zip);
+			zip.finish();
+		}
+		else writeRows(mask, out);
+		out.flush();
+	}
+
+	/** Writes the given mask to the specified file. */
+	public static void write(final Img<? extends BitType> mask,
+		final Path file, final boolean deflate) throws IOException
+	{
+		try (final OutputStream out = new BufferedOutputStream(Files
+			.newOutputStream(file)))
+		{
+			write(mask, out, deflate);
+		}
+	}
+
+	// -- Decoding --
+
+	/**
+	 * Reads a mask from the specified stream, which is left positioned after
+	 * the encoded mask unless the row data are deflated.
+	 */
+	public static ArrayImg<BitType, LongArray> read(final InputStream in)
+		throws IOException
+	{
+		final int format = in.read();
+		if (format != FORMAT) {
+			throw new IOException("Unsupported mask format: " + format);
+		}
+		final int flags = in.read();
+		if (flags < 0) throw new EOFException();
+		final int n = (int) readVarLong(in);
+		final long[] dims = new long[n];
+		for (int d = 0; d < n; d++) {
+			dims[d] = readVarLong(in);
+		}
+		final ArrayImg<BitType, LongArray> mask = ArrayImgs.bits(dims);
+		mask.setLinkedType(new BitType(mask));
+		readRows(mask, (flags & DEFLATED) != 0 ? //
+			new InflaterInputStream(in) : in);
+		return mask;
+	}
+
+	/** Reads a mask from the given buffer, starting at its position. */
+	public static ArrayImg<BitType, LongArray> read(final ByteBuffer buffer)
+		throws IOException
+	{
+		return read(new ByteBufferInputStream(buffer));
+	}
+
+	/** Reads a mask from the specified file, which is memory-mapped. */
+	public static ArrayImg<BitType, LongArray> read(final Path file)
+		throws IOException
+	{
+		try (final FileChannel channel = FileChannel.open(file,
+			StandardOpenOption.READ))
+		{
+			final MappedByteBuffer buffer = channel.map(
+				FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void writeRows(final Img<? extends BitType> mask,
+		final OutputStream out) throws IOException
+	{
+		final long width = mask.dimension(0);
+		final long rows = width == 0 ? 0 : Intervals.numElements(mask) / width;
+		// NB: Runs of a row are collected first, as their count comes first.
+		final RunBuffer runs = new RunBuffer();
+		final long[] bits = bits(mask);
+		if (bits != null) {
+			for (long r = 0; r < rows; r++) {
+				final long rowStart = r * width, rowEnd = rowStart + width;
+				runs.clear();
+				long i = nextBit(bits, rowStart, rowEnd, true);
+				while (i < rowEnd) {
+					final long end = nextBit(bits, i, rowEnd, false);
+					runs.add(i - rowStart, end - rowStart);
+					i = nextBit(bits, end, rowEnd, true);
+				}
+				runs.write(out);
+			}
+			return;
+		}
+		final Cursor<? extends BitType> cursor = Views.flatIterable(mask).cursor();
+		for (long r = 0; r < rows; r++) {
+			runs.clear();
+			long start = -1;
+			for (long x = 0; x < width; x++) {
+				final boolean set = cursor.next().get();
+				if (set && start < 0) start = x;
+				else if (!set && start >= 0) {
+					runs.add(start, x);
+					start = -1;
+				}
+			}
+			if (start >= 0) runs.add(start, width);
+			runs.write(out);
+		}
+	}
+
+	private static void readRows(final ArrayImg<BitType, LongArray> mask,
+		final InputStream in) throws IOException
+	{
+		final long[] bits = mask.update(null).getCurrentStorageArray();
+		final long width = mask.dimension(0);
+		final long rows = width == 0 ? 0 : Intervals.numElements(mask) / width;
+		for (long r = 0; r < rows; r++) {
+			final long rowStart = r * width;
+			final long runCount = readVarLong(in);
+			long x = 0;
+			for (long i = 0; i < runCount; i++) {
+				final long start = x + readVarLong(in);
+				final long end = start + readVarLong(in);
+				if (end > width || end < start) {
+					throw new IOException("Invalid run in row " + r + ": " + start +
+						"-" + end);
+				}
+				setBits(bits, rowStart + start, rowStart + end);
+				x = end;
+			}
+		}
+	}
+
+	/** Gets the packed bits backing the given mask, or null if it has none. */
+	private static long[] bits(final Img<? extends BitType> mask) {
+		if (!(mask instanceof ArrayImg)) return null;
+		final Object access = ((ArrayImg<?, ?>) mask).update(null);
+		if (!(access instanceof LongArray)) return null;
+		return ((LongArray) access).getCurrentStorageArray();
+	}
+
+	/**
+	 * Finds the first index in {@code [from, to)} whose bit equals the given
+	 * value, or {@code to} if there is none.
+	 */
+	private static long nextBit(final long[] bits, final long from,
+		final long to, final boolean value)
+	{
+		long i = from;
+		while (i < to) {
+			final int word = (int) (i >>> 6);
+			long w = value ? bits[word] : ~bits[word];
+			w &= -1L << (i & 63);
+			if (w != 0) return Math.min(to, ((long) word << 6) + Long
+				.numberOfTrailingZeros(w));
+			i = (long) (word + 1) << 6;
+		}
+		return to;
+	}
+
+	/** Sets the bits in {@code [from, to)}. */
+	private static void setBits(final long[] bits, final long from,
+		final long to)
+	{
+		if (from >= to) return;
+		final int first = (int) (from >>> 6), last = (int) ((to - 1) >>> 6);
+		final long firstMask = -1L << (from & 63);
+		final long lastMask = -1L >>> (63 - ((to - 1) & 63));
+		if (first == last) {
+			bits[first] |= firstMask & lastMask;
+			return;
+		}
+		bits[first] |= firstMask;
+		for (int w = first + 1; w < last; w++) {
+			bits[w] = -1L;
+		}
+		bits[last] |= lastMask;
+	}
+
+	private static void writeVarLong(final OutputStream out, long value)
+		throws IOException
+	{
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(final InputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.read();
+			if (b < 0) throw new EOFException();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	// -- Helper classes --
+
+	/** The runs of one row, as pairs of start and end positions. */
+	private static class RunBuffer {
+
+		private long[] runs = new long[32];
+		private int size;
+
+		public void clear() {
+			size = 0;
+		}
+
+		public void add(final long start, final long end) {
+			if (size == runs.length) {
+				runs = Arrays.copyOf(runs, 2 * runs.length);
+			}
+			runs[size++] = start;
+			runs[size++] = end;
+		}
+
+		public void write(final OutputStream out) throws IOException {
+			writeVarLong(out, size / 2);
+			long x = 0;
+			for (int i = 0; i < size; i += 2) {
+				writeVarLong(out, runs[i] - x);
+				writeVarLong(out, runs[i + 1] - runs[i]);
+				x = runs[i + 1];
+			}
+		}
+	}
+
+	/** An input stream reading the remaining bytes of a buffer. */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) return 0;
+			if (!buffer.hasRemaining()) return -1;
+			final int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+}
@@ -32,27 +32,22 @@ package net.imagej.overlay;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.Arrays;
-import java.util.zip.DeflaterOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.zip.InflaterInputStream;
 
 import net.imagej.axis.Axes;
 import net.imagej.axis.DefaultLinearAxis;
-import net.imglib2.Cursor;
-import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
-import net.imglib2.RandomAccessible;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.roi.BinaryMaskRegionOfInterest;
 import net.imglib2.type.logic.BitType;
-import net.imglib2.view.Views;
 
 import org.scijava.Context;
 
@@ -68,6 +63,9 @@ public class BinaryMaskOverlay<U extends BitType, V extends Img<U>> extends Abst
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/** Marks a mask serialized with {@link BinaryMaskCodec}. */
+	private static final int CODEC_MARKER = -1;
+
 	//private BinaryMaskRegionOfInterest<? extends BitType, ? extends Img<BitType>> roi;
 
 	/*
@@ -100,60 +98,25 @@ public class BinaryMaskOverlay<U extends BitType, V extends Img<U>> extends Abst
 	public void writeExternal(final ObjectOutput out) throws IOException {
 		super.writeExternal(out);
 		final BinaryMaskRegionOfInterest<U,V> theRoi = getRegionOfInterest();
-		final RandomAccessible<BitType> ra = constantImg(theRoi.numDimensions());
-		final IterableInterval<BitType> ii = theRoi.getIterableIntervalOverROI(ra);
-		final Cursor<BitType> c = ii.localizingCursor();
+		final V img = theRoi.getImg();
 
 		out.writeInt(theRoi.numDimensions());
 		for (int i = 0; i < theRoi.numDimensions(); i++) {
-			out.writeLong(ii.dimension(i));
+			out.writeLong(img.dimension(i));
 		}
 		double[] maskOrigin = theRoi.getOrigin();
 		for (int i = 0; i < maskOrigin.length; i++)
 			out.writeDouble(maskOrigin[i]);
 		/*
-		 * This is a run-length encoding of the binary mask. The method is similar to PNG.
+		 * The mask is run-length encoded row by row; see BinaryMaskCodec. A
+		 * negative marker distinguishes it from the older per-run encoding,
+		 * which began with the (positive) length of its data.
 		 */
 		final ByteArrayOutputStream s = new ByteArrayOutputStream();
-		final DataOutputStream ds =
-			new DataOutputStream(new DeflaterOutputStream(s));
-		final long initial_position[] = new long[theRoi.numDimensions()];
-		final long next_position[] = new long[theRoi.numDimensions()];
-		Arrays.fill(initial_position, Long.MIN_VALUE);
-		long run = 0;
-		while (c.hasNext()) {
-			c.next();
-			next_position[0] = initial_position[0] + run;
-			for (int i = 0; i < theRoi.numDimensions(); i++) {
-				if (next_position[i] != c.getLongPosition(i)) {
-					if (run > 0) {
-						ds.writeLong(run);
-						for (int j = 0; j < theRoi.numDimensions(); j++) {
-							ds.writeLong(initial_position[j]);
-						}
-					}
-					run = 0;
-					c.localize(initial_position);
-					c.localize(next_position);
-					break;
-				}
-			}
-			run++;
-		}
-		if (run > 0) {
-			ds.writeLong(run);
-			for (int j = 0; j < theRoi.numDimensions(); j++) {
-				ds.writeLong(initial_position[j]);
-			}
-		}
-		/*
-		 * The end is signaled by a run of length 0
-		 */
-		ds.writeLong(0);
-		ds.close();
-		final byte[] buffer = s.toByteArray();
-		out.writeInt(buffer.length);
-		out.write(buffer);
+		BinaryMaskCodec.write(img, s, true);
+		out.writeInt(CODEC_MARKER);
+		out.writeInt(s.size());
+		out.write(s.toByteArray());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -171,26 +134,14 @@ public class BinaryMaskOverlay<U extends BitType, V extends Img<U>> extends Abst
 		for (int i = 0; i < nDimensions; i++) {
 			maskOrigin[i] = in.readDouble();
 		}
-		final ArrayImg<BitType, LongArray> img = ArrayImgs.bits(dimensions);
-		img.setLinkedType(new BitType(img));
-		final RandomAccess<BitType> ra = img.randomAccess();
-		final byte[] buffer = new byte[in.readInt()];
-		in.read(buffer);
-		final ByteArrayInputStream s = new ByteArrayInputStream(buffer);
-		final DataInputStream ds = new DataInputStream(new InflaterInputStream(s));
-		final long position[] = new long[nDimensions];
-		while (true) {
-			final long run = ds.readLong();
-			if (run == 0) break;
-			for (int i = 0; i < nDimensions; i++) {
-				position[i] = ds.readLong();
-			}
-			for (int i = 0; i < run; i++) {
-				ra.setPosition(position);
-				position[0]++;
-				ra.get().set(true);
-			}
+		final int marker = in.readInt();
+		final ArrayImg<BitType, LongArray> img;
+		if (marker == CODEC_MARKER) {
+			final byte[] buffer = new byte[in.readInt()];
+			in.readFully(buffer);
+			img = BinaryMaskCodec.read(ByteBuffer.wrap(buffer));
 		}
+		else img = readRuns(in, marker, dimensions);
 		setRegionOfInterest(new BinaryMaskRegionOfInterest<>((V)img));
 		getRegionOfInterest().move(maskOrigin);
 	}
@@ -220,15 +171,57 @@ public class BinaryMaskOverlay<U extends BitType, V extends Img<U>> extends Abst
 		getRegionOfInterest().move(deltas);
 	}
 
+	/**
+	 * Writes the mask of this overlay to the specified file, using
+	 * {@link BinaryMaskCodec}.
+	 */
+	public void writeMask(final Path file, final boolean deflate)
+		throws IOException
+	{
+		BinaryMaskCodec.write(getRegionOfInterest().getImg(), file, deflate);
+	}
+
+	/**
+	 * Replaces the mask of this overlay with one read from the specified file,
+	 * which is memory-mapped, keeping the current origin.
+	 */
+	@SuppressWarnings("unchecked")
+	public void readMask(final Path file) throws IOException {
+		final BinaryMaskRegionOfInterest<U, V> oldRoi = getRegionOfInterest();
+		final double[] origin = oldRoi == null ? null : oldRoi.getOrigin();
+		setRegionOfInterest(new BinaryMaskRegionOfInterest<>(
+			(V) BinaryMaskCodec.read(file)));
+		if (origin != null) getRegionOfInterest().move(origin);
+	}
+
 	// -- Helper methods --
 
-	private RandomAccessible<BitType> constantImg(final int numDims) {
-		final long[] dims = new long[numDims];
-		Arrays.fill(dims, 1);
-		final ArrayImg<BitType, LongArray> bitImg = ArrayImgs.bits(dims);
-		bitImg.setLinkedType(new BitType(bitImg));
-		bitImg.cursor().next().set(true);
-		return Views.extendBorder(bitImg);
+	/** Reads a mask in the older encoding, as a list of runs with positions. */
+	private ArrayImg<BitType, LongArray> readRuns(final ObjectInput in,
+		final int length, final long[] dimensions) throws IOException
+	{
+		final int nDimensions = dimensions.length;
+		final ArrayImg<BitType, LongArray> img = ArrayImgs.bits(dimensions);
+		img.setLinkedType(new BitType(img));
+		final RandomAccess<BitType> ra = img.randomAccess();
+		final byte[] buffer = new byte[length];
+		in.readFully(buffer);
+		final ByteArrayInputStream s = new ByteArrayInputStream(buffer);
+		final DataInputStream ds = new DataInputStream(new InflaterInputStream(s));
+		final long position[] = new long[nDimensions];
+		while (true) {
+			final long run = ds.readLong();
+			if (run == 0) break;
+			for (int i = 0; i < nDimensions; i++) {
+				position[i] = ds.readLong();
+			}
+			for (int i = 0; i < run; i++) {
+				ra.setPosition(position);
+				position[0]++;
+				ra.get().set(true);
+			}
+		}
+		return img;
 	}
 
 }
@@ -0,0 +1,473 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.roi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.FinalDimensions;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RealInterval;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.roi.MaskPredicate;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+import org.scijava.util.TreeNode;
+
+/**
+ * Rasterizes the ROIs of a {@link ROITree} into an {@link ImgLabeling}, where
+ * the ROI at index {@code i} of the tree gets label {@code i + 1}.
+ * <p>
+ * The rows (along dimension 0) of the labeling are split into chunks, which
+ * may be processed concurrently. Each ROI is only tested within its bounding box,
+ * and the runs of all ROIs crossing a row are swept into segments of constant
+ * label set, interned in a table shared by all chunks. Only then is the index
+ * image allocated, with the smallest unsigned integer type able to index every
+ * label set, and each chunk writes its own rows of it.
+ * </p>
+ * <p>
+ * NB: When rasterizing in parallel, the ROIs are tested from several threads
+ * at once, unless the current {@link Parallelization} context is
+ * single-threaded.
+ * </p>
+ */
+final class ROILabelingRasterizer {
+
+	/** Number of rows rasterized by each task. */
+	private static final int ROWS_PER_TASK = 256;
+
+	private final long[] dims;
+	private final long rowCount;
+
+	private final List<MaskPredicate<? super Localizable>> rois;
+
+	/** The bounds of each ROI within the labeling, or null if disjoint. */
+	private final List<Interval> roiBounds;
+
+	/** Indices of the interned label sets; index 0 is the empty set. */
+	private final Map<LabelSet, Integer> labelSets = new ConcurrentHashMap<>();
+	private final AtomicInteger nextIndex = new AtomicInteger(1);
+
+	@SuppressWarnings("unchecked")
+	public ROILabelingRasterizer(final ROITree roiTree, final Interval interval) {
+		dims = Intervals.dimensionsAsLongArray(interval);
+		final Interval area = new FinalInterval(dims);
+		rowCount = dims[0] == 0 ? 0 : Intervals.numElements(area) / dims[0];
+		rois = new ArrayList<>();
+		roiBounds = new ArrayList<>();
+		for (final TreeNode<?> roiNode : roiTree.children()) {
+			final MaskPredicate<? super Localizable> roi =
+				(MaskPredicate<? super Localizable>) roiNode.data();
+			rois.add(roi);
+			roiBounds.add(bounds(roi, area));
+		}
+	}
+
+	// -- ROILabelingRasterizer methods --
+
+	/**
+	 * Rasterizes the ROIs.
+	 *
+	 * @param factory The factory used to create the index image, or null to
+	 *          choose one suitable for the size of the labeling.
+	 * @param parallel Whether to process the chunks concurrently, according to
+	 *          the current {@link Parallelization} context, rather than one
+	 *          after the other on the calling thread.
+	 */
+	public ImgLabeling<Integer, ?> rasterize(final ImgFactory<?> factory,
+		final boolean parallel)
+	{
+		final List<Chunk> chunks = new ArrayList<>();
+		for (long row = 0; row < rowCount; row += ROWS_PER_TASK) {
+			chunks.add(new Chunk(row, Math.min(rowCount, row + ROWS_PER_TASK)));
+		}
+		final TaskExecutor executor = parallel ? Parallelization
+			.getTaskExecutor() : TaskExecutors.singleThreaded();
+		executor.forEach(chunks, Chunk::sweep);
+
+		// NB: Number the label sets in a reproducible order.
+		final List<LabelSet> sets = new ArrayList<>(labelSets.keySet());
+		Collections.sort(sets);
+		final int[] indices = new int[sets.size() + 1];
+		final List<Set<Integer>> setList = new ArrayList<>(sets.size() + 1);
+		setList.add(Collections.emptySet());
+		for (final LabelSet set : sets) {
+			indices[labelSets.get(set)] = setList.size();
+			setList.add(set.toSet());
+		}
+
+		final int setCount = setList.size();
+		if (setCount <= 1 << 8) {
+			return write(new UnsignedByteType(), factory, executor, chunks, indices,
+				setList);
+		}
+		if (setCount <= 1 << 16) {
+			return write(new UnsignedShortType(), factory, executor, chunks, indices,
+				setList);
+		}
+		return write(new UnsignedIntType(), factory, executor, chunks, indices,
+			setList);
+	}
+
+	// -- Helper methods --
+
+	private <T extends IntegerType<T> & NativeType<T>> ImgLabeling<Integer, T>
+		write(final T type, final ImgFactory<?> factory,
+			final TaskExecutor executor, final List<Chunk> chunks,
+			final int[] indices, final List<Set<Integer>> setList)
+	{
+		final ImgFactory<T> typedFactory;
+		if (factory == null) {
+			typedFactory = Util.getSuitableImgFactory(new FinalDimensions(dims),
+				type);
+		}
+		else {
+			try {
+				typedFactory = factory.imgFactory(type);
+			}
+			catch (final IncompatibleTypeException exc) {
+				throw new IllegalArgumentException(exc);
+			}
+		}
+		final Img<T> img = typedFactory.create(dims);
+		executor.forEach(chunks, chunk -> chunk.write(img, indices));
+		final ImgLabeling<Integer, T> labeling = new ImgLabeling<>(img);
+		new LabelSetAccess(labeling.getMapping()).install(setList);
+		return labeling;
+	}
+
+	private int intern(final LabelSet set) {
+		final Integer index = labelSets.get(set);
+		if (index != null) return index;
+		return labelSets.computeIfAbsent(set, s -> nextIndex.getAndIncrement());
+	}
+
+	/** Gets the position of the given row, with 0 along dimension 0. */
+	private void rowPosition(long row, final long[] position) {
+		position[0] = 0;
+		for (int d = 1; d < dims.length; d++) {
+			position[d] = row % dims[d];
+			row /= dims[d];
+		}
+	}
+
+	private static Interval bounds(final MaskPredicate<?> roi,
+		final Interval area)
+	{
+		final Interval bounds;
+		if (roi instanceof Interval) {
+			bounds = Intervals.intersect(area, (Interval) roi);
+		}
+		else if (roi instanceof RealInterval) {
+			bounds = Intervals.intersect(area, Intervals.smallestContainingInterval(
+				(RealInterval) roi));
+		}
+		else bounds = area;
+		return Intervals.isEmpty(bounds) ? null : bounds;
+	}
+
+	private static boolean containsRow(final Interval bounds,
+		final long[] rowPosition)
+	{
+		for (int d = 1; d < rowPosition.length; d++) {
+			if (rowPosition[d] < bounds.min(d) || rowPosition[d] > bounds.max(d)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// -- Helper classes --
+
+	/** A range of rows, rasterized by one task. */
+	private class Chunk {
+
+		private final long firstRow, endRow;
+
+		/** Segments, as row, start, end (exclusive) and label set index each. */
+		private long[] segments = new long[64];
+		private int segmentCount;
+
+		// buffers of the current row
+		private int runCount;
+		private long[] runStarts = new long[16], runEnds = new long[16];
+		private int[] runLabels = new int[16];
+		private long[] edges = new long[32];
+		private int[] offsets = new int[32], labels = new int[16];
+
+		public Chunk(final long firstRow, final long endRow) {
+			this.firstRow = firstRow;
+			this.endRow = endRow;
+		}
+
+		public void sweep() {
+			final int n = dims.length;
+			final long[] rowPos = new long[n];
+
+			// the ROIs which may cross the rows of this chunk
+			final List<Integer> candidates = new ArrayList<>();
+			rowPosition(firstRow, rowPos);
+			final long lo = rowPos[n - 1];
+			rowPosition(endRow - 1, rowPos);
+			final long hi = rowPos[n - 1];
+			for (int i = 0; i < rois.size(); i++) {
+				final Interval b = roiBounds.get(i);
+				if (b == null) continue;
+				if (n > 1 && (b.max(n - 1) < lo || b.min(n - 1) > hi)) continue;
+				candidates.add(i);
+			}
+			if (candidates.isEmpty()) return;
+
+			final Point pos = new Point(n);
+			final Map<LabelSet, Integer> cache = new HashMap<>();
+			for (long row = firstRow; row < endRow; row++) {
+				rowPosition(row, rowPos);
+				pos.setPosition(rowPos);
+				runCount = 0;
+				for (final int i : candidates) {
+					final Interval b = roiBounds.get(i);
+					if (!containsRow(b, rowPos)) continue;
+					final MaskPredicate<? super Localizable> roi = rois.get(i);
+					final long max = b.max(0);
+					long start = -1;
+					for (long x = b.min(0); x <= max; x++) {
+						pos.setPosition(x, 0);
+						if (roi.test(pos)) {
+							if (start < 0) start = x;
+						}
+						else if (start >= 0) {
+							addRun(start, x, i + 1);
+							start = -1;
+						}
+					}
+					if (start >= 0) addRun(start, max + 1, i + 1);
+				}
+				if (runCount > 0) sweepRow(row, cache);
+			}
+		}
+
+		public <T extends IntegerType<T>> void write(final Img<T> img,
+			final int[] indices)
+		{
+			final RandomAccess<T> ra = img.randomAccess();
+			final long[] rowPos = new long[dims.length];
+			long row = -1;
+			for (int s = 0; s < 4 * segmentCount; s += 4) {
+				if (segments[s] != row) {
+					row = segments[s];
+					rowPosition(row, rowPos);
+				}
+				final long start = segments[s + 1], end = segments[s + 2];
+				final int index = indices[(int) segments[s + 3]];
+				rowPos[0] = start;
+				ra.setPosition(rowPos);
+				for (long x = start; x < end; x++) {
+					ra.get().setInteger(index);
+					ra.fwd(0);
+				}
+			}
+		}
+
+		private void addRun(final long start, final long end, final int label) {
+			if (runCount == runStarts.length) {
+				runStarts = Arrays.copyOf(runStarts, 2 * runCount);
+				runEnds = Arrays.copyOf(runEnds, 2 * runCount);
+				runLabels = Arrays.copyOf(runLabels, 2 * runCount);
+			}
+			runStarts[runCount] = start;
+			runEnds[runCount] = end;
+			runLabels[runCount] = label;
+			runCount++;
+		}
+
+		/**
+		 * Splits the current row at the edges of all its runs, and emits the
+		 * pieces covered by at least one run with the index of their label set.
+		 */
+		private void sweepRow(final long row, final Map<LabelSet, Integer> cache) {
+			if (edges.length < 2 * runCount) {
+				edges = new long[4 * runCount];
+				offsets = new int[4 * runCount + 1];
+			}
+			System.arraycopy(runStarts, 0, edges, 0, runCount);
+			System.arraycopy(runEnds, 0, edges, runCount, runCount);
+			Arrays.sort(edges, 0, 2 * runCount);
+			int edgeCount = 0;
+			for (int e = 0; e < 2 * runCount; e++) {
+				if (edgeCount == 0 || edges[e] != edges[edgeCount - 1]) {
+					edges[edgeCount++] = edges[e];
+				}
+			}
+			final int pieceCount = edgeCount - 1;
+
+			// the labels of each piece, in ascending order (as the runs are)
+			Arrays.fill(offsets, 0, pieceCount + 1, 0);
+			for (int r = 0; r < runCount; r++) {
+				final int first = Arrays.binarySearch(edges, 0, edgeCount,
+					runStarts[r]);
+				final int last = Arrays.binarySearch(edges, 0, edgeCount, runEnds[r]);
+				for (int p = first; p < last; p++) {
+					offsets[p + 1]++;
+				}
+			}
+			for (int p = 0; p < pieceCount; p++) {
+				offsets[p + 1] += offsets[p];
+			}
+			if (labels.length < offsets[pieceCount]) {
+				labels = new int[2 * offsets[pieceCount]];
+			}
+			for (int r = 0; r < runCount; r++) {
+				final int first = Arrays.binarySearch(edges, 0, edgeCount,
+					runStarts[r]);
+				final int last = Arrays.binarySearch(edges, 0, edgeCount, runEnds[r]);
+				for (int p = first; p < last; p++) {
+					labels[offsets[p]++] = runLabels[r];
+				}
+			}
+			// NB: The fill advanced each offset to the start of the next piece.
+
+			int from = 0;
+			for (int p = 0; p < pieceCount; p++) {
+				final int to = offsets[p];
+				if (to > from) {
+					final LabelSet set = new LabelSet(Arrays.copyOfRange(labels, from,
+						to));
+					Integer index = cache.get(set);
+					if (index == null) {
+						index = intern(set);
+						cache.put(set, index);
+					}
+					addSegment(row, edges[p], edges[p + 1], index);
+				}
+				from = to;
+			}
+		}
+
+		private void addSegment(final long row, final long start, final long end,
+			final int index)
+		{
+			final int s = 4 * segmentCount;
+			// NB: Merge with the previous segment when they touch.
+			if (s > 0 && segments[s - 4] == row && segments[s - 2] == start &&
+				segments[s - 1] == index)
+			{
+				segments[s - 2] = end;
+				return;
+			}
+			if (s == segments.length) segments = Arrays.copyOf(segments, 2 * s);
+			segments[s] = row;
+			segments[s + 1] = start;
+			segments[s + 2] = end;
+			segments[s + 3] = index;
+			segmentCount++;
+		}
+	}
+
+	/** A set of labels, as their sorted values. */
+	private static class LabelSet implements Comparable<LabelSet> {
+
+		private final int[] labels;
+		private final int hash;
+
+		public LabelSet(final int[] labels) {
+			this.labels = labels;
+			hash = Arrays.hashCode(labels);
+		}
+
+		public Set<Integer> toSet() {
+			final Set<Integer> set = new HashSet<>();
+			for (final int label : labels) {
+				set.add(label);
+			}
+			return set;
+		}
+
+		@Override
+		public int compareTo(final LabelSet other) {
+			final int length = Math.min(labels.length, other.labels.length);
+			for (int i = 0; i < length; i++) {
+				final int c = Integer.compare(labels[i], other.labels[i]);
+				if (c != 0) return c;
+			}
+			return Integer.compare(labels.length, other.labels.length);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof LabelSet && Arrays.equals(labels,
+				((LabelSet) o).labels);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/** Installs precomputed label sets into a {@link LabelingMapping}. */
+	private static class LabelSetAccess extends
+		LabelingMapping.SerialisationAccess<Integer>
+	{
+
+		public LabelSetAccess(final LabelingMapping<Integer> mapping) {
+			super(mapping);
+		}
+
+		public void install(final List<Set<Integer>> labelSets) {
+			setLabelSets(labelSets);
+		}
+	}
+
+}
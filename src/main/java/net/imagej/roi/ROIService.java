@@ -44,6 +44,8 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.RealPointSampleList;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.RealRandomAccessibleRealInterval;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.Mask;
 import net.imglib2.roi.MaskInterval;
@@ -593,7 +595,53 @@ public interface ROIService extends ImageJService {
 	}
 
 	/**
-	 * Convert the ROIs in a
+	 * Converts the ROIs of the given {@link ROITree} to an {@link ImgLabeling}
+	 * over the given interval, where the ROI at index {@code i} of the tree is
+	 * labeled {@code i + 1}.
 	 */
-	ImgLabeling<?, ?> toImgLabeling(ROITree roiTree, Interval interval);
+	default ImgLabeling<?, ?> toImgLabeling(ROITree roiTree, Interval interval) {
+		return toImgLabeling(roiTree, interval, null);
+	}
+
+	/**
+	 * Converts the ROIs of the given {@link ROITree} to an {@link ImgLabeling}
+	 * over the given interval, where the ROI at index {@code i} of the tree is
+	 * labeled {@code i + 1}.
+	 * <p>
+	 * The index image of the labeling has the smallest unsigned integer type
+	 * able to index all its label sets. The ROIs are evaluated sequentially, on
+	 * the calling thread.
+	 * </p>
+	 *
+	 * @param factory The factory used to create the index image, e.g. a
+	 *          {@link net.imglib2.img.cell.CellImgFactory} for a cell-backed
+	 *          labeling, or null to choose one suitable for its size.
+	 */
+	default ImgLabeling<?, ?> toImgLabeling(final ROITree roiTree,
+		final Interval interval, final ImgFactory<?> factory)
+	{
+		return toImgLabeling(roiTree, interval, factory, false);
+	}
+
+	/**
+	 * Converts the ROIs of the given {@link ROITree} to an {@link ImgLabeling}
+	 * over the given interval, where the ROI at index {@code i} of the tree is
+	 * labeled {@code i + 1}.
+	 *
+	 * @param factory The factory used to create the index image, or null to
+	 *          choose one suitable for the size of the labeling.
+	 * @param parallel If true, the rows of the labeling are rasterized in
+	 *          parallel, according to the current {@link Parallelization}
+	 *          context, so the ROIs must be safe to {@link MaskPredicate#test
+	 *          test} from several threads at once. ROIs which are not (e.g.,
+	 *          masks reading a shared random access) must be rasterized
+	 *          sequentially.
+	 */
+	default ImgLabeling<?, ?> toImgLabeling(final ROITree roiTree,
+		final Interval interval, final ImgFactory<?> factory,
+		final boolean parallel)
+	{
+		return new ROILabelingRasterizer(roiTree, interval).rasterize(factory,
+			parallel);
+	}
 }
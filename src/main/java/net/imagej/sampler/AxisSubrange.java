@@ -29,8 +29,6 @@
 
 package net.imagej.sampler;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -41,7 +39,8 @@ import net.imagej.display.ImageDisplay;
 /**
  * An AxisSubrange defines a set of position indices using various constructors.
  * A set of position indices might look like this: 1, 3, 6, 7, 8, 25, 44. These
- * indices are used to iterate over a subset of an image.
+ * indices are used to iterate over a subset of an image. They are stored as an
+ * {@link IndexSet}, so large or strided ranges take constant space.
  * 
  * @author Barry DeZonia
  */
@@ -50,13 +49,13 @@ public class AxisSubrange {
 	// -- instance variables --
 
 	private String err;
-	private final List<Long> indices;
+	private IndexSet indices;
 
 	// -- private base constructor --
 
 	private AxisSubrange() {
 		this.err = null;
-		this.indices = new ArrayList<>();
+		this.indices = IndexSet.EMPTY;
 	}
 
 	// -- public interface --
@@ -65,8 +64,20 @@ public class AxisSubrange {
 		return err;
 	}
 
+	/**
+	 * Gets the position indices as an unmodifiable list view of
+	 * {@link #getIndexSet()}.
+	 * 
+	 * @throws IllegalStateException if there are more than
+	 *           {@link Integer#MAX_VALUE} indices.
+	 */
 	public List<Long> getIndices() {
-		return Collections.unmodifiableList(indices);
+		return indices.asList();
+	}
+
+	/** Gets the position indices. */
+	public IndexSet getIndexSet() {
+		return indices;
 	}
 
 	// -- public constructors --
@@ -78,7 +89,7 @@ public class AxisSubrange {
 	 */
 	public AxisSubrange(final long pos) {
 		this();
-		indices.add(pos);
+		indices = IndexSet.of(pos);
 	}
 
 	/**
@@ -91,17 +102,10 @@ public class AxisSubrange {
 	 */
 	public AxisSubrange(final long pos1, final long pos2) {
 		this();
-		final long numElements = Math.max(pos1, pos2) - Math.min(pos1, pos2) + 1;
-		if (numElements > Integer.MAX_VALUE) {
-			err = "AxisSubrange: the number of axis elements cannot exceed " + Integer.MAX_VALUE;
-			return;
-		}
 		int by;
 		if (pos1 <= pos2) by = 1;
 		else by = -1;
-		for (long l = pos1; (by > 0) ? l <= pos2: l >= pos2; l += by) {
-			indices.add(l);
-		}
+		indices = IndexSet.between(pos1, pos2, by);
 	}
 
 	/**
@@ -119,15 +123,7 @@ public class AxisSubrange {
 			err = "AxisSubrange: increment by must not be 0";
 			return;
 		}
-		final long numElements =
-				(Math.max(pos1, pos2) - Math.min(pos1, pos2) + 1) / Math.abs(by);
-		if (numElements > Integer.MAX_VALUE) {
-			err = "AxisSubrange: the number of axis elements cannot exceed " + Integer.MAX_VALUE;
-			return;
-		}
-		for (long l = pos1; (by > 0) ? l <= pos2 : l >= pos2; l += by) {
-			indices.add(l);
-		}
+		indices = IndexSet.between(pos1, pos2, by);
 	}
 
 	/**
@@ -254,12 +250,9 @@ public class AxisSubrange {
 				err = "AxisSubrange: could not parse definition: " + description;
 			}
 			if (err != null) return;
-			for (final long l : subrange.getIndices()) { // invalid warning here
-				if (indices.contains(l)) continue;
-				indices.add(l);
-			}
+			// NB: The union is sorted and free of duplicates.
+			indices = indices.union(subrange.indices);
 		}
-		Collections.sort(indices);
 	}
 
 	/**
@@ -31,6 +31,7 @@ package net.imagej.sampler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import net.imagej.Dataset;
 import net.imagej.DatasetService;
@@ -43,16 +44,15 @@ import net.imagej.display.ImageDisplay;
 import net.imagej.display.ImageDisplayService;
 import net.imagej.display.OverlayService;
 import net.imagej.overlay.Overlay;
-import net.imglib2.RandomAccess;
 import net.imglib2.display.ColorTable;
 import net.imglib2.type.numeric.RealType;
-import net.imglib2.util.Intervals;
 
 import org.scijava.display.DisplayService;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 import org.scijava.util.RealRect;
 
 //TODO
@@ -63,15 +63,7 @@ import org.scijava.util.RealRect;
 //5) test the contains(num) code works
 //TODO - multiple places I'm relying on a Display's axes rather than a
 //Dataset's axes. See if there are problems with this
-//TODO - the iterators work with Lists which can only hold 2 gig or fewer
-//elements. Thus data cannot be copied > 2 gig per dimension.
-//TODO:
-//-- for speed eliminate reliance on Longs. Make primitive arrays.
-//-- make a EnormousList that can store more than 2 gig of longs
 //In other plugins replace RestructureUtils calls with methods from here
-//Note when user specifies 1-1000 I am storing them all consecutively (i.e.
-// 1,2,3,4,5...1000. For small amounts this is fine but might want something
-// more sophisticated for large dimensional ranges.
 
 /**
  * Default implementation of {@link SamplerService}.
@@ -97,6 +89,9 @@ public class DefaultSamplerService extends AbstractService implements
 	@Parameter
 	private ImageDisplayService imgDispService;
 
+	@Parameter
+	private ThreadService threadService;
+
 	// -- public interface --
 
 	@Override
@@ -212,40 +207,26 @@ public class DefaultSamplerService extends AbstractService implements
 	private void copyData(final SamplingDefinition def,
 		final ImageDisplay outputImage)
 	{
-		final PositionIterator iter1 = new SparsePositionIterator(def);
-		final PositionIterator iter2 = new DensePositionIterator(def);
 		// TODO - remove evil casts
 		final Dataset input = (Dataset) def.getDisplay().getActiveView().getData();
 		final Dataset output = (Dataset) outputImage.getActiveView().getData();
-		final long[] inputDims = Intervals.dimensionsAsLongArray(input);
-		final long[] outputDims = Intervals.dimensionsAsLongArray(output);
-		final RandomAccess<? extends RealType<?>> inputAccessor =
-			input.getImgPlus().randomAccess();
-		final RandomAccess<? extends RealType<?>> outputAccessor =
-			output.getImgPlus().randomAccess();
-		while (iter1.hasNext() && iter2.hasNext()) {
-
-			// determine data positions within datasets
-			final long[] inputPos = iter1.next();
-			final long[] outputPos = iter2.next();
-			inputAccessor.setPosition(inputPos);
-			outputAccessor.setPosition(outputPos);
-
-			// copy value
-			final double value = inputAccessor.get().getRealDouble();
-			outputAccessor.get().setReal(value);
-
-			// TODO - notice there is a lot of inefficiency following here.
-			// We are setting color tables once per pixel in image and do a lot of
-			// calculation to figure out what table. This should be done once per
-			// plane.
-			
-			// keep dataset color tables in sync
-			final int inputPlaneNumber = planeNum(inputDims, inputPos);
-			final ColorTable lut = input.getColorTable(inputPlaneNumber);
-			final int outputPlaneNumber = planeNum(outputDims, outputPos);
-			output.setColorTable(lut, outputPlaneNumber);
+
+		// copy the data plane by plane, keeping dataset color tables in sync
+		final PlaneCopier copier =
+			new PlaneCopier(input, output, def.getInputIndexSets());
+		copier.copyColorTables();
+		try {
+			copier.copyData(threadService);
+		}
+		catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Sampling was interrupted", exc);
+		}
+		catch (final ExecutionException exc) {
+			throw new IllegalStateException("Cannot copy sampled data", exc
+				.getCause());
 		}
+
 		// TODO - enable this code
 		// List<Overlay> overlays = overlayService.getOverlays(def.getDisplay());
 		// attachOverlays(def.getDisplay(), outputImage, overlays);
@@ -273,18 +254,6 @@ public class DefaultSamplerService extends AbstractService implements
 		setDisplayRanges(def, outputImage);
 	}
 
-	/** Calculates a plane number from a position within a dimensional space. */
-	private int planeNum(final long[] dims, final long[] pos) {
-		int plane = 0;
-		int inc = 1;
-		// TODO - assumes X & Y are 1st two dims
-		for (int i = 2; i < dims.length; i++) {
-			plane += pos[i] * inc;
-			inc *= dims[i];
-		}
-		return plane;
-	}
-
 	/**
 	 * Sets an output Dataset's composite channel count based upon an input
 	 * Dataset's composite channel characteristics.
@@ -313,7 +282,7 @@ public class DefaultSamplerService extends AbstractService implements
 		final DatasetView outView = imgDispService.getActiveDatasetView(output);
 		final List<ColorTable> inputColorTables = inView.getColorTables();
 		final int inputChanAxis = input.dimensionIndex(Axes.CHANNEL); 
-		final List<List<Long>> inputRanges = def.getInputRanges();
+		final List<IndexSet> inputRanges = def.getInputIndexSets();
 		for (int i = 0; i < inputColorTables.size(); i++) {
 			int outIndex = outputColorTableNumber(inputRanges, i, inputChanAxis);
 			if (outIndex >= 0) {
@@ -342,18 +311,13 @@ public class DefaultSamplerService extends AbstractService implements
 	}
 	
 	private int outputColorTableNumber(
-		List<List<Long>> inputRanges, int inputChannel, int inputChanAxis)
+		List<IndexSet> inputRanges, int inputChannel, int inputChanAxis)
 	{
 		if (inputChanAxis < 0) {
 			if (inputChannel == 0) return 0;
 			return -1;
 		}
-		List<Long> channelRanges = inputRanges.get(inputChanAxis);
-		for (int pos = 0; pos < channelRanges.size(); pos++) {
-			if (channelRanges.get(pos) == inputChannel)
-				return pos;
-		}
-		return -1;
+		return (int) inputRanges.get(inputChanAxis).indexOf(inputChannel);
 	}
 
 	// TODO - utilize me? Maybe it doesn't make sense to duplicate overlays.
@@ -409,7 +373,7 @@ public class DefaultSamplerService extends AbstractService implements
 		final DatasetView inView = imgDispService.getActiveDatasetView(input);
 		final DatasetView outView = imgDispService.getActiveDatasetView(output);
 		final int inputChanAxis = input.dimensionIndex(Axes.CHANNEL);
-		final List<List<Long>> inputRanges = def.getInputRanges();
+		final List<IndexSet> inputRanges = def.getInputIndexSets();
 		for (int i = 0; i < inView.getChannelCount(); i++) {
 			int outIndex = outputColorTableNumber(inputRanges, i, inputChanAxis);
 			if (outIndex >= 0) {
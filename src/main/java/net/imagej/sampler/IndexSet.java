@@ -0,0 +1,400 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.sampler;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An IndexSet is an ordered sequence of position indices along one axis,
+ * stored compactly as runs of evenly spaced values (start, step and count).
+ * For example, the indices 1, 3, 6, 7, 8, 25, 44 are stored as the three runs
+ * 1-3 by 2, 6-8 by 1 and 25-44 by 19, and the indices 0 through 99999 by 1 are
+ * stored as a single run.
+ * <p>
+ * Indices can be iterated and looked up by position without allocating boxed
+ * {@link Long}s. IndexSets are immutable.
+ * </p>
+ */
+public final class IndexSet implements Iterable<Long> {
+
+	/** The IndexSet with no indices. */
+	public static final IndexSet EMPTY = new IndexSet(new Runs());
+
+	// -- instance variables --
+
+	private final long[] starts;
+	private final long[] steps;
+	private final long[] counts;
+
+	/** The position within the set of the first index of each run. */
+	private final long[] offsets;
+
+	private final long size;
+
+	// -- private base constructor --
+
+	private IndexSet(final Runs runs) {
+		final int n = runs.size();
+		starts = Arrays.copyOf(runs.starts, n);
+		steps = Arrays.copyOf(runs.steps, n);
+		counts = Arrays.copyOf(runs.counts, n);
+		offsets = new long[n];
+		long total = 0;
+		for (int r = 0; r < n; r++) {
+			offsets[r] = total;
+			total += counts[r];
+		}
+		size = total;
+	}
+
+	// -- public static construction methods --
+
+	/** Creates an IndexSet containing a single index. */
+	public static IndexSet of(final long index) {
+		return range(index, 1, 1);
+	}
+
+	/**
+	 * Creates an IndexSet of evenly spaced indices.
+	 * 
+	 * @param start The first index
+	 * @param step The distance between consecutive indices; may be negative
+	 * @param count The number of indices
+	 */
+	public static IndexSet range(final long start, final long step,
+		final long count)
+	{
+		if (count < 0) throw new IllegalArgumentException("Negative count: " +
+			count);
+		final Runs runs = new Runs();
+		runs.append(start, step, count);
+		return new IndexSet(runs);
+	}
+
+	/**
+	 * Creates an IndexSet of the indices from one position to another, stepping
+	 * by a given (nonzero, possibly negative) value. The set is empty when the
+	 * step leads away from the second position.
+	 */
+	public static IndexSet between(final long pos1, final long pos2,
+		final long by)
+	{
+		if (by == 0) throw new IllegalArgumentException("Step must not be 0");
+		if (by > 0 ? pos2 < pos1 : pos2 > pos1) return EMPTY;
+		final long count = Math.abs(pos2 - pos1) / Math.abs(by) + 1;
+		return range(pos1, by, count);
+	}
+
+	/** Creates an IndexSet of the given indices, in the given order. */
+	public static IndexSet of(final long... indices) {
+		final Runs runs = new Runs();
+		for (final long index : indices) {
+			runs.append(index, 1, 1);
+		}
+		return new IndexSet(runs);
+	}
+
+	// -- public interface --
+
+	/** Gets the number of indices in the set. */
+	public long size() {
+		return size;
+	}
+
+	/** Gets whether the set contains no indices. */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Gets the number of runs used to store the set. */
+	public int runCount() {
+		return starts.length;
+	}
+
+	/**
+	 * Gets the index at the given position within the set.
+	 * 
+	 * @throws IndexOutOfBoundsException if the position is not within the set.
+	 */
+	public long get(final long position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position " + position +
+				" of " + size);
+		}
+		int r = Arrays.binarySearch(offsets, position);
+		if (r < 0) r = -r - 2;
+		return starts[r] + (position - offsets[r]) * steps[r];
+	}
+
+	/** Gets the first index of the set. */
+	public long first() {
+		return get(0);
+	}
+
+	/** Gets the last index of the set. */
+	public long last() {
+		return get(size - 1);
+	}
+
+	/**
+	 * Gets the position within the set of the first occurrence of the given
+	 * index, or -1 if the set does not contain it.
+	 */
+	public long indexOf(final long index) {
+		for (int r = 0; r < starts.length; r++) {
+			final long delta = index - starts[r];
+			if (delta == 0) return offsets[r];
+			if (counts[r] == 1 || delta % steps[r] != 0) continue;
+			final long i = delta / steps[r];
+			if (i > 0 && i < counts[r]) return offsets[r] + i;
+		}
+		return -1;
+	}
+
+	/** Gets whether the set contains the given index. */
+	public boolean contains(final long index) {
+		return indexOf(index) >= 0;
+	}
+
+	/**
+	 * Returns an IndexSet containing the indices of this set and another, sorted
+	 * in ascending order and without duplicates. Runs which do not overlap are
+	 * merged without enumerating their indices.
+	 */
+	public IndexSet union(final IndexSet other) {
+		// gather all runs in ascending order
+		final List<long[]> all = new ArrayList<>(runCount() + other.runCount());
+		ascendingRuns(all);
+		other.ascendingRuns(all);
+		all.sort(Comparator.comparingLong(run -> run[0]));
+
+		final Runs runs = new Runs();
+		int g = 0;
+		while (g < all.size()) {
+			// find the group of runs overlapping the current one
+			long groupLast = last(all.get(g));
+			int end = g + 1;
+			while (end < all.size() && all.get(end)[0] <= groupLast) {
+				groupLast = Math.max(groupLast, last(all.get(end)));
+				end++;
+			}
+			if (end == g + 1) {
+				final long[] run = all.get(g);
+				runs.append(run[0], run[1], run[2]);
+			}
+			else {
+				// overlapping runs: enumerate, sort and deduplicate the group
+				long total = 0;
+				for (int r = g; r < end; r++) {
+					total += all.get(r)[2];
+				}
+				final long[] values = new long[checkedSize(total)];
+				int v = 0;
+				for (int r = g; r < end; r++) {
+					final long[] run = all.get(r);
+					for (long i = 0; i < run[2]; i++) {
+						values[v++] = run[0] + i * run[1];
+					}
+				}
+				Arrays.sort(values);
+				for (int i = 0; i < values.length; i++) {
+					if (i == 0 || values[i] != values[i - 1]) {
+						runs.append(values[i], 1, 1);
+					}
+				}
+			}
+			g = end;
+		}
+		return new IndexSet(runs);
+	}
+
+	/** Copies the indices of the set into a new array. */
+	public long[] toArray() {
+		final long[] array = new long[checkedSize(size)];
+		int i = 0;
+		for (int r = 0; r < starts.length; r++) {
+			for (long c = 0; c < counts[r]; c++) {
+				array[i++] = starts[r] + c * steps[r];
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Gets an unmodifiable {@link List} view of the set. Elements are boxed on
+	 * access only; the list does not copy the indices.
+	 * 
+	 * @throws IllegalStateException if the set has more than
+	 *           {@link Integer#MAX_VALUE} indices.
+	 */
+	public List<Long> asList() {
+		final int listSize = checkedSize(size);
+		return new AbstractList<Long>() {
+
+			@Override
+			public Long get(final int index) {
+				return IndexSet.this.get(index);
+			}
+
+			@Override
+			public int size() {
+				return listSize;
+			}
+
+			@Override
+			public int indexOf(final Object o) {
+				if (!(o instanceof Long)) return -1;
+				return (int) IndexSet.this.indexOf((Long) o);
+			}
+
+			@Override
+			public boolean contains(final Object o) {
+				return indexOf(o) >= 0;
+			}
+		};
+	}
+
+	// -- Iterable methods --
+
+	@Override
+	public PrimitiveIterator.OfLong iterator() {
+		return new PrimitiveIterator.OfLong() {
+
+			private int run;
+			private long pos;
+
+			@Override
+			public boolean hasNext() {
+				while (run < counts.length && pos >= counts[run]) {
+					run++;
+					pos = 0;
+				}
+				return run < counts.length;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return starts[run] + pos++ * steps[run];
+			}
+		};
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < starts.length; r++) {
+			if (r > 0) sb.append(",");
+			sb.append(starts[r]);
+			if (counts[r] > 1) {
+				sb.append("-").append(starts[r] + (counts[r] - 1) * steps[r]);
+				if (steps[r] != 1) sb.append("-").append(steps[r]);
+			}
+		}
+		return sb.toString();
+	}
+
+	// -- private helpers --
+
+	/** Adds the runs of the set to a list as ascending (start, step, count). */
+	private void ascendingRuns(final List<long[]> list) {
+		for (int r = 0; r < starts.length; r++) {
+			if (steps[r] >= 0) list.add(new long[] { starts[r], steps[r], counts[r] });
+			else list.add(new long[] { starts[r] + (counts[r] - 1) * steps[r],
+				-steps[r], counts[r] });
+		}
+	}
+
+	/** Gets the last index of an ascending run. */
+	private static long last(final long[] run) {
+		return run[0] + (run[2] - 1) * run[1];
+	}
+
+	private static int checkedSize(final long count) {
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many indices: " + count);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * A growable list of runs, which extends its last run when an appended run
+	 * continues it.
+	 */
+	private static class Runs {
+
+		private long[] starts = new long[4];
+		private long[] steps = new long[4];
+		private long[] counts = new long[4];
+		private int n;
+
+		private int size() {
+			return n;
+		}
+
+		private void append(final long start, final long step, final long count) {
+			if (count == 0) return;
+			final long runStep = count == 1 ? 1 : step;
+			if (n > 0) {
+				final int r = n - 1;
+				final long delta = start - starts[r];
+				if (counts[r] == 1 && delta != 0 && (count == 1 || step == delta)) {
+					steps[r] = delta;
+					counts[r] += count;
+					return;
+				}
+				if (counts[r] > 1 && (count == 1 || step == steps[r]) &&
+					start == starts[r] + counts[r] * steps[r])
+				{
+					counts[r] += count;
+					return;
+				}
+			}
+			if (n == starts.length) {
+				starts = Arrays.copyOf(starts, 2 * n);
+				steps = Arrays.copyOf(steps, 2 * n);
+				counts = Arrays.copyOf(counts, 2 * n);
+			}
+			starts[n] = start;
+			steps[n] = runStep;
+			counts[n] = count;
+			n++;
+		}
+	}
+
+}
@@ -0,0 +1,299 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imagej.Dataset;
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Kind;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * Copies the samples selected by a {@link SamplingDefinition} from an input
+ * {@link Dataset} into an output {@link Dataset}, one XY plane at a time.
+ * <p>
+ * Rows are copied with {@link System#arraycopy} (one call per contiguous run
+ * of sampled X positions) when both datasets expose their planes as primitive
+ * arrays of the same type; otherwise each plane is copied through a pair of
+ * {@link RandomAccess}es. Color tables are transferred once per plane, and
+ * planes (or row bands of them) are processed in parallel by
+ * {@link ThreadService} workers. It has package level sharing and access.
+ * </p>
+ */
+class PlaneCopier {
+
+	/** Number of tasks to create per available processor. */
+	private static final int TASKS_PER_THREAD = 4;
+
+	// -- instance variables --
+
+	private final Dataset input;
+	private final Dataset output;
+	private final long[] inputDims;
+	private final long[] outputDims;
+
+	/** The sampled input positions, per input dimension. */
+	private final long[][] ranges;
+
+	/** The output dimension of each input dimension, or -1 if collapsed. */
+	private final int[] outputDim;
+
+	/** Contiguous runs of sampled X positions: source, target, length. */
+	private final List<int[]> runs;
+
+	private final int planeDims;
+	private final long planeCount;
+	private final boolean direct;
+
+	// -- constructor --
+
+	/**
+	 * Creates a PlaneCopier for the given input positions.
+	 *
+	 * @param input The dataset to copy from.
+	 * @param output The dataset to copy into, whose dimensions are those of the
+	 *          input ranges with more than one position.
+	 * @param inputRanges The sampled positions of each input dimension, as
+	 *          returned by {@link SamplingDefinition#getInputIndexSets()}.
+	 */
+	PlaneCopier(final Dataset input, final Dataset output,
+		final List<IndexSet> inputRanges)
+	{
+		this.input = input;
+		this.output = output;
+		inputDims = Intervals.dimensionsAsLongArray(input);
+		outputDims = Intervals.dimensionsAsLongArray(output);
+		final int n = inputRanges.size();
+		ranges = new long[n][];
+		outputDim = new int[n];
+		int o = 0;
+		for (int d = 0; d < n; d++) {
+			ranges[d] = inputRanges.get(d).toArray();
+			outputDim[d] = ranges[d].length > 1 ? o++ : -1;
+		}
+		planeDims = Math.min(2, n);
+		long count = 1;
+		for (int d = planeDims; d < n; d++) {
+			count *= ranges[d].length;
+		}
+		planeCount = count;
+		runs = runs(n > 0 ? ranges[0] : new long[] { 0 });
+		direct = isDirect();
+	}
+
+	// -- PlaneCopier methods --
+
+	/**
+	 * Copies the color table of each sampled input plane to the corresponding
+	 * output plane.
+	 */
+	void copyColorTables() {
+		final long[] inputPos = new long[ranges.length];
+		final long[] outputPos = new long[outputDims.length];
+		for (long p = 0; p < planeCount; p++) {
+			position(p, inputPos, outputPos);
+			final int inputPlane = planeNum(inputDims, inputPos);
+			final int outputPlane = planeNum(outputDims, outputPos);
+			output.setColorTable(input.getColorTable(inputPlane), outputPlane);
+		}
+	}
+
+	/**
+	 * Copies the sampled samples, splitting the work into tasks by plane and row
+	 * band which run on the given {@link ThreadService}.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the tasks;
+	 *           unfinished tasks are cancelled.
+	 * @throws ExecutionException if a task fails.
+	 */
+	void copyData(final ThreadService threadService) throws InterruptedException,
+		ExecutionException
+	{
+		if (planeCount == 0) return;
+		final int height = planeDims > 1 ? ranges[1].length : 1;
+		final int target = TASKS_PER_THREAD *
+			Runtime.getRuntime().availableProcessors();
+		final int bands = (int) Math.max(1, Math.min(height, (target +
+			planeCount - 1) / planeCount));
+
+		final List<Future<?>> futures = new ArrayList<>();
+		final long planesPerTask = Math.max(1, planeCount * bands / target);
+		for (long p = 0; p < planeCount; p += planesPerTask) {
+			final long p0 = p, p1 = Math.min(planeCount, p + planesPerTask);
+			for (int b = 0; b < bands; b++) {
+				final int y0 = (int) ((long) b * height / bands);
+				final int y1 = (int) ((long) (b + 1) * height / bands);
+				if (y1 > y0) futures.add(threadService.run(() -> copyPlanes(p0, p1,
+					y0, y1)));
+			}
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException exc) {
+			for (final Future<?> future : futures) {
+				future.cancel(true);
+			}
+			throw exc;
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Copies rows {@code [y0, y1)} of the planes {@code [p0, p1)}. */
+	private void copyPlanes(final long p0, final long p1, final int y0,
+		final int y1)
+	{
+		final long[] inputPos = new long[ranges.length];
+		final long[] outputPos = new long[outputDims.length];
+		RandomAccess<? extends RealType<?>> in = null, out = null;
+		for (long p = p0; p < p1; p++) {
+			if (Thread.currentThread().isInterrupted()) return;
+			position(p, inputPos, outputPos);
+			if (direct && copyRows(inputPos, outputPos, y0, y1)) continue;
+			if (in == null) {
+				in = input.getImgPlus().randomAccess();
+				out = output.getImgPlus().randomAccess();
+			}
+			copyRows(in, out, inputPos, outputPos, y0, y1);
+		}
+	}
+
+	/**
+	 * Copies rows of one plane between the primitive arrays which store them.
+	 *
+	 * @return false if either plane cannot be referenced directly.
+	 */
+	private boolean copyRows(final long[] inputPos, final long[] outputPos,
+		final int y0, final int y1)
+	{
+		final Object src = input.getPlane(planeNum(inputDims, inputPos), false);
+		final Object dest = output.getPlane(planeNum(outputDims, outputPos), false);
+		if (src == null || dest == null) return false;
+		final int inputWidth = (int) inputDims[0];
+		final int outputWidth = (int) outputDims[0];
+		for (int y = y0; y < y1; y++) {
+			final int srcRow = (int) ranges[1][y] * inputWidth;
+			final int destRow = y * outputWidth;
+			for (final int[] run : runs) {
+				System.arraycopy(src, srcRow + run[0], dest, destRow + run[1], run[2]);
+			}
+		}
+		return true;
+	}
+
+	/** Copies rows of one plane through the given accessors. */
+	private void copyRows(final RandomAccess<? extends RealType<?>> in,
+		final RandomAccess<? extends RealType<?>> out, final long[] inputPos,
+		final long[] outputPos, final int y0, final int y1)
+	{
+		in.setPosition(inputPos);
+		out.setPosition(outputPos);
+		for (int y = y0; y < y1; y++) {
+			if (planeDims > 1) {
+				in.setPosition(ranges[1][y], 1);
+				if (outputDim[1] >= 0) out.setPosition(y, outputDim[1]);
+			}
+			for (int x = 0; x < ranges[0].length; x++) {
+				in.setPosition(ranges[0][x], 0);
+				if (outputDim[0] >= 0) out.setPosition(x, outputDim[0]);
+				out.get().setReal(in.get().getRealDouble());
+			}
+		}
+	}
+
+	/**
+	 * Computes the input and output positions of the given plane. The plane
+	 * dimensions (X and Y) of the positions are left untouched.
+	 */
+	private void position(final long plane, final long[] inputPos,
+		final long[] outputPos)
+	{
+		long index = plane;
+		for (int d = planeDims; d < ranges.length; d++) {
+			final int size = ranges[d].length;
+			final int i = (int) (index % size);
+			index /= size;
+			inputPos[d] = ranges[d][i];
+			if (outputDim[d] >= 0) outputPos[outputDim[d]] = i;
+		}
+	}
+
+	/**
+	 * Gets whether rows can be copied between primitive arrays: both datasets
+	 * must keep X and Y as their first two dimensions, share the same storage
+	 * type, and have planes small enough to be indexed by an int.
+	 */
+	private boolean isDirect() {
+		if (planeDims < 2 || outputDim[0] != 0 || outputDim[1] != 1) return false;
+		final Kind kind = ImgStorage.kind(input.getImgPlus().firstElement());
+		if (kind == null) return false;
+		if (kind != ImgStorage.kind(output.getImgPlus().firstElement())) {
+			return false;
+		}
+		return inputDims[0] * inputDims[1] <= Integer.MAX_VALUE &&
+			outputDims[0] * outputDims[1] <= Integer.MAX_VALUE;
+	}
+
+	/** Splits the sampled X positions into runs of consecutive positions. */
+	private static List<int[]> runs(final long[] xs) {
+		final List<int[]> result = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= xs.length; i++) {
+			if (i < xs.length && xs[i] == xs[i - 1] + 1) continue;
+			result.add(new int[] { (int) xs[start], start, i - start });
+			start = i;
+		}
+		return result;
+	}
+
+	/** Calculates a plane number from a position within a dimensional space. */
+	private static int planeNum(final long[] dims, final long[] pos) {
+		int plane = 0;
+		int inc = 1;
+		// TODO - assumes X & Y are 1st two dims
+		for (int i = 2; i < dims.length; i++) {
+			plane += pos[i] * inc;
+			inc *= dims[i];
+		}
+		return plane;
+	}
+
+}
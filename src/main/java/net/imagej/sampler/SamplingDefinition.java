@@ -108,11 +108,22 @@ public class SamplingDefinition {
 	 */
 	public List<List<Long>> getInputRanges() {
 		final List<List<Long>> axesDefs = new ArrayList<>();
+		for (final IndexSet indexSet : getInputIndexSets()) {
+			axesDefs.add(indexSet.asList());
+		}
+		return Collections.unmodifiableList(axesDefs);
+	}
+
+	/**
+	 * Returns the input axis values of this SamplingDefinition as one
+	 * {@link IndexSet} per input dimension. Unlike {@link #getInputRanges()},
+	 * this does not enumerate the values.
+	 */
+	public List<IndexSet> getInputIndexSets() {
+		final List<IndexSet> axesDefs = new ArrayList<>();
 		for (int i = 0; i < display.numDimensions(); i++) {
 			final AxisType axisType = display.axis(i).type();
-			final AxisSubrange subrange = axisSubranges.get(axisType);
-			final List<Long> axisValues = subrange.getIndices();
-			axesDefs.add(axisValues);
+			axesDefs.add(axisSubranges.get(axisType).getIndexSet());
 		}
 		return Collections.unmodifiableList(axesDefs);
 	}
@@ -123,7 +134,7 @@ public class SamplingDefinition {
 	 */
 	public AxisType[] getOutputAxes() {
 		final AxisType[] inputAxes = getInputAxes();
-		final List<List<Long>> inputRanges = getInputRanges();
+		final List<IndexSet> inputRanges = getInputIndexSets();
 		int dimCount = 0;
 		for (int i = 0; i < inputRanges.size(); i++) {
 			if (inputRanges.get(i).size() > 1) dimCount++;
@@ -142,7 +153,7 @@ public class SamplingDefinition {
 	 */
 	public CalibratedAxis[] getOutputCalibratedAxes() {
 		final CalibratedAxis[] inputAxes = getInputCalibratedAxes();
-		final List<List<Long>> inputRanges = getInputRanges();
+		final List<IndexSet> inputRanges = getInputIndexSets();
 		int dimCount = 0;
 		for (int i = 0; i < inputRanges.size(); i++) {
 			if (inputRanges.get(i).size() > 1) dimCount++;
@@ -160,7 +171,7 @@ public class SamplingDefinition {
 	 * dimensions whose size is 1 are automatically collapsed.
 	 */
 	public long[] getOutputDims() {
-		final List<List<Long>> inputRanges = getInputRanges();
+		final List<IndexSet> inputRanges = getInputIndexSets();
 		int dimCount = 0;
 		for (int i = 0; i < inputRanges.size(); i++) {
 			if (inputRanges.get(i).size() > 1) dimCount++;
@@ -168,7 +179,7 @@ public class SamplingDefinition {
 		final long[] outputDims = new long[dimCount];
 		int d = 0;
 		for (int i = 0; i < inputRanges.size(); i++) {
-			final int dimSize = inputRanges.get(i).size();
+			final long dimSize = inputRanges.get(i).size();
 			if (dimSize > 1) outputDims[d++] = dimSize;
 		}
 		return outputDims;
@@ -214,15 +225,15 @@ public class SamplingDefinition {
 			err = "Undefined axis " + axis + " for display " + display.getName();
 			return false;
 		}
-		final List<Long> indices = subrange.getIndices();
+		final IndexSet indices = subrange.getIndexSet();
 		double dimension = data.realMax(axisIndex) - data.realMin(axisIndex);
-		if (indices.get(0) > dimension) {
+		if (indices.first() > dimension) {
 			err =
 				"Axis range fully beyond dimensions of display " + display.getName() +
 					" for axis " + axis;
 			return false;
 		}
-		if (indices.get(indices.size() - 1) > dimension) {
+		if (indices.last() > dimension) {
 			err =
 				"Axis range partially beyond dimensions of display " +
 					display.getName() + " for axis " + axis;
@@ -0,0 +1,430 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imagej.ImgPlus;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.DoubleAccess;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.numeric.real.DoubleType;
+
+/**
+ * A table of double-precision floating point values whose columns are
+ * memory-mapped files, for measurements which exceed the heap.
+ * <p>
+ * The table lives in a directory holding one file per column plus a small
+ * index of the headers and row count. Column files grow in fixed chunks of
+ * rows, each mapped once, so that appending rows never remaps existing data
+ * and reopening a table maps its files without reading them.
+ * </p>
+ * <p>
+ * The accessors mirror those of {@link ResultsTable}, but this table is
+ * deliberately not one. A {@code DoubleTable} is a list of
+ * {@code DoubleColumn}s, each of which is a {@code DoubleArray} keeping its
+ * values in a single heap array: resizing a column reallocates that array,
+ * inserting or removing rows shifts it in place, and callers such as
+ * {@link ResultsImg} and the table displays read and write it directly through
+ * {@code getArray()}. A column backed by mapped files would have to override
+ * nearly all of that class, and each code path left to it would silently
+ * allocate the whole column on the heap, or change a copy of it, defeating the
+ * purpose of this table. Instead, {@link #img()} wraps this table without
+ * copying it, and {@link #toResultsTable()} copies it into a
+ * {@link ResultsTable} on demand, for tables which fit in the heap.
+ * </p>
+ * <p>
+ * Columns and rows can only be appended. Changes are persisted by
+ * {@link #flush()} and {@link #close()}.
+ * </p>
+ */
+public class MappedResultsTable implements Closeable {
+
+	/** Base two logarithm of the number of rows in each mapped chunk. */
+	private static final int CHUNK_SHIFT = 20;
+
+	private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+
+	private static final long CHUNK_BYTES = (long) CHUNK_ROWS * Double.BYTES;
+
+	private static final String INDEX_FILE = "table.index";
+
+	/** Identifies an index file, and the version of its format. */
+	private static final int MAGIC = 0x4D525401;
+
+	private final Path dir;
+	private final List<MappedColumn> columns = new ArrayList<>();
+	private int rowCount;
+
+	private MappedResultsTable(final Path dir) {
+		this.dir = dir;
+	}
+
+	/** Creates an empty table in the given directory. */
+	public static MappedResultsTable create(final Path dir) throws IOException {
+		Files.createDirectories(dir);
+		if (Files.exists(dir.resolve(INDEX_FILE))) {
+			throw new IOException("Table already exists: " + dir);
+		}
+		final MappedResultsTable table = new MappedResultsTable(dir);
+		table.writeIndex();
+		return table;
+	}
+
+	/** Opens the table in the given directory. */
+	public static MappedResultsTable open(final Path dir) throws IOException {
+		final MappedResultsTable table = new MappedResultsTable(dir);
+		try (final DataInputStream in = new DataInputStream(
+			new BufferedInputStream(Files.newInputStream(dir.resolve(INDEX_FILE)))))
+		{
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a results table: " + dir);
+			}
+			final int rows = in.readInt();
+			final int cols = in.readInt();
+			try {
+				for (int c = 0; c < cols; c++) {
+					final MappedColumn column = new MappedColumn(table.columnFile(c), in
+						.readUTF());
+					table.columns.add(column);
+					column.ensureRows(rows);
+				}
+			}
+			catch (final IOException exc) {
+				// NB: Do not flush, which would overwrite the index.
+				table.closeColumns(exc);
+				throw exc;
+			}
+			table.rowCount = rows;
+		}
+		return table;
+	}
+
+	// -- MappedResultsTable methods --
+
+	/** Gets the directory storing this table. */
+	public Path getDirectory() {
+		return dir;
+	}
+
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public String getColumnHeader(final int col) {
+		return columns.get(col).header;
+	}
+
+	/** Gets the index of the column with the given header, or -1 if none. */
+	public int getColumnIndex(final String header) {
+		for (int c = 0; c < columns.size(); c++) {
+			if (columns.get(c).header.equals(header)) return c;
+		}
+		return -1;
+	}
+
+	public double getValue(final int col, final int row) {
+		checkRow(row);
+		return columns.get(col).getValue(row);
+	}
+
+	public void setValue(final int col, final int row, final double value) {
+		checkRow(row);
+		columns.get(col).setValue(row, value);
+	}
+
+	/**
+	 * Appends a column of zeroes with the given header.
+	 *
+	 * @return The index of the new column.
+	 */
+	public int appendColumn(final String header) throws IOException {
+		final MappedColumn column = new MappedColumn(columnFile(columns.size()),
+			header);
+		columns.add(column);
+		column.ensureRows(rowCount);
+		column.clear(0, rowCount);
+		return columns.size() - 1;
+	}
+
+	/** Appends a row of zeroes. */
+	public void appendRow() throws IOException {
+		appendRows(1);
+	}
+
+	/** Appends a row with the given values, one per column. */
+	public void appendRow(final double... values) throws IOException {
+		if (values.length != columns.size()) {
+			throw new IllegalArgumentException("Expected " + columns.size() +
+				" values but got " + values.length);
+		}
+		appendRows(1);
+		for (int c = 0; c < values.length; c++) {
+			columns.get(c).setValue(rowCount - 1, values[c]);
+		}
+	}
+
+	/** Appends the given number of rows of zeroes. */
+	public void appendRows(final int count) throws IOException {
+		if (count < 0) throw new IllegalArgumentException("Negative count");
+		final long rows = (long) rowCount + count;
+		if (rows > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many rows: " + rows);
+		}
+		for (final MappedColumn column : columns) {
+			column.ensureRows((int) rows);
+			// NB: Clear data left beyond the last row count which was flushed.
+			column.clear(rowCount, (int) rows);
+		}
+		rowCount = (int) rows;
+	}
+
+	/**
+	 * Performs the given operation on each column of the table, in parallel.
+	 * The operation receives the column's mapped storage, indexed by row.
+	 */
+	public void forEachColumn(final ColumnOp op) {
+		final int rows = rowCount;
+		final List<Integer> indices = new ArrayList<>(columns.size());
+		for (int c = 0; c < columns.size(); c++) {
+			indices.add(c);
+		}
+		Parallelization.getTaskExecutor().forEach(indices, c -> op.apply(c,
+			columns.get(c), rows));
+	}
+
+	/** Wraps the table in an ImgLib {@link Img}, without copying it. */
+	public ImgPlus<DoubleType> img() {
+		final Img<DoubleType> img = new ResultsImg(new ResultsImg.Columns() {
+
+			@Override
+			public int getColumnCount() {
+				return MappedResultsTable.this.getColumnCount();
+			}
+
+			@Override
+			public int getRowCount() {
+				return MappedResultsTable.this.getRowCount();
+			}
+
+			@Override
+			public DoubleAccess column(final int c) {
+				return columns.get(c);
+			}
+
+			@Override
+			public double[] array(final int c) {
+				return null;
+			}
+		});
+		final AxisType[] axes = { Axes.X, Axes.Y };
+		final String name = dir.getFileName() == null ? "Results" : dir
+			.getFileName().toString();
+		return new ImgPlus<>(img, name, axes);
+	}
+
+	/**
+	 * Copies the table into a new {@link ResultsTable} on the heap, e.g. to
+	 * display it, or process it with code expecting a {@code DoubleTable}.
+	 * Changes to the copy are not written back to this table.
+	 */
+	public ResultsTable toResultsTable() {
+		final int rows = rowCount;
+		final ResultsTable table = new DefaultResultsTable(columns.size(), rows);
+		for (int c = 0; c < columns.size(); c++) {
+			final MappedColumn column = columns.get(c);
+			table.setColumnHeader(c, column.header);
+			final double[] values = table.get(c).getArray();
+			for (int r = 0; r < rows; r++) {
+				values[r] = column.getValue(r);
+			}
+		}
+		return table;
+	}
+
+	/** Writes all changes to disk. */
+	public void flush() throws IOException {
+		for (final MappedColumn column : columns) {
+			column.force();
+		}
+		// NB: Write the index last, so it never counts rows not yet on disk.
+		writeIndex();
+	}
+
+	// -- Closeable methods --
+
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+		try {
+			flush();
+		}
+		catch (final IOException exc) {
+			error = exc;
+		}
+		error = closeColumns(error);
+		if (error != null) throw error;
+	}
+
+	// -- Helper methods --
+
+	private Path columnFile(final int col) {
+		return dir.resolve("column-" + col + ".dat");
+	}
+
+	private void checkRow(final int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("Invalid row: " + row);
+		}
+	}
+
+	/**
+	 * Closes the column files, adding any failures to the given error.
+	 *
+	 * @return The given error, or the first failure if there was none.
+	 */
+	private IOException closeColumns(IOException error) {
+		for (final MappedColumn column : columns) {
+			try {
+				column.channel.close();
+			}
+			catch (final IOException exc) {
+				if (error == null) error = exc;
+				else error.addSuppressed(exc);
+			}
+		}
+		return error;
+	}
+
+	private void writeIndex() throws IOException {
+		final Path index = dir.resolve(INDEX_FILE);
+		final Path temp = dir.resolve(INDEX_FILE + ".tmp");
+		try (final DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(Files.newOutputStream(temp))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(rowCount);
+			out.writeInt(columns.size());
+			for (final MappedColumn column : columns) {
+				out.writeUTF(column.header);
+			}
+		}
+		Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// -- Helper classes --
+
+	/** An operation on the values of one column. */
+	@FunctionalInterface
+	public interface ColumnOp {
+
+		void apply(int column, DoubleAccess values, int rowCount);
+	}
+
+	/** A column file, mapped chunk by chunk, and indexed by row. */
+	private static class MappedColumn implements DoubleAccess {
+
+		private final FileChannel channel;
+		private final String header;
+		private MappedByteBuffer[] mapped = new MappedByteBuffer[0];
+		private DoubleBuffer[] chunks = new DoubleBuffer[0];
+
+		public MappedColumn(final Path file, final String header)
+			throws IOException
+		{
+			channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.header = header;
+		}
+
+		/** Maps enough chunks to hold the given number of rows. */
+		public void ensureRows(final int rows) throws IOException {
+			final int count = (int) (((long) rows + CHUNK_ROWS - 1) >> CHUNK_SHIFT);
+			if (count <= chunks.length) return;
+			final int start = chunks.length;
+			mapped = Arrays.copyOf(mapped, count);
+			chunks = Arrays.copyOf(chunks, count);
+			for (int k = start; k < count; k++) {
+				// NB: Mapping past the end of the file extends it.
+				mapped[k] = channel.map(FileChannel.MapMode.READ_WRITE, k * CHUNK_BYTES,
+					CHUNK_BYTES);
+				// NB: Fix the byte order, so files are portable.
+				chunks[k] = mapped[k].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			}
+		}
+
+		/** Zeroes the rows in {@code [from, to)}. */
+		public void clear(final int from, final int to) {
+			for (int row = from; row < to; row++) {
+				setValue(row, 0);
+			}
+		}
+
+		public void force() {
+			for (final MappedByteBuffer buffer : mapped) {
+				buffer.force();
+			}
+		}
+
+		@Override
+		public double getValue(final int index) {
+			return chunks[index >>> CHUNK_SHIFT].get(index & (CHUNK_ROWS - 1));
+		}
+
+		@Override
+		public void setValue(final int index, final double value) {
+			chunks[index >>> CHUNK_SHIFT].put(index & (CHUNK_ROWS - 1), value);
+		}
+	}
+
+}
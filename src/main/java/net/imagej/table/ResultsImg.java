@@ -29,42 +29,89 @@
 
 package net.imagej.table;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
+import net.imglib2.AbstractLocalizableInt;
+import net.imglib2.AbstractLocalizingCursorInt;
 import net.imglib2.Cursor;
+import net.imglib2.FlatIterationOrder;
 import net.imglib2.Interval;
+import net.imglib2.Localizable;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.DoubleAccess;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.type.numeric.real.DoubleType;
 
 /**
  * Expresses a {@link ResultsTable} as an {@link Img}.
+ * <p>
+ * Dimension 0 indexes the columns and dimension 1 the rows. Samples are read
+ * and written directly in the storage of the table's columns, as it is when
+ * an accessor is created; accessors do not see columns or rows added to the
+ * table afterwards.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public class ResultsImg implements Img<DoubleType> {
 
-	private final ResultsTable table;
+	private final Columns table;
 
 	public ResultsImg(final ResultsTable table) {
+		this(columnsOf(table));
+	}
+
+	ResultsImg(final Columns table) {
 		this.table = table;
 	}
 
+	// -- ResultsImg methods --
+
+	/**
+	 * Performs the given operation on each column of the table, in parallel.
+	 * The operation receives the column's backing array, whose length may
+	 * exceed the row count.
+	 * 
+	 * @throws UnsupportedOperationException if the columns are not held in
+	 *           arrays, as for {@link MappedResultsTable#img()}; use
+	 *           {@link MappedResultsTable#forEachColumn} there instead.
+	 */
+	public void forEachColumn(final ColumnOp op) {
+		final int rows = dim1();
+		final double[][] arrays = new double[dim0()][];
+		final List<Integer> columns = new ArrayList<>(arrays.length);
+		for (int c = 0; c < arrays.length; c++) {
+			arrays[c] = table.array(c);
+			if (arrays[c] == null) {
+				throw new UnsupportedOperationException("Column " + c +
+					" is not backed by an array");
+			}
+			columns.add(c);
+		}
+		Parallelization.getTaskExecutor().forEach(columns, c -> op.apply(c,
+			arrays[c], rows));
+	}
+
 	// -- RandomAccessible methods --
 
 	@Override
 	public RandomAccess<DoubleType> randomAccess() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return new ResultsRandomAccess(columns());
 	}
 
 	@Override
 	public RandomAccess<DoubleType> randomAccess(final Interval interval) {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return randomAccess();
 	}
 
 	// -- EuclideanSpace methods --
@@ -108,8 +155,8 @@ public class ResultsImg implements Img<DoubleType> {
 
 	@Override
 	public void max(final Positionable max) {
-		max.setPosition(0, max0());
-		max.setPosition(0, max1());
+		max.setPosition(max0(), 0);
+		max.setPosition(max1(), 1);
 	}
 
 	// -- RealInterval methods --
@@ -136,8 +183,8 @@ public class ResultsImg implements Img<DoubleType> {
 
 	@Override
 	public void realMax(final double[] max) {
-		max[0] = table.getColumnCount();
-		max[1] = table.getRowCount();
+		max[0] = max0();
+		max[1] = max1();
 	}
 
 	@Override
@@ -164,14 +211,12 @@ public class ResultsImg implements Img<DoubleType> {
 
 	@Override
 	public Cursor<DoubleType> cursor() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return new ResultsCursor(columns(), dim1());
 	}
 
 	@Override
 	public Cursor<DoubleType> localizingCursor() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return cursor();
 	}
 
 	@Override
@@ -181,39 +226,72 @@ public class ResultsImg implements Img<DoubleType> {
 
 	@Override
 	public DoubleType firstElement() {
-		return new DoubleType(table.get(0, 0));
+		return cursor().next();
 	}
 
 	@Override
 	public Object iterationOrder() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return new FlatIterationOrder(this);
 	}
 
 	// -- Iterable methods --
 
 	@Override
 	public Iterator<DoubleType> iterator() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return cursor();
 	}
 
 	// -- Img methods --
 
 	@Override
 	public ImgFactory<DoubleType> factory() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		return new ArrayImgFactory<>(new DoubleType());
 	}
 
 	@Override
 	public Img<DoubleType> copy() {
-		// TODO
-		throw new UnsupportedOperationException("Unimplemented");
+		final int cols = dim0(), rows = dim1();
+		final double[] data = new double[cols * rows];
+		final DoubleAccess[] columns = columns();
+		for (int c = 0; c < cols; c++) {
+			final DoubleAccess column = columns[c];
+			for (int r = 0; r < rows; r++) {
+				data[r * cols + c] = column.getValue(r);
+			}
+		}
+		final ArrayImg<DoubleType, DoubleArray> copy = //
+			ArrayImgs.doubles(data, cols, rows);
+		return copy;
 	}
 
 	// -- Helper methods --
 
+	private static Columns columnsOf(final ResultsTable table) {
+		return new Columns() {
+
+			@Override
+			public int getColumnCount() {
+				return table.getColumnCount();
+			}
+
+			@Override
+			public int getRowCount() {
+				return table.getRowCount();
+			}
+
+			@Override
+			public DoubleAccess column(final int c) {
+				// NB: Wraps the column's backing array, without copying it.
+				return new DoubleArray(array(c));
+			}
+
+			@Override
+			public double[] array(final int c) {
+				return table.get(c).getArray();
+			}
+		};
+	}
+
 	private int dim0() {
 		return table.getColumnCount();
 	}
@@ -230,4 +308,241 @@ public class ResultsImg implements Img<DoubleType> {
 		return dim1() - 1;
 	}
 
+	/** Gets the storage of the table's columns. */
+	private DoubleAccess[] columns() {
+		final DoubleAccess[] columns = new DoubleAccess[dim0()];
+		for (int c = 0; c < columns.length; c++) {
+			columns[c] = table.column(c);
+		}
+		return columns;
+	}
+
+	// -- Helper classes --
+
+	/** An operation on the values of one column. */
+	@FunctionalInterface
+	public interface ColumnOp {
+
+		void apply(int column, double[] values, int rowCount);
+	}
+
+	/** The table viewed by a {@link ResultsImg}. */
+	interface Columns {
+
+		int getColumnCount();
+
+		int getRowCount();
+
+		/** Gets the storage of the given column, indexed by row. */
+		DoubleAccess column(int c);
+
+		/** Gets the backing array of the given column, or null if it has none. */
+		double[] array(int c);
+	}
+
+	/**
+	 * Reads and writes the current column; samples are indexed by row. Each
+	 * accessor has its own, so that one {@link DoubleType} follows it.
+	 */
+	private static class ColumnAccess implements DoubleAccess {
+
+		private final DoubleAccess[] columns;
+		private DoubleAccess column;
+
+		public ColumnAccess(final DoubleAccess[] columns) {
+			this.columns = columns;
+		}
+
+		public void setColumn(final int c) {
+			// NB: Accessors may move out of bounds, so long as they do not read.
+			column = c >= 0 && c < columns.length ? columns[c] : null;
+		}
+
+		@Override
+		public double getValue(final int index) {
+			return column.getValue(index);
+		}
+
+		@Override
+		public void setValue(final int index, final double value) {
+			column.setValue(index, value);
+		}
+	}
+
+	private static class ResultsRandomAccess extends AbstractLocalizableInt
+		implements RandomAccess<DoubleType>
+	{
+
+		private final DoubleAccess[] columns;
+		private final ColumnAccess access;
+		private final DoubleType type;
+
+		public ResultsRandomAccess(final DoubleAccess[] columns) {
+			super(2);
+			this.columns = columns;
+			access = new ColumnAccess(columns);
+			type = new DoubleType(access);
+			access.setColumn(0);
+		}
+
+		private ResultsRandomAccess(final ResultsRandomAccess ra) {
+			this(ra.columns);
+			setPosition(ra.position);
+		}
+
+		@Override
+		public DoubleType get() {
+			return type;
+		}
+
+		@Override
+		public ResultsRandomAccess copy() {
+			return new ResultsRandomAccess(this);
+		}
+
+		@Override
+		public void fwd(final int d) {
+			setPosition(position[d] + 1, d);
+		}
+
+		@Override
+		public void bck(final int d) {
+			setPosition(position[d] - 1, d);
+		}
+
+		@Override
+		public void move(final int distance, final int d) {
+			setPosition(position[d] + distance, d);
+		}
+
+		@Override
+		public void move(final long distance, final int d) {
+			move((int) distance, d);
+		}
+
+		@Override
+		public void move(final Localizable localizable) {
+			for (int d = 0; d < 2; d++) {
+				move(localizable.getIntPosition(d), d);
+			}
+		}
+
+		@Override
+		public void move(final int[] distance) {
+			for (int d = 0; d < 2; d++) {
+				move(distance[d], d);
+			}
+		}
+
+		@Override
+		public void move(final long[] distance) {
+			for (int d = 0; d < 2; d++) {
+				move(distance[d], d);
+			}
+		}
+
+		@Override
+		public void setPosition(final Localizable localizable) {
+			for (int d = 0; d < 2; d++) {
+				setPosition(localizable.getIntPosition(d), d);
+			}
+		}
+
+		@Override
+		public void setPosition(final int[] pos) {
+			for (int d = 0; d < 2; d++) {
+				setPosition(pos[d], d);
+			}
+		}
+
+		@Override
+		public void setPosition(final long[] pos) {
+			for (int d = 0; d < 2; d++) {
+				setPosition(pos[d], d);
+			}
+		}
+
+		@Override
+		public void setPosition(final int pos, final int d) {
+			position[d] = pos;
+			if (d == 0) access.setColumn(pos);
+			else type.index().set(pos);
+		}
+
+		@Override
+		public void setPosition(final long pos, final int d) {
+			setPosition((int) pos, d);
+		}
+	}
+
+	/** Visits the samples row by row, reading along each row's columns. */
+	private static class ResultsCursor extends
+		AbstractLocalizingCursorInt<DoubleType>
+	{
+
+		private final DoubleAccess[] columns;
+		private final int rows;
+		private final long last;
+		private final ColumnAccess access;
+		private final DoubleType type;
+		private long index;
+
+		public ResultsCursor(final DoubleAccess[] columns, final int rows) {
+			super(2);
+			this.columns = columns;
+			this.rows = rows;
+			last = (long) columns.length * rows - 1;
+			access = new ColumnAccess(columns);
+			type = new DoubleType(access);
+			reset();
+		}
+
+		private ResultsCursor(final ResultsCursor cursor) {
+			this(cursor.columns, cursor.rows);
+			if (cursor.index >= 0) jumpFwd(cursor.index + 1);
+		}
+
+		@Override
+		public DoubleType get() {
+			return type;
+		}
+
+		@Override
+		public ResultsCursor copy() {
+			return new ResultsCursor(this);
+		}
+
+		@Override
+		public void fwd() {
+			index++;
+			if (++position[0] == columns.length) {
+				position[0] = 0;
+				type.index().set(++position[1]);
+			}
+			access.setColumn(position[0]);
+		}
+
+		@Override
+		public void jumpFwd(final long steps) {
+			index += steps;
+			position[0] = (int) (index % columns.length);
+			position[1] = (int) (index / columns.length);
+			access.setColumn(position[0]);
+			type.index().set(position[1]);
+		}
+
+		@Override
+		public void reset() {
+			index = -1;
+			position[0] = -1;
+			position[1] = 0;
+			type.index().set(0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < last;
+		}
+	}
+
 }
@@ -32,6 +32,7 @@ package net.imagej.types;
 import java.util.List;
 
 import net.imagej.ImageJService;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.NumericType;
 
 import org.scijava.plugin.SingletonService;
@@ -102,4 +103,36 @@ public interface DataTypeService extends SingletonService<DataType<?>>,
 	<U extends NumericType<U>, V extends NumericType<V>> void cast(
 		DataType<U> inputType, U input, DataType<V> outputType, V output,
 		BigComplex tmp);
+
+	/**
+	 * Fills an output image with a cast from an input image of the same
+	 * dimensions, given information about their DataTypes. The result is the
+	 * same as casting each sample in turn, but the cast is chosen once for the
+	 * whole image, runs in parallel and, where both images are stored in
+	 * primitive arrays of built-in types, converts those arrays directly.
+	 * 
+	 * @param inputType The DataType of the input.
+	 * @param input The input image to cast from.
+	 * @param outputType The DataType of the output
+	 * @param output The output image to cast into.
+	 */
+	<U extends NumericType<U>, V extends NumericType<V>> void cast(
+		DataType<U> inputType, RandomAccessibleInterval<U> input,
+		DataType<V> outputType, RandomAccessibleInterval<V> output);
+
+	/**
+	 * Fills an output array with a cast from an input array of the same length,
+	 * given information about their DataTypes. The arrays must be the storage
+	 * arrays of the types (e.g., {@code byte[]} for 8-bit integers), so only
+	 * types stored as one primitive value per sample are supported.
+	 * 
+	 * @param inputType The DataType of the input.
+	 * @param input The input array to cast from.
+	 * @param outputType The DataType of the output
+	 * @param output The output array to cast into.
+	 * @throws IllegalArgumentException if the types are not stored as one
+	 *           primitive per sample, or the arrays do not match them.
+	 */
+	void castArray(DataType<?> inputType, Object input, DataType<?> outputType,
+		Object output);
 }
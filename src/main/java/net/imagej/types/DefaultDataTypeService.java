@@ -36,7 +36,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.loops.LoopBuilder;
 import net.imglib2.type.numeric.NumericType;
+import net.imglib2.util.Intervals;
 
 import org.scijava.plugin.AbstractSingletonService;
 import org.scijava.plugin.Plugin;
@@ -140,24 +143,28 @@ public class DefaultDataTypeService extends
 		{
 			long val = inputType.asLong(input);
 			outputType.setLong(output, val);
+			return;
 		}
-		else if (inputType.hasDoubleRepresentation() &&
+		if (inputType.hasDoubleRepresentation() &&
 			outputType.hasDoubleRepresentation())
 		{
 			double val = inputType.asDouble(input);
 			outputType.setDouble(output, val);
+			return;
 		}
-		else if (inputType.hasLongRepresentation() &&
+		if (inputType.hasLongRepresentation() &&
 			outputType.hasDoubleRepresentation())
 		{
 			long val = inputType.asLong(input);
 			outputType.setDouble(output, val);
+			return;
 		}
-		else if (inputType.hasDoubleRepresentation() &&
+		if (inputType.hasDoubleRepresentation() &&
 			outputType.hasLongRepresentation())
 		{
 			double val = inputType.asDouble(input);
 			outputType.setLong(output, (long) val);
+			return;
 		}
 
 		if (tmp == null) {
@@ -170,4 +177,70 @@ public class DefaultDataTypeService extends
 		inputType.cast(input, tmp);
 		outputType.cast(tmp, output);
 	}
+
+	@Override
+	public <U extends NumericType<U>, V extends NumericType<V>> void cast(
+		DataType<U> inputType, RandomAccessibleInterval<U> input,
+		DataType<V> outputType, RandomAccessibleInterval<V> output)
+	{
+		if (!Intervals.equalDimensions(input, output)) {
+			throw new IllegalArgumentException("Input and output dimensions differ");
+		}
+
+		// fastest: convert the storage arrays directly
+		final PrimitiveCaster caster = PrimitiveCaster.create(inputType,
+			outputType);
+		if (caster != null && caster.cast(input, output)) return;
+
+		// otherwise pick the per-sample cast once, as in the single value case
+		final LoopBuilder<LoopBuilder.BiConsumer<U, V>> loop = LoopBuilder
+			.setImages(input, output).multiThreaded();
+		if (inputType.hasLongRepresentation() && outputType.hasLongRepresentation())
+		{
+			loop.forEachPixel((in, out) -> outputType.setLong(out, inputType.asLong(
+				in)));
+		}
+		else if (inputType.hasDoubleRepresentation() &&
+			outputType.hasDoubleRepresentation())
+		{
+			loop.forEachPixel((in, out) -> outputType.setDouble(out, inputType
+				.asDouble(in)));
+		}
+		else if (inputType.hasLongRepresentation() &&
+			outputType.hasDoubleRepresentation())
+		{
+			loop.forEachPixel((in, out) -> outputType.setDouble(out, inputType
+				.asLong(in)));
+		}
+		else if (inputType.hasDoubleRepresentation() &&
+			outputType.hasLongRepresentation())
+		{
+			loop.forEachPixel((in, out) -> outputType.setLong(out, (long) inputType
+				.asDouble(in)));
+		}
+		else {
+			// NB: Each chunk gets its own temporary.
+			loop.forEachChunk(chunk -> {
+				final BigComplex tmp = new BigComplex();
+				chunk.forEachPixel((in, out) -> {
+					inputType.cast(in, tmp);
+					outputType.cast(tmp, out);
+				});
+				return null;
+			});
+		}
+	}
+
+	@Override
+	public void castArray(DataType<?> inputType, Object input,
+		DataType<?> outputType, Object output)
+	{
+		final PrimitiveCaster caster = PrimitiveCaster.create(inputType,
+			outputType);
+		if (caster == null) {
+			throw new IllegalArgumentException("No primitive cast from " +
+				inputType.longName() + " to " + outputType.longName());
+		}
+		caster.cast(input, output);
+	}
 }
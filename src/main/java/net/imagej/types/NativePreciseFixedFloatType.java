@@ -0,0 +1,520 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.types;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.Index;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Fraction;
+
+/**
+ * A fixed point floating numeric type of fixed width, stored natively.
+ * <p>
+ * Like {@link PreciseFixedFloatType}, a value is an integer scaled by a power
+ * of ten, but here it is held in a fixed number of {@code long} words as a
+ * two's complement integer, so images of this type are backed by primitive
+ * arrays. Addition, subtraction, increment and decrement work on those words
+ * in place without allocating, which makes the type suitable for accumulating
+ * high precision sums over whole images. Other operations go through
+ * {@link BigInteger}s.
+ * </p>
+ * <p>
+ * Results which do not fit in the words of a value throw an
+ * {@link ArithmeticException}; the value is undefined afterwards.
+ * </p>
+ */
+public class NativePreciseFixedFloatType implements
+	RealType<NativePreciseFixedFloatType>,
+	NativeType<NativePreciseFixedFloatType>
+{
+
+	// -- constants --
+
+	/**
+	 * The default number of words per value: enough for 25 decimal places and
+	 * magnitudes up to about 10^32.
+	 */
+	public static final int DEFAULT_WORDS = 3;
+
+	// -- fields --
+
+	private final int places;
+	private final int words;
+	private final BigInteger scale;
+
+	private final Index i;
+	private final NativeImg<?, ? extends LongAccess> img;
+	private LongAccess dataAccess;
+
+	/** The value one, as words, for {@link #inc()} and {@link #dec()}. */
+	private LongAccess one;
+
+	// -- constructors --
+
+	public NativePreciseFixedFloatType() {
+		this(PreciseFixedFloatType.DECIMAL_PLACES, DEFAULT_WORDS);
+	}
+
+	public NativePreciseFixedFloatType(final int places, final int words) {
+		this(null, places, words);
+		dataAccess = new LongArray(words);
+	}
+
+	public NativePreciseFixedFloatType(
+		final NativeImg<?, ? extends LongAccess> img, final int places,
+		final int words)
+	{
+		if (places < 0) {
+			throw new IllegalArgumentException("Negative decimal places: " + places);
+		}
+		if (words < 1) {
+			throw new IllegalArgumentException("Invalid word count: " + words);
+		}
+		this.places = places;
+		this.words = words;
+		scale = PreciseFixedFloatType.powerOfTen(places);
+		if (scale.bitLength() >= 64 * words) {
+			throw new IllegalArgumentException(words + " words cannot hold " +
+				places + " decimal places");
+		}
+		i = new Index();
+		this.img = img;
+	}
+
+	// -- NativePreciseFixedFloatType methods --
+
+	/** Gets the number of decimal places of this value. */
+	public int getDecimalPlaces() {
+		return places;
+	}
+
+	/** Gets the number of {@code long} words storing each value. */
+	public int getWords() {
+		return words;
+	}
+
+	/** Gets this value as an integer scaled by ten to the decimal places. */
+	public BigInteger getScaledValue() {
+		final int base = base();
+		final long low = dataAccess.getValue(base);
+		if (isLong(base, low)) return BigInteger.valueOf(low);
+		final byte[] bytes = new byte[8 * words];
+		for (int w = 0; w < words; w++) {
+			long v = dataAccess.getValue(base + w);
+			// NB: Word w is least significant first; bytes are most significant.
+			final int end = 8 * (words - w);
+			for (int b = end - 1; b >= end - 8; b--) {
+				bytes[b] = (byte) v;
+				v >>= 8;
+			}
+		}
+		return new BigInteger(bytes);
+	}
+
+	/** Sets this value from an integer scaled by ten to the decimal places. */
+	public void setScaledValue(final BigInteger v) {
+		if (v.bitLength() >= 64 * words) {
+			throw new ArithmeticException("Value does not fit in " + 64 * words +
+				" bits");
+		}
+		final int base = base();
+		if (v.bitLength() < 64) {
+			final long low = v.longValue();
+			dataAccess.setValue(base, low);
+			for (int w = 1; w < words; w++) {
+				dataAccess.setValue(base + w, low >> 63);
+			}
+			return;
+		}
+		for (int w = 0; w < words; w++) {
+			dataAccess.setValue(base + w, v.shiftRight(64 * w).longValue());
+		}
+	}
+
+	public BigDecimal get() {
+		BigDecimal value = new BigDecimal(getScaledValue(), places)
+			.stripTrailingZeros();
+		return value.scale() < 0 ? value.setScale(0) : value;
+	}
+
+	/** Copies this value into the given one, at its decimal places. */
+	public void get(final PreciseFixedFloatType dest) {
+		dest.setScaledValue(PreciseFixedFloatType.rescale(getScaledValue(), places,
+			dest.getDecimalPlaces()));
+	}
+
+	public void set(final PreciseFixedFloatType v) {
+		setScaledValue(PreciseFixedFloatType.rescale(v.getScaledValue(), v
+			.getDecimalPlaces(), places));
+	}
+
+	public void set(final double v) {
+		set(BigDecimal.valueOf(v));
+	}
+
+	public void set(final long v) {
+		set(BigInteger.valueOf(v));
+	}
+
+	public void set(final BigInteger v) {
+		setScaledValue(v.multiply(scale));
+	}
+
+	public void set(final BigDecimal v) {
+		setScaledValue(v.movePointRight(places).toBigInteger());
+	}
+
+	public void negate() {
+		final BigInteger v = getScaledValue();
+		setScaledValue(v.negate());
+	}
+
+	public void abs() {
+		if (dataAccess.getValue(base() + words - 1) < 0) negate();
+	}
+
+	// -- NativeType methods --
+
+	@Override
+	public Fraction getEntitiesPerPixel() {
+		return new Fraction(words, 1);
+	}
+
+	@Override
+	public NativePreciseFixedFloatType duplicateTypeOnSameNativeImg() {
+		return new NativePreciseFixedFloatType(img, places, words);
+	}
+
+	@Override
+	public NativeTypeFactory<NativePreciseFixedFloatType, LongAccess>
+		getNativeTypeFactory()
+	{
+		return NativeTypeFactory.LONG(img -> new NativePreciseFixedFloatType(img,
+			places, words));
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		dataAccess = img.update(c);
+	}
+
+	@Override
+	public Index index() {
+		return i;
+	}
+
+	// -- RealType methods --
+
+	@Override
+	public double getRealDouble() {
+		return new BigDecimal(getScaledValue(), places).doubleValue();
+	}
+
+	@Override
+	public float getRealFloat() {
+		return new BigDecimal(getScaledValue(), places).floatValue();
+	}
+
+	@Override
+	public double getImaginaryDouble() {
+		return 0;
+	}
+
+	@Override
+	public float getImaginaryFloat() {
+		return 0;
+	}
+
+	@Override
+	public void setReal(final float v) {
+		set(v);
+	}
+
+	@Override
+	public void setReal(final double v) {
+		set(v);
+	}
+
+	@Override
+	public void setImaginary(final float v) {
+		// do nothing
+	}
+
+	@Override
+	public void setImaginary(final double v) {
+		// do nothing
+	}
+
+	@Override
+	public void setComplexNumber(final float r, final float i) {
+		set(r);
+	}
+
+	@Override
+	public void setComplexNumber(final double r, final double i) {
+		set(r);
+	}
+
+	@Override
+	public float getPowerFloat() {
+		return getRealFloat();
+	}
+
+	@Override
+	public double getPowerDouble() {
+		return getRealDouble();
+	}
+
+	@Override
+	public float getPhaseFloat() {
+		return 0;
+	}
+
+	@Override
+	public double getPhaseDouble() {
+		return 0;
+	}
+
+	@Override
+	public void complexConjugate() {
+		// do nothing
+	}
+
+	@Override
+	public void pow(final NativePreciseFixedFloatType c) {
+		setReal(Math.pow(getRealDouble(), c.getRealDouble()));
+	}
+
+	@Override
+	public void pow(final double c) {
+		setReal(Math.pow(getRealDouble(), c));
+	}
+
+	@Override
+	public void add(final NativePreciseFixedFloatType v) {
+		if (sameLayout(v)) addWords(v.dataAccess, v.base(), false);
+		else setScaledValue(getScaledValue().add(amountOf(v)));
+	}
+
+	@Override
+	public void sub(final NativePreciseFixedFloatType v) {
+		if (sameLayout(v)) addWords(v.dataAccess, v.base(), true);
+		else setScaledValue(getScaledValue().subtract(amountOf(v)));
+	}
+
+	@Override
+	public void mul(final NativePreciseFixedFloatType v) {
+		setScaledValue(getScaledValue().multiply(amountOf(v)).divide(scale));
+	}
+
+	@Override
+	public void div(final NativePreciseFixedFloatType v) {
+		setScaledValue(getScaledValue().multiply(scale).divide(amountOf(v)));
+	}
+
+	@Override
+	public void setZero() {
+		final int base = base();
+		for (int w = 0; w < words; w++) {
+			dataAccess.setValue(base + w, 0);
+		}
+	}
+
+	@Override
+	public void setOne() {
+		setScaledValue(scale);
+	}
+
+	@Override
+	public void mul(final float v) {
+		mul(BigDecimal.valueOf(v));
+	}
+
+	@Override
+	public void mul(final double v) {
+		mul(BigDecimal.valueOf(v));
+	}
+
+	public void mul(final BigDecimal v) {
+		setScaledValue(new BigDecimal(getScaledValue()).multiply(v)
+			.toBigInteger());
+	}
+
+	@Override
+	public NativePreciseFixedFloatType createVariable() {
+		return new NativePreciseFixedFloatType(places, words);
+	}
+
+	@Override
+	public NativePreciseFixedFloatType copy() {
+		final NativePreciseFixedFloatType copy = createVariable();
+		copy.set(this);
+		return copy;
+	}
+
+	@Override
+	public void set(final NativePreciseFixedFloatType other) {
+		if (!sameLayout(other)) {
+			setScaledValue(amountOf(other));
+			return;
+		}
+		final int base = base(), otherBase = other.base();
+		for (int w = 0; w < words; w++) {
+			dataAccess.setValue(base + w, other.dataAccess.getValue(otherBase + w));
+		}
+	}
+
+	@Override
+	public int compareTo(final NativePreciseFixedFloatType other) {
+		if (!sameLayout(other)) return get().compareTo(other.get());
+		final int base = base(), otherBase = other.base();
+		final int top = words - 1;
+		final int c = Long.compare(dataAccess.getValue(base + top), //
+			other.dataAccess.getValue(otherBase + top));
+		if (c != 0) return c;
+		for (int w = top - 1; w >= 0; w--) {
+			final int cw = Long.compareUnsigned(dataAccess.getValue(base + w),
+				other.dataAccess.getValue(otherBase + w));
+			if (cw != 0) return cw;
+		}
+		return 0;
+	}
+
+	@Override
+	public void inc() {
+		addWords(one(), 0, false);
+	}
+
+	@Override
+	public void dec() {
+		addWords(one(), 0, true);
+	}
+
+	@Override
+	public double getMaxValue() {
+		return new BigDecimal(BigInteger.ONE.shiftLeft(64 * words - 1).subtract(
+			BigInteger.ONE), places).doubleValue();
+	}
+
+	@Override
+	public double getMinValue() {
+		return new BigDecimal(BigInteger.ONE.shiftLeft(64 * words - 1).negate(),
+			places).doubleValue();
+	}
+
+	@Override
+	public double getMinIncrement() {
+		return 1.0 / Math.pow(10, places); // TODO - prone to precision loss
+	}
+
+	@Override
+	public int getBitsPerPixel() {
+		return 64 * words;
+	}
+
+	@Override
+	public boolean valueEquals(final NativePreciseFixedFloatType t) {
+		return compareTo(t) == 0;
+	}
+
+	@Override
+	public String toString() {
+		return get().toString();
+	}
+
+	// -- Helper methods --
+
+	/** Gets the index of the least significant word of this value. */
+	private int base() {
+		return i.get() * words;
+	}
+
+	/** Whether the value is just its low word, sign extended. */
+	private boolean isLong(final int base, final long low) {
+		final long extension = low >> 63;
+		for (int w = 1; w < words; w++) {
+			if (dataAccess.getValue(base + w) != extension) return false;
+		}
+		return true;
+	}
+
+	private boolean sameLayout(final NativePreciseFixedFloatType other) {
+		return places == other.places && words == other.words;
+	}
+
+	/** Gets the scaled value of another number at the places of this one. */
+	private BigInteger amountOf(final NativePreciseFixedFloatType other) {
+		return PreciseFixedFloatType.rescale(other.getScaledValue(), other.places,
+			places);
+	}
+
+	private LongAccess one() {
+		if (one == null) {
+			final NativePreciseFixedFloatType v = createVariable();
+			v.setOne();
+			one = v.dataAccess;
+		}
+		return one;
+	}
+
+	/**
+	 * Adds the words at the given index of some storage to this value in place,
+	 * or subtracts them by adding their two's complement.
+	 */
+	private void addWords(final LongAccess src, final int srcBase,
+		final boolean subtract)
+	{
+		final int base = base();
+		long carry = subtract ? 1 : 0;
+		long a = 0, b = 0, sum = 0;
+		for (int w = 0; w < words; w++) {
+			a = dataAccess.getValue(base + w);
+			b = src.getValue(srcBase + w);
+			if (subtract) b = ~b;
+			sum = a + b + carry;
+			// NB: With a carry in, a sum equal to a also carries out.
+			final int c = Long.compareUnsigned(sum, a);
+			carry = c < 0 || (carry != 0 && c == 0) ? 1 : 0;
+			dataAccess.setValue(base + w, sum);
+		}
+		// NB: Signed overflow iff both operands differ in sign from the sum.
+		if (((a ^ sum) & (b ^ sum)) < 0) {
+			throw new ArithmeticException("Value does not fit in " + 64 * words +
+				" bits");
+		}
+	}
+}
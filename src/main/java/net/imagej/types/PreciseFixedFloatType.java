@@ -32,13 +32,17 @@ package net.imagej.types;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.imglib2.type.numeric.RealType;
 
 /**
- * A fixed point floating numeric type. Currently 25 decimal places of accuracy.
+ * A fixed point floating numeric type. By default 25 decimal places of
+ * accuracy; see {@link #withDecimalPlaces(int)} for other precisions.
  * 
  * @author Barry DeZonia
+ * @see NativePreciseFixedFloatType
  */
 public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 
@@ -46,24 +50,34 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	// Once merged then implement the exponential and trig methods to a fixed
 	// number of decimal places.
 
-	// Note that right now using BigComplex is a better choice for accuracy. This
-	// class eventually needs to allow user to configure the scale. After that
-	// and after writing accurate numerics we can move away from BigComplex.
+	// Note that right now using BigComplex is a better choice for accuracy.
+	// After writing accurate numerics we can move away from BigComplex.
 
 	// -- constants --
 
-	private static final int DECIMAL_PLACES = 25; // TODO - make user configurable
+	/** The default number of decimal places. */
+	public static final int DECIMAL_PLACES = 25;
+
+	/** Powers of ten, shared by all values with the same number of places. */
+	private static final ConcurrentMap<Integer, BigInteger> SCALES =
+		new ConcurrentHashMap<>();
 
 	// -- fields --
 
-	private BigInteger scale;
+	private final int places;
+	private final BigInteger scale;
 	private BigInteger amount;
 
 	// -- constructors --
 
 	public PreciseFixedFloatType() {
-		scale = BigInteger.TEN.pow(DECIMAL_PLACES);
-		amount = BigInteger.ZERO;
+		this(DECIMAL_PLACES, BigInteger.ZERO);
+	}
+
+	private PreciseFixedFloatType(int places, BigInteger amount) {
+		this.places = places;
+		this.scale = powerOfTen(places);
+		this.amount = amount;
 	}
 
 	public PreciseFixedFloatType(long v) {
@@ -91,28 +105,69 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 		set(new BigDecimal(numStr));
 	}
 
+	/** Creates a copy of another value, with its number of decimal places. */
 	public PreciseFixedFloatType(PreciseFixedFloatType other) {
-		this.scale = other.scale;
-		this.amount = other.amount;
+		this(other.places, other.amount);
+	}
+
+	/** Creates a zero value with the given number of decimal places. */
+	public static PreciseFixedFloatType withDecimalPlaces(int places) {
+		if (places < 0) {
+			throw new IllegalArgumentException("Negative decimal places: " + places);
+		}
+		return new PreciseFixedFloatType(places, BigInteger.ZERO);
+	}
+
+	/** Gets ten to the given power, shared between all callers. */
+	static BigInteger powerOfTen(int places) {
+		return SCALES.computeIfAbsent(places, p -> BigInteger.TEN.pow(p));
+	}
+
+	// -- PreciseFixedFloatType methods --
+
+	/** Gets the number of decimal places of this value. */
+	public int getDecimalPlaces() {
+		return places;
+	}
+
+	/** Gets this value as an integer scaled by ten to the decimal places. */
+	public BigInteger getScaledValue() {
+		return amount;
+	}
+
+	/** Sets this value from an integer scaled by ten to the decimal places. */
+	public void setScaledValue(BigInteger v) {
+		amount = v;
+	}
+
+	/**
+	 * Adds the product of two values to this one. Accumulating a sum of squares
+	 * this way avoids an intermediate value per term.
+	 */
+	public void addProduct(PreciseFixedFloatType a, PreciseFixedFloatType b) {
+		amount = amount.add(amountOf(a).multiply(amountOf(b)).divide(scale));
+	}
+
+	public void add(long v) {
+		amount = amount.add(BigInteger.valueOf(v).multiply(scale));
 	}
 
 	// -- RealType methods --
 
 	public BigDecimal get() {
-		BigDecimal numer = new BigDecimal(amount);
-		BigDecimal denom = new BigDecimal(scale);
-		// NB - since denom power of ten we don't need precision limited division
-		return numer.divide(denom);
+		// NB - shift the decimal point rather than dividing by the scale
+		BigDecimal value = new BigDecimal(amount, places).stripTrailingZeros();
+		return value.scale() < 0 ? value.setScale(0) : value;
 	}
 
 	@Override
 	public double getRealDouble() {
-		return get().doubleValue();
+		return new BigDecimal(amount, places).doubleValue();
 	}
 
 	@Override
 	public float getRealFloat() {
-		return get().floatValue();
+		return new BigDecimal(amount, places).floatValue();
 	}
 
 	@Override
@@ -223,7 +278,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	}
 
 	public void add(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.add(b.amount);
+		amount = amountOf(a).add(amountOf(b));
 	}
 
 	@Override
@@ -232,7 +287,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	}
 
 	public void sub(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.subtract(b.amount);
+		amount = amountOf(a).subtract(amountOf(b));
 	}
 
 	@Override
@@ -241,7 +296,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	}
 
 	public void mul(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.multiply(b.amount).divide(scale);
+		amount = amountOf(a).multiply(amountOf(b)).divide(scale);
 	}
 
 	@Override
@@ -250,7 +305,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	}
 
 	public void div(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.multiply(scale).divide(b.amount);
+		amount = amountOf(a).multiply(scale).divide(amountOf(b));
 	}
 
 	@Override
@@ -285,7 +340,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 
 	@Override
 	public PreciseFixedFloatType createVariable() {
-		return new PreciseFixedFloatType();
+		return new PreciseFixedFloatType(places, BigInteger.ZERO);
 	}
 
 	@Override
@@ -293,10 +348,13 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 		return new PreciseFixedFloatType(this);
 	}
 
+	/**
+	 * Sets this value from another one, truncated to the decimal places of this
+	 * one. NB - use the copy constructor to also take on the other's places.
+	 */
 	@Override
 	public void set(PreciseFixedFloatType other) {
-		this.scale = other.scale;
-		this.amount = other.amount;
+		this.amount = amountOf(other);
 	}
 
 	public void set(double v) {
@@ -312,13 +370,14 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 	}
 
 	public void set(BigDecimal v) {
-		BigDecimal scaled = v.multiply(new BigDecimal(scale));
-		amount = scaled.toBigInteger();
+		// NB - shift the decimal point rather than multiplying by the scale
+		amount = v.movePointRight(places).toBigInteger();
 	}
 
 	@Override
 	public int compareTo(PreciseFixedFloatType other) {
-		return amount.compareTo(other.amount);
+		if (places == other.places) return amount.compareTo(other.amount);
+		return get().compareTo(other.get());
 	}
 
 	@Override
@@ -343,7 +402,7 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 
 	@Override
 	public double getMinIncrement() {
-		return 1.0 / Math.pow(10, DECIMAL_PLACES); // TODO - prone to precision loss
+		return 1.0 / Math.pow(10, places); // TODO - prone to precision loss
 	}
 
 	@Override
@@ -353,7 +412,8 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 
 	@Override
 	public boolean valueEquals(final PreciseFixedFloatType t) {
-		return Objects.equals(get(), t.get());
+		if (places == t.places) return Objects.equals(amount, t.amount);
+		return get().compareTo(t.get()) == 0;
 	}
 
 	@Override
@@ -361,6 +421,26 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 		return get().toString();
 	}
 
+	/**
+	 * Gets the scaled value of another number at the decimal places of this
+	 * one, truncating any further places.
+	 */
+	private BigInteger amountOf(PreciseFixedFloatType other) {
+		return rescale(other.amount, other.places, places);
+	}
+
+	/**
+	 * Converts a scaled value between numbers of decimal places, truncating any
+	 * places which are dropped.
+	 */
+	static BigInteger rescale(BigInteger amount, int fromPlaces, int toPlaces) {
+		if (fromPlaces == toPlaces) return amount;
+		if (fromPlaces < toPlaces) {
+			return amount.multiply(powerOfTen(toPlaces - fromPlaces));
+		}
+		return amount.divide(powerOfTen(fromPlaces - toPlaces));
+	}
+
 	private static final PreciseFixedFloatType ZERO = new PreciseFixedFloatType();
 	private static final PreciseFixedFloatType ONE = new PreciseFixedFloatType(1);
 	private static final PreciseFixedFloatType TWO = new PreciseFixedFloatType(2);
@@ -0,0 +1,323 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.types;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imagej.util.ImgStorage;
+import net.imagej.util.ImgStorage.Kind;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.parallel.Parallelization;
+
+/**
+ * Casts samples between the primitive arrays storing two built-in
+ * {@link DataType}s, with the same results as the per-sample casts of
+ * {@link DataTypeService}: integers are clamped to the range of the output
+ * type, and floating point values are truncated toward zero before being
+ * clamped.
+ * <p>
+ * Samples are converted in chunks, each read into a buffer of longs (when both
+ * types are integers) or doubles by one loop, and written out by another.
+ * </p>
+ */
+final class PrimitiveCaster implements ImgStorage.Transfer {
+
+	/** Number of samples converted per pass through the buffer. */
+	private static final int CHUNK_SIZE = 4096;
+
+	/** Minimum number of samples per task of an array cast. */
+	private static final int MIN_TASK_SIZE = 1 << 16;
+
+	private final Kind from, to;
+
+	/** Whether samples are converted as longs, rather than doubles. */
+	private final boolean integer;
+
+	private PrimitiveCaster(final Kind from, final Kind to) {
+		this.from = from;
+		this.to = to;
+		integer = from.isInteger() && to.isInteger();
+	}
+
+	/**
+	 * Creates a caster between the given data types, or returns null if either
+	 * is not stored as one primitive per sample.
+	 */
+	public static PrimitiveCaster create(final DataType<?> inputType,
+		final DataType<?> outputType)
+	{
+		final Kind from = kind(inputType), to = kind(outputType);
+		return from == null || to == null ? null : new PrimitiveCaster(from, to);
+	}
+
+	// -- PrimitiveCaster methods --
+
+	/**
+	 * Casts the samples of one interval into another, directly between their
+	 * storage arrays.
+	 *
+	 * @return false if the intervals are not stored as expected, in which case
+	 *         nothing was done.
+	 */
+	public boolean cast(final RandomAccessibleInterval<?> input,
+		final RandomAccessibleInterval<?> output)
+	{
+		final Img<?> in = ImgStorage.storageImg(input);
+		final Img<?> out = ImgStorage.storageImg(output);
+		if (in == null || out == null) return false;
+		if (ImgStorage.kind(in.firstElement()) != from || //
+			ImgStorage.kind(out.firstElement()) != to)
+		{
+			return false;
+		}
+		return ImgStorage.transfer(input, output, this);
+	}
+
+	/** Casts all samples of one array into another, in parallel. */
+	public void cast(final Object input, final Object output) {
+		if (!from.accepts(input) || !to.accepts(output)) {
+			throw new IllegalArgumentException("Arrays do not match the data types");
+		}
+		final int length = Array.getLength(input);
+		if (Array.getLength(output) != length) {
+			throw new IllegalArgumentException("Array lengths differ: " + length +
+				" != " + Array.getLength(output));
+		}
+		final int tasks = Math.max(1, Math.min(Parallelization.getTaskExecutor()
+			.suggestNumberOfTasks(), length / MIN_TASK_SIZE));
+		final List<int[]> ranges = new ArrayList<>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int start = (int) ((long) t * length / tasks);
+			final int end = (int) ((long) (t + 1) * length / tasks);
+			ranges.add(new int[] { start, end - start });
+		}
+		Parallelization.getTaskExecutor().forEach(ranges, range -> apply(input,
+			range[0], output, range[0], range[1]));
+	}
+
+	// -- Transfer methods --
+
+	@Override
+	public void apply(final Object src, final int srcOffset, final Object dest,
+		final int destOffset, final int length)
+	{
+		if (from == to) {
+			System.arraycopy(src, srcOffset, dest, destOffset, length);
+			return;
+		}
+		final int size = Math.min(length, CHUNK_SIZE);
+		final long[] longs = from.isInteger() || to.isInteger() ? new long[size]
+			: null;
+		final double[] doubles = integer ? null : new double[size];
+		for (int done = 0; done < length; done += size) {
+			final int count = Math.min(size, length - done);
+			if (integer) {
+				readLongs(src, srcOffset + done, longs, count);
+				writeLongs(longs, count, dest, destOffset + done);
+			}
+			else {
+				readDoubles(src, srcOffset + done, doubles, longs, count);
+				writeDoubles(doubles, longs, count, dest, destOffset + done);
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Gets the storage of a built-in data type, whose casts are known. */
+	private static Kind kind(final DataType<?> type) {
+		final Class<?> c = type.getClass();
+		if (c == DataType8BitSignedInteger.class) return Kind.BYTE;
+		if (c == DataType8BitUnsignedInteger.class) return Kind.UBYTE;
+		if (c == DataType16BitSignedInteger.class) return Kind.SHORT;
+		if (c == DataType16BitUnsignedInteger.class) return Kind.USHORT;
+		if (c == DataType32BitSignedInteger.class) return Kind.INT;
+		if (c == DataType32BitUnsignedInteger.class) return Kind.UINT;
+		if (c == DataType64BitSignedInteger.class) return Kind.LONG;
+		if (c == DataType32BitSignedFloat.class) return Kind.FLOAT;
+		if (c == DataType64BitSignedFloat.class) return Kind.DOUBLE;
+		return null;
+	}
+
+	private void readLongs(final Object src, final int offset,
+		final long[] buffer, final int count)
+	{
+		switch (from) {
+			case BYTE: {
+				final byte[] a = (byte[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i];
+				break;
+			}
+			case UBYTE: {
+				final byte[] a = (byte[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i] & 0xff;
+				break;
+			}
+			case SHORT: {
+				final short[] a = (short[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i];
+				break;
+			}
+			case USHORT: {
+				final short[] a = (short[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i] & 0xffff;
+				break;
+			}
+			case INT: {
+				final int[] a = (int[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i];
+				break;
+			}
+			case UINT: {
+				final int[] a = (int[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i] & 0xffffffffL;
+				break;
+			}
+			default:
+				System.arraycopy(src, offset, buffer, 0, count);
+				break;
+		}
+	}
+
+	private void writeLongs(final long[] buffer, final int count,
+		final Object dest, final int offset)
+	{
+		switch (to) {
+			case BYTE: {
+				final byte[] a = (byte[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (byte) clamp(buffer[i], Byte.MIN_VALUE,
+						Byte.MAX_VALUE);
+				break;
+			}
+			case UBYTE: {
+				final byte[] a = (byte[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (byte) clamp(buffer[i], 0, 0xff);
+				break;
+			}
+			case SHORT: {
+				final short[] a = (short[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (short) clamp(buffer[i], Short.MIN_VALUE,
+						Short.MAX_VALUE);
+				break;
+			}
+			case USHORT: {
+				final short[] a = (short[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (short) clamp(buffer[i], 0, 0xffff);
+				break;
+			}
+			case INT: {
+				final int[] a = (int[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (int) clamp(buffer[i], Integer.MIN_VALUE,
+						Integer.MAX_VALUE);
+				break;
+			}
+			case UINT: {
+				final int[] a = (int[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (int) clamp(buffer[i], 0, 0xffffffffL);
+				break;
+			}
+			default:
+				System.arraycopy(buffer, 0, dest, offset, count);
+				break;
+		}
+	}
+
+	private void readDoubles(final Object src, final int offset,
+		final double[] buffer, final long[] scratch, final int count)
+	{
+		switch (from) {
+			case FLOAT: {
+				final float[] a = (float[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i];
+				break;
+			}
+			case DOUBLE:
+				System.arraycopy(src, offset, buffer, 0, count);
+				break;
+			case LONG: {
+				final long[] a = (long[]) src;
+				for (int i = 0; i < count; i++)
+					buffer[i] = a[offset + i];
+				break;
+			}
+			default: {
+				// NB: Narrower integers are exact as longs, and so as doubles.
+				readLongs(src, offset, scratch, count);
+				for (int i = 0; i < count; i++)
+					buffer[i] = scratch[i];
+				break;
+			}
+		}
+	}
+
+	private void writeDoubles(final double[] buffer, final long[] scratch,
+		final int count, final Object dest, final int offset)
+	{
+		switch (to) {
+			case FLOAT: {
+				final float[] a = (float[]) dest;
+				for (int i = 0; i < count; i++)
+					a[offset + i] = (float) buffer[i];
+				break;
+			}
+			case DOUBLE:
+				System.arraycopy(buffer, 0, dest, offset, count);
+				break;
+			default: {
+				// NB: Truncate toward zero, then clamp as for integer input.
+				for (int i = 0; i < count; i++)
+					scratch[i] = (long) buffer[i];
+				writeLongs(scratch, count, dest, offset);
+				break;
+			}
+		}
+	}
+
+	private static long clamp(final long value, final long min, final long max) {
+		return value < min ? min : value > max ? max : value;
+	}
+
+}
@@ -31,51 +31,167 @@ package net.imagej.types;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.Objects;
-
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.Index;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
 import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
 
 /**
- * A BigInteger backed integral type (unlimited range).
+ * An integral type of unlimited range.
+ * <p>
+ * Values are stored as primitive {@code long}s, and arithmetic on them is done
+ * in {@code long}s as long as no operation overflows. Only values outside the
+ * range of a {@code long} (and {@link Long#MIN_VALUE} itself, which marks
+ * them) are promoted to {@link BigInteger}s, held in a table beside the
+ * storage; values are demoted again as soon as they fit.
+ * </p>
+ * <p>
+ * The table belongs to the image, and is keyed by each sample's position in
+ * it, so promoted values survive the image's storage being reloaded, e.g. the
+ * cells of a {@code DiskCachedCellImg} being evicted and read back. They do
+ * <em>not</em> survive the raw {@code long}s being moved by any other means:
+ * bulk copies of the storage, cells persisted beyond the lifetime of the image,
+ * or serialization. Reading such a sample throws an
+ * {@link IllegalStateException}. Big values can only be stored in array,
+ * planar and cell images; other containers refuse them with an
+ * {@link UnsupportedOperationException}.
+ * </p>
+ * <p>
+ * As a {@link NativeType}, images of this type can be created by the usual
+ * factories (e.g. {@code new ArrayImgFactory<>(new UnboundedIntegerType())}),
+ * and occupy one {@code long} per sample.
+ * </p>
  * 
  * @author Barry DeZonia
  */
-public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
+public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType>,
+	NativeType<UnboundedIntegerType>
+{
+
+	// -- constants --
+
+	/** Stored in place of a value which is promoted to a BigInteger. */
+	private static final long PROMOTED = Long.MIN_VALUE;
+
+	/**
+	 * Promoted values, by image and index of the sample within it. Images are
+	 * weakly referenced, so their values are dropped along with them.
+	 */
+	private static final Map<Object, Map<Long, BigInteger>> promoted = Collections
+		.synchronizedMap(new WeakHashMap<>());
+
+	private static final NativeTypeFactory<UnboundedIntegerType, LongAccess> typeFactory =
+		NativeTypeFactory.LONG(UnboundedIntegerType::new);
 
 	// -- fields --
 
-	private BigInteger v;
+	private final Index i;
+
+	private final NativeImg<?, ? extends LongAccess> img;
+
+	private LongAccess dataAccess;
+
+	/** The container last given to {@link #updateContainer(Object)}. */
+	private Object container;
+
+	/** Promoted values of the image, looked up when first needed. */
+	private Map<Long, BigInteger> values;
 
 	// -- constructors --
 
+	public UnboundedIntegerType(final NativeImg<?, ? extends LongAccess> img) {
+		i = new Index();
+		this.img = img;
+	}
+
 	public UnboundedIntegerType() {
-		set(BigInteger.ZERO);
+		i = new Index();
+		img = null;
+		dataAccess = new LongArray(1);
+		values = new ConcurrentHashMap<>();
 	}
 
 	public UnboundedIntegerType(UnboundedIntegerType other) {
+		this();
 		set(other);
 	}
 
 	public UnboundedIntegerType(long val) {
+		this();
 		set(val);
 	}
 
 	public UnboundedIntegerType(BigInteger val) {
+		this();
 		set(val);
 	}
 
 	// -- accessors --
 
 	public BigInteger get() {
-		return v;
+		final long raw = raw();
+		return raw == PROMOTED ? promotedValue() : BigInteger.valueOf(raw);
 	}
 
 	public void set(long val) {
-		this.v = BigInteger.valueOf(val);
+		if (val == PROMOTED) {
+			promote(BigInteger.valueOf(val));
+			return;
+		}
+		final int index = i.get();
+		final long raw = dataAccess.getValue(index);
+		dataAccess.setValue(index, val);
+		if (raw == PROMOTED) demote(index);
 	}
 
 	public void set(BigInteger val) {
-		this.v = val;
+		if (val.bitLength() < 64) set(val.longValue());
+		else promote(val);
+	}
+
+	// -- NativeType methods --
+
+	@Override
+	public Fraction getEntitiesPerPixel() {
+		return new Fraction();
+	}
+
+	@Override
+	public UnboundedIntegerType duplicateTypeOnSameNativeImg() {
+		return new UnboundedIntegerType(img);
+	}
+
+	@Override
+	public NativeTypeFactory<UnboundedIntegerType, LongAccess>
+		getNativeTypeFactory()
+	{
+		return typeFactory;
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		dataAccess = img.update(c);
+		container = c;
+	}
+
+	@Override
+	public Index index() {
+		return i;
 	}
 
 	// -- NumericType methods --
@@ -92,37 +208,72 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public void set(UnboundedIntegerType val) {
-		this.v = val.v;
+		final long raw = val.raw();
+		if (raw == PROMOTED) promote(val.promotedValue());
+		else set(raw);
 	}
 
 	@Override
 	public void add(UnboundedIntegerType val) {
-		this.v = v.add(val.v);
+		final long a = raw(), b = val.raw();
+		if (a != PROMOTED && b != PROMOTED) {
+			try {
+				set(Math.addExact(a, b));
+				return;
+			}
+			catch (final ArithmeticException exc) {
+				// overflow; fall back to BigInteger below
+			}
+		}
+		set(get().add(val.get()));
 	}
 
 	@Override
 	public void sub(UnboundedIntegerType val) {
-		this.v = v.subtract(val.v);
+		final long a = raw(), b = val.raw();
+		if (a != PROMOTED && b != PROMOTED) {
+			try {
+				set(Math.subtractExact(a, b));
+				return;
+			}
+			catch (final ArithmeticException exc) {
+				// overflow; fall back to BigInteger below
+			}
+		}
+		set(get().subtract(val.get()));
 	}
 
 	@Override
 	public void mul(UnboundedIntegerType val) {
-		this.v = v.multiply(val.v);
+		final long a = raw(), b = val.raw();
+		if (a != PROMOTED && b != PROMOTED) {
+			try {
+				set(Math.multiplyExact(a, b));
+				return;
+			}
+			catch (final ArithmeticException exc) {
+				// overflow; fall back to BigInteger below
+			}
+		}
+		set(get().multiply(val.get()));
 	}
 
 	@Override
 	public void div(UnboundedIntegerType val) {
-		this.v = v.divide(val.v);
+		final long a = raw(), b = val.raw();
+		// NB: Long.MIN_VALUE is always promoted, so a / b cannot overflow.
+		if (a != PROMOTED && b != PROMOTED) set(a / b);
+		else set(get().divide(val.get()));
 	}
 
 	@Override
 	public void setZero() {
-		this.v = BigInteger.ZERO;
+		set(0);
 	}
 
 	@Override
 	public void setOne() {
-		this.v = BigInteger.ONE;
+		set(1);
 	}
 
 	@Override
@@ -136,7 +287,7 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 	}
 
 	public void mul(BigInteger val) {
-		this.v = v.multiply(val);
+		set(get().multiply(val));
 	}
 
 	public void mul(BigDecimal val) {
@@ -156,9 +307,78 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 	// -- helpers --
 
 	private void doMul(BigDecimal factor) {
-		BigDecimal val = new BigDecimal(this.v);
+		BigDecimal val = new BigDecimal(get());
 		BigDecimal result = val.multiply(factor);
-		this.v = result.toBigInteger();
+		set(result.toBigInteger());
+	}
+
+	/** Gets the stored value, which is {@link #PROMOTED} for big values. */
+	private long raw() {
+		return dataAccess.getValue(i.get());
+	}
+
+	/** Gets the value of this sample, which has been promoted. */
+	private BigInteger promotedValue() {
+		final BigInteger value = values().get(key(i.get()));
+		if (value == null) {
+			// NB: The storage was filled other than through this type.
+			throw new IllegalStateException("No value stored for sample " + i.get());
+		}
+		return value;
+	}
+
+	/** Stores a value which does not fit in a {@code long}. */
+	private void promote(final BigInteger val) {
+		final int index = i.get();
+		// NB: Record the value before marking it, for concurrent readers.
+		values().put(key(index), val);
+		dataAccess.setValue(index, PROMOTED);
+	}
+
+	/** Discards the promoted value at the given index of the storage. */
+	private void demote(final int index) {
+		values().remove(key(index));
+	}
+
+	/**
+	 * Gets the promoted values of the image. NB: The shared table is locked
+	 * only here, once per type, and not on every access to a big value.
+	 */
+	private Map<Long, BigInteger> values() {
+		if (values == null) {
+			values = promoted.computeIfAbsent(img, im -> new ConcurrentHashMap<>());
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the index within the whole image of the sample at the given index of
+	 * the current storage.
+	 */
+	private long key(final int index) {
+		if (img == null || img instanceof ArrayImg) return index;
+		if (img instanceof PlanarImg &&
+			container instanceof PlanarImg.PlanarContainerSampler)
+		{
+			final long planeSize = img.dimension(0) * //
+				(img.numDimensions() > 1 ? img.dimension(1) : 1);
+			final int slice = //
+				((PlanarImg.PlanarContainerSampler) container).getCurrentSliceIndex();
+			return slice * planeSize + index;
+		}
+		if (img instanceof AbstractCellImg &&
+			container instanceof AbstractCellImg.CellImgSampler)
+		{
+			final Object cell = //
+				((AbstractCellImg.CellImgSampler<?>) container).getCell();
+			final long[] pos = new long[img.numDimensions()];
+			((Cell<?>) cell).indexToGlobalPosition(index, pos);
+			return IntervalIndexer.positionToIndex(pos, Intervals
+				.dimensionsAsLongArray(img));
+		}
+		throw new UnsupportedOperationException(
+			"Values beyond the range of a long are not supported in " + //
+				img.getClass().getName());
 	}
 
 	// -- required IntegerType methods
@@ -167,12 +387,16 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public void inc() {
-		this.v = this.v.add(BigInteger.ONE);
+		final long raw = raw();
+		if (raw != PROMOTED && raw != Long.MAX_VALUE) set(raw + 1);
+		else set(get().add(BigInteger.ONE));
 	}
 
 	@Override
 	public void dec() {
-		this.v = this.v.subtract(BigInteger.ONE);
+		final long raw = raw();
+		if (raw != PROMOTED && raw - 1 != PROMOTED) set(raw - 1);
+		else set(get().subtract(BigInteger.ONE));
 	}
 
 	@Override
@@ -197,12 +421,14 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public double getRealDouble() {
-		return this.v.doubleValue();
+		final long raw = raw();
+		return raw == PROMOTED ? promotedValue().doubleValue() : raw;
 	}
 
 	@Override
 	public float getRealFloat() {
-		return this.v.floatValue();
+		final long raw = raw();
+		return raw == PROMOTED ? promotedValue().floatValue() : raw;
 	}
 
 	@Override
@@ -251,12 +477,12 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public float getPowerFloat() {
-		return this.v.floatValue();
+		return getRealFloat();
 	}
 
 	@Override
 	public double getPowerDouble() {
-		return this.v.doubleValue();
+		return getRealDouble();
 	}
 
 	@Override
@@ -276,22 +502,28 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public int compareTo(UnboundedIntegerType o) {
-		return this.v.compareTo(o.v);
+		final long a = raw(), b = o.raw();
+		if (a != PROMOTED && b != PROMOTED) return Long.compare(a, b);
+		return get().compareTo(o.get());
 	}
 
 	@Override
 	public int getInteger() {
-		return this.v.intValue(); // TODO - narrowing
+		final long raw = raw();
+		// TODO - narrowing
+		return raw == PROMOTED ? promotedValue().intValue() : (int) raw;
 	}
 
 	@Override
 	public long getIntegerLong() {
-		return this.v.longValue(); // TODO -- narrowing
+		final long raw = raw();
+		// TODO -- narrowing
+		return raw == PROMOTED ? promotedValue().longValue() : raw;
 	}
 
 	@Override
 	public BigInteger getBigInteger() {
-		return v;
+		return get();
 	}
 
 	@Override
@@ -306,16 +538,19 @@ public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
 
 	@Override
 	public void setBigInteger(BigInteger v) {
-		this.v = v;
+		set(v);
 	}
 
 	@Override
 	public boolean valueEquals(final UnboundedIntegerType t) {
-		return Objects.equals(get(), t.get());
+		final long a = raw(), b = t.raw();
+		if (a != PROMOTED && b != PROMOTED) return a == b;
+		return get().equals(t.get());
 	}
 
 	@Override
 	public String toString() {
-		return get().toString();
+		final long raw = raw();
+		return raw == PROMOTED ? promotedValue().toString() : Long.toString(raw);
 	}
 }
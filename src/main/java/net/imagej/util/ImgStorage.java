@@ -0,0 +1,1037 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.util;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.imagej.types.UnboundedIntegerType;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.WrappedImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.Dirty;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
+
+/**
+ * Utility methods for direct access to the primitive arrays backing
+ * {@link ArrayImg}, {@link PlanarImg} and {@link AbstractCellImg} instances.
+ * <p>
+ * Bulk operations (min/max, histograms, copies) can use these methods to walk
+ * the storage arrays directly instead of going through a {@code Cursor} or
+ * {@code RandomAccess} per sample. Every method returns {@code null} when the
+ * image cannot be accessed this way, in which case callers are expected to
+ * fall back to the generic ImgLib2 code path.
+ * </p>
+ */
+public final class ImgStorage {
+
+	private ImgStorage() {
+		// prevent instantiation of utility class
+	}
+
+	/**
+	 * The native sample types whose storage can be accessed directly. Each kind
+	 * stores exactly one sample per array element.
+	 */
+	public enum Kind {
+			BYTE(true), UBYTE(true), SHORT(true), USHORT(true), INT(true), UINT(true),
+			LONG(true), FLOAT(false), DOUBLE(false);
+
+		private final boolean integer;
+
+		private Kind(final boolean integer) {
+			this.integer = integer;
+		}
+
+		/** Gets whether samples of this kind are integers. */
+		public boolean isInteger() {
+			return integer;
+		}
+
+		/** Gets whether the given object is a storage array of this kind. */
+		public boolean accepts(final Object array) {
+			switch (this) {
+				case BYTE:
+				case UBYTE:
+					return array instanceof byte[];
+				case SHORT:
+				case USHORT:
+					return array instanceof short[];
+				case INT:
+				case UINT:
+					return array instanceof int[];
+				case LONG:
+					return array instanceof long[];
+				case FLOAT:
+					return array instanceof float[];
+				default:
+					return array instanceof double[];
+			}
+		}
+
+		/**
+		 * Reads the sample at the given index of a storage array of this kind, as
+		 * a long. Unsigned kinds are zero-extended; floating point kinds are
+		 * truncated.
+		 */
+		public long getLong(final Object array, final int index) {
+			switch (this) {
+				case BYTE:
+					return ((byte[]) array)[index];
+				case UBYTE:
+					return ((byte[]) array)[index] & 0xff;
+				case SHORT:
+					return ((short[]) array)[index];
+				case USHORT:
+					return ((short[]) array)[index] & 0xffff;
+				case INT:
+					return ((int[]) array)[index];
+				case UINT:
+					return ((int[]) array)[index] & 0xffffffffL;
+				case LONG:
+					return ((long[]) array)[index];
+				case FLOAT:
+					return (long) ((float[]) array)[index];
+				default:
+					return (long) ((double[]) array)[index];
+			}
+		}
+
+		/**
+		 * Reads the sample at the given index of a storage array of this kind, as
+		 * a double.
+		 */
+		public double getDouble(final Object array, final int index) {
+			switch (this) {
+				case FLOAT:
+					return ((float[]) array)[index];
+				case DOUBLE:
+					return ((double[]) array)[index];
+				default:
+					return getLong(array, index);
+			}
+		}
+
+		/**
+		 * Stores a value into every {@code stride}-th sample of a storage array of
+		 * this kind, starting at the given offset. The value must already be
+		 * representable by the kind (e.g., as returned by
+		 * {@code RealType#getRealDouble()} of a matching type); integer kinds store
+		 * its low-order bits.
+		 */
+		public void fill(final Object array, final int offset, final int count,
+			final int stride, final double value)
+		{
+			final int end = offset + count * stride;
+			switch (this) {
+				case BYTE:
+				case UBYTE: {
+					final byte[] a = (byte[]) array;
+					final byte v = (byte) (long) value;
+					if (stride == 1) Arrays.fill(a, offset, end, v);
+					else for (int i = offset; i < end; i += stride) a[i] = v;
+					break;
+				}
+				case SHORT:
+				case USHORT: {
+					final short[] a = (short[]) array;
+					final short v = (short) (long) value;
+					if (stride == 1) Arrays.fill(a, offset, end, v);
+					else for (int i = offset; i < end; i += stride) a[i] = v;
+					break;
+				}
+				case INT:
+				case UINT: {
+					final int[] a = (int[]) array;
+					final int v = (int) (long) value;
+					if (stride == 1) Arrays.fill(a, offset, end, v);
+					else for (int i = offset; i < end; i += stride) a[i] = v;
+					break;
+				}
+				case LONG: {
+					final long[] a = (long[]) array;
+					final long v = (long) value;
+					if (stride == 1) Arrays.fill(a, offset, end, v);
+					else for (int i = offset; i < end; i += stride) a[i] = v;
+					break;
+				}
+				case FLOAT: {
+					final float[] a = (float[]) array;
+					final float v = (float) value;
+					if (stride == 1) Arrays.fill(a, offset, end, v);
+					else for (int i = offset; i < end; i += stride) a[i] = v;
+					break;
+				}
+				default: {
+					final double[] a = (double[]) array;
+					if (stride == 1) Arrays.fill(a, offset, end, value);
+					else for (int i = offset; i < end; i += stride) a[i] = value;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A contiguous run of samples within a primitive storage array.
+	 */
+	public static final class Segment {
+
+		private final Object array;
+		private final int offset;
+		private final int length;
+
+		public Segment(final Object array, final int offset, final int length) {
+			this.array = array;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/** Gets the primitive storage array (e.g., {@code byte[]}). */
+		public Object array() {
+			return array;
+		}
+
+		/** Gets the index of the first sample of the run. */
+		public int offset() {
+			return offset;
+		}
+
+		/** Gets the number of samples in the run. */
+		public int length() {
+			return length;
+		}
+	}
+
+	/**
+	 * A line of samples along one axis of an image, stored within a single
+	 * primitive array at a constant stride.
+	 */
+	public static final class Row {
+
+		private final Kind kind;
+		private final Object array;
+		private final int offset;
+		private final int stride;
+		private final int length;
+
+		public Row(final Kind kind, final Object array, final int offset,
+			final int stride, final int length)
+		{
+			this.kind = kind;
+			this.array = array;
+			this.offset = offset;
+			this.stride = stride;
+			this.length = length;
+		}
+
+		/** Gets the kind of the samples. */
+		public Kind kind() {
+			return kind;
+		}
+
+		/** Gets the primitive storage array (e.g., {@code byte[]}). */
+		public Object array() {
+			return array;
+		}
+
+		/** Gets the index of the first sample of the row. */
+		public int offset() {
+			return offset;
+		}
+
+		/** Gets the distance between consecutive samples of the row. */
+		public int stride() {
+			return stride;
+		}
+
+		/** Gets the number of samples in the row. */
+		public int length() {
+			return length;
+		}
+
+		/** Gets the array index of the sample at the given position in the row. */
+		public int index(final long position) {
+			return offset + (int) position * stride;
+		}
+	}
+
+	/**
+	 * An operation moving samples between two primitive storage arrays, e.g.
+	 * {@link System#arraycopy}.
+	 */
+	@FunctionalInterface
+	public interface Transfer {
+
+		/**
+		 * Moves {@code length} samples from the source array, starting at
+		 * {@code srcOffset}, into the destination array, starting at
+		 * {@code destOffset}.
+		 */
+		void apply(Object src, int srcOffset, Object dest, int destOffset,
+			int length);
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * Gets whether the samples of the given type are held entirely by the
+	 * primitive arrays which store them, so that the arrays may be copied or
+	 * handed out. This is not the case for {@link UnboundedIntegerType}, whose
+	 * {@code long}s hold only a marker in place of each value beyond their range:
+	 * its storage must be accessed through the type alone.
+	 */
+	public static boolean hasRawSamples(final Object type) {
+		return !(type instanceof UnboundedIntegerType);
+	}
+
+	/**
+	 * Gets the {@link Kind} of storage used by the given type, or null if the
+	 * type is not a directly accessible native type.
+	 */
+	public static Kind kind(final Object type) {
+		if (type == null || !hasRawSamples(type)) return null;
+		// NB: Compare classes exactly, since subclasses may change semantics.
+		final Class<?> c = type.getClass();
+		if (c == UnsignedByteType.class) return Kind.UBYTE;
+		if (c == ByteType.class) return Kind.BYTE;
+		if (c == UnsignedShortType.class) return Kind.USHORT;
+		if (c == ShortType.class) return Kind.SHORT;
+		if (c == UnsignedIntType.class) return Kind.UINT;
+		if (c == IntType.class) return Kind.INT;
+		if (c == LongType.class) return Kind.LONG;
+		if (c == FloatType.class) return Kind.FLOAT;
+		if (c == DoubleType.class) return Kind.DOUBLE;
+		return null;
+	}
+
+	/**
+	 * Unwraps the given interval down to the {@link ArrayImg}, {@link PlanarImg}
+	 * or {@link AbstractCellImg} which stores its samples, stripping away
+	 * {@link WrappedImg}s (such as {@code ImgPlus}) and {@link IntervalView}s
+	 * (such as those created by {@link Views#interval}).
+	 *
+	 * @return The storage image, or null if the interval is not backed by one.
+	 */
+	public static Img<?> storageImg(final Object interval) {
+		Object o = interval;
+		while (true) {
+			if (o instanceof WrappedImg) o = ((WrappedImg<?>) o).getImg();
+			else if (o instanceof IntervalView) o = ((IntervalView<?>) o).getSource();
+			else break;
+		}
+		if (o instanceof ArrayImg || o instanceof PlanarImg ||
+			o instanceof AbstractCellImg)
+		{
+			return (Img<?>) o;
+		}
+		return null;
+	}
+
+	/**
+	 * Decomposes the samples of the given interval into contiguous runs of the
+	 * primitive arrays which store them. Adjacent runs within the same array are
+	 * merged, so e.g. an entire {@link ArrayImg} yields a single segment, and an
+	 * XY plane of a {@link PlanarImg} yields one segment.
+	 * <p>
+	 * The segments are not guaranteed to follow the iteration order of the
+	 * interval; this method is intended for order-independent operations such
+	 * as reductions and histograms.
+	 * </p>
+	 *
+	 * @return The list of segments covering the interval, or null if the
+	 *         interval is not backed by directly accessible storage.
+	 */
+	public static List<Segment> segments(final Object interval) {
+		if (!(interval instanceof RandomAccessibleInterval)) return null;
+		final Interval bounds = (Interval) interval;
+		final Img<?> img = storageImg(interval);
+		if (img == null || kind(img.firstElement()) == null) return null;
+		if (bounds.numDimensions() != img.numDimensions()) return null;
+
+		final int n = img.numDimensions();
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		for (int d = 0; d < n; d++) {
+			min[d] = Math.max(bounds.min(d), img.min(d));
+			max[d] = Math.min(bounds.max(d), img.max(d));
+			if (min[d] > max[d]) return Collections.emptyList();
+		}
+
+		final List<Segment> segments = new ArrayList<>();
+		return addSegments(segments, img, min, max, false) ? segments : null;
+	}
+
+	/**
+	 * Copies the samples of one interval into another, directly between the
+	 * primitive arrays which store them, using {@link System#arraycopy}. The
+	 * copy is split into tasks by XY plane and row band, which run in parallel
+	 * according to the current {@link Parallelization} context.
+	 * <p>
+	 * Both intervals must have the same dimensions (their minimum coordinates
+	 * may differ), and be backed by storage of the same {@link Kind}. The
+	 * destination must be an {@link ArrayImg}, {@link PlanarImg} or
+	 * {@link CellImg}; cached cell images are not written directly, since their
+	 * cells would not be marked as dirty.
+	 * </p>
+	 *
+	 * @return true if the samples were copied, or false if the intervals are not
+	 *         suitable for a direct copy, in which case nothing was done and the
+	 *         caller should fall back to a generic copy.
+	 */
+	public static boolean copy(final RandomAccessibleInterval<?> src,
+		final RandomAccessibleInterval<?> dest)
+	{
+		final Img<?> srcImg = storageImg(src);
+		final Img<?> destImg = storageImg(dest);
+		if (srcImg == null || destImg == null) return false;
+		final Kind kind = kind(srcImg.firstElement());
+		if (kind == null || kind != kind(destImg.firstElement())) return false;
+		return transfer(src, dest, System::arraycopy);
+	}
+
+	/**
+	 * Moves the samples of one interval into another using the given
+	 * {@link Transfer}, which is applied to matching runs of the primitive arrays
+	 * storing them. The work is split into tasks by XY plane and row band, which
+	 * run in parallel according to the current {@link Parallelization} context.
+	 * <p>
+	 * Both intervals must have the same dimensions (their minimum coordinates
+	 * may differ), and be backed by directly accessible storage, of any
+	 * {@link Kind}s the transfer supports. The destination must be an
+	 * {@link ArrayImg}, {@link PlanarImg} or {@link CellImg}, as for
+	 * {@link #copy}.
+	 * </p>
+	 *
+	 * @return true if the samples were moved, or false if the intervals are not
+	 *         suitable, in which case nothing was done and the caller should fall
+	 *         back to generic code.
+	 */
+	public static boolean transfer(final RandomAccessibleInterval<?> src,
+		final RandomAccessibleInterval<?> dest, final Transfer transfer)
+	{
+		final Img<?> srcImg = storageImg(src);
+		final Img<?> destImg = storageImg(dest);
+		if (srcImg == null || destImg == null) return false;
+		if (destImg instanceof AbstractCellImg && !(destImg instanceof CellImg)) {
+			return false;
+		}
+		if (kind(srcImg.firstElement()) == null || //
+			kind(destImg.firstElement()) == null)
+		{
+			return false;
+		}
+		if (!Intervals.equalDimensions(src, dest)) return false;
+		if (srcImg.numDimensions() != src.numDimensions() || //
+			destImg.numDimensions() != dest.numDimensions())
+		{
+			return false;
+		}
+		if (!Intervals.contains(srcImg, src) || !Intervals.contains(destImg,
+			dest))
+		{
+			return false;
+		}
+
+		final int n = src.numDimensions();
+		final long[] srcMin = Intervals.minAsLongArray(src);
+		final long[] destMin = Intervals.minAsLongArray(dest);
+		final long[] dims = Intervals.dimensionsAsLongArray(src);
+		if (Intervals.numElements(dims) == 0) return true;
+
+		if (!isAccessible(srcImg) || !isAccessible(destImg)) return false;
+
+		// split into tasks: one per plane, further split into row bands
+		final TaskExecutor executor = Parallelization.getTaskExecutor();
+		final long height = n > 1 ? dims[1] : 1;
+		final long planeCount = Intervals.numElements(dims) / dims[0] / height;
+		final int target = Math.max(1, executor.suggestNumberOfTasks());
+		final long bands = Math.max(1, Math.min(height, (target + planeCount - 1) /
+			planeCount));
+		final long[] zero = new long[n];
+		final long[] last = Intervals.maxAsLongArray(new FinalInterval(dims));
+		final List<long[]> tasks = new ArrayList<>();
+		final long[] pos = new long[n];
+		while (true) {
+			for (long b = 0; b < bands; b++) {
+				// NB: The relative min of the task, followed by its number of rows.
+				final long[] task = Arrays.copyOf(pos, n + 1);
+				final long start = b * height / bands;
+				task[n] = (b + 1) * height / bands - start;
+				if (n > 1) task[1] = start;
+				if (task[n] > 0) tasks.add(task);
+			}
+			if (!increment(pos, zero, last, 2)) break;
+		}
+
+		executor.forEach(tasks, task -> {
+			final long[] sMin = new long[n], sMax = new long[n];
+			final long[] dMin = new long[n], dMax = new long[n];
+			for (int d = 0; d < n; d++) {
+				final long extent = d == 0 ? dims[0] : d == 1 ? task[n] : 1;
+				sMin[d] = srcMin[d] + task[d];
+				dMin[d] = destMin[d] + task[d];
+				sMax[d] = sMin[d] + extent - 1;
+				dMax[d] = dMin[d] + extent - 1;
+			}
+			final List<Segment> from = new ArrayList<>();
+			final List<Segment> to = new ArrayList<>();
+			if (!addSegments(from, srcImg, sMin, sMax, true) || //
+				!addSegments(to, destImg, dMin, dMax, true))
+			{
+				throw new IllegalStateException("Inaccessible storage");
+			}
+			transfer(from, to, transfer);
+		});
+		return true;
+	}
+
+	/**
+	 * Gets the storage of the XY plane at the given position of a cell image
+	 * whose cells span whole XY planes, with a depth of one along every other
+	 * dimension, for reading. Cells of cached images are not marked as
+	 * {@link Dirty}, so writes through the returned access may be lost; use
+	 * {@link #cellPlane(Object, long[], boolean)} to write.
+	 *
+	 * @param img The cell image, possibly wrapped (e.g. by an {@code ImgPlus}).
+	 * @param position The position of the plane; X and Y are ignored.
+	 * @return The access holding exactly the plane's samples, or null if the
+	 *         plane is not stored in a cell of its own.
+	 */
+	public static ArrayDataAccess<?> cellPlane(final Object img,
+		final long[] position)
+	{
+		return cellPlane(img, position, false);
+	}
+
+	/**
+	 * Gets the storage of the XY plane at the given position of a cell image
+	 * whose cells span whole XY planes, with a depth of one along every other
+	 * dimension. Writes through the returned access modify the image directly.
+	 *
+	 * @param img The cell image, possibly wrapped (e.g. by an {@code ImgPlus}).
+	 * @param position The position of the plane; X and Y are ignored.
+	 * @param write Whether the plane is (or was) written; if so, the cell of a
+	 *          cached image is marked as {@link Dirty} so that the writes are
+	 *          persisted.
+	 * @return The access holding exactly the plane's samples, or null if the
+	 *         plane is not stored in a cell of its own, or its samples are not
+	 *         {@link #hasRawSamples raw}.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static ArrayDataAccess<?> cellPlane(final Object img,
+		final long[] position, final boolean write)
+	{
+		Object o = img;
+		while (o instanceof WrappedImg) o = ((WrappedImg<?>) o).getImg();
+		if (!(o instanceof AbstractCellImg)) return null;
+		final AbstractCellImg<?, ?, ?, ?> cellImg = (AbstractCellImg<?, ?, ?, ?>) o;
+		if (!hasRawSamples(cellImg.firstElement())) return null;
+		final int n = cellImg.numDimensions();
+		if (n < 2 || position.length != n) return null;
+		final CellGrid grid = cellImg.getCellGrid();
+		final long[] gridPos = new long[n];
+		for (int d = 0; d < n; d++) {
+			if (d < 2) {
+				if (grid.cellDimension(d) < cellImg.dimension(d)) return null;
+				continue;
+			}
+			if (grid.cellDimension(d) != 1) return null;
+			if (position[d] < 0 || position[d] >= cellImg.dimension(d)) return null;
+			gridPos[d] = position[d];
+		}
+		final RandomAccess cells = ((RandomAccessible) cellImg.getCells())
+			.randomAccess();
+		cells.setPosition(gridPos);
+		final Object data = ((Cell<?>) cells.get()).getData();
+		if (!(data instanceof ArrayDataAccess)) return null;
+		if (write && data instanceof Dirty) ((Dirty) data).setDirty();
+		return (ArrayDataAccess<?>) data;
+	}
+
+	/**
+	 * Copies a primitive array holding one XY plane into the plane at the given
+	 * position of an image, whatever the layout of its storage. As with
+	 * {@link #copy}, cached cell images are not written directly.
+	 *
+	 * @param img The image, possibly wrapped (e.g. by an {@code ImgPlus}).
+	 * @param position The position of the plane; X and Y are ignored.
+	 * @param plane The plane's samples in flat XY order, stored in an array of
+	 *          the image's {@link Kind}.
+	 * @return true if the plane was copied, or false if the image or array are
+	 *         not suitable, in which case nothing was done.
+	 */
+	public static boolean setPlane(final Object img, final long[] position,
+		final Object plane)
+	{
+		if (!(img instanceof Img)) return false;
+		final Img<?> storage = storageImg(img);
+		if (storage == null) return false;
+		if (storage instanceof AbstractCellImg && !(storage instanceof CellImg)) {
+			return false;
+		}
+		final Kind kind = kind(storage.firstElement());
+		if (kind == null || !kind.accepts(plane)) return false;
+		final int n = storage.numDimensions();
+		if (n < 2 || position.length != n) return false;
+		final long[] min = position.clone();
+		final long[] max = position.clone();
+		for (int d = 0; d < n; d++) {
+			if (d < 2) {
+				min[d] = 0;
+				max[d] = storage.dimension(d) - 1;
+			}
+			else if (position[d] < 0 || position[d] >= storage.dimension(d)) {
+				return false;
+			}
+		}
+		final long planeSize = storage.dimension(0) * storage.dimension(1);
+		if (Array.getLength(plane) != planeSize) return false;
+		final List<Segment> segments = new ArrayList<>();
+		if (!addSegments(segments, storage, min, max, true)) return false;
+		int offset = 0;
+		for (final Segment s : segments) {
+			System.arraycopy(plane, offset, s.array(), s.offset(), s.length());
+			offset += s.length();
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the storage of the whole line of samples along an axis of an
+	 * {@link ArrayImg}, or along the X or Y axis of a {@link PlanarImg}.
+	 *
+	 * @param img The image, possibly wrapped (e.g. by an {@code ImgPlus}).
+	 * @param position A position on the line; its coordinate along the axis is
+	 *          ignored.
+	 * @param axis The axis along which the line runs.
+	 * @return The row, or null if the line is not stored within a single array
+	 *         (or the image is not directly accessible at all).
+	 */
+	public static Row row(final Object img, final long[] position,
+		final int axis)
+	{
+		Object o = img;
+		while (o instanceof WrappedImg) o = ((WrappedImg<?>) o).getImg();
+		if (!(o instanceof ArrayImg || o instanceof PlanarImg)) return null;
+		final Img<?> storage = (Img<?>) o;
+		final Kind kind = kind(storage.firstElement());
+		final int n = storage.numDimensions();
+		if (kind == null || position.length != n || axis < 0 || axis >= n) {
+			return null;
+		}
+		final long[] dims = Intervals.dimensionsAsLongArray(storage);
+		for (int d = 0; d < n; d++) {
+			if (d != axis && (position[d] < 0 || position[d] >= dims[d])) return null;
+		}
+		long stride = 1;
+		for (int d = 0; d < axis; d++) {
+			stride *= dims[d];
+		}
+		final long[] start = position.clone();
+		start[axis] = 0;
+		final Object array;
+		final long offset;
+		if (storage instanceof ArrayImg) {
+			array = storage(((ArrayImg<?, ?>) storage).update(null));
+			offset = IntervalIndexer.positionToIndex(start, dims);
+		}
+		else {
+			if (axis > 1) return null; // crosses planes
+			long plane = 0;
+			for (int d = n - 1; d >= 2; d--) {
+				plane = plane * dims[d] + start[d];
+			}
+			array = storage(((PlanarImg<?, ?>) storage).getPlane((int) plane));
+			offset = n < 2 ? start[0] : start[0] + start[1] * dims[0];
+		}
+		if (array == null) return null;
+		return new Row(kind, array, (int) offset, (int) stride, (int) dims[axis]);
+	}
+
+	/**
+	 * Fetches every cell of a cell image which intersects the given interval.
+	 * For cached cell images, this loads the cells into the cache, so that
+	 * subsequent reads of the interval do not block on I/O.
+	 *
+	 * @param img The cell image, possibly wrapped (e.g. by an {@code ImgPlus}).
+	 * @param interval The region to fetch, clamped to the image bounds.
+	 * @return false if the image is not a cell image, in which case its samples
+	 *         are assumed to be in memory already.
+	 */
+	public static boolean loadCells(final Object img, final Interval interval) {
+		Object o = img;
+		while (o instanceof WrappedImg) o = ((WrappedImg<?>) o).getImg();
+		if (!(o instanceof AbstractCellImg)) return false;
+		final AbstractCellImg<?, ?, ?, ?> cellImg = (AbstractCellImg<?, ?, ?, ?>) o;
+		final CellGrid grid = cellImg.getCellGrid();
+		final int n = grid.numDimensions();
+		if (interval.numDimensions() != n) return false;
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		for (int d = 0; d < n; d++) {
+			min[d] = Math.max(interval.min(d), 0);
+			max[d] = Math.min(interval.max(d), grid.imgDimension(d) - 1);
+			if (min[d] > max[d]) return true; // nothing to fetch
+		}
+		final long[] cellMin = new long[n];
+		final long[] cellMax = new long[n];
+		grid.getCellPosition(min, cellMin);
+		grid.getCellPosition(max, cellMax);
+		final RandomAccess<?> cells = cellImg.getCells().randomAccess();
+		final long[] pos = cellMin.clone();
+		do {
+			cells.setPosition(pos);
+			cells.get();
+		}
+		while (increment(pos, cellMin, cellMax, 0));
+		return true;
+	}
+
+	/**
+	 * Splits the given segments into at most roughly {@code parts} groups of
+	 * similar total length, suitable for processing concurrently. Long segments
+	 * are split into shorter ones as needed.
+	 */
+	public static List<List<Segment>> partition(final List<Segment> segments,
+		final int parts)
+	{
+		long total = 0;
+		for (final Segment s : segments)
+			total += s.length();
+		final List<List<Segment>> groups = new ArrayList<>();
+		if (total == 0) return groups;
+		final long chunk = Math.max(MIN_CHUNK, (total + parts - 1) / Math.max(1,
+			parts));
+
+		List<Segment> group = new ArrayList<>();
+		long groupSize = 0;
+		for (final Segment s : segments) {
+			int offset = s.offset();
+			int remaining = s.length();
+			while (remaining > 0) {
+				final int len = (int) Math.min(remaining, chunk - groupSize);
+				group.add(new Segment(s.array(), offset, len));
+				groupSize += len;
+				offset += len;
+				remaining -= len;
+				if (groupSize >= chunk) {
+					groups.add(group);
+					group = new ArrayList<>();
+					groupSize = 0;
+				}
+			}
+		}
+		if (!group.isEmpty()) groups.add(group);
+		return groups;
+	}
+
+	/**
+	 * Gets the number of samples covered by the given segments.
+	 */
+	public static long size(final List<Segment> segments) {
+		long size = 0;
+		for (final Segment s : segments)
+			size += s.length();
+		return size;
+	}
+
+	// -- Helper methods --
+
+	/** Minimum number of samples per partition. */
+	private static final long MIN_CHUNK = 1 << 16;
+
+	/** Gets the primitive array of the given access, or null if none. */
+	private static Object storage(final Object access) {
+		if (!(access instanceof ArrayDataAccess)) return null;
+		return ((ArrayDataAccess<?>) access).getCurrentStorageArray();
+	}
+
+	/**
+	 * Adds the runs of the given storage image within the interval [{@code min},
+	 * {@code max}], in flat iteration order if requested.
+	 */
+	private static boolean addSegments(final List<Segment> segments,
+		final Img<?> img, final long[] min, final long[] max, final boolean flat)
+	{
+		if (img instanceof ArrayImg) {
+			final Object array = storage(((ArrayImg<?, ?>) img).update(null));
+			if (array == null) return false;
+			addRuns(segments, array, new long[min.length], Intervals
+				.dimensionsAsLongArray(img), min, max);
+			return true;
+		}
+		if (img instanceof PlanarImg) {
+			return addPlanarRuns(segments, (PlanarImg<?, ?>) img, min, max);
+		}
+		final AbstractCellImg<?, ?, ?, ?> cellImg = (AbstractCellImg<?, ?, ?, ?>) img;
+		return flat ? addFlatCellRuns(segments, cellImg, min, max) : //
+			addCellRuns(segments, cellImg, min, max);
+	}
+
+	/** Gets whether the storage arrays of the given image can be accessed. */
+	@SuppressWarnings("rawtypes")
+	private static boolean isAccessible(final Img<?> img) {
+		if (img instanceof ArrayImg) {
+			return storage(((ArrayImg<?, ?>) img).update(null)) != null;
+		}
+		if (img instanceof PlanarImg) {
+			return storage(((PlanarImg<?, ?>) img).getPlane(0)) != null;
+		}
+		final Object cell = ((IterableInterval) ((AbstractCellImg<?, ?, ?, ?>) img)
+			.getCells()).firstElement();
+		return storage(((Cell<?>) cell).getData()) != null;
+	}
+
+	/** Moves samples from one list of runs to another of the same length. */
+	private static void transfer(final List<Segment> from,
+		final List<Segment> to, final Transfer transfer)
+	{
+		int i = 0, j = 0;
+		int fromOff = 0, toOff = 0;
+		while (i < from.size() && j < to.size()) {
+			final Segment f = from.get(i), t = to.get(j);
+			final int len = Math.min(f.length() - fromOff, t.length() - toOff);
+			transfer.apply(f.array(), f.offset() + fromOff, t.array(), t.offset() +
+				toOff, len);
+			fromOff += len;
+			toOff += len;
+			if (fromOff == f.length()) {
+				i++;
+				fromOff = 0;
+			}
+			if (toOff == t.length()) {
+				j++;
+				toOff = 0;
+			}
+		}
+	}
+
+	private static boolean addPlanarRuns(final List<Segment> segments,
+		final PlanarImg<?, ?> img, final long[] min, final long[] max)
+	{
+		final int n = min.length;
+		final long[] blockDims = new long[n];
+		final long[] blockMin = new long[n];
+		for (int d = 0; d < n; d++) {
+			blockDims[d] = d < 2 ? img.dimension(d) : 1;
+		}
+		final long[] planeMin = new long[n];
+		final long[] planeMax = new long[n];
+		for (int d = 0; d < n; d++) {
+			planeMin[d] = min[d];
+			planeMax[d] = max[d];
+		}
+		// iterate over the planes intersecting the interval
+		final long[] pos = min.clone();
+		while (true) {
+			int no = 0;
+			int stride = 1;
+			for (int d = 2; d < n; d++) {
+				no += (int) (pos[d] * stride);
+				stride *= (int) img.dimension(d);
+				blockMin[d] = planeMin[d] = planeMax[d] = pos[d];
+			}
+			final Object array = storage(img.getPlane(no));
+			if (array == null) return false;
+			addRuns(segments, array, blockMin, blockDims, planeMin, planeMax);
+			if (!increment(pos, min, max, 2)) break;
+		}
+		return true;
+	}
+
+	@SuppressWarnings({ "rawtypes" })
+	private static boolean addCellRuns(final List<Segment> segments,
+		final AbstractCellImg<?, ?, ?, ?> img, final long[] min, final long[] max)
+	{
+		final int n = min.length;
+		final CellGrid grid = img.getCellGrid();
+		final long[] gridMin = new long[n];
+		final long[] gridMax = new long[n];
+		for (int d = 0; d < n; d++) {
+			final int cellSize = grid.cellDimension(d);
+			gridMin[d] = min[d] / cellSize;
+			gridMax[d] = max[d] / cellSize;
+		}
+		final RandomAccessible cells = img.getCells();
+		final long[] cellMin = new long[n];
+		final int[] cellDims = new int[n];
+		final long[] blockDims = new long[n];
+		final long[] runMin = new long[n];
+		final long[] runMax = new long[n];
+		for (final Object o : Views.interval(cells, gridMin, gridMax)) {
+			final Cell<?> cell = (Cell<?>) o;
+			final Object array = storage(cell.getData());
+			if (array == null) return false;
+			cell.min(cellMin);
+			cell.dimensions(cellDims);
+			for (int d = 0; d < n; d++) {
+				blockDims[d] = cellDims[d];
+				runMin[d] = Math.max(min[d], cellMin[d]);
+				runMax[d] = Math.min(max[d], cellMin[d] + cellDims[d] - 1);
+			}
+			addRuns(segments, array, cellMin, blockDims, runMin, runMax);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the runs of a cell image in flat iteration order, i.e., row by row
+	 * across cell boundaries.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static boolean addFlatCellRuns(final List<Segment> segments,
+		final AbstractCellImg<?, ?, ?, ?> img, final long[] min, final long[] max)
+	{
+		final int n = min.length;
+		final CellGrid grid = img.getCellGrid();
+		final int[] cellSize = new int[n];
+		grid.cellDimensions(cellSize);
+		final RandomAccess<? extends Cell<?>> cells =
+			((RandomAccessible) img.getCells()).randomAccess();
+		final long[] gridPos = new long[n];
+		final long[] cellMin = new long[n];
+		final int[] cellDims = new int[n];
+		final long[] pos = min.clone();
+		while (true) {
+			for (int d = 1; d < n; d++)
+				gridPos[d] = pos[d] / cellSize[d];
+			long x = min[0];
+			while (x <= max[0]) {
+				gridPos[0] = x / cellSize[0];
+				cells.setPosition(gridPos);
+				final Cell<?> cell = cells.get();
+				final Object array = storage(cell.getData());
+				if (array == null) return false;
+				cell.min(cellMin);
+				cell.dimensions(cellDims);
+				long offset = x - cellMin[0];
+				long stride = cellDims[0];
+				for (int d = 1; d < n; d++) {
+					offset += (pos[d] - cellMin[d]) * stride;
+					stride *= cellDims[d];
+				}
+				final long end = Math.min(max[0], cellMin[0] + cellDims[0] - 1);
+				addRun(segments, array, (int) offset, (int) (end - x + 1));
+				x = end + 1;
+			}
+			if (!increment(pos, min, max, 1)) break;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the runs of a block of samples stored in flat (X fastest) order,
+	 * restricted to the interval [{@code min}, {@code max}].
+	 */
+	private static void addRuns(final List<Segment> segments,
+		final Object array, final long[] blockMin, final long[] blockDims,
+		final long[] min, final long[] max)
+	{
+		final int n = min.length;
+		final int length = (int) (max[0] - min[0] + 1);
+		final long[] pos = min.clone();
+		while (true) {
+			long offset = 0;
+			long stride = 1;
+			for (int d = 0; d < n; d++) {
+				offset += (pos[d] - blockMin[d]) * stride;
+				stride *= blockDims[d];
+			}
+			addRun(segments, array, (int) offset, length);
+			if (!increment(pos, min, max, 1)) break;
+		}
+	}
+
+	/** Adds a run, merging it with the previous one if they are adjacent. */
+	private static void addRun(final List<Segment> segments, final Object array,
+		final int offset, final int length)
+	{
+		final int last = segments.size() - 1;
+		if (last >= 0) {
+			final Segment prev = segments.get(last);
+			if (prev.array() == array && prev.offset() + prev.length() == offset) {
+				segments.set(last, new Segment(array, prev.offset(), prev.length() +
+					length));
+				return;
+			}
+		}
+		segments.add(new Segment(array, offset, length));
+	}
+
+	/**
+	 * Advances the given position odometer-style over dimensions
+	 * {@code first..n-1} of the interval [{@code min}, {@code max}].
+	 *
+	 * @return false when the position has wrapped around past the end.
+	 */
+	private static boolean increment(final long[] pos, final long[] min,
+		final long[] max, final int first)
+	{
+		for (int d = first; d < pos.length; d++) {
+			if (pos[d] < max[d]) {
+				pos[d]++;
+				return true;
+			}
+			pos[d] = min[d];
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.util;
+
+import java.util.Arrays;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+
+/**
+ * A compact N-dimensional binary mask, stored as a list of runs along the
+ * first dimension. Each run covers the positions {@code start} through
+ * {@code end} (inclusive) of dimension 0, at a fixed position in every other
+ * dimension. All runs are stored in a single primitive array.
+ * <p>
+ * Runs are kept in the order they were added, and are expected not to
+ * overlap.
+ * </p>
+ */
+public class RunLengthMask {
+
+	private final int n;
+
+	/** The runs: start, end and the position in dimensions 1 to n-1 each. */
+	private long[] runs;
+
+	private int runCount;
+	private long size;
+
+	/** Creates an empty mask with the given number of dimensions. */
+	public RunLengthMask(final int numDimensions) {
+		if (numDimensions < 1) {
+			throw new IllegalArgumentException("Invalid dimensionality: " +
+				numDimensions);
+		}
+		n = numDimensions;
+		runs = new long[16 * (n + 1)];
+	}
+
+	// -- RunLengthMask methods --
+
+	/** Gets the number of dimensions of the mask. */
+	public int numDimensions() {
+		return n;
+	}
+
+	/**
+	 * Adds a run to the mask.
+	 *
+	 * @param start The first position of the run along dimension 0.
+	 * @param end The last position of the run along dimension 0.
+	 * @param position The position of the run in dimensions 1 to n-1.
+	 */
+	public void add(final long start, final long end, final long... position) {
+		if (position.length != n - 1) {
+			throw new IllegalArgumentException("Expected " + (n - 1) +
+				" coordinates but got " + position.length);
+		}
+		if (end < start) return;
+		final int stride = n + 1;
+		if ((runCount + 1) * stride > runs.length) {
+			runs = Arrays.copyOf(runs, 2 * runs.length);
+		}
+		final int offset = runCount * stride;
+		runs[offset] = start;
+		runs[offset + 1] = end;
+		System.arraycopy(position, 0, runs, offset + 2, n - 1);
+		runCount++;
+		size += end - start + 1;
+	}
+
+	/** Gets the number of runs in the mask. */
+	public int runCount() {
+		return runCount;
+	}
+
+	/** Gets the number of positions in the mask. */
+	public long size() {
+		return size;
+	}
+
+	/** Gets whether the mask contains no positions. */
+	public boolean isEmpty() {
+		return runCount == 0;
+	}
+
+	/** Gets the first position along dimension 0 of the given run. */
+	public long start(final int run) {
+		return runs[run * (n + 1)];
+	}
+
+	/** Gets the last position along dimension 0 of the given run. */
+	public long end(final int run) {
+		return runs[run * (n + 1) + 1];
+	}
+
+	/**
+	 * Gets the position of the given run in dimension {@code d}. For
+	 * {@code d == 0}, this is the start of the run.
+	 */
+	public long position(final int run, final int d) {
+		return runs[run * (n + 1) + (d == 0 ? 0 : d + 1)];
+	}
+
+	/**
+	 * Writes the position of the start of the given run into the given array.
+	 */
+	public void localize(final int run, final long[] position) {
+		final int offset = run * (n + 1);
+		position[0] = runs[offset];
+		System.arraycopy(runs, offset + 2, position, 1, n - 1);
+	}
+
+	/**
+	 * Gets whether the mask contains the given position. This scans all runs,
+	 * so it is intended for occasional queries only.
+	 */
+	public boolean contains(final long... position) {
+		final int stride = n + 1;
+		runs:
+		for (int offset = 0; offset < runCount * stride; offset += stride) {
+			if (position[0] < runs[offset] || position[0] > runs[offset + 1]) {
+				continue;
+			}
+			for (int d = 1; d < n; d++) {
+				if (runs[offset + d + 1] != position[d]) continue runs;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/** Gets the bounding box of the mask, or null if it is empty. */
+	public Interval bounds() {
+		if (runCount == 0) return null;
+		final long[] min = new long[n];
+		final long[] max = new long[n];
+		Arrays.fill(min, Long.MAX_VALUE);
+		Arrays.fill(max, Long.MIN_VALUE);
+		final int stride = n + 1;
+		for (int offset = 0; offset < runCount * stride; offset += stride) {
+			min[0] = Math.min(min[0], runs[offset]);
+			max[0] = Math.max(max[0], runs[offset + 1]);
+			for (int d = 1; d < n; d++) {
+				min[d] = Math.min(min[d], runs[offset + d + 1]);
+				max[d] = Math.max(max[d], runs[offset + d + 1]);
+			}
+		}
+		return new FinalInterval(min, max);
+	}
+
+}
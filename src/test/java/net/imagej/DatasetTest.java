@@ -32,15 +32,22 @@ package net.imagej;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Optional;
 
 import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
 import net.imagej.axis.CalibratedAxis;
+import net.imagej.types.UnboundedIntegerType;
 import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
 
@@ -61,6 +68,21 @@ public class DatasetTest extends AbstractDatasetTest {
 		return 100 * t + 10 * z + 1 * c;
 	}
 
+	private void assertNoRawPlanes(
+		final ImgFactory<UnboundedIntegerType> factory)
+	{
+		final BigInteger big = BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(4);
+		final ImgPlus<UnboundedIntegerType> imgPlus = new ImgPlus<>(factory
+			.create(DIMENSIONS));
+		imgPlus.firstElement().set(big);
+		final Dataset ds = datasetService.create(imgPlus);
+		assertNull(ds.getPlane(0, false));
+		assertNull(ds.getPlane(0, true));
+		assertFalse(ds.setPlane(0, new long[(int) (DIMENSIONS[0] *
+			DIMENSIONS[1])]));
+		assertEquals(big, imgPlus.firstElement().get());
+	}
+
 	private void testPlanarCase() {
 		// test planar container backed case : get by reference
 		final Dataset ds = createPlanarDataset();
@@ -152,6 +174,53 @@ public class DatasetTest extends AbstractDatasetTest {
 		testNonplanarCase();
 	}
 
+	@Test
+	public void testGetCellPlaneByReference() {
+		// cells holding exactly one XY plane each : get by reference
+		final Dataset ds = createDataset(new CellImgFactory<>(new IntType(), 4, 4,
+			1, 1, 1));
+		final int planeCount = CPLANES * ZPLANES * TPLANES;
+		for (int planeNum = 0; planeNum < planeCount; planeNum++) {
+			final int[] plane = (int[]) ds.getPlane(planeNum, false);
+			assertSame(plane, ds.getPlane(planeNum, false));
+			Arrays.fill(plane, planeNum);
+			assertFalse(ds.setPlane(planeNum, plane));
+		}
+		final RandomAccess<? extends RealType<?>> accessor = //
+			ds.getImgPlus().randomAccess();
+		accessor.setPosition(new long[] { 3, 2, 1, 2, 3 });
+		assertEquals(CPLANES * (ZPLANES * 3 + 2) + 1, //
+			accessor.get().getRealDouble(), 0);
+	}
+
+	@Test
+	public void testUnboundedIntegerPlanes() {
+		// NB: The storage would hold just a marker in place of the big value.
+		assertNoRawPlanes(new PlanarImgFactory<>(new UnboundedIntegerType()));
+		assertNoRawPlanes(new CellImgFactory<>(new UnboundedIntegerType(), 4, 4,
+			1, 1, 1));
+	}
+
+	@Test
+	public void testSetNonplanarPlane() {
+		// non planar container backed case : set by copy
+		final Dataset ds = createNonplanarDataset();
+		final int planeSize = (int) (DIMENSIONS[0] * DIMENSIONS[1]);
+		final int planeCount = CPLANES * ZPLANES * TPLANES;
+		for (int planeNum = 0; planeNum < planeCount; planeNum++) {
+			final int[] plane = new int[planeSize];
+			for (int i = 0; i < planeSize; i++)
+				plane[i] = 100 * planeNum + i;
+			assertTrue(ds.setPlane(planeNum, plane));
+		}
+		for (int planeNum = 0; planeNum < planeCount; planeNum++) {
+			final int[] plane = (int[]) ds.getPlane(planeNum, true);
+			for (int i = 0; i < planeSize; i++)
+				assertEquals(100 * planeNum + i, plane[i]);
+		}
+		assertFalse(ds.setPlane(0, new float[planeSize]));
+	}
+
 	/**
 	 * Tests dimensional convenience methods:
 	 * <ul>
@@ -0,0 +1,320 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.render.RenderingService;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.Unsigned12BitType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests that the span-based primitives of {@link DrawingTool} draw exactly the
+ * same pixels as drawing each pixel with {@link DrawingTool#drawPixel}.
+ */
+public class DrawingToolTest {
+
+	private static final int W = 13, H = 9;
+
+	private Context context;
+	private DatasetService datasetService;
+	private RenderingService renderingService;
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class, RenderingService.class);
+		datasetService = context.service(DatasetService.class);
+		renderingService = context.service(RenderingService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testDrawSpan() {
+		assertSamePixels(tool -> {
+			tool.drawSpan(2, 9, 3);
+			tool.drawSpan(10, 4, 5); // reversed ends
+			tool.drawSpan(-5, 3, 0); // clipped at the start
+			tool.drawSpan(8, 40, 8); // clipped at the end
+			tool.drawSpan(-3, 50, 6); // clipped at both ends
+			tool.drawSpan(20, 30, 2); // beyond the end
+			tool.drawSpan(-9, -2, 1); // before the start
+			tool.drawSpan(0, 5, -1); // row before the plane
+			tool.drawSpan(0, 5, 20); // row after the plane
+		}, tool -> {
+			span(tool, 2, 9, 3);
+			span(tool, 10, 4, 5);
+			span(tool, -5, 3, 0);
+			span(tool, 8, 40, 8);
+			span(tool, -3, 50, 6);
+			span(tool, 20, 30, 2);
+			span(tool, -9, -2, 1);
+			span(tool, 0, 5, -1);
+			span(tool, 0, 5, 20);
+		});
+	}
+
+	@Test
+	public void testHorizontalLine() {
+		assertSamePixels(tool -> {
+			tool.drawLine(9, 4, 2, 4);
+			tool.drawLine(-4, 7, 30, 7);
+		}, tool -> {
+			span(tool, 2, 9, 4);
+			span(tool, -4, 30, 7);
+		});
+	}
+
+	@Test
+	public void testFillRect() {
+		assertSamePixels(tool -> {
+			tool.fillRect(3, 2, 5, 4);
+			tool.fillRect(-2, -3, 4, 5); // clipped
+			tool.fillRect(10, 6, 0, 3); // empty
+		}, tool -> {
+			rect(tool, 3, 2, 5, 4);
+			rect(tool, -2, -3, 4, 5);
+		});
+		assertSamePixels(DrawingTool::fill, tool -> rect(tool, 0, 0, 50, 50));
+	}
+
+	@Test
+	public void testFillCircle() {
+		for (final long lineWidth : new long[] { 3, 4, 7 }) {
+			assertSamePixels(tool -> {
+				tool.setLineWidth(lineWidth);
+				tool.fillCircle(5, 4);
+				tool.fillCircle(0, 8); // clipped
+			}, tool -> {
+				circle(tool, 5, 4, lineWidth);
+				circle(tool, 0, 8, lineWidth);
+			});
+		}
+	}
+
+	@Test
+	public void testFillEllipse() {
+		final double[][] ellipses = { //
+			{ 6.3, 4.2, 3.7, 2.6 }, //
+			{ 1.3, 7.6, 4.2, 3.1 }, // clipped
+			{ 11.8, 0.4, 2.3, 5.2 } }; // clipped
+		for (final double[] e : ellipses) {
+			assertSamePixels(tool -> tool.fillEllipse(e[0], e[1], e[2], e[3]),
+				tool -> ellipse(tool, e[0], e[1], e[2], e[3]));
+		}
+	}
+
+	@Test
+	public void testFillPolygon() {
+		// a self-intersecting star, whose center is outside by the even-odd rule
+		final double[] starU = new double[5], starV = new double[5];
+		for (int k = 0; k < 5; k++) {
+			final double t = -Math.PI / 2 + k * 4 * Math.PI / 5;
+			starU[k] = 6.2 + 5.3 * Math.cos(t);
+			starV[k] = 4.4 + 4.1 * Math.sin(t);
+		}
+		final double[][][] polygons = { //
+			{ starU, starV }, //
+			{ { -2.5, 7.25, 10.5, 3.0 }, { 1.0, -1.5, 6.0, 11.5 } }, // clipped
+			{ { 1, 9, 9, 1 }, { 1, 1, 6, 6 } }, // vertices on pixel centers
+			{ { 2, 11, 2, 11 }, { 1, 1, 7, 7 } } }; // bow tie
+		for (final double[][] p : polygons) {
+			assertSamePixels(tool -> tool.fillPolygon(p[0], p[1]),
+				tool -> evenOdd(tool, p[0], p[1]));
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that the given drawing produces the same samples as the given
+	 * per-pixel reference, for several storage layouts, in both single-channel
+	 * and all-channel mode.
+	 */
+	private void assertSamePixels(final Consumer<DrawingTool> drawing,
+		final Consumer<DrawingTool> reference)
+	{
+		final List<Supplier<Img<?>>> imgs = new ArrayList<>();
+		// row path: array and planar storage
+		imgs.add(() -> new ArrayImgFactory<>(new IntType()).create(W, H, 2));
+		imgs.add(() -> new PlanarImgFactory<>(new IntType()).create(W, H, 2));
+		// fallback path: rows split across cells, and a type without a Kind
+		imgs.add(() -> new CellImgFactory<>(new IntType(), 5).create(W, H, 2));
+		imgs.add(() -> new ArrayImgFactory<>(new Unsigned12BitType()).create(W,
+			H, 2));
+		for (int i = 0; i < imgs.size(); i++) {
+			for (final long channel : new long[] { -1, 1 }) {
+				// draw both along X and along Y
+				for (final boolean transposed : new boolean[] { false, true }) {
+					final Dataset actual = create(imgs.get(i).get());
+					final Dataset expected = create(imgs.get(i).get());
+					drawing.accept(tool(actual, channel, transposed));
+					reference.accept(tool(expected, channel, transposed));
+					assertSameSamples("img #" + i + ", channel " + channel +
+						(transposed ? ", transposed" : ""), expected, actual);
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Dataset create(final Img<?> img) {
+		return datasetService.create(new ImgPlus(img, "drawing",
+			new AxisType[] { Axes.X, Axes.Y, Axes.CHANNEL }));
+	}
+
+	private DrawingTool tool(final Dataset ds, final long channel,
+		final boolean transposed)
+	{
+		final DrawingTool tool = new DrawingTool(ds, renderingService);
+		tool.setChannels(new ChannelCollection(Arrays.asList(3.0, 8.0)));
+		tool.setPreferredChannel(channel);
+		if (transposed) {
+			tool.setUAxis(1);
+			tool.setVAxis(0);
+		}
+		return tool;
+	}
+
+	private void assertSameSamples(final String message, final Dataset expected,
+		final Dataset actual)
+	{
+		final Iterator<? extends RealType<?>> e = Views.flatIterable(expected
+			.getImgPlus()).iterator();
+		final Iterator<? extends RealType<?>> a = Views.flatIterable(actual
+			.getImgPlus()).iterator();
+		int index = 0;
+		while (e.hasNext()) {
+			assertEquals(message + ", sample " + index++, e.next().getRealDouble(), a
+				.next().getRealDouble(), 0);
+		}
+	}
+
+	/** Draws a span pixel by pixel. */
+	private static void span(final DrawingTool tool, final long u1,
+		final long u2, final long v)
+	{
+		for (long u = Math.min(u1, u2); u <= Math.max(u1, u2); u++) {
+			tool.drawPixel(u, v);
+		}
+	}
+
+	/** Draws a filled rectangle pixel by pixel. */
+	private static void rect(final DrawingTool tool, final long u0,
+		final long v0, final long w, final long h)
+	{
+		for (long v = v0; v < v0 + h; v++) {
+			for (long u = u0; u < u0 + w; u++) {
+				tool.drawPixel(u, v);
+			}
+		}
+	}
+
+	/** Draws a filled circle pixel by pixel, as ImageJ 1.x does. */
+	private static void circle(final DrawingTool tool, final long uc,
+		final long vc, final long lineWidth)
+	{
+		double r = lineWidth / 2.0;
+		final long umin = (long) (uc - r + 0.5);
+		final long vmin = (long) (vc - r + 0.5);
+		final double r2 = r * r;
+		r -= 0.5;
+		final double uoffset = umin + r;
+		final double voffset = vmin + r;
+		for (long v = vmin; v < vmin + lineWidth; v++) {
+			for (long u = umin; u < umin + lineWidth; u++) {
+				final double uu = u - uoffset;
+				final double vv = v - voffset;
+				if (uu * uu <= r2 - vv * vv) tool.drawPixel(u, v);
+			}
+		}
+	}
+
+	/** Draws a filled ellipse pixel by pixel. */
+	private static void ellipse(final DrawingTool tool, final double uc,
+		final double vc, final double ru, final double rv)
+	{
+		for (long v = 0; v < 50; v++) {
+			for (long u = 0; u < 50; u++) {
+				final double du = (u - uc) / ru;
+				final double dv = (v - vc) / rv;
+				if (du * du + dv * dv <= 1) tool.drawPixel(u, v);
+			}
+		}
+	}
+
+	/**
+	 * Draws a filled polygon pixel by pixel, counting the edges crossed to the
+	 * left of each pixel: an odd count means the pixel is inside.
+	 */
+	private static void evenOdd(final DrawingTool tool, final double[] us,
+		final double[] vs)
+	{
+		final int n = us.length;
+		for (long v = 0; v < 50; v++) {
+			for (long u = 0; u < 50; u++) {
+				int crossings = 0;
+				for (int i = 0; i < n; i++) {
+					final int j = (i + 1) % n;
+					final int a = vs[i] <= vs[j] ? i : j, b = a == i ? j : i;
+					if (vs[a] <= v && v < vs[b]) {
+						final double slope = (us[b] - us[a]) / (vs[b] - vs[a]);
+						if (us[a] + (v - vs[a]) * slope <= u) crossings++;
+					}
+				}
+				if (crossings % 2 == 1) tool.drawPixel(u, v);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.imagej.render.RenderingService;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link FloodFiller}.
+ */
+public class FloodFillerTest {
+
+	private Context context;
+	private DatasetService datasetService;
+	private RenderingService renderingService;
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class, RenderingService.class);
+		datasetService = context.service(DatasetService.class);
+		renderingService = context.service(RenderingService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testFillAcrossAxes() {
+		final Img<?>[] imgs = { //
+			new PlanarImgFactory<>(new IntType()).create(4, 3, 3), //
+			new CellImgFactory<>(new IntType(), 2).create(4, 3, 3) };
+		for (final Img<?> img : imgs) {
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			final Dataset ds = datasetService.create(new ImgPlus(img));
+			final DrawingTool tool = new DrawingTool(ds, renderingService);
+			tool.setChannels(new ChannelCollection(Arrays.asList(5.0)));
+			tool.setPosition(new long[] { 0, 0, 1 });
+
+			assertTrue(new FloodFiller(tool).fill(new long[] { 1, 1, 0 }, false, 2));
+
+			// the whole stack was filled
+			for (final RealType<?> t : ds) {
+				assertEquals(5, t.getRealDouble(), 0);
+			}
+
+			// but the tool still draws in the plane it was set to
+			final long[] position = new long[3];
+			tool.getPosition(position);
+			assertEquals(1, position[2]);
+			tool.setChannels(new ChannelCollection(Arrays.asList(7.0)));
+			tool.drawPixel(0, 0);
+			final RandomAccess<? extends RealType<?>> ra = ds.randomAccess();
+			ra.setPosition(new long[] { 0, 0, 1 });
+			assertEquals(7, ra.get().getRealDouble(), 0);
+			ra.setPosition(2, 2);
+			assertEquals(5, ra.get().getRealDouble(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.display.DatasetView;
+import net.imagej.display.ImageCanvas;
+import net.imagej.display.ImageDisplay;
+import net.imagej.display.ImageDisplayService;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.util.RealCoords;
+
+/**
+ * Tests {@link ImageGrabber}.
+ */
+public class ImageGrabberTest {
+
+	private static final int WIDTH = 1000, HEIGHT = 700;
+
+	private Context context;
+	private ImageDisplayService imageDisplayService;
+	private ImageGrabber grabber;
+	private Dataset dataset;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+		final DatasetService datasetService = context.service(
+			DatasetService.class);
+		imageDisplayService = context.service(ImageDisplayService.class);
+		grabber = new ImageGrabber(datasetService);
+		dataset = datasetService.create(new UnsignedByteType(), new long[] { WIDTH,
+			HEIGHT }, "grab", new AxisType[] { Axes.X, Axes.Y });
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testGrab() {
+		final DatasetView view = createView(null);
+		final Dataset grabbed = grabber.grab(view, "whole");
+		assertEquals("whole", grabbed.getName());
+		assertTrue(grabbed.isRGBMerged());
+		assertGrabbed(grabbed, view, 0, 0, WIDTH, HEIGHT, 1);
+	}
+
+	/** Checks that the viewport is cropped from a viewport-limited view. */
+	@Test
+	public void testGrabViewport() {
+		final DatasetView view = createView(1.0);
+		// the screen image holds data (256, 0) through (767, 511), of which
+		// data (350, 250) through (649, 449) are visible
+		assertEquals(256, view.getScreenImageBounds().x);
+		assertGrabbed(grabber.grab(view, "crop", true), view, 94, 250, 300, 200,
+			1);
+
+		// without cropping, the whole screen image is grabbed
+		assertGrabbed(grabber.grab(view, "tiles", false), view, 0, 0, 512, 512,
+			1);
+	}
+
+	/** Checks the crop and calibration of a subsampled screen image. */
+	@Test
+	public void testGrabSubsampled() {
+		final DatasetView view = createView(0.5);
+		assertEquals(2, view.getScreenImageStep());
+		// data (200, 150) through (799, 549) are visible, in every other pixel
+		assertGrabbed(grabber.grab(view, "crop", true), view, 100, 75, 300, 200,
+			2);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Creates a view whose screen image is filled with distinct colors. If a
+	 * zoom is given, the view is limited to a 300x200 viewport centered on data
+	 * (500, 350).
+	 */
+	private DatasetView createView(final Double zoom) {
+		final DatasetView view = imageDisplayService.createDatasetView(dataset);
+		final ImageDisplay display = imageDisplayService.createImageDisplay(view);
+		if (zoom != null) {
+			final ImageCanvas canvas = display.getCanvas();
+			canvas.setViewportSize(300, 200);
+			canvas.setZoom(zoom);
+			canvas.setPanCenter(new RealCoords(500, 350));
+			view.setViewport(canvas);
+		}
+		// NB: Supersede any pending render, which would overwrite the colors.
+		display.update();
+		final int[] pixels = view.getScreenImage().getData();
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xff000000 | (i * 40503) & 0xffffff;
+		}
+		return view;
+	}
+
+	/**
+	 * Checks that the grabbed dataset holds the red, green and blue components
+	 * of the given rectangle of the view's screen image.
+	 */
+	private void assertGrabbed(final Dataset grabbed, final DatasetView view,
+		final int x0, final int y0, final int width, final int height,
+		final int step)
+	{
+		assertEquals(3, grabbed.numDimensions());
+		assertEquals(width, grabbed.dimension(0));
+		assertEquals(height, grabbed.dimension(1));
+		assertEquals(3, grabbed.dimension(2));
+		assertEquals(step, grabbed.averageScale(0), 0);
+		assertEquals(step, grabbed.averageScale(1), 0);
+
+		final int[] pixels = view.getScreenImage().getData();
+		final int stride = (int) view.getScreenImage().dimension(0);
+		final RandomAccess<? extends RealType<?>> ra = grabbed.getImgPlus()
+			.randomAccess();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				final int pixel = pixels[(y0 + y) * stride + x0 + x];
+				ra.setPosition(x, 0);
+				ra.setPosition(y, 1);
+				for (int c = 0; c < 3; c++) {
+					ra.setPosition(c, 2);
+					final int expected = (pixel >> 8 * (2 - c)) & 0xff;
+					assertEquals("(" + x + ", " + y + ", " + c + ")", expected, (int) ra
+						.get().getRealDouble());
+				}
+			}
+		}
+	}
+
+}
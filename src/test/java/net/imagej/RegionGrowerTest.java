@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.imagej.util.RunLengthMask;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RegionGrower}.
+ */
+public class RegionGrowerTest extends AbstractDatasetTest {
+
+	/**
+	 * A 6x5 plane with a ring of ones, a spur inside it, and a one outside
+	 * touching the ring only at a corner.
+	 */
+	private static final int[][] PLANE = { //
+		{ 1, 1, 1, 1, 0, 0 }, //
+		{ 1, 0, 0, 1, 0, 0 }, //
+		{ 1, 0, 1, 1, 0, 0 }, //
+		{ 1, 1, 1, 1, 0, 0 }, //
+		{ 0, 0, 0, 0, 1, 0 } };
+
+	@Test
+	public void testConnectivity2D() {
+		for (final ImgFactory<IntType> factory : factories()) {
+			final Dataset ds = create(factory, 6, 5);
+			fill(ds, PLANE, 0);
+			final RegionGrower grower = new RegionGrower(ds);
+
+			final RunLengthMask ring4 = grower.growEqual(new long[] { 0, 0 }, false,
+				0, 1);
+			assertEquals(13, ring4.size());
+			assertFalse(ring4.contains(4, 4));
+
+			final RunLengthMask ring8 = grower.growEqual(new long[] { 0, 0 }, true,
+				0, 1);
+			assertEquals(14, ring8.size());
+			assertTrue(ring8.contains(4, 4));
+
+			// the inside of the ring, and the outside, are separate regions
+			final RunLengthMask inside = grower.growEqual(new long[] { 1, 1 }, false,
+				0, 1);
+			assertEquals(3, inside.size());
+			final RunLengthMask outside = grower.growEqual(new long[] { 5, 0 },
+				false, 0, 1);
+			assertEquals(9, outside.size());
+		}
+	}
+
+	@Test
+	public void testConnectivity3D() {
+		for (final ImgFactory<IntType> factory : factories()) {
+			// two voxels touching at a corner, and one sharing a face
+			final Dataset ds = create(factory, 3, 3, 3);
+			set(ds, 1, 1, 1, 1);
+			set(ds, 2, 2, 2, 1);
+			set(ds, 1, 1, 0, 1);
+			final RegionGrower grower = new RegionGrower(ds);
+			final long[] seed = { 1, 1, 1 };
+			assertEquals(2, grower.growEqual(seed, false, 0, 1, 2).size());
+			assertEquals(3, grower.growEqual(seed, true, 0, 1, 2).size());
+			// within the plane only, the voxel is alone
+			assertEquals(1, grower.growEqual(seed, true, 0, 1).size());
+		}
+	}
+
+	@Test
+	public void testInRange() {
+		final Dataset ds = create(new PlanarImgFactory<>(new IntType()), 6, 5);
+		fill(ds, PLANE, 0);
+		set(ds, 5, 4, 7);
+		final RegionGrower grower = new RegionGrower(ds);
+		final RunLengthMask region = grower.growInRange(new long[] { 5, 0 }, 0, 0,
+			false, 0, 1);
+		assertEquals(8, region.size());
+		assertEquals(30, grower.growInRange(new long[] { 5, 0 }, 0, 7, false, 0, 1)
+			.size());
+	}
+
+	@Test
+	public void testScanAlongY() {
+		final Dataset ds = create(new PlanarImgFactory<>(new IntType()), 6, 5);
+		fill(ds, PLANE, 0);
+		final RunLengthMask ring = new RegionGrower(ds).growEqual(new long[] { 0, 0 }, false,
+			1, 0);
+		assertEquals(13, ring.size());
+		// runs are along Y: dimension 0 of the mask is Y
+		assertTrue(ring.contains(3, 0));
+		assertFalse(ring.contains(4, 4));
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings("unchecked")
+	private ImgFactory<IntType>[] factories() {
+		return new ImgFactory[] { new PlanarImgFactory<>(new IntType()),
+			new ArrayImgFactory<>(new IntType()), new CellImgFactory<>(
+				new IntType(), 2) };
+	}
+
+	private Dataset create(final ImgFactory<IntType> factory,
+		final long... dims)
+	{
+		final Img<IntType> img = factory.create(dims);
+		return datasetService.create(new ImgPlus<>(img));
+	}
+
+	private void fill(final Dataset ds, final int[][] plane, final long z) {
+		for (int y = 0; y < plane.length; y++) {
+			for (int x = 0; x < plane[y].length; x++) {
+				if (ds.numDimensions() > 2) set(ds, x, y, z, plane[y][x]);
+				else set(ds, x, y, plane[y][x]);
+			}
+		}
+	}
+
+	private void set(final Dataset ds, final long... posAndValue) {
+		final RandomAccess<? extends RealType<?>> ra = ds.randomAccess();
+		for (int d = 0; d < ds.numDimensions(); d++) {
+			ra.setPosition(posAndValue[d], d);
+		}
+		ra.get().setReal(posAndValue[posAndValue.length - 1]);
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.display.DatasetView;
+import net.imagej.display.ImageDisplay;
+import net.imagej.display.ImageDisplayService;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link Animation}.
+ */
+public class AnimationTest {
+
+	/** Frame period in nanoseconds, at 10 frames per second. */
+	private static final long PERIOD = 100000000L;
+
+	private Context context;
+	private ImageDisplay display;
+	private Animation animation;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+		final Dataset dataset = context.service(DatasetService.class).create(
+			new UnsignedByteType(), new long[] { 4, 3, 10 }, "frames",
+			new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+		final ImageDisplayService imageDisplayService = context.service(
+			ImageDisplayService.class);
+		final DatasetView view = imageDisplayService.createDatasetView(dataset);
+		display = imageDisplayService.createImageDisplay(view);
+		animation = new Animation(display);
+		animation.setFPS(10);
+		animation.begin(0);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	/** Checks that the frames whose deadlines have passed are dropped. */
+	@Test
+	public void testDroppedFrames() {
+		assertEquals(Axes.Z, animation.getAxis());
+		assertEquals(9, animation.getLast());
+
+		// frames shown on time
+		animation.showFrame(0);
+		animation.showFrame(PERIOD);
+		assertEquals(2, position());
+		assertEquals(2, animation.getRenderedFrames());
+		assertEquals(0, animation.getDroppedFrames());
+
+		// frame 5 is due, so frames 2 to 4 are dropped
+		animation.showFrame(5 * PERIOD + PERIOD / 2);
+		assertEquals(6, position());
+		assertEquals(3, animation.getRenderedFrames());
+		assertEquals(3, animation.getDroppedFrames());
+
+		// back on time
+		animation.showFrame(6 * PERIOD);
+		assertEquals(7, position());
+		assertEquals(4, animation.getRenderedFrames());
+		assertEquals(3, animation.getDroppedFrames());
+	}
+
+	/** Checks that a late frame wraps around the end of the range. */
+	@Test
+	public void testDroppedFramesWrap() {
+		animation.setFirst(7);
+		assertEquals(7, position());
+		animation.showFrame(3 * PERIOD);
+		assertEquals(8, position());
+		assertEquals(3, animation.getDroppedFrames());
+	}
+
+	@Test
+	public void testWrap() {
+		animation.setFirst(7);
+		assertPositions(8, 9, 7, 8, 9, 7);
+	}
+
+	@Test
+	public void testBackAndForth() {
+		animation.setFirst(7);
+		animation.setBackAndForth(true);
+		assertPositions(8, 9, 8, 7, 8, 9, 8);
+	}
+
+	@Test
+	public void testSingleFrame() {
+		animation.setFirst(9);
+		assertPositions(9, 9, 9);
+		animation.setBackAndForth(true);
+		assertPositions(9, 9);
+	}
+
+	/** Checks the positions whose data are fetched ahead. */
+	@Test
+	public void testUpcoming() {
+		animation.setFirst(7);
+		assertArrayEquals(new long[] { 8, 9, 7, 8 }, animation.upcoming(7));
+
+		animation.setBackAndForth(true);
+		assertArrayEquals(new long[] { 8, 9, 8, 7 }, animation.upcoming(7));
+
+		// the upcoming positions follow the direction of the animation...
+		animation.showFrame(0);
+		animation.showFrame(PERIOD);
+		assertEquals(9, position());
+		assertArrayEquals(new long[] { 8, 7, 8, 9 }, animation.upcoming(9));
+
+		// ...without changing it
+		animation.showFrame(2 * PERIOD);
+		assertEquals(8, position());
+
+		animation.setPrefetchCount(2);
+		assertArrayEquals(new long[] { 7, 8 }, animation.upcoming(8));
+		animation.setPrefetchCount(-1);
+		assertEquals(0, animation.upcoming(8).length);
+	}
+
+	// -- Helper methods --
+
+	/** Shows frames on time, and checks the positions shown. */
+	private void assertPositions(final long... expected) {
+		animation.begin(0);
+		for (int i = 0; i < expected.length; i++) {
+			animation.showFrame(i * PERIOD);
+			assertEquals("frame " + i, expected[i], position());
+		}
+		assertEquals(0, animation.getDroppedFrames());
+	}
+
+	private long position() {
+		return display.getLongPosition(Axes.Z);
+	}
+
+}
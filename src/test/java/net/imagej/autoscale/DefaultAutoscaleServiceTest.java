@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.autoscale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.ImgPlus;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventService;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link DefaultAutoscaleService}.
+ */
+public class DefaultAutoscaleServiceTest {
+
+	private Context context;
+	private AutoscaleService autoscaleService;
+	private DatasetService datasetService;
+
+	@Before
+	public void setUp() {
+		context = new Context(AutoscaleService.class, DatasetService.class,
+			EventService.class, ThreadService.class);
+		autoscaleService = context.service(AutoscaleService.class);
+		datasetService = context.service(DatasetService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testChannelRangeCache() {
+		final Dataset ds = datasetService.create(new UnsignedByteType(),
+			new long[] { 4, 3, 2 }, "cache", new AxisType[] { Axes.X, Axes.Y,
+				Axes.CHANNEL });
+		set(ds, 0, 0, 0, 10);
+		set(ds, 1, 1, 0, 20);
+		set(ds, 2, 2, 1, 50);
+
+		assertRange(0, 20, channelRange(ds, 0));
+		assertRange(0, 50, channelRange(ds, 1));
+
+		// unannounced changes are not seen, since the range is cached
+		set(ds, 3, 2, 0, 100);
+		assertRange(0, 20, channelRange(ds, 0));
+
+		// metadata changes do not invalidate the cache
+		ds.setName("renamed");
+		assertRange(0, 20, channelRange(ds, 0));
+
+		// data changes do
+		ds.update();
+		assertRange(0, 100, channelRange(ds, 0));
+		assertRange(0, 50, channelRange(ds, 1));
+
+		// as does clearing the cache explicitly
+		set(ds, 3, 2, 1, 150);
+		autoscaleService.clearCache(ds);
+		assertRange(0, 150, channelRange(ds, 1));
+	}
+
+	@Test
+	public void testIncrementalPlaneRanges() {
+		final Dataset ds = datasetService.create(new UnsignedByteType(),
+			new long[] { 4, 3, 2 }, "planes", new AxisType[] { Axes.X, Axes.Y,
+				Axes.Z });
+		set(ds, 0, 0, 0, 10);
+		set(ds, 0, 0, 1, 30);
+		ds.update();
+		assertRange(0, 30, channelRange(ds, 0));
+		assertEquals(10, ds.getImgPlus().getPlaneMaximum(0), 0);
+		assertEquals(30, ds.getImgPlus().getPlaneMaximum(1), 0);
+
+		// change plane 0 behind the dataset's back
+		((byte[]) ds.getPlane(0, false))[5] = 100;
+
+		// replace plane 1; only that plane is measured again
+		final byte[] plane = new byte[12];
+		plane[3] = 60;
+		ds.setPlane(1, plane);
+		assertRange(0, 60, channelRange(ds, 0));
+		assertEquals(10, ds.getImgPlus().getPlaneMaximum(0), 0);
+
+		// a full update measures all planes again
+		ds.update();
+		assertRange(0, 100, channelRange(ds, 0));
+	}
+
+	@Test
+	public void testStalePlaneRange() {
+		final Dataset ds = datasetService.create(new UnsignedByteType(),
+			new long[] { 4, 3, 2 }, "stale", new AxisType[] { Axes.X, Axes.Y,
+				Axes.Z });
+		final ImgPlus<?> imgPlus = ds.getImgPlus();
+
+		// a range measured before the plane was replaced must be discarded
+		final long stamp = imgPlus.getPlaneRangeStamp();
+		final byte[] plane = new byte[12];
+		plane[3] = 60;
+		ds.setPlane(1, plane);
+		assertFalse(imgPlus.setPlaneRange(1, 0, 0, stamp));
+		assertTrue(Double.isNaN(imgPlus.getPlaneMaximum(1)));
+		assertRange(0, 60, channelRange(ds, 0));
+
+		// whereas a range measured afterwards is recorded
+		assertTrue(imgPlus.setPlaneRange(1, 0, 60, imgPlus.getPlaneRangeStamp()));
+		assertEquals(60, imgPlus.getPlaneMaximum(1), 0);
+	}
+
+	@Test
+	public void testMethodSettingsChange() {
+		final Dataset ds = datasetService.create(new UnsignedByteType(),
+			new long[] { 10, 10 }, "settings", new AxisType[] { Axes.X, Axes.Y });
+		int i = 0;
+		for (final RealType<?> t : ds) t.setReal(i++);
+
+		final ConfidenceIntervalAutoscaleMethod<?> method =
+			new ConfidenceIntervalAutoscaleMethod<>(0.25, 0.25);
+		context.inject(method);
+		final DataRange narrow = autoscaleService.getChannelRange(ds, 0, null,
+			method);
+		assertTrue(narrow.getMax() < 90);
+
+		// the same method with other settings must not reuse the cached range
+		method.setTailProportions(0, 0);
+		final DataRange wide = autoscaleService.getChannelRange(ds, 0, null,
+			method);
+		assertTrue(wide.getMax() >= 98);
+	}
+
+	// -- Helper methods --
+
+	private DataRange channelRange(final Dataset ds, final int c) {
+		return autoscaleService.getChannelRange(ds, c, null, autoscaleService
+			.getDefaultAutoscaleMethod());
+	}
+
+	private void set(final Dataset ds, final long x, final long y, final long c,
+		final double value)
+	{
+		final RandomAccess<RealType<?>> ra = ds.randomAccess();
+		ra.setPosition(new long[] { x, y, c });
+		ra.get().setReal(value);
+	}
+
+	private void assertRange(final double min, final double max,
+		final DataRange range)
+	{
+		assertEquals(min, range.getMin(), 0);
+		assertEquals(max, range.getMax(), 0);
+	}
+}
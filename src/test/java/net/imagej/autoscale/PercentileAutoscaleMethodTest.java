@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.autoscale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link PercentileAutoscaleMethod} and {@link QuantileSketch}.
+ */
+public class PercentileAutoscaleMethodTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context(AutoscaleService.class, ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testExactTypes() {
+		final AutoscaleService service = context.getService(AutoscaleService.class);
+		@SuppressWarnings("unchecked")
+		final AutoscaleMethod<ByteType> method = service.getAutoscaleMethod(
+			"Percentile");
+		final Img<ByteType> img = ArrayImgs.bytes(100);
+		byte i = 0;
+		for (final ByteType b : img)
+			b.set(i++);
+		final DataRange range = method.getRange(img);
+		assertEquals(2, range.getMin(), 0);
+		assertEquals(97, range.getMax(), 0);
+	}
+
+	@Test
+	public void testRelativeTypes() {
+		final PercentileAutoscaleMethod<FloatType> method =
+			new PercentileAutoscaleMethod<>(0.01, 0.01);
+		context.inject(method);
+		final Img<FloatType> img = ArrayImgs.floats(1000, 200);
+		int i = 0;
+		for (final FloatType t : img)
+			t.set(i++ - 50000);
+		final DataRange range = method.getRange(img);
+		final double accuracy = PercentileAutoscaleMethod.RELATIVE_ACCURACY;
+		assertEquals(-48000, range.getMin(), 48000 * accuracy);
+		assertEquals(147999, range.getMax(), 147999 * accuracy);
+	}
+
+	@Test
+	public void testMerge() {
+		final Random r = new Random(0xdeadbeef);
+		final QuantileSketch all = QuantileSketch.relative(0.01);
+		final QuantileSketch a = QuantileSketch.relative(0.01);
+		final QuantileSketch b = QuantileSketch.relative(0.01);
+		for (int i = 0; i < 10000; i++) {
+			final double v = r.nextGaussian() * 1000;
+			all.add(v);
+			(i % 2 == 0 ? a : b).add(v);
+		}
+		a.merge(b);
+		assertEquals(all.count(), a.count());
+		for (double q = 0; q <= 1; q += 0.1) {
+			assertEquals(all.quantile(q), a.quantile(q), 0);
+		}
+		assertEquals(all.min(), a.min(), 0);
+		assertEquals(all.max(), a.max(), 0);
+	}
+
+	@Test
+	public void testExactSketch() {
+		final QuantileSketch sketch = QuantileSketch.exact(0, 255);
+		sketch.add(7, 10);
+		sketch.add(200, 5);
+		assertTrue(sketch.isExact());
+		assertEquals(15, sketch.count());
+		assertEquals(7, sketch.valueAtRank(9), 0);
+		assertEquals(200, sketch.valueAtRank(10), 0);
+		assertEquals(200, sketch.max(), 0);
+	}
+}
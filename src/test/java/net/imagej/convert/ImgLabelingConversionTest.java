@@ -30,6 +30,8 @@
 package net.imagej.convert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -41,10 +43,14 @@ import org.junit.Test;
 import org.scijava.Context;
 import org.scijava.convert.ConvertService;
 
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
@@ -110,6 +116,47 @@ public class ImgLabelingConversionTest {
 		assertEquals(3, labeling.getMapping().numSets());
 	}
 
+	@Test
+	public void testUnusedOverlappingLabelSet() {
+		ImgLabeling<Integer, UnsignedByteType> labeling = createTestImgLabeling();
+		// NB: Leaves the label set {1, 2} in the mapping, used by no pixel.
+		RandomAccess<LabelingType<Integer>> ra = labeling.randomAccess();
+		ra.setPosition(new long[] { 1, 0 });
+		ra.get().add(1);
+		ra.get().add(2);
+		ra.get().remove(2);
+
+		Img<?> img = convertService.convert(labeling, Img.class);
+		assertNotSame(labeling.getIndexImg(), img);
+		Cursor<?> c = img.cursor();
+		byte[] expected = { 2, 1, 0, 1, 1, 1, 2, 2, 0 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], ((IntegerType<?>) c.next()).getInteger());
+		}
+	}
+
+	@Test
+	public void testOverlappingLabels() {
+		ImgLabeling<Integer, UnsignedByteType> labeling = createTestImgLabeling();
+		RandomAccess<LabelingType<Integer>> ra = labeling.randomAccess();
+		ra.setPosition(new long[] { 1, 0 });
+		ra.get().add(1);
+		ra.get().add(2);
+
+		Img<?> img = convertService.convert(labeling, Img.class);
+		assertSame(labeling.getIndexImg(), img);
+	}
+
+	@Test
+	public void testLabelsWiderThanIndexType() {
+		ImgLabeling<Integer, UnsignedByteType> labeling = ImgLabeling
+			.fromImageAndLabels(createTestImg(), Arrays.asList(1000, 70000));
+
+		Img<?> img = convertService.convert(labeling, Img.class);
+		assertTrue(img.firstElement() instanceof IntType);
+		assertEquals(70000, ((IntegerType<?>) img.firstElement()).getInteger());
+	}
+
 	private ImgLabeling<Integer, UnsignedByteType> createTestImgLabeling() {
 		Img<UnsignedByteType> img = createTestImg();
 		List<Integer> labels = Arrays.asList(1, 2);
@@ -0,0 +1,226 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertEquals;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imglib2.Cursor;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.util.IntRect;
+import org.scijava.util.RealCoords;
+
+/**
+ * Tests the viewport-limited rendering of {@link DefaultDatasetView}.
+ */
+public class DefaultDatasetViewTest {
+
+	private static final int WIDTH = 1000, HEIGHT = 700;
+
+	private Context context;
+	private Dataset dataset;
+
+	/** A view rendering whole planes, to compare against. */
+	private DatasetView reference;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+		dataset = context.service(DatasetService.class).create(
+			new UnsignedByteType(), new long[] { WIDTH, HEIGHT }, "viewport",
+			new AxisType[] { Axes.X, Axes.Y });
+		final Cursor<? extends RealType<?>> c = dataset.getImgPlus()
+			.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().setReal((c.getLongPosition(0) + 3 * c.getLongPosition(1)) % 256);
+		}
+		reference = context.service(ImageDisplayService.class).createDatasetView(
+			dataset);
+		reference.rebuild();
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testRegionClamping() {
+		final DatasetView view = createView();
+		final ImageCanvas canvas = view.getViewport();
+
+		// the tiles covering the viewport, data (350, 250) through (650, 450)
+		assertBounds(256, 0, 512, 512, view);
+		assertScreenImage(view, 1);
+
+		// near the bottom right corner, tiles are clamped to the plane
+		canvas.setPanCenter(new RealCoords(990, 690));
+		assertBounds(768, 512, WIDTH - 768, HEIGHT - 512, view);
+		assertScreenImage(view, 1);
+
+		// beyond the top left corner, the first tile is still rendered
+		canvas.setPanCenter(new RealCoords(-500, -500));
+		assertBounds(0, 0, 256, 256, view);
+		assertScreenImage(view, 1);
+	}
+
+	@Test
+	public void testTileReuse() {
+		final DatasetView view = createView();
+		final ImageCanvas canvas = view.getViewport();
+		assertBounds(256, 0, 512, 512, view);
+
+		// mark a pixel of the tile at data (512, 0), which stays visible
+		final int marker = 0x12345678;
+		final int[] pixels = view.getScreenImage().getData();
+		final int width = (int) view.getScreenImage().dimension(0);
+		pixels[10 * width + 600 - 256] = marker;
+
+		// panning within the same tiles does nothing
+		canvas.setPanCenter(new RealCoords(600, 350));
+		assertBounds(256, 0, 512, 512, view);
+		assertEquals(marker, view.getScreenImage().getData()[10 * width + 600 -
+			256]);
+
+		// panning right drops the first column of tiles, and exposes a new one
+		canvas.setPanCenter(new RealCoords(700, 350));
+		assertBounds(512, 0, WIDTH - 512, 512, view);
+		final ARGBScreenImage image = view.getScreenImage();
+		final int[] data = image.getData();
+		final int newWidth = (int) image.dimension(0);
+		// the retained tile is copied, not rendered again
+		assertEquals(marker, data[10 * newWidth + 600 - 512]);
+		data[10 * newWidth + 600 - 512] = expected(600, 10);
+		// the exposed tiles are rendered
+		assertScreenImage(view, 1);
+	}
+
+	@Test
+	public void testStep() {
+		final DatasetView view = createView();
+		final ImageCanvas canvas = view.getViewport();
+
+		canvas.setZoom(0.5);
+		assertBounds(0, 0, WIDTH, HEIGHT, view);
+		assertScreenImage(view, 2);
+
+		// without a pyramid, any whole step is used
+		canvas.setZoom(0.3);
+		assertEquals(3, view.getScreenImageStep());
+		assertScreenImage(view, 3);
+
+		// with a pyramid, steps are powers of two
+		context.service(PyramidService.class).attach(dataset);
+		view.setViewport(null);
+		view.setViewport(canvas);
+		assertEquals(2, view.getScreenImageStep());
+
+		// zoomed in, the plane is not subsampled
+		canvas.setZoom(2);
+		assertEquals(1, view.getScreenImageStep());
+		assertScreenImage(view, 1);
+	}
+
+	@Test
+	public void testNoViewport() {
+		final DatasetView view = createView();
+		view.setViewport(null);
+		assertBounds(0, 0, WIDTH, HEIGHT, view);
+		assertScreenImage(view, 1);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Creates a view limited to a 300x200 viewport, centered on data (500, 350)
+	 * at full scale.
+	 */
+	private DatasetView createView() {
+		final ImageDisplayService imageDisplayService = context.service(
+			ImageDisplayService.class);
+		final DatasetView view = imageDisplayService.createDatasetView(dataset);
+		final ImageDisplay display = imageDisplayService.createImageDisplay(view);
+		final ImageCanvas canvas = display.getCanvas();
+		canvas.setViewportSize(300, 200);
+		canvas.setZoom(1);
+		canvas.setPanCenter(new RealCoords(500, 350));
+		view.setViewport(canvas);
+		return view;
+	}
+
+	private static void assertBounds(final int x, final int y, final int width,
+		final int height, final DatasetView view)
+	{
+		final IntRect bounds = view.getScreenImageBounds();
+		assertEquals(x, bounds.x);
+		assertEquals(y, bounds.y);
+		assertEquals(width, bounds.width);
+		assertEquals(height, bounds.height);
+	}
+
+	/** Gets the whole plane rendering of the given data pixel. */
+	private int expected(final int x, final int y) {
+		return reference.getScreenImage().getData()[y * WIDTH + x];
+	}
+
+	/**
+	 * Checks that the screen image holds every step-th pixel of the whole plane
+	 * rendering, within its bounds.
+	 */
+	private void assertScreenImage(final DatasetView view, final int step) {
+		final IntRect bounds = view.getScreenImageBounds();
+		final ARGBScreenImage image = view.getScreenImage();
+		final int width = (int) image.dimension(0);
+		final int height = (int) image.dimension(1);
+		assertEquals(step, view.getScreenImageStep());
+		assertEquals(bounds.width, width * step);
+		assertEquals(bounds.height, height * step);
+		final int[] data = image.getData();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				final int dataX = bounds.x + x * step, dataY = bounds.y + y * step;
+				if (dataX >= WIDTH || dataY >= HEIGHT) continue;
+				assertEquals("(" + dataX + ", " + dataY + ")", expected(dataX, dataY),
+					data[y * width + x]);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.display.event.DataViewUpdatedEvent;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventHandler;
+import org.scijava.event.EventService;
+
+/**
+ * Tests {@link DefaultImageDisplay}.
+ */
+public class DefaultImageDisplayTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	/** Checks that a burst of position changes is rendered only once. */
+	@Test
+	public void testPositionChangesCoalesced() throws InterruptedException {
+		final Dataset dataset = context.service(DatasetService.class).create(
+			new UnsignedByteType(), new long[] { 4, 3, 10 }, "burst",
+			new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+		final ImageDisplayService imageDisplayService = context.service(
+			ImageDisplayService.class);
+		final DatasetView view = imageDisplayService.createDatasetView(dataset);
+		final DefaultImageDisplay display =
+			(DefaultImageDisplay) imageDisplayService.createImageDisplay(view);
+		// NB: Supersede any render requested while creating the display.
+		display.update();
+
+		final RenderCounter counter = new RenderCounter(view);
+		context.service(EventService.class).subscribe(counter);
+
+		// NB: Hold the render lock, so that the first requested render cannot
+		// begin, and absorbs the requests which follow it.
+		final RenderScheduler scheduler = display.renderScheduler();
+		synchronized (scheduler.getLock()) {
+			for (int z = 1; z < 10; z++) {
+				display.setPosition(z, Axes.Z);
+			}
+			assertEquals(0, counter.renders.get());
+		}
+
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (counter.renders.get() == 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		// NB: Give any further render the chance to happen.
+		Thread.sleep(200);
+		assertEquals(1, counter.renders.get());
+		assertEquals(9, view.getLongPosition(Axes.Z));
+
+		// setting the same position again renders nothing
+		display.setPosition(9, Axes.Z);
+		Thread.sleep(200);
+		assertEquals(1, counter.renders.get());
+	}
+
+	// -- Helper classes --
+
+	/** Counts the updates of a view. */
+	public static class RenderCounter {
+
+		private final DataView view;
+		private final AtomicInteger renders = new AtomicInteger();
+
+		public RenderCounter(final DataView view) {
+			this.view = view;
+		}
+
+		@EventHandler
+		public void onEvent(final DataViewUpdatedEvent event) {
+			if (event.getView() == view) renders.incrementAndGet();
+		}
+	}
+
+}
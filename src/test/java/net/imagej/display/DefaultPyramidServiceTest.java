@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.ImgPlus;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.event.DatasetDeletedEvent;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventService;
+
+/**
+ * Tests {@link DefaultPyramidService}.
+ */
+public class DefaultPyramidServiceTest {
+
+	private Context context;
+	private PyramidService pyramidService;
+	private Dataset dataset;
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class, PyramidService.class,
+			EventService.class);
+		pyramidService = context.service(PyramidService.class);
+		dataset = context.service(DatasetService.class).create(new FloatType(),
+			new long[] { 600, 400 }, "pyramid", new AxisType[] { Axes.X, Axes.Y });
+		final Cursor<? extends RealType<?>> c = dataset.getImgPlus()
+			.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().setReal(c.getLongPosition(0));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testAttach() {
+		assertNull(pyramidService.getPyramid(dataset));
+		final Pyramid pyramid = pyramidService.attach(dataset);
+		assertNotNull(pyramid);
+		assertSame(dataset.getImgPlus(), pyramid.getSource());
+		assertEquals(3, pyramid.getLevelCount());
+		assertSame(pyramid, pyramidService.getPyramid(dataset));
+		assertSame(pyramid, pyramidService.attach(dataset));
+
+		pyramidService.detach(dataset);
+		assertNull(pyramidService.getPyramid(dataset));
+	}
+
+	@Test
+	public void testNoPlanes() {
+		final Dataset line = context.service(DatasetService.class).create(
+			new FloatType(), new long[] { 600 }, "line", new AxisType[] { Axes.X });
+		assertNull(pyramidService.attach(line));
+		assertNull(pyramidService.getPyramid(line));
+	}
+
+	@Test
+	public void testDataChange() {
+		final Pyramid pyramid = pyramidService.attach(dataset);
+		// each sample of level 1 averages x = 0 and x = 1 over two rows
+		assertEquals(0.5, value(pyramid.getLevel(1)), 0);
+
+		final RandomAccess<? extends RealType<?>> ra = dataset.getImgPlus()
+			.randomAccess();
+		ra.setPosition(new long[] { 0, 0 });
+		ra.get().setReal(10);
+		// computed planes are kept until the data is reported changed
+		assertEquals(0.5, value(pyramid.getLevel(1)), 0);
+		dataset.setName("renamed");
+		assertEquals(0.5, value(pyramid.getLevel(1)), 0);
+
+		dataset.update();
+		assertSame(pyramid, pyramidService.getPyramid(dataset));
+		assertEquals(3, value(pyramid.getLevel(1)), 0);
+	}
+
+	@Test
+	public void testImageReplaced() {
+		final Pyramid pyramid = pyramidService.attach(dataset);
+		final ImgPlus<FloatType> img = new ImgPlus<>(ArrayImgs.floats(300, 200),
+			"replaced", new AxisType[] { Axes.X, Axes.Y });
+		dataset.setImgPlus(img);
+
+		final Pyramid rebuilt = pyramidService.getPyramid(dataset);
+		assertNotSame(pyramid, rebuilt);
+		assertSame(img, rebuilt.getSource());
+		assertEquals(2, rebuilt.getLevelCount());
+	}
+
+	@Test
+	public void testDeleted() {
+		pyramidService.attach(dataset);
+		context.service(EventService.class).publish(new DatasetDeletedEvent(
+			dataset));
+		assertNull(pyramidService.getPyramid(dataset));
+	}
+
+	// -- Helper methods --
+
+	private static double value(
+		final RandomAccessibleInterval<? extends RealType<?>> img)
+	{
+		final RandomAccess<? extends RealType<?>> access = img.randomAccess();
+		access.setPosition(new long[] { 0, 0 });
+		return access.get().getRealDouble();
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import net.imagej.ChannelCollection;
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.DrawingTool;
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.display.DefaultOverlayService.OverlayFiller;
+import net.imagej.overlay.EllipseOverlay;
+import net.imagej.overlay.Overlay;
+import net.imagej.overlay.PolygonOverlay;
+import net.imagej.overlay.RectangleOverlay;
+import net.imagej.render.RenderingService;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.PolygonRegionOfInterest;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests that the analytic fills of {@link DefaultOverlayService} cover exactly
+ * the same pixels as testing each pixel of the overlay.
+ */
+public class OverlayFillerTest {
+
+	private static final long W = 20, H = 15;
+
+	private Context context;
+	private DatasetService datasetService;
+	private RenderingService renderingService;
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class, RenderingService.class);
+		datasetService = context.service(DatasetService.class);
+		renderingService = context.service(RenderingService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testRectangle() {
+		assertSameMask(rectangle(2, 3, 6, 4));
+		assertSameMask(rectangle(2.4, 3.7, 5.3, 4.6)); // fractional origin
+		assertSameMask(rectangle(-3.2, 11.5, 8.1, 9.9)); // clipped
+	}
+
+	@Test
+	public void testEllipse() {
+		assertSameMask(ellipse(8.3, 6.6, 5.7, 4.2));
+		assertSameMask(ellipse(10.5, 7.5, 3.5, 2.5));
+		assertSameMask(ellipse(1.4, 12.3, 6.2, 5.1)); // clipped
+	}
+
+	@Test
+	public void testPolygon() {
+		// a concave pentagon
+		assertSameMask(polygon(new double[] { 2.3, 14.6, 11.2, 6.7, 3.1 },
+			new double[] { 1.4, 3.2, 12.7, 7.3, 10.6 }));
+		// clipped
+		assertSameMask(polygon(new double[] { -3.4, 9.7, 17.3, 22.6 },
+			new double[] { 4.6, -2.3, 8.4, 17.2 }));
+	}
+
+	// -- Helper methods --
+
+	private void assertSameMask(final Overlay o) {
+		final OverlayFiller filler = new OverlayFiller();
+		final Dataset analytic = create();
+		filler.draw(o, tool(analytic));
+		final Dataset sampled = create();
+		filler.fillSampled(o, tool(sampled));
+
+		final Iterator<? extends RealType<?>> e = Views.flatIterable(sampled
+			.getImgPlus()).iterator();
+		final Iterator<? extends RealType<?>> a = Views.flatIterable(analytic
+			.getImgPlus()).iterator();
+		int index = 0, filled = 0;
+		while (e.hasNext()) {
+			final double expected = e.next().getRealDouble();
+			assertEquals("pixel " + index++, expected, a.next().getRealDouble(), 0);
+			if (expected != 0) filled++;
+		}
+		// NB: Make sure the comparison is not vacuous.
+		assertTrue(filled > 0);
+	}
+
+	private Dataset create() {
+		return datasetService.create(new UnsignedByteType(), new long[] { W, H },
+			"mask", new AxisType[] { Axes.X, Axes.Y });
+	}
+
+	private DrawingTool tool(final Dataset ds) {
+		final DrawingTool tool = new DrawingTool(ds, renderingService);
+		tool.setChannels(new ChannelCollection(Arrays.asList(255.0)));
+		return tool;
+	}
+
+	private RectangleOverlay rectangle(final double u, final double v,
+		final double w, final double h)
+	{
+		final RectangleOverlay o = new RectangleOverlay(context);
+		o.setOrigin(u, 0);
+		o.setOrigin(v, 1);
+		o.setExtent(w, 0);
+		o.setExtent(h, 1);
+		return o;
+	}
+
+	private EllipseOverlay ellipse(final double u, final double v,
+		final double ru, final double rv)
+	{
+		final EllipseOverlay o = new EllipseOverlay(context);
+		o.setOrigin(u, 0);
+		o.setOrigin(v, 1);
+		o.setRadius(ru, 0);
+		o.setRadius(rv, 1);
+		return o;
+	}
+
+	private PolygonOverlay polygon(final double[] us, final double[] vs) {
+		final PolygonOverlay o = new PolygonOverlay(context);
+		final PolygonRegionOfInterest roi = o.getRegionOfInterest();
+		while (roi.getVertexCount() > 0) {
+			roi.removeVertex(0);
+		}
+		for (int i = 0; i < us.length; i++) {
+			roi.addVertex(i, new RealPoint(new double[] { us[i], vs[i] }));
+		}
+		return o;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link ParallelCompositeXYProjector}.
+ */
+public class ParallelCompositeXYProjectorTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context(ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testIntegerComposite() {
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(300, 200, 3, 2);
+		final Random random = new Random(42);
+		img.forEach(t -> t.set(random.nextInt(256)));
+		assertSameRendering(img, 2, true, 1);
+		assertSameRendering(img, 2, false, 1);
+	}
+
+	@Test
+	public void testRealSingleChannel() {
+		final Img<FloatType> img = ArrayImgs.floats(300, 200, 2);
+		final Random random = new Random(7);
+		img.forEach(t -> t.set(random.nextFloat() * 1000 - 500));
+		assertSameRendering(img, -1, false, 1);
+	}
+
+	@Test
+	public void testConverterChange() {
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(300, 200, 2);
+		final Random random = new Random(3);
+		img.forEach(t -> t.set(random.nextInt(256)));
+		final ArrayList<Converter<UnsignedByteType, ARGBType>> converters =
+			converters(img, 2);
+		assertSameRendering(img, converters, 2, true, 0);
+
+		// the cached tables must follow the converters' state
+		final RealLUTConverter<UnsignedByteType> converter =
+			(RealLUTConverter<UnsignedByteType>) converters.get(1);
+		converter.setMin(50);
+		converter.setMax(100);
+		assertSameRendering(img, converters, 2, true, 0);
+		converter.setLUT(ColorTables.getDefaultColorTable(0));
+		assertSameRendering(img, converters, 2, true, 0);
+	}
+
+	// -- Helper methods --
+
+	private <A extends RealType<A>> void assertSameRendering(final Img<A> img,
+		final int channelDim, final boolean composite, final long position)
+	{
+		assertSameRendering(img, converters(img, channelDim), channelDim,
+			composite, position);
+	}
+
+	private <A extends RealType<A>> ArrayList<Converter<A, ARGBType>>
+		converters(final Img<A> img, final int channelDim)
+	{
+		final ArrayList<Converter<A, ARGBType>> converters = new ArrayList<>();
+		final int channels = channelDim < 0 ? 1 : (int) img.dimension(channelDim);
+		for (int c = 0; c < channels; c++) {
+			converters.add(new RealLUTConverter<>(-100, 200, ColorTables
+				.getDefaultColorTable(c)));
+		}
+		return converters;
+	}
+
+	private <A extends RealType<A>> void assertSameRendering(final Img<A> img,
+		final ArrayList<Converter<A, ARGBType>> converters, final int channelDim,
+		final boolean composite, final long position)
+	{
+		final ARGBScreenImage expected = new ARGBScreenImage(300, 200);
+		final CompositeXYProjector<A> reference = new CompositeXYProjector<>(img,
+			expected, converters, channelDim);
+		reference.setComposite(composite);
+		reference.setPosition(position, img.numDimensions() - 1);
+		reference.map();
+
+		final ARGBScreenImage actual = new ARGBScreenImage(300, 200);
+		final ParallelCompositeXYProjector<A, ARGBScreenImage> projector =
+			new ParallelCompositeXYProjector<>(img, actual, converters, channelDim,
+				context.service(ThreadService.class));
+		projector.setComposite(composite);
+		projector.setPosition(position, img.numDimensions() - 1);
+		projector.map();
+
+		assertArrayEquals(expected.getData(), actual.getData());
+	}
+
+}
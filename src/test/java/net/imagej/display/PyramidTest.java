@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import net.imagej.ImgPlus;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Pyramid}.
+ */
+public class PyramidTest {
+
+	@Test
+	public void testLevels() {
+		final Img<FloatType> img = ArrayImgs.floats(1000, 600, 2);
+		final RandomAccess<FloatType> ra = img.randomAccess();
+		for (int c = 0; c < 2; c++) {
+			for (int y = 0; y < 600; y++) {
+				for (int x = 0; x < 1000; x++) {
+					ra.setPosition(new long[] { x, y, c });
+					ra.get().set(x + 1000 * c);
+				}
+			}
+		}
+		final Pyramid pyramid = new Pyramid(new ImgPlus<>(img));
+		assertEquals(3, pyramid.getLevelCount());
+		assertArrayEquals(new long[] { 500, 300, 2 }, Intervals
+			.dimensionsAsLongArray(pyramid.getLevel(1)));
+		assertArrayEquals(new long[] { 250, 150, 2 }, Intervals
+			.dimensionsAsLongArray(pyramid.getLevel(2)));
+
+		// samples are averaged over 2x2 blocks, per level
+		assertEquals(2.5, value(pyramid.getLevel(1), 1, 7, 0), 0);
+		assertEquals(1001.5, value(pyramid.getLevel(2), 0, 3, 1), 0);
+
+		assertEquals(0, pyramid.getLevelForStep(1));
+		assertEquals(1, pyramid.getLevelForStep(3));
+		assertEquals(2, pyramid.getLevelForStep(4));
+		assertEquals(2, pyramid.getLevelForStep(32));
+
+		// planes are only recomputed after clearing
+		ra.setPosition(new long[] { 0, 0, 0 });
+		ra.get().set(-4);
+		assertEquals(1.5, value(pyramid.getLevel(2), 0, 0, 0), 0);
+		pyramid.clear();
+		assertEquals(1.25, value(pyramid.getLevel(2), 0, 0, 0), 0);
+	}
+
+	// -- Helper methods --
+
+	private double value(final RandomAccessibleInterval<? extends RealType<?>> img,
+		final long... pos)
+	{
+		final RandomAccess<? extends RealType<?>> access = img.randomAccess();
+		access.setPosition(pos);
+		return access.get().getRealDouble();
+	}
+
+}
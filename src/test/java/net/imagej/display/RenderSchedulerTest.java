@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.display;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link RenderScheduler}.
+ */
+public class RenderSchedulerTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context(ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException {
+		final AtomicInteger renders = new AtomicInteger();
+		final AtomicBoolean superseded = new AtomicBoolean();
+		final AtomicBoolean checked = new AtomicBoolean();
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		final RenderScheduler[] scheduler = new RenderScheduler[1];
+		scheduler[0] = new RenderScheduler(context.service(ThreadService.class),
+			() -> {
+				if (renders.incrementAndGet() > 1) {
+					done.countDown();
+					return;
+				}
+				started.countDown();
+				// NB: Keep the first render busy, noting whether it is interrupted.
+				while (true) {
+					try {
+						release.await();
+						break;
+					}
+					catch (final InterruptedException exc) {
+						interrupted.set(true);
+					}
+				}
+				superseded.set(scheduler[0].isSuperseded());
+				checked.set(RenderScheduler.supersededCheck().getAsBoolean());
+			});
+
+		scheduler[0].request();
+		started.await();
+		for (int i = 0; i < 100; i++) {
+			scheduler[0].request();
+		}
+		release.countDown();
+		done.await();
+
+		// the stale render was superseded but not interrupted, and the burst
+		// rendered only once
+		assertTrue(superseded.get());
+		assertTrue(checked.get());
+		assertFalse(interrupted.get());
+		// outside of a background render, nothing is ever superseded
+		assertFalse(RenderScheduler.supersededCheck().getAsBoolean());
+		assertEquals(2, renders.get());
+	}
+
+	@Test
+	public void testRenderNow() {
+		final AtomicBoolean superseded = new AtomicBoolean(true);
+		final RenderScheduler[] scheduler = new RenderScheduler[1];
+		scheduler[0] = new RenderScheduler(context.service(ThreadService.class),
+			() -> superseded.set(scheduler[0].isSuperseded()));
+		scheduler[0].request();
+		scheduler[0].renderNow();
+		assertFalse(superseded.get());
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.minmax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.plugin.PluginService;
+
+/**
+ * Tests {@link ParallelMinMaxMethod}.
+ */
+public class ParallelMinMaxMethodTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testPreferred() {
+		@SuppressWarnings("rawtypes")
+		final List<MinMaxMethod> methods = context.service(PluginService.class)
+			.createInstancesOfType(MinMaxMethod.class);
+		assertTrue(methods.get(0) instanceof ParallelMinMaxMethod);
+	}
+
+	@Test
+	public void testArrayImg() {
+		final byte[] data = new byte[300000];
+		data[12345] = (byte) 200;
+		data[299999] = 3;
+		for (int i = 0; i < 10; i++) data[i] = 1;
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(data, 1000, 300);
+		final ParallelMinMaxMethod<UnsignedByteType> method = process(img);
+		assertEquals(0, method.getMin().get());
+		assertEquals(200, method.getMax().get());
+	}
+
+	@Test
+	public void testPlanarSubInterval() {
+		final Img<UnsignedShortType> img = PlanarImgs.unsignedShorts(50, 40, 3);
+		int i = 0;
+		for (final UnsignedShortType t : img) t.set(i++ % 60000);
+		// plane 1, rows 10-19, columns 5-14
+		final RandomAccessibleInterval<UnsignedShortType> view = Views.interval(img,
+			new long[] { 5, 10, 1 }, new long[] { 14, 19, 1 });
+		final ParallelMinMaxMethod<UnsignedShortType> method = process(view);
+		assertEquals(2000 + 10 * 50 + 5, method.getMin().get());
+		assertEquals(2000 + 19 * 50 + 14, method.getMax().get());
+	}
+
+	@Test
+	public void testCellImgWithNaN() {
+		final Img<FloatType> img = new CellImgFactory<>(new FloatType(), 7)
+			.create(20, 20, 2);
+		int i = 0;
+		for (final FloatType t : img) t.set(i++ - 100);
+		img.firstElement().set(Float.NaN);
+		final ParallelMinMaxMethod<FloatType> method = process(img);
+		assertEquals(-99, method.getMin().get(), 0);
+		assertEquals(699, method.getMax().get(), 0);
+	}
+
+	@Test
+	public void testGenericView() {
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(30, 20);
+		int i = 0;
+		for (final UnsignedByteType t : img) t.set(i++ % 250);
+		final ParallelMinMaxMethod<UnsignedByteType> method = process(Views
+			.translate(img, 5, 5));
+		assertEquals(0, method.getMin().get());
+		assertEquals(249, method.getMax().get());
+	}
+
+	@Test
+	public void testNaNPlanarVsView() {
+		final Img<FloatType> img = PlanarImgs.floats(30, 20, 3);
+		int i = 0;
+		for (final FloatType t : img) {
+			// NB: NaN first, and on either side of the true extrema.
+			t.set(i % 7 == 0 ? Float.NaN : i - 500);
+			i++;
+		}
+		final ParallelMinMaxMethod<FloatType> planar = process(img);
+		final ParallelMinMaxMethod<FloatType> view = process(Views.translate(img,
+			5, 5, 0));
+		assertEquals(-499, planar.getMin().get(), 0);
+		assertEquals(1298, planar.getMax().get(), 0);
+		assertEquals(planar.getMin().get(), view.getMin().get(), 0);
+		assertEquals(planar.getMax().get(), view.getMax().get(), 0);
+	}
+
+	@Test
+	public void testAllNaNView() {
+		final Img<FloatType> img = PlanarImgs.floats(10, 10);
+		for (final FloatType t : img) t.set(Float.NaN);
+		final ParallelMinMaxMethod<FloatType> method = process(Views.translate(img,
+			1, 1));
+		assertTrue(Float.isNaN(method.getMin().get()));
+		assertTrue(Float.isNaN(method.getMax().get()));
+	}
+
+	// -- Helper methods --
+
+	private <T extends Type<T> & Comparable<T>> ParallelMinMaxMethod<T> process(
+		final RandomAccessibleInterval<T> interval)
+	{
+		final ParallelMinMaxMethod<T> method = new ParallelMinMaxMethod<>();
+		context.inject(method);
+		method.initialize(interval);
+		assertTrue(method.process());
+		return method;
+	}
+}
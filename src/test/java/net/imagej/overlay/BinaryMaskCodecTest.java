@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.overlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BinaryMaskCodec}.
+ */
+public class BinaryMaskCodecTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final Img<BitType> mask = randomMask(ArrayImgs.bits(70, 9, 3), 1);
+		assertRoundTrip(mask, false);
+		assertRoundTrip(mask, true);
+	}
+
+	@Test
+	public void testFullAndEmptyRows() throws IOException {
+		final ArrayImg<BitType, LongArray> mask = ArrayImgs.bits(130, 4);
+		final Cursor<BitType> c = Views.flatIterable(mask).localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().set(c.getLongPosition(1) == 1);
+		}
+		final byte[] bytes = encode(mask, false);
+		// header: format, flags, dimension count, 2-byte width, height
+		// rows: empty, one run (count, gap, 2-byte length), empty, empty
+		assertEquals(5 + 1 + 4 + 1 + 1, bytes.length);
+		assertEqual(mask, BinaryMaskCodec.read(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test
+	public void testCellImg() throws IOException {
+		final Img<BitType> mask = randomMask(new CellImgFactory<>(new BitType(),
+			8).create(21, 17), 2);
+		assertRoundTrip(mask, false);
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		final Img<BitType> mask = randomMask(ArrayImgs.bits(33, 65), 3);
+		final Path file = Files.createTempFile("mask", ".bin");
+		try {
+			BinaryMaskCodec.write(mask, file, true);
+			assertEqual(mask, BinaryMaskCodec.read(file));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static Img<BitType> randomMask(final Img<BitType> mask,
+		final long seed)
+	{
+		final Random r = new Random(seed);
+		boolean value = false;
+		for (final BitType t : Views.flatIterable(mask)) {
+			// NB: Favor longer runs, as in real masks.
+			if (r.nextInt(5) == 0) value = !value;
+			t.set(value);
+		}
+		return mask;
+	}
+
+	private static byte[] encode(final Img<BitType> mask, final boolean deflate)
+		throws IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryMaskCodec.write(mask, out, deflate);
+		return out.toByteArray();
+	}
+
+	private static void assertRoundTrip(final Img<BitType> mask,
+		final boolean deflate) throws IOException
+	{
+		final byte[] bytes = encode(mask, deflate);
+		assertEqual(mask, BinaryMaskCodec.read(new ByteArrayInputStream(bytes)));
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		assertEqual(mask, BinaryMaskCodec.read(buffer));
+		if (!deflate) assertTrue(!buffer.hasRemaining());
+	}
+
+	private static void assertEqual(final Img<BitType> expected,
+		final Img<BitType> actual)
+	{
+		assertEquals(expected.numDimensions(), actual.numDimensions());
+		for (int d = 0; d < expected.numDimensions(); d++) {
+			assertEquals(expected.dimension(d), actual.dimension(d));
+		}
+		final Cursor<BitType> e = Views.flatIterable(expected).cursor();
+		final Cursor<BitType> a = Views.flatIterable(actual).cursor();
+		while (e.hasNext()) {
+			assertEquals(e.next().get(), a.next().get());
+		}
+	}
+
+}
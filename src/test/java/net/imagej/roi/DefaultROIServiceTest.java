@@ -34,18 +34,29 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.imagej.ImgPlus;
+import net.imglib2.FinalInterval;
 import net.imglib2.KDTree;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.RealPointSampleList;
 import net.imglib2.RealRandomAccessibleRealInterval;
 import net.imglib2.img.Img;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.list.ListImg;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.Mask;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.RealMask;
 import net.imglib2.roi.geom.real.Box;
@@ -66,7 +77,12 @@ import net.imglib2.roi.geom.real.WritableSphere;
 import net.imglib2.roi.geom.real.WritableSuperEllipsoid;
 import net.imglib2.roi.mask.integer.RandomAccessibleIntervalAsMaskInterval;
 import net.imglib2.roi.mask.real.RealMaskRealIntervalAsRealRandomAccessibleRealInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Util;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -501,8 +517,120 @@ public class DefaultROIServiceTest {
 		assertEquals(0.5, se.exponent(), 0);
 	}
 
+	// -- Test ImgLabeling Conversion --
+
+	@Test
+	public void testToImgLabeling() {
+		final ROITree tree = new DefaultROITree();
+		final List<MaskPredicate<?>> rois = new ArrayList<>();
+		rois.add(roi.closedBox(new double[] { 1, 1 }, new double[] { 4, 3 }));
+		rois.add(roi.closedBox(new double[] { 3, 2 }, new double[] { 6, 6 }));
+		rois.add(roi.closedBox(new double[] { 20, 20 }, new double[] { 30, 30 }));
+		tree.addROIs(rois);
+
+		final ImgLabeling<?, ?> labeling = roi.toImgLabeling(tree,
+			new FinalInterval(8, 8));
+		assertTrue(Util.getTypeFromInterval(labeling
+			.getIndexImg()) instanceof UnsignedByteType);
+		final RandomAccess<? extends Set<?>> ra = labeling.randomAccess();
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				final Set<Integer> expected = new HashSet<>();
+				if (x >= 1 && x <= 4 && y >= 1 && y <= 3) expected.add(1);
+				if (x >= 3 && x <= 6 && y >= 2 && y <= 6) expected.add(2);
+				ra.setPosition(new long[] { x, y });
+				assertEquals(expected, new HashSet<>(ra.get()));
+			}
+		}
+	}
+
+	@Test
+	public void testToImgLabelingManyROIs() {
+		final ROITree tree = new DefaultROITree();
+		final List<MaskPredicate<?>> rois = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			final double[] pos = { i % 20, i / 20 };
+			rois.add(roi.closedBox(pos, pos));
+		}
+		tree.addROIs(rois);
+
+		final ImgLabeling<?, ?> labeling = roi.toImgLabeling(tree,
+			new FinalInterval(20, 20), new CellImgFactory<>(new BitType(), 7));
+		assertTrue(labeling.getIndexImg() instanceof CellImg);
+		assertTrue(Util.getTypeFromInterval(labeling
+			.getIndexImg()) instanceof UnsignedShortType);
+		final RandomAccess<? extends Set<?>> ra = labeling.randomAccess();
+		for (int i = 0; i < 400; i++) {
+			ra.setPosition(new long[] { i % 20, i / 20 });
+			final Set<?> labels = new HashSet<>(ra.get());
+			if (i < 300) assertEquals(Collections.singleton(i + 1), labels);
+			else assertTrue(labels.isEmpty());
+		}
+	}
+
+	@Test
+	public void testToImgLabelingSequential() {
+		final Set<Thread> threads = Collections.newSetFromMap(
+			new ConcurrentHashMap<>());
+		final ROITree tree = new DefaultROITree();
+		tree.addROIs(Collections.singletonList(diagonal(threads)));
+
+		// NB: Enough rows for several tasks.
+		final ImgLabeling<?, ?> labeling = roi.toImgLabeling(tree,
+			new FinalInterval(4, 1024));
+		assertEquals(Collections.singleton(Thread.currentThread()), threads);
+		assertDiagonal(labeling);
+	}
+
+	@Test
+	public void testToImgLabelingParallel() {
+		final Set<Thread> threads = Collections.newSetFromMap(
+			new ConcurrentHashMap<>());
+		final ROITree tree = new DefaultROITree();
+		tree.addROIs(Collections.singletonList(diagonal(threads)));
+
+		assertDiagonal(roi.toImgLabeling(tree, new FinalInterval(4, 1024), null,
+			true));
+
+		// a single-threaded context still evaluates the ROIs sequentially
+		threads.clear();
+		Parallelization.runSingleThreaded(() -> {
+			assertDiagonal(roi.toImgLabeling(tree, new FinalInterval(4, 1024), null,
+				true));
+		});
+		assertEquals(Collections.singleton(Thread.currentThread()), threads);
+	}
+
 	// -- Helper methods --
 
+	/** Creates a ROI which records the threads testing it. */
+	private static Mask diagonal(final Set<Thread> threads) {
+		return new Mask() {
+
+			@Override
+			public int numDimensions() {
+				return 2;
+			}
+
+			@Override
+			public boolean test(final Localizable l) {
+				threads.add(Thread.currentThread());
+				return l.getLongPosition(0) == l.getLongPosition(1) % 4;
+			}
+		};
+	}
+
+	private static void assertDiagonal(final ImgLabeling<?, ?> labeling) {
+		final RandomAccess<? extends Set<?>> ra = labeling.randomAccess();
+		for (int y = 0; y < 1024; y++) {
+			for (int x = 0; x < 4; x++) {
+				ra.setPosition(new long[] { x, y });
+				assertEquals(x == y % 4 ? Collections.singleton(1) : Collections
+					.emptySet(), new HashSet<>(ra.get()));
+			}
+		}
+	}
+
 	private void assertRealPointCollectionCorrect(
 		final RealPointCollection<RealLocalizable> rpc)
 	{
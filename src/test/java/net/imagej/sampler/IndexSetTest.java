@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link IndexSet}.
+ */
+public class IndexSetTest {
+
+	@Test
+	public void testRunEncoding() {
+		final IndexSet set = IndexSet.of(1, 3, 6, 7, 8, 25, 44);
+		assertEquals(7, set.size());
+		assertEquals(3, set.runCount());
+		assertEquals("1-3-2,6-8,25-44-19", set.toString());
+		assertArrayEquals(new long[] { 1, 3, 6, 7, 8, 25, 44 }, set.toArray());
+	}
+
+	@Test
+	public void testLargeRange() {
+		final IndexSet set = IndexSet.between(0, 9_999_999_999L, 3);
+		assertEquals(3_333_333_334L, set.size());
+		assertEquals(1, set.runCount());
+		assertEquals(9_999_999_999L, set.last());
+		assertEquals(3_000_000_000L, set.get(1_000_000_000L));
+		assertEquals(1_000_000_000L, set.indexOf(3_000_000_000L));
+		assertFalse(set.contains(3_000_000_001L));
+	}
+
+	@Test
+	public void testDescending() {
+		final IndexSet set = IndexSet.between(10, 4, -3);
+		assertArrayEquals(new long[] { 10, 7, 4 }, set.toArray());
+		assertEquals(2, set.indexOf(4));
+		assertTrue(IndexSet.between(4, 10, -1).isEmpty());
+	}
+
+	@Test
+	public void testUnion() {
+		final IndexSet disjoint = IndexSet.between(20, 30, 1).union(IndexSet
+			.between(0, 10, 2));
+		assertEquals("0-10-2,20-30", disjoint.toString());
+
+		final IndexSet overlapping = IndexSet.between(0, 10, 2).union(IndexSet
+			.between(9, 3, -3));
+		assertArrayEquals(new long[] { 0, 2, 3, 4, 6, 8, 9, 10 }, overlapping
+			.toArray());
+
+		final IndexSet adjacent = IndexSet.between(0, 4, 1).union(IndexSet
+			.between(5, 9, 1));
+		assertEquals(1, adjacent.runCount());
+		assertEquals(10, adjacent.size());
+	}
+
+	@Test
+	public void testIteration() {
+		final IndexSet set = IndexSet.of(5, 1, 2, 3);
+		final PrimitiveIterator.OfLong iter = set.iterator();
+		final long[] values = new long[4];
+		for (int i = 0; i < values.length; i++) {
+			assertTrue(iter.hasNext());
+			values[i] = iter.nextLong();
+		}
+		assertFalse(iter.hasNext());
+		assertArrayEquals(set.toArray(), values);
+		assertEquals(Arrays.asList(5L, 1L, 2L, 3L), set.asList());
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imagej.Dataset;
+import net.imagej.DatasetService;
+import net.imagej.ImgPlus;
+import net.imglib2.RandomAccess;
+import net.imglib2.display.ColorTable8;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link PlaneCopier}.
+ */
+public class PlaneCopierTest {
+
+	private Context context;
+	private DatasetService datasetService;
+	private ThreadService threadService;
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class, ThreadService.class);
+		datasetService = context.service(DatasetService.class);
+		threadService = context.service(ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testPlanarCopy() throws Exception {
+		assertSampled(new PlanarImgFactory<>(new IntType()));
+	}
+
+	@Test
+	public void testNonplanarCopy() throws Exception {
+		assertSampled(new ArrayImgFactory<>(new IntType()));
+	}
+
+	@Test
+	public void testCollapsedAxis() throws Exception {
+		final Dataset input = createInput();
+		final List<IndexSet> ranges = Arrays.asList(IndexSet.range(0, 1, 6),
+			IndexSet.of(3), IndexSet.of(0, 2));
+		final Dataset output = create(new PlanarImgFactory<>(new IntType()), 6, 2);
+		new PlaneCopier(input, output, ranges).copyData(threadService);
+
+		final RandomAccess<? extends RealType<?>> ra = output.randomAccess();
+		for (int z = 0; z < 2; z++) {
+			for (int x = 0; x < 6; x++) {
+				ra.setPosition(new long[] { x, z });
+				assertEquals(value(x, 3, 2 * z), ra.get().getRealDouble(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testColorTables() {
+		final Dataset input = createInput();
+		final ColorTable8[] tables = new ColorTable8[3];
+		for (int z = 0; z < tables.length; z++) {
+			tables[z] = new ColorTable8();
+			input.setColorTable(tables[z], z);
+		}
+		final Dataset output = create(new PlanarImgFactory<>(new IntType()), 3, 3,
+			2);
+		output.getImgPlus().initializeColorTables(2);
+		new PlaneCopier(input, output, ranges()).copyColorTables();
+		assertSame(tables[1], output.getColorTable(0));
+		assertSame(tables[2], output.getColorTable(1));
+	}
+
+	// -- Helper methods --
+
+	private void assertSampled(final ImgFactory<IntType> factory)
+		throws Exception
+	{
+		final Dataset input = createInput();
+		final Dataset output = create(factory, 3, 3, 2);
+		new PlaneCopier(input, output, ranges()).copyData(threadService);
+
+		final long[] xs = { 1, 2, 4 }, ys = { 0, 2, 4 }, zs = { 1, 2 };
+		final RandomAccess<? extends RealType<?>> ra = output.randomAccess();
+		for (int z = 0; z < zs.length; z++) {
+			for (int y = 0; y < ys.length; y++) {
+				for (int x = 0; x < xs.length; x++) {
+					ra.setPosition(new long[] { x, y, z });
+					assertEquals(value(xs[x], ys[y], zs[z]), ra.get().getRealDouble(), 0);
+				}
+			}
+		}
+	}
+
+	/** Samples X at 1, 2 and 4; Y at 0, 2 and 4; Z at 1 and 2. */
+	private List<IndexSet> ranges() {
+		return Arrays.asList(IndexSet.of(1, 2, 4), IndexSet.range(0, 2, 3),
+			IndexSet.range(1, 1, 2));
+	}
+
+	private Dataset createInput() {
+		final Dataset input = create(new PlanarImgFactory<>(new IntType()), 6, 5,
+			3);
+		input.getImgPlus().initializeColorTables(3);
+		final RandomAccess<? extends RealType<?>> ra = input.randomAccess();
+		for (int z = 0; z < 3; z++) {
+			for (int y = 0; y < 5; y++) {
+				for (int x = 0; x < 6; x++) {
+					ra.setPosition(new long[] { x, y, z });
+					ra.get().setReal(value(x, y, z));
+				}
+			}
+		}
+		return input;
+	}
+
+	private Dataset create(final ImgFactory<IntType> factory,
+		final long... dims)
+	{
+		final Img<IntType> img = factory.create(dims);
+		return datasetService.create(new ImgPlus<>(img));
+	}
+
+	private static double value(final long x, final long y, final long z) {
+		return 100 * z + 10 * y + x;
+	}
+
+}
@@ -34,6 +34,11 @@ import static org.junit.Assert.assertSame;
 
 import java.util.List;
 
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.DoubleType;
+
 import org.junit.Test;
 
 import org.scijava.table.DoubleColumn;
@@ -320,6 +325,64 @@ public class DefaultResultsTableTest {
 		checkTableModifiedRows(table, values, 3, 6);
 	}
 
+	@Test
+	public void testImg() {
+		final ResultsTable table = createTable();
+		final Img<DoubleType> img = table.img();
+		assertEquals(3, img.dimension(0));
+		assertEquals(21, img.dimension(1));
+
+		final RandomAccess<DoubleType> ra = img.randomAccess();
+		for (int r = 0; r < DATA.length; r++) {
+			for (int c = 0; c < HEADERS.length; c++) {
+				ra.setPosition(new int[] { c, r });
+				assertEquals(DATA[r][c], ra.get().get(), 0);
+			}
+		}
+
+		// writes go straight to the columns
+		ra.setPosition(new int[] { 2, 5 });
+		ra.get().set(0.5);
+		assertEquals(0.5, table.getValue(2, 5), 0);
+		table.setValue(2, 5, DATA[5][2]);
+
+		final Cursor<DoubleType> cursor = img.localizingCursor();
+		int i = 0;
+		while (cursor.hasNext()) {
+			final double value = cursor.next().get();
+			final int c = i % HEADERS.length, r = i / HEADERS.length;
+			assertEquals(c, cursor.getIntPosition(0));
+			assertEquals(r, cursor.getIntPosition(1));
+			assertEquals(DATA[r][c], value, 0);
+			i++;
+		}
+		assertEquals(img.size(), i);
+
+		final Img<DoubleType> copy = img.copy();
+		final Cursor<DoubleType> copyCursor = copy.cursor();
+		for (final DoubleType t : img) {
+			assertEquals(t.get(), copyCursor.next().get(), 0);
+		}
+	}
+
+	@Test
+	public void testForEachColumn() {
+		final ResultsTable table = createTable();
+		final double[] sums = new double[HEADERS.length];
+		new ResultsImg(table).forEachColumn((c, values, rows) -> {
+			for (int r = 0; r < rows; r++) {
+				sums[c] += values[r];
+			}
+		});
+		for (int c = 0; c < HEADERS.length; c++) {
+			double expected = 0;
+			for (int r = 0; r < DATA.length; r++) {
+				expected += DATA[r][c];
+			}
+			assertEquals(expected, sums[c], 1e-9);
+		}
+	}
+
 	// TODO - Add more tests. 
 
 	// -- Helper methods --
@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link MappedResultsTable}.
+ */
+public class MappedResultsTableTest {
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("results");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (final Stream<Path> files = Files.list(dir)) {
+			for (final Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		try (final MappedResultsTable table = MappedResultsTable.create(dir)) {
+			table.appendColumn("Area");
+			table.appendColumn("Mean");
+			for (int r = 0; r < 100; r++) {
+				table.appendRow(r, r / 2.0);
+			}
+			assertEquals(2, table.getColumnCount());
+			assertEquals(100, table.getRowCount());
+		}
+		try (final MappedResultsTable table = MappedResultsTable.open(dir)) {
+			assertEquals(2, table.getColumnCount());
+			assertEquals(100, table.getRowCount());
+			assertEquals("Area", table.getColumnHeader(0));
+			assertEquals(1, table.getColumnIndex("Mean"));
+			assertEquals(-1, table.getColumnIndex("Max"));
+			for (int r = 0; r < 100; r++) {
+				assertEquals(r, table.getValue(0, r), 0);
+				assertEquals(r / 2.0, table.getValue(1, r), 0);
+			}
+
+			// a column appended later starts out as zeroes
+			table.appendColumn("Max");
+			assertEquals(0, table.getValue(2, 99), 0);
+			try {
+				table.getValue(0, 100);
+				fail("Expected an invalid row");
+			}
+			catch (final IndexOutOfBoundsException exc) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testChunks() throws IOException {
+		final int rows = (1 << 20) + 5;
+		try (final MappedResultsTable table = MappedResultsTable.create(dir)) {
+			table.appendColumn("Value");
+			table.appendRows(rows);
+			for (int r = rows - 10; r < rows; r++) {
+				table.setValue(0, r, -r);
+			}
+		}
+		try (final MappedResultsTable table = MappedResultsTable.open(dir)) {
+			assertEquals(rows, table.getRowCount());
+			assertEquals(0, table.getValue(0, rows - 11), 0);
+			for (int r = rows - 10; r < rows; r++) {
+				assertEquals(-r, table.getValue(0, r), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testImg() throws IOException {
+		try (final MappedResultsTable table = MappedResultsTable.create(dir)) {
+			table.appendColumn("X");
+			table.appendColumn("Y");
+			table.appendColumn("Z");
+			for (int r = 0; r < 7; r++) {
+				table.appendRow(r, 10 * r, 100 * r);
+			}
+			final Img<DoubleType> img = table.img();
+			assertEquals(3, img.dimension(0));
+			assertEquals(7, img.dimension(1));
+
+			final RandomAccess<DoubleType> ra = img.randomAccess();
+			ra.setPosition(new int[] { 2, 4 });
+			assertEquals(400, ra.get().get(), 0);
+			ra.get().set(-1);
+			assertEquals(-1, table.getValue(2, 4), 0);
+
+			final Cursor<DoubleType> cursor = img.localizingCursor();
+			double sum = 0;
+			while (cursor.hasNext()) {
+				sum += cursor.next().get();
+			}
+			// (0 + 1 + ... + 6) * 111, less the 401 changed above
+			assertEquals(21 * 111 - 401, sum, 0);
+
+			try {
+				((ResultsImg) table.img().getImg()).forEachColumn((c, values,
+					rows) -> {});
+				fail("Mapped columns have no arrays");
+			}
+			catch (final UnsupportedOperationException exc) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testToResultsTable() throws IOException {
+		try (final MappedResultsTable table = MappedResultsTable.create(dir)) {
+			table.appendColumn("Area");
+			table.appendColumn("Mean");
+			for (int r = 0; r < 6; r++) {
+				table.appendRow(r, r / 2.0);
+			}
+			final ResultsTable copy = table.toResultsTable();
+			assertEquals(2, copy.getColumnCount());
+			assertEquals(6, copy.getRowCount());
+			assertEquals("Area", copy.getColumnHeader(0));
+			assertEquals("Mean", copy.getColumnHeader(1));
+			for (int r = 0; r < 6; r++) {
+				assertEquals(r, copy.getValue(0, r), 0);
+				assertEquals(r / 2.0, copy.getValue(1, r), 0);
+			}
+
+			// the copy is independent of the mapped table
+			copy.setValue(0, 0, 42);
+			assertEquals(0, table.getValue(0, 0), 0);
+		}
+	}
+
+	@Test
+	public void testForEachColumn() throws IOException {
+		try (final MappedResultsTable table = MappedResultsTable.create(dir)) {
+			table.appendColumn("X");
+			table.appendColumn("Y");
+			for (int r = 0; r < 5; r++) {
+				table.appendRow(r, -r);
+			}
+			final double[] sums = new double[2];
+			table.forEachColumn((c, values, rows) -> {
+				for (int r = 0; r < rows; r++) {
+					sums[c] += values.getValue(r);
+				}
+				values.setValue(0, c + 1);
+			});
+			assertEquals(10, sums[0], 0);
+			assertEquals(-10, sums[1], 0);
+			assertEquals(1, table.getValue(0, 0), 0);
+			assertEquals(2, table.getValue(1, 0), 0);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link DefaultDataTypeService}.
+ */
+public class DefaultDataTypeServiceTest {
+
+	private static final double[] VALUES = { -1e19, -3e9, -70000.7, -129, -1.5,
+		-0.5, 0, 0.5, 1, 127.9, 128, 255, 256, 32768, 65535.2, 65536, 3e9, 5e9,
+		1e19 };
+
+	private Context context;
+	private DataTypeService dataTypeService;
+
+	@Before
+	public void setUp() {
+		context = new Context(DataTypeService.class);
+		dataTypeService = context.service(DataTypeService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	/** Tests that bulk casts agree with per-sample casts, for all type pairs. */
+	@Test
+	public void testCastImages() {
+		final List<DataType<?>> types = nativeRealTypes();
+		for (final DataType<?> in : types) {
+			for (final DataType<?> out : types) {
+				assertCast(in, out, false);
+				assertCast(in, out, true);
+			}
+		}
+	}
+
+	@Test
+	public void testCastArrays() {
+		int castCount = 0;
+		for (final DataType<?> in : nativeRealTypes()) {
+			for (final DataType<?> out : nativeRealTypes()) {
+				if (PrimitiveCaster.create(in, out) == null) continue;
+				assertCastArray(in, out);
+				castCount++;
+			}
+		}
+		assertEquals(81, castCount);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCastArraysMismatch() {
+		final DataType<?> bytes = dataTypeService.getTypeByName(
+			"8-bit unsigned integer");
+		final DataType<?> floats = dataTypeService.getTypeByName(
+			"32-bit signed float");
+		dataTypeService.castArray(bytes, new byte[3], floats, new double[3]);
+	}
+
+	// -- Helper methods --
+
+	private List<DataType<?>> nativeRealTypes() {
+		final List<DataType<?>> types = new ArrayList<>();
+		for (final DataType<?> type : dataTypeService.getInstances()) {
+			final Object v = type.createVariable();
+			if (v instanceof NativeType && v instanceof RealType && !type
+				.isComplex()) types.add(type);
+		}
+		assertTrue(types.size() >= 9);
+		return types;
+	}
+
+	private <U extends NumericType<U>, V extends NumericType<V>> void
+		assertCast(final DataType<U> in, final DataType<V> out,
+			final boolean planar)
+	{
+		final Img<U> input = createImg(in, planar);
+		final Img<V> output = createImg(out, !planar);
+		dataTypeService.cast(in, input, out, output);
+		assertSamples(in, input, out, output);
+	}
+
+	private <U extends NumericType<U>, V extends NumericType<V>> void
+		assertCastArray(final DataType<U> in, final DataType<V> out)
+	{
+		final Img<U> input = createImg(in, false);
+		final Img<V> output = createImg(out, false);
+		dataTypeService.castArray(in, storage(input), out, storage(output));
+		assertSamples(in, input, out, output);
+	}
+
+	private <U extends NumericType<U>, V extends NumericType<V>> void
+		assertSamples(final DataType<U> in, final Img<U> input,
+			final DataType<V> out, final Img<V> output)
+	{
+		final BigComplex tmp = new BigComplex();
+		final V expected = out.createVariable();
+		final Cursor<U> ic = input.cursor();
+		final Cursor<V> oc = output.cursor();
+		while (ic.hasNext()) {
+			dataTypeService.cast(in, ic.next(), out, expected, tmp);
+			assertEquals(in.longName() + " -> " + out.longName(),
+				((RealType<?>) expected).getRealDouble(), ((RealType<?>) oc.next())
+					.getRealDouble(), 0);
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private <T extends NumericType<T>> Img<T> createImg(final DataType<T> type,
+		final boolean planar)
+	{
+		final NativeType t = (NativeType) type.createVariable();
+		final long[] dims = { VALUES.length, 1, 1 };
+		final Img<T> img = planar ? new PlanarImgFactory(t).create(dims)
+			: new ArrayImgFactory(t).create(dims);
+		final Cursor<T> c = img.cursor();
+		for (final double v : VALUES) {
+			type.setDouble(c.next(), v);
+		}
+		return img;
+	}
+
+	private Object storage(final Img<?> img) {
+		return ((ArrayDataAccess<?>) ((ArrayImg<?, ?>) img).update(null))
+			.getCurrentStorageArray();
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link NativePreciseFixedFloatType}.
+ */
+public class NativePreciseFixedFloatTypeTest {
+
+	@Test
+	public void testArithmetic() {
+		final NativePreciseFixedFloatType a = new NativePreciseFixedFloatType();
+		final NativePreciseFixedFloatType b = new NativePreciseFixedFloatType();
+		a.set(1.5);
+		b.set(-4);
+		a.add(b);
+		assertEquals("-2.5", a.toString());
+		a.sub(b);
+		assertEquals("1.5", a.toString());
+		a.mul(b);
+		assertEquals("-6", a.toString());
+		a.div(b);
+		assertEquals("1.5", a.toString());
+		a.dec();
+		a.dec();
+		assertEquals("-0.5", a.toString());
+		a.inc();
+		assertEquals("0.5", a.toString());
+		assertTrue(b.compareTo(a) < 0);
+		assertTrue(a.compareTo(b) > 0);
+	}
+
+	@Test
+	public void testCarries() {
+		final NativePreciseFixedFloatType a = new NativePreciseFixedFloatType(0, 3);
+		final NativePreciseFixedFloatType b = new NativePreciseFixedFloatType(0, 3);
+		final BigInteger word = BigInteger.ONE.shiftLeft(64);
+		a.setScaledValue(word.subtract(BigInteger.ONE));
+		b.setOne();
+		a.add(b);
+		assertEquals(word, a.getScaledValue());
+		a.sub(b);
+		a.sub(b);
+		assertEquals(word.subtract(BigInteger.valueOf(2)), a.getScaledValue());
+
+		a.setScaledValue(word.negate());
+		a.dec();
+		assertEquals(word.negate().subtract(BigInteger.ONE), a.getScaledValue());
+		b.setScaledValue(word.shiftLeft(64).negate());
+		a.add(b);
+		assertEquals(word.shiftLeft(64).add(word).add(BigInteger.ONE).negate(), a
+			.getScaledValue());
+		assertTrue(a.compareTo(b) < 0);
+	}
+
+	@Test
+	public void testOverflow() {
+		final NativePreciseFixedFloatType a = new NativePreciseFixedFloatType(0, 1);
+		a.setScaledValue(BigInteger.valueOf(Long.MAX_VALUE));
+		try {
+			a.inc();
+			fail("Expected overflow");
+		}
+		catch (final ArithmeticException exc) {
+			// expected
+		}
+		try {
+			a.setScaledValue(BigInteger.ONE.shiftLeft(63));
+			fail("Expected overflow");
+		}
+		catch (final ArithmeticException exc) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSumOfSquares() {
+		final Img<NativePreciseFixedFloatType> img = new ArrayImgFactory<>(
+			new NativePreciseFixedFloatType()).create(10, 10);
+		int n = 0;
+		for (final NativePreciseFixedFloatType t : img) {
+			t.set(++n / 10.0);
+			t.mul(t.copy());
+		}
+		final NativePreciseFixedFloatType sum = new NativePreciseFixedFloatType();
+		for (final NativePreciseFixedFloatType t : img) {
+			sum.add(t);
+		}
+		// sum of (i / 10)^2 for i = 1..100
+		assertEquals("3383.5", sum.toString());
+
+		final PreciseFixedFloatType value = new PreciseFixedFloatType();
+		sum.get(value);
+		assertEquals("3383.5", value.toString());
+	}
+}
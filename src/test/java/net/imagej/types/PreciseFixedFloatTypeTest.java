@@ -368,4 +368,50 @@ public class PreciseFixedFloatTypeTest {
 			.getPowerDouble(), PRECISION);
 	}
 
+	@Test
+	public void testDecimalPlaces() {
+		PreciseFixedFloatType a = PreciseFixedFloatType.withDecimalPlaces(2);
+		assertEquals(2, a.getDecimalPlaces());
+		a.set(1.2345);
+		assertEquals("1.23", a.toString());
+		a.div(new PreciseFixedFloatType(3));
+		assertEquals("0.41", a.toString());
+
+		// mixed precisions keep the places of the receiver
+		PreciseFixedFloatType b = new PreciseFixedFloatType("0.125");
+		a.add(b);
+		assertEquals("0.53", a.toString());
+		b.add(a);
+		assertEquals("0.655", b.toString());
+		assertTrue(a.compareTo(b) < 0);
+		PreciseFixedFloatType half = PreciseFixedFloatType.withDecimalPlaces(3);
+		half.set(0.5);
+		assertTrue(new PreciseFixedFloatType(0.5).valueEquals(half));
+
+		// set keeps the places of the receiver; copies keep those of the original
+		a.set(b);
+		assertEquals(2, a.getDecimalPlaces());
+		assertEquals("0.65", a.toString());
+		b.set(a);
+		assertEquals(PreciseFixedFloatType.DECIMAL_PLACES, b.getDecimalPlaces());
+		assertEquals("0.65", b.toString());
+		PreciseFixedFloatType copy = new PreciseFixedFloatType(a);
+		assertEquals(2, copy.getDecimalPlaces());
+		assertEquals("0.65", copy.toString());
+		assertEquals(2, a.copy().getDecimalPlaces());
+	}
+
+	@Test
+	public void testAddProduct() {
+		PreciseFixedFloatType sum = new PreciseFixedFloatType();
+		PreciseFixedFloatType x = new PreciseFixedFloatType();
+		for (int i = 1; i <= 10; i++) {
+			x.set(i / 10.0);
+			sum.addProduct(x, x);
+		}
+		assertEquals("3.85", sum.toString());
+		sum.add(-3L);
+		assertEquals("0.85", sum.toString());
+	}
+
 }
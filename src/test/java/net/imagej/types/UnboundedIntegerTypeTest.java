@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.cache.img.DiskCachedCellImg;
+import net.imglib2.cache.img.DiskCachedCellImgFactory;
+import net.imglib2.cache.img.DiskCachedCellImgOptions;
+import net.imglib2.cache.img.DiskCachedCellImgOptions.CacheType;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link UnboundedIntegerType}.
+ */
+public class UnboundedIntegerTypeTest {
+
+	private static final BigInteger MAX = BigInteger.valueOf(Long.MAX_VALUE);
+	private static final BigInteger MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+	@Test
+	public void testSmallArithmetic() {
+		final UnboundedIntegerType a = new UnboundedIntegerType(7);
+		final UnboundedIntegerType b = new UnboundedIntegerType(-3);
+		a.add(b);
+		assertEquals(4, a.getIntegerLong());
+		a.sub(b);
+		assertEquals(7, a.getIntegerLong());
+		a.mul(b);
+		assertEquals(-21, a.getIntegerLong());
+		a.div(b);
+		assertEquals(7, a.getIntegerLong());
+		a.inc();
+		a.dec();
+		a.dec();
+		assertEquals("6", a.toString());
+	}
+
+	@Test
+	public void testOverflowPromotes() {
+		final UnboundedIntegerType a = new UnboundedIntegerType(Long.MAX_VALUE);
+		a.inc();
+		assertEquals(MAX.add(BigInteger.ONE), a.get());
+		a.dec();
+		assertEquals(Long.MAX_VALUE, a.getIntegerLong());
+
+		a.add(new UnboundedIntegerType(Long.MAX_VALUE));
+		assertEquals(MAX.shiftLeft(1), a.get());
+		a.sub(new UnboundedIntegerType(Long.MAX_VALUE));
+		assertEquals(MAX, a.get());
+
+		a.mul(a.copy());
+		assertEquals(MAX.multiply(MAX), a.get());
+		a.div(new UnboundedIntegerType(Long.MAX_VALUE));
+		assertEquals(MAX, a.get());
+	}
+
+	@Test
+	public void testMinValue() {
+		final UnboundedIntegerType a = new UnboundedIntegerType(Long.MIN_VALUE);
+		assertEquals(MIN, a.get());
+		assertEquals(Long.MIN_VALUE, a.getIntegerLong());
+		a.div(new UnboundedIntegerType(-1));
+		assertEquals(MIN.negate(), a.get());
+		a.set(Long.MIN_VALUE + 1);
+		a.dec();
+		assertEquals(MIN, a.get());
+		a.dec();
+		assertEquals(MIN.subtract(BigInteger.ONE), a.get());
+		a.inc();
+		a.inc();
+		assertEquals(Long.MIN_VALUE + 1, a.getIntegerLong());
+	}
+
+	@Test
+	public void testCompare() {
+		final UnboundedIntegerType small = new UnboundedIntegerType(5);
+		final UnboundedIntegerType big = new UnboundedIntegerType(MAX.shiftLeft(
+			3));
+		assertTrue(small.compareTo(big) < 0);
+		assertTrue(big.compareTo(small) > 0);
+		assertFalse(small.valueEquals(big));
+		assertTrue(big.valueEquals(new UnboundedIntegerType(MAX.shiftLeft(3))));
+		assertTrue(small.valueEquals(new UnboundedIntegerType(BigInteger
+			.valueOf(5))));
+	}
+
+	@Test
+	public void testArrayImg() {
+		final Img<UnboundedIntegerType> img = new ArrayImgFactory<>(
+			new UnboundedIntegerType()).create(4, 3);
+		assertImg(img);
+	}
+
+	@Test
+	public void testPlanarImg() {
+		final Img<UnboundedIntegerType> img = new PlanarImgFactory<>(
+			new UnboundedIntegerType()).create(4, 3, 2);
+		assertImg(img);
+	}
+
+	@Test
+	public void testCellImg() {
+		final Img<UnboundedIntegerType> img = new CellImgFactory<>(
+			new UnboundedIntegerType(), 3).create(4, 3, 2);
+		assertImg(img);
+	}
+
+	/** Checks that big values survive cells being evicted and reloaded. */
+	@Test
+	public void testDiskCachedCellImg() {
+		final DiskCachedCellImg<UnboundedIntegerType, ?> img =
+			new DiskCachedCellImgFactory<>(new UnboundedIntegerType(),
+				DiskCachedCellImgOptions.options().cellDimensions(2, 2).cacheType(
+					CacheType.BOUNDED).maxCacheSize(1)).create(4, 4, 3);
+		long n = 0;
+		for (final UnboundedIntegerType t : img) {
+			t.set(value(n++));
+		}
+		// NB: Only one cell is held; the others may now be written out.
+		System.gc();
+		n = 0;
+		for (final UnboundedIntegerType t : img) {
+			assertEquals(value(n++), t.get());
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Fills alternate samples with big values, and checks them and a copy. */
+	private void assertImg(final Img<UnboundedIntegerType> img) {
+		long n = 0;
+		for (final UnboundedIntegerType t : img) {
+			t.set(value(n++));
+		}
+		final Img<UnboundedIntegerType> copy = img.copy();
+		final Cursor<UnboundedIntegerType> c = img.cursor();
+		final Cursor<UnboundedIntegerType> cc = copy.cursor();
+		n = 0;
+		while (c.hasNext()) {
+			final BigInteger expected = value(n++);
+			assertEquals(expected, c.next().get());
+			assertEquals(expected, cc.next().get());
+		}
+		// demote every value, and check that the samples are independent
+		for (final UnboundedIntegerType t : img) {
+			t.setZero();
+		}
+		for (final UnboundedIntegerType t : img) {
+			assertEquals(BigInteger.ZERO, t.get());
+		}
+		n = 0;
+		for (final UnboundedIntegerType t : copy) {
+			assertEquals(value(n++), t.get());
+		}
+	}
+
+	private static BigInteger value(final long n) {
+		return n % 2 == 0 ? BigInteger.valueOf(n) : MAX.multiply(BigInteger
+			.valueOf(n));
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * ImageJ2 software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2024 ImageJ2 developers.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imagej.types.UnboundedIntegerType;
+import net.imagej.util.ImgStorage.Segment;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.DiskCachedCellImg;
+import net.imglib2.cache.img.DiskCachedCellImgFactory;
+import net.imglib2.cache.img.DiskCachedCellImgOptions;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.Dirty;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ImgStorage}.
+ */
+public class ImgStorageTest {
+
+	@Test
+	public void testSegments() {
+		final Img<UnsignedShortType> array = ArrayImgs.unsignedShorts(10, 8, 3);
+		assertEquals(1, ImgStorage.segments(array).size());
+
+		// one XY plane of an ArrayImg is contiguous
+		final List<Segment> plane = ImgStorage.segments(Views.interval(array,
+			new long[] { 0, 0, 1 }, new long[] { 9, 7, 1 }));
+		assertEquals(1, plane.size());
+		assertEquals(80, plane.get(0).offset());
+		assertEquals(80, plane.get(0).length());
+
+		// a sub-rectangle yields one run per row
+		final List<Segment> rect = ImgStorage.segments(Views.interval(array,
+			new long[] { 2, 3, 2 }, new long[] { 5, 6, 2 }));
+		assertEquals(4, rect.size());
+		assertEquals(160 + 32, rect.get(0).offset());
+		assertEquals(16, ImgStorage.size(rect));
+
+		// planar images yield one run per plane
+		assertEquals(3, ImgStorage.segments(PlanarImgs.unsignedShorts(10, 8, 3))
+			.size());
+
+		// cell images are covered completely
+		final Img<UnsignedShortType> cells = new CellImgFactory<>(
+			new UnsignedShortType(), 4).create(10, 8, 3);
+		assertEquals(240, ImgStorage.size(ImgStorage.segments(cells)));
+
+		// other images are not supported
+		assertNull(ImgStorage.segments(Views.translate(array, 1, 1, 1)));
+	}
+
+	/** Checks that the storage of unbounded integers is never accessed raw. */
+	@Test
+	public void testUnboundedIntegers() {
+		assertFalse(ImgStorage.hasRawSamples(new UnboundedIntegerType()));
+		assertTrue(ImgStorage.hasRawSamples(new UnsignedShortType()));
+		assertNull(ImgStorage.kind(new UnboundedIntegerType()));
+
+		final long[] dims = { 5, 4, 2 };
+		final Img<UnboundedIntegerType> array = new ArrayImgFactory<>(
+			new UnboundedIntegerType()).create(dims);
+		array.firstElement().set(Long.MIN_VALUE);
+		final Img<UnboundedIntegerType> cells = new CellImgFactory<>(
+			new UnboundedIntegerType(), 5, 4, 1).create(dims);
+		assertNull(ImgStorage.segments(array));
+		assertNull(ImgStorage.cellPlane(cells, new long[] { 0, 0, 1 }));
+		assertFalse(ImgStorage.copy(array, cells));
+		assertFalse(ImgStorage.setPlane(array, new long[3], new long[20]));
+
+		// the value marked in the storage is still intact
+		assertEquals(Long.MIN_VALUE, array.firstElement().getIntegerLong());
+	}
+
+	@Test
+	public void testCopy() {
+		final long[] dims = { 13, 9, 4 };
+		final Img<UnsignedShortType> planar = PlanarImgs.unsignedShorts(dims);
+		int i = 0;
+		for (final UnsignedShortType t : planar)
+			t.set(i++);
+
+		final Img<UnsignedShortType> cells = new CellImgFactory<>(
+			new UnsignedShortType(), 5, 4, 3).create(dims);
+		assertTrue(ImgStorage.copy(planar, cells));
+		assertSameValues(planar, cells);
+
+		final Img<UnsignedShortType> array = ArrayImgs.unsignedShorts(dims);
+		assertTrue(ImgStorage.copy(cells, array));
+		assertSameValues(planar, array);
+	}
+
+	@Test
+	public void testCopyPlane() {
+		final Img<UnsignedShortType> cells = new CellImgFactory<>(
+			new UnsignedShortType(), 4).create(10, 7, 3);
+		int i = 0;
+		for (final UnsignedShortType t : cells)
+			t.set(i++);
+		final RandomAccessibleInterval<UnsignedShortType> plane = Views.interval(
+			cells, new long[] { 0, 0, 2 }, new long[] { 9, 6, 2 });
+		final Img<UnsignedShortType> dest = ArrayImgs.unsignedShorts(10, 7, 1);
+		assertTrue(ImgStorage.copy(plane, dest));
+		final short[] expected = new short[70];
+		int j = 0;
+		for (final UnsignedShortType t : Views.flatIterable(plane))
+			expected[j++] = (short) t.get();
+		assertArrayEquals(expected, (short[]) ImgStorage.segments(dest).get(0)
+			.array());
+	}
+
+	@Test
+	public void testCopyMismatch() {
+		final Img<UnsignedShortType> unsigned = ArrayImgs.unsignedShorts(5, 5);
+		final Img<ShortType> signed = ArrayImgs.shorts(5, 5);
+		assertFalse(ImgStorage.copy(unsigned, signed));
+		assertFalse(ImgStorage.copy(unsigned, ArrayImgs.unsignedShorts(5, 6)));
+	}
+
+	// -- Helper methods --
+
+	private void assertSameValues(final Img<UnsignedShortType> expected,
+		final Img<UnsignedShortType> actual)
+	{
+		LoopBuilder.setImages(expected, actual).forEachPixel((e, a) -> assertEquals(
+			e.get(), a.get()));
+	}
+
+	@Test
+	public void testCellPlaneDirty() {
+		final DiskCachedCellImg<UnsignedShortType, ?> img =
+			new DiskCachedCellImgFactory<>(new UnsignedShortType(),
+				DiskCachedCellImgOptions.options().cellDimensions(4, 3, 1)).create(4,
+					3, 2);
+		final long[] position = { 0, 0, 1 };
+
+		// reading a plane must not mark its cell as dirty
+		final ArrayDataAccess<?> read = ImgStorage.cellPlane(img, position);
+		assertTrue(read instanceof Dirty);
+		assertFalse(((Dirty) read).isDirty());
+
+		// but writing it must
+		final ArrayDataAccess<?> write = ImgStorage.cellPlane(img, position, true);
+		assertSame(read, write);
+		assertTrue(((Dirty) write).isDirty());
+	}
+}